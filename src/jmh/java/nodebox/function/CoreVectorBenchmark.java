@@ -0,0 +1,102 @@
+package nodebox.function;
+
+import com.google.common.collect.ImmutableList;
+import nodebox.graphics.Geometry;
+import nodebox.graphics.IGeometry;
+import nodebox.graphics.Path;
+import nodebox.graphics.Point;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the Java versions of the corevector functions with the old Python versions in pyvector.py.
+ * <p/>
+ * Both versions are called through Function.invoke, the same way NodeContext calls them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoreVectorBenchmark {
+
+    @Param({"java", "python"})
+    public String implementation;
+
+    private Function scatter, wiggle, delete, shapeOnPath, stack, reflect;
+    private Path ellipse;
+    private Geometry grid;
+    private Path bounding;
+    private List<IGeometry> shapes;
+
+    @Setup
+    public void setUp() throws Exception {
+        if (implementation.equals("java")) {
+            FunctionLibrary library = CoreVectorFunctions.LIBRARY;
+            scatter = library.getFunction("scatter");
+            wiggle = library.getFunction("wiggle");
+            delete = library.getFunction("delete");
+            shapeOnPath = library.getFunction("shapeOnPath");
+            stack = library.getFunction("stack");
+            reflect = library.getFunction("reflect");
+        } else {
+            FunctionLibrary library = PythonLibrary.loadScript("pyvector", "libraries/corevector/pyvector.py");
+            scatter = library.getFunction("scatter");
+            wiggle = library.getFunction("wiggle");
+            delete = library.getFunction("delete");
+            shapeOnPath = library.getFunction("shape_on_path");
+            stack = library.getFunction("stack");
+            reflect = library.getFunction("reflect");
+        }
+
+        ellipse = new Path();
+        ellipse.ellipse(0, 0, 300, 200);
+        grid = new Geometry();
+        ImmutableList.Builder<IGeometry> shapesBuilder = ImmutableList.builder();
+        for (int y = 0; y < 20; y++) {
+            for (int x = 0; x < 20; x++) {
+                Path p = new Path();
+                p.rect(x * 20, y * 20, 10, 10);
+                grid.add(p);
+                shapesBuilder.add(p);
+            }
+        }
+        shapes = shapesBuilder.build();
+        bounding = new Path();
+        bounding.ellipse(200, 200, 250, 250);
+    }
+
+    @Benchmark
+    public Object scatter() throws Exception {
+        return scatter.invoke(ellipse, 1000L, 42L);
+    }
+
+    @Benchmark
+    public Object wigglePoints() throws Exception {
+        return wiggle.invoke(grid, "points", new Point(5, 5), 42L);
+    }
+
+    @Benchmark
+    public Object deletePoints() throws Exception {
+        return delete.invoke(grid, bounding, "points", "selected");
+    }
+
+    @Benchmark
+    public Object shapeOnPath() throws Exception {
+        return shapeOnPath.invoke(shapes.subList(0, 10), ellipse, 50L, "leading", 5.0, 0.0, 0.0);
+    }
+
+    @Benchmark
+    public Object stack() throws Exception {
+        return stack.invoke(shapes, "e", 5.0);
+    }
+
+    @Benchmark
+    public Object reflect() throws Exception {
+        return reflect.invoke(ellipse.resampleByAmount(500, false), new Point(10, 10), 45.0, true);
+    }
+
+}
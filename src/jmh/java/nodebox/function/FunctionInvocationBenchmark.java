@@ -0,0 +1,118 @@
+package nodebox.function;
+
+import com.google.common.collect.ImmutableList;
+import nodebox.graphics.Path;
+import nodebox.graphics.Point;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the ways of calling a function of a Java library.
+ * <p/>
+ * The "direct" benchmarks call the static method, "reflection" uses Method.invoke, and "function" goes through
+ * Function.invoke, which is what NodeContext uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FunctionInvocationBenchmark {
+
+    private Object[] addArguments;
+    private Method addMethod;
+    private Function addFunction;
+
+    private Object[] firstArguments;
+    private Method firstMethod;
+    private Function firstFunction;
+
+    private Object[] makePointArguments;
+    private Method makePointMethod;
+    private Function makePointFunction;
+
+    private Object[] centroidArguments;
+    private Method centroidMethod;
+    private Function centroidFunction;
+
+    @Setup
+    public void setUp() {
+        addArguments = new Object[]{2.0, 3.0};
+        addMethod = Functions.findMethod(MathFunctions.class, "add");
+        addFunction = MathFunctions.LIBRARY.getFunction("add");
+
+        firstArguments = new Object[]{ImmutableList.of(1.0, 2.0, 3.0)};
+        firstMethod = Functions.findMethod(ListFunctions.class, "first");
+        firstFunction = ListFunctions.LIBRARY.getFunction("first");
+
+        makePointArguments = new Object[]{10.0, 20.0};
+        makePointMethod = Functions.findMethod(CoreVectorFunctions.class, "makePoint");
+        makePointFunction = CoreVectorFunctions.LIBRARY.getFunction("makePoint");
+
+        Path path = new Path();
+        path.ellipse(0, 0, 100, 100);
+        centroidArguments = new Object[]{path};
+        centroidMethod = Functions.findMethod(CoreVectorFunctions.class, "centroid");
+        centroidFunction = CoreVectorFunctions.LIBRARY.getFunction("centroid");
+    }
+
+    @Benchmark
+    public double addDirect() {
+        return MathFunctions.add((Double) addArguments[0], (Double) addArguments[1]);
+    }
+
+    @Benchmark
+    public Object addReflection() throws Exception {
+        return addMethod.invoke(null, addArguments);
+    }
+
+    @Benchmark
+    public Object addFunction() throws Exception {
+        return addFunction.invoke(addArguments);
+    }
+
+    @Benchmark
+    public Object firstDirect() {
+        return ListFunctions.first((List<?>) firstArguments[0]);
+    }
+
+    @Benchmark
+    public Object firstReflection() throws Exception {
+        return firstMethod.invoke(null, firstArguments);
+    }
+
+    @Benchmark
+    public Object firstFunction() throws Exception {
+        return firstFunction.invoke(firstArguments);
+    }
+
+    @Benchmark
+    public Point makePointDirect() {
+        return CoreVectorFunctions.makePoint((Double) makePointArguments[0], (Double) makePointArguments[1]);
+    }
+
+    @Benchmark
+    public Object makePointReflection() throws Exception {
+        return makePointMethod.invoke(null, makePointArguments);
+    }
+
+    @Benchmark
+    public Object makePointFunction() throws Exception {
+        return makePointFunction.invoke(makePointArguments);
+    }
+
+    @Benchmark
+    public Object centroidReflection() throws Exception {
+        return centroidMethod.invoke(null, centroidArguments);
+    }
+
+    @Benchmark
+    public Object centroidFunction() throws Exception {
+        return centroidFunction.invoke(centroidArguments);
+    }
+
+}
@@ -0,0 +1,50 @@
+package nodebox.function;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for reading a generated CSV file with DataFunctions.importCSV.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImportCSVBenchmark {
+
+    @Param({"10000"})
+    public int rows;
+
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = File.createTempFile("benchmark", ".csv");
+        try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+            out.println("name,x,y,value,category");
+            for (int i = 0; i < rows; i++) {
+                out.printf(Locale.US, "\"item %d\",%d,%d,%.3f,%s%n", i, i % 640, i / 640, i * 0.125, i % 3 == 0 ? "alpha" : "beta");
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> importCSV() {
+        return DataFunctions.importCSV(file.getAbsolutePath(), "comma", "double", "period");
+    }
+
+}
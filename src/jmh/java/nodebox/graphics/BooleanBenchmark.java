@@ -0,0 +1,143 @@
+package nodebox.graphics;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.geom.Area;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the boolean operations on paths with the java.awt.geom.Area operations they replace.
+ * <p/>
+ * The "area" implementation does exactly what Path used to do: build an Area for both paths, combine them and
+ * convert the result back to a path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BooleanBenchmark {
+
+    @Param({"clipper", "area"})
+    public String implementation;
+
+    /**
+     * The number of shapes to unite.
+     */
+    @Param({"100", "1000"})
+    public int shapes;
+
+    private Path ellipses1;
+    private Path ellipses2;
+    private Path star;
+    private Path circle;
+    private List<Path> scattered;
+
+    @Setup
+    public void setUp() {
+        ellipses1 = new Path();
+        ellipses2 = new Path();
+        for (int i = 0; i < 10; i++) {
+            ellipses1.ellipse(i * 20, 0, 60, 40);
+            ellipses2.ellipse(i * 20 + 10, 15, 40, 60);
+        }
+        Contour contour = new Contour();
+        for (int i = 0; i < 1000; i++) {
+            double angle = Math.PI * 2 * i / 1000;
+            double radius = i % 2 == 0 ? 100 : 60;
+            contour.addPoint(Math.cos(angle) * radius, Math.sin(angle) * radius);
+        }
+        contour.close();
+        star = new Path(contour);
+        circle = new Path();
+        circle.ellipse(20, 20, 120, 120);
+        Random random = new Random(42);
+        scattered = new ArrayList<Path>(shapes);
+        double size = Math.sqrt(shapes) * 20;
+        for (int i = 0; i < shapes; i++) {
+            Path p = new Path();
+            if (i % 2 == 0) {
+                p.rect(random.nextDouble() * size, random.nextDouble() * size, 25, 25);
+            } else {
+                p.ellipse(random.nextDouble() * size, random.nextDouble() * size, 30, 30);
+            }
+            scattered.add(p);
+        }
+    }
+
+    @Benchmark
+    public Path unitedCurves() {
+        if (implementation.equals("clipper")) {
+            return ellipses1.united(ellipses2);
+        } else {
+            Area a = new Area(ellipses1.getGeneralPath());
+            a.add(new Area(ellipses2.getGeneralPath()));
+            return new Path(a);
+        }
+    }
+
+    @Benchmark
+    public Path subtractedPolygon() {
+        if (implementation.equals("clipper")) {
+            return star.subtracted(circle);
+        } else {
+            Area a = new Area(star.getGeneralPath());
+            a.subtract(new Area(circle.getGeneralPath()));
+            return new Path(a);
+        }
+    }
+
+    @Benchmark
+    public boolean intersectsPolygon() {
+        if (implementation.equals("clipper")) {
+            return star.intersects(circle);
+        } else {
+            Area a = new Area(star.getGeneralPath());
+            a.intersect(new Area(circle.getGeneralPath()));
+            return !a.isEmpty();
+        }
+    }
+
+    /**
+     * Unite many shapes, the way the compound node unites all paths of a geometry.
+     */
+    @Benchmark
+    public Path unionOfShapes() {
+        if (implementation.equals("clipper")) {
+            return Path.union(scattered);
+        } else {
+            Area a = new Area();
+            for (Path p : scattered) {
+                a.add(new Area(p.getGeneralPath()));
+            }
+            return new Path(a);
+        }
+    }
+
+    /**
+     * Unite many shapes one at a time, to show the cost of not using the n-ary union.
+     */
+    @Benchmark
+    public Path pairwiseUnionOfShapes() {
+        if (implementation.equals("clipper")) {
+            Path result = new Path();
+            for (Path p : scattered) {
+                result = result.united(p);
+            }
+            return result;
+        } else {
+            Path result = new Path();
+            for (Path p : scattered) {
+                Area a = new Area(result.getGeneralPath());
+                a.add(new Area(p.getGeneralPath()));
+                result = new Path(a);
+            }
+            return result;
+        }
+    }
+
+}
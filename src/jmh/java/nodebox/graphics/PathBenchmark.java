@@ -0,0 +1,133 @@
+package nodebox.graphics;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the geometric operations on paths and contours.
+ * <p/>
+ * The shapes are created once, so operations that cache their results (like the segment lengths) are measured
+ * with a warm cache. The "copy" benchmarks operate on a fresh copy to measure the cold case.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathBenchmark {
+
+    /**
+     * The number of points in the polygon contour.
+     */
+    @Param({"1000"})
+    public int points;
+
+    private Path curves;
+    private Path polygon;
+    private Contour contour;
+    private Path circle;
+    private Path square;
+
+    @Setup
+    public void setUp() {
+        curves = new Path();
+        for (int i = 0; i < 20; i++) {
+            curves.ellipse(i * 10, i * 5, 100, 80);
+        }
+        contour = new Contour();
+        for (int i = 0; i < points; i++) {
+            double angle = Math.PI * 2 * i / points;
+            double radius = i % 2 == 0 ? 100 : 60;
+            contour.addPoint(Math.cos(angle) * radius, Math.sin(angle) * radius);
+        }
+        contour.close();
+        polygon = new Path(contour);
+        circle = new Path();
+        circle.ellipse(0, 0, 150, 150);
+        square = new Path();
+        square.rect(40, 40, 100, 100);
+    }
+
+    @Benchmark
+    public Point curvesPointAt() {
+        return curves.pointAt(0.37);
+    }
+
+    @Benchmark
+    public Point curvesCopyPointAt() {
+        return new Path(curves).pointAt(0.37);
+    }
+
+    @Benchmark
+    public Point contourPointAt() {
+        return contour.pointAt(0.37);
+    }
+
+    @Benchmark
+    public Path curvesResampleByAmount() {
+        return curves.resampleByAmount(500, false);
+    }
+
+    @Benchmark
+    public Path polygonResampleByAmount() {
+        return polygon.resampleByAmount(500, false);
+    }
+
+    @Benchmark
+    public Rect curvesGetBounds() {
+        return curves.getBounds();
+    }
+
+    @Benchmark
+    public Rect curvesCopyGetBounds() {
+        return new Path(curves).getBounds();
+    }
+
+    @Benchmark
+    public Rect polygonGetBounds() {
+        return polygon.getBounds();
+    }
+
+    @Benchmark
+    public double smallCurveLengthFixed() {
+        return Path.curveLength(0, 0, 0, 0.5, 0.5, 1, 1, 1, 20);
+    }
+
+    @Benchmark
+    public double smallCurveLengthAdaptive() {
+        return Path.curveLength(0, 0, 0, 0.5, 0.5, 1, 1, 1);
+    }
+
+    @Benchmark
+    public double largeCurveLengthFixed() {
+        return Path.curveLength(0, 0, 2000, 0, -1000, 1500, 1000, 1000, 20);
+    }
+
+    @Benchmark
+    public double largeCurveLengthAdaptive() {
+        return Path.curveLength(0, 0, 2000, 0, -1000, 1500, 1000, 1000);
+    }
+
+    @Benchmark
+    public Path curvesFlattened() {
+        return curves.flattened();
+    }
+
+    @Benchmark
+    public Path united() {
+        return circle.united(square);
+    }
+
+    @Benchmark
+    public Path subtracted() {
+        return circle.subtracted(square);
+    }
+
+    @Benchmark
+    public Path intersected() {
+        return polygon.intersected(circle);
+    }
+
+}
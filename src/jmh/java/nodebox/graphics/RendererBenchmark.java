@@ -0,0 +1,76 @@
+package nodebox.graphics;
+
+import com.google.common.collect.ImmutableMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for exporting shapes and data to SVG and CSV.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RendererBenchmark {
+
+    /**
+     * The number of shapes, points and rows in the output.
+     */
+    @Param({"5000"})
+    public int amount;
+
+    private List<Path> paths;
+    private List<Point> points;
+    private List<Map<String, Object>> rows;
+    private Rectangle2D bounds;
+
+    @Setup
+    public void setUp() {
+        paths = new ArrayList<Path>(amount);
+        points = new ArrayList<Point>(amount);
+        rows = new ArrayList<Map<String, Object>>(amount);
+        for (int i = 0; i < amount; i++) {
+            double x = (i % 100) * 10.5;
+            double y = (i / 100) * 10.25;
+            Path p = new Path();
+            if (i % 2 == 0) {
+                p.ellipse(x, y, 8.3, 8.3);
+            } else {
+                p.rect(x, y, 7.7, 7.7);
+            }
+            p.setFill(new Color(i % 256 / 255.0, 0.5, 0.25));
+            paths.add(p);
+            points.add(new Point(x, y));
+            rows.add(ImmutableMap.<String, Object>of("name", "row " + i, "x", x, "y", y, "value", i * 0.1));
+        }
+        bounds = new Rectangle2D.Double(0, 0, 1050, 1050);
+    }
+
+    @Benchmark
+    public String svgPaths() {
+        return SVGRenderer.renderToString(paths, bounds);
+    }
+
+    @Benchmark
+    public String csvPaths() {
+        return CSVRenderer.renderToString(paths, ',', true);
+    }
+
+    @Benchmark
+    public String csvPoints() {
+        return CSVRenderer.renderToString(points, ',', false);
+    }
+
+    @Benchmark
+    public String csvRows() {
+        return CSVRenderer.renderToString(rows, ';', true);
+    }
+
+}
@@ -0,0 +1,65 @@
+package nodebox.node;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for reading and writing NDBX documents.
+ * <p/>
+ * The document contains a network with a nested subnetwork for every level of the fan-out network used in
+ * {@link RenderBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NDBXBenchmark {
+
+    @Param({"500"})
+    public int size;
+
+    private NodeLibrary library;
+    private String xml;
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException {
+        Node root = RenderBenchmark.createWideFanOut(size)
+                .withChildAdded(RenderBenchmark.createDeepChain(size).withName("chain"));
+        library = NodeLibrary.create("benchmark", root, RenderBenchmark.functions);
+        xml = NDBXWriter.asString(library);
+        file = File.createTempFile("benchmark", ".ndbx");
+        NDBXWriter.write(library, file);
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public NodeLibrary loadFromString() {
+        return NodeLibrary.load("benchmark", xml, NodeRepository.of());
+    }
+
+    @Benchmark
+    public NodeLibrary loadFromFile() {
+        return NodeLibrary.load(file, NodeRepository.of());
+    }
+
+    @Benchmark
+    public String saveToString() {
+        return NDBXWriter.asString(library);
+    }
+
+    @Benchmark
+    public void saveToFile() {
+        NDBXWriter.write(library, file);
+    }
+
+}
@@ -0,0 +1,167 @@
+package nodebox.node;
+
+import nodebox.function.FunctionRepository;
+import nodebox.function.ListFunctions;
+import nodebox.function.MathFunctions;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for evaluating synthetic networks with NodeContext.renderNode.
+ * <p/>
+ * Every invocation creates a fresh NodeContext, so nothing is reused between iterations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+
+    static final FunctionRepository functions = FunctionRepository.of(MathFunctions.LIBRARY, ListFunctions.LIBRARY);
+
+    private static final Node numberNode = Node.ROOT
+            .withName("number")
+            .withFunction("math/number")
+            .withInputAdded(Port.floatPort("number", 1.0));
+
+    private static final Node negateNode = Node.ROOT
+            .withName("negate")
+            .withFunction("math/negate")
+            .withInputAdded(Port.floatPort("value", 0.0));
+
+    private static final Node addNode = Node.ROOT
+            .withName("add")
+            .withFunction("math/add")
+            .withInputAdded(Port.floatPort("v1", 0.0))
+            .withInputAdded(Port.floatPort("v2", 0.0));
+
+    private static final Node rangeNode = Node.ROOT
+            .withName("range")
+            .withFunction("math/range")
+            .withOutputRange(Port.Range.LIST)
+            .withInputAdded(Port.floatPort("start", 0.0))
+            .withInputAdded(Port.floatPort("end", 10.0))
+            .withInputAdded(Port.floatPort("step", 1.0));
+
+    /**
+     * The number of nodes in the chain and fan-out networks, and the number of values in the list matching network.
+     */
+    @Param({"100"})
+    public int size;
+
+    /**
+     * Evaluate independent branches and list elements on multiple threads.
+     */
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private NodeLibrary deepChain;
+    private NodeLibrary wideFanOut;
+    private NodeLibrary listMatching;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() {
+        deepChain = NodeLibrary.create("chain", createDeepChain(size), functions);
+        wideFanOut = NodeLibrary.create("fanout", createWideFanOut(size), functions);
+        listMatching = NodeLibrary.create("listmatching", createListMatching(size * 1000), functions);
+        pool = parallel ? new ForkJoinPool(Runtime.getRuntime().availableProcessors()) : null;
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public List<?> renderDeepChain() {
+        return render(deepChain);
+    }
+
+    @Benchmark
+    public List<?> renderWideFanOut() {
+        return render(wideFanOut);
+    }
+
+    @Benchmark
+    public List<?> renderListMatching() {
+        return render(listMatching);
+    }
+
+    private List<?> render(NodeLibrary library) {
+        NodeContext context = new NodeContext(library);
+        context.setEvaluationPool(pool);
+        return context.renderNode("/");
+    }
+
+    /**
+     * A number followed by a chain of negate nodes, each connected to the previous one.
+     */
+    static Node createDeepChain(int length) {
+        Node network = Node.NETWORK.withChildAdded(numberNode);
+        String previous = "number";
+        for (int i = 1; i <= length; i++) {
+            String name = "negate" + i;
+            network = network
+                    .withChildAdded(negateNode.withName(name))
+                    .connect(previous, name, "value");
+            previous = name;
+        }
+        return network.withRenderedChildName(previous);
+    }
+
+    /**
+     * A number connected to many independent add nodes, which are summed pairwise until one node remains.
+     */
+    static Node createWideFanOut(int width) {
+        Node network = Node.NETWORK.withChildAdded(numberNode);
+        String[] level = new String[width];
+        for (int i = 0; i < width; i++) {
+            level[i] = "add" + i;
+            network = network
+                    .withChildAdded(addNode.withName(level[i]).withInputValue("v2", (double) i))
+                    .connect("number", level[i], "v1");
+        }
+        int counter = width;
+        while (level.length > 1) {
+            String[] nextLevel = new String[(level.length + 1) / 2];
+            for (int i = 0; i < nextLevel.length; i++) {
+                if (i * 2 + 1 < level.length) {
+                    String name = "add" + counter++;
+                    network = network
+                            .withChildAdded(addNode.withName(name))
+                            .connect(level[i * 2], name, "v1")
+                            .connect(level[i * 2 + 1], name, "v2");
+                    nextLevel[i] = name;
+                } else {
+                    nextLevel[i] = level[i * 2];
+                }
+            }
+            level = nextLevel;
+        }
+        return network.withRenderedChildName(level[0]);
+    }
+
+    /**
+     * Two lists of numbers, one negated, added together element by element.
+     */
+    static Node createListMatching(int amount) {
+        return Node.NETWORK
+                .withChildAdded(rangeNode.withName("range1").withInputValue("end", (double) amount))
+                .withChildAdded(rangeNode.withName("range2").withInputValue("end", (double) amount))
+                .withChildAdded(negateNode)
+                .withChildAdded(addNode)
+                .connect("range1", "negate", "value")
+                .connect("negate", "add", "v1")
+                .connect("range2", "add", "v2")
+                .withRenderedChildName("add");
+    }
+
+}
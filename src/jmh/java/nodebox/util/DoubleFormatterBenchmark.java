@@ -0,0 +1,75 @@
+package nodebox.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the DoubleFormatter with String.format and Double.toString.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DoubleFormatterBenchmark {
+
+    /**
+     * The number of values formatted per invocation.
+     */
+    @Param({"1000"})
+    public int amount;
+
+    private double[] values;
+    private StringBuilder sb;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        values = new double[amount];
+        for (int i = 0; i < amount; i++) {
+            values[i] = (random.nextDouble() - 0.5) * 2000;
+        }
+        sb = new StringBuilder(amount * 24);
+    }
+
+    @Benchmark
+    public int fixedFormat() {
+        sb.setLength(0);
+        for (double v : values) {
+            sb.append(String.format(Locale.US, "%.2f", v));
+        }
+        return sb.length();
+    }
+
+    @Benchmark
+    public int fixedFormatter() {
+        sb.setLength(0);
+        for (double v : values) {
+            DoubleFormatter.appendFixed(sb, v, 2);
+        }
+        return sb.length();
+    }
+
+    @Benchmark
+    public int shortestToString() {
+        sb.setLength(0);
+        for (double v : values) {
+            sb.append(Double.toString(v));
+        }
+        return sb.length();
+    }
+
+    @Benchmark
+    public int shortestFormatter() {
+        sb.setLength(0);
+        for (double v : values) {
+            DoubleFormatter.appendShortest(sb, v);
+        }
+        return sb.length();
+    }
+
+}
@@ -5,12 +5,16 @@ import nodebox.client.visualizer.GrobVisualizer;
 import nodebox.function.FunctionRepository;
 import nodebox.graphics.Rect;
 import nodebox.node.*;
+import nodebox.util.LoadException;
 
 import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -30,17 +34,42 @@ public class NodeBox {
         return NodeRepository.of(libraries.toArray(new NodeLibrary[]{}));
     }
 
+    /**
+     * Load a library, upgrading it first if it was written by an older version of NodeBox.
+     *
+     * @param file             The library file.
+     * @param systemRepository The system libraries the library uses.
+     * @return The loaded library.
+     * @throws LoadException If the file can't be read or parsed.
+     */
+    public static NodeLibrary loadLibrary(File file, NodeRepository systemRepository) throws LoadException {
+        try {
+            return NodeLibrary.load(file, systemRepository);
+        } catch (OutdatedLibraryException e) {
+            UpgradeResult result = NodeLibraryUpgrades.upgrade(file);
+            // The file is used here as the base name for finding relative libraries.
+            return result.getLibrary(file, systemRepository);
+        }
+    }
+
     public static void printUsage() {
         System.out.println("Usage: java -jar nodebox.jar [options] <inputFile.ndbx>");
+        System.out.println("       java -jar nodebox.jar [options] --server [--port PORT]");
         System.out.println("Options:");
         System.out.println(" -o FILE Specify the output file. Only PNG is supported for now. (Default: inputFile.png)");
         System.out.println(" -l DIR Location of the NodeBox system libraries directory. (Default: current directory)");
+        System.out.println(" --server Render jobs read from standard input, one JSON object per line. Results are written to standard output.");
+        System.out.println(" --port PORT Read jobs from connections on this local port instead of standard input.");
+        System.out.println(" -j THREADS Number of jobs the server renders at the same time. (Default: number of processors)");
     }
 
     public static void main(String[] args) {
         String inputFile = null;
         String outputFile = null;
         String systemLibraryDir = null;
+        boolean server = false;
+        int port = 0;
+        int threadCount = Runtime.getRuntime().availableProcessors();
         File inFile = null;
         File outFile;
         for (int i = 0; i < args.length; i++) {
@@ -51,10 +80,39 @@ public class NodeBox {
             } else if (arg.equals("-l")) {
                 systemLibraryDir = args[i + 1];
                 i += 1;
+            } else if (arg.equals("--server")) {
+                server = true;
+            } else if (arg.equals("--port")) {
+                server = true;
+                port = Integer.parseInt(args[i + 1]);
+                i += 1;
+            } else if (arg.equals("-j")) {
+                threadCount = Integer.parseInt(args[i + 1]);
+                i += 1;
             } else {
                 inputFile = args[i];
             }
         }
+        if (server) {
+            if (systemLibraryDir == null) {
+                systemLibraryDir = "libraries";
+            }
+            RenderServer renderServer = new RenderServer(getSystemRepository(systemLibraryDir), threadCount);
+            try {
+                if (port > 0) {
+                    renderServer.listen(port);
+                } else {
+                    renderServer.serve(new InputStreamReader(System.in, StandardCharsets.UTF_8),
+                            new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.exit(-1);
+            } finally {
+                renderServer.shutdown();
+            }
+            return;
+        }
         if (inputFile == null) {
             printUsage();
             System.exit(-1);
@@ -70,14 +128,7 @@ public class NodeBox {
             systemLibraryDir = "libraries";
         }
         NodeRepository systemRepository = getSystemRepository(systemLibraryDir);
-        NodeLibrary library;
-        try {
-            library = NodeLibrary.load(inFile, systemRepository);
-        } catch (OutdatedLibraryException e) {
-            UpgradeResult result = NodeLibraryUpgrades.upgrade(inFile);
-            // The file is used here as the base name for finding relative libraries.
-            library = result.getLibrary(inFile, systemRepository);
-        }
+        NodeLibrary library = loadLibrary(inFile, systemRepository);
         FunctionRepository functionRepository = FunctionRepository.combine(systemRepository.getFunctionRepository(), library.getFunctionRepository());
         library.getRoot();
         NodeContext ctx = new NodeContext(library, functionRepository);
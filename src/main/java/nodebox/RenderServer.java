@@ -0,0 +1,358 @@
+package nodebox;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import nodebox.client.ObjectsRenderer;
+import nodebox.function.FunctionRepository;
+import nodebox.node.*;
+import nodebox.util.FileUtils;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A headless server that renders NodeBox documents.
+ * <p/>
+ * The server loads the system libraries once and keeps the parsed documents in memory, so rendering many variants of
+ * the same document doesn't pay the startup cost every time. A document is loaded again when its file changes.
+ * <p/>
+ * Jobs are JSON objects, one per line:
+ * <pre>
+ * {"id": "a1", "file": "poster.ndbx", "output": "out/poster.svg", "frames": [1, 10], "overrides": {"rect1.width": 200}}
+ * </pre>
+ * <ul>
+ * <li>file: the document to render. Required.</li>
+ * <li>output: the file to render to. Defaults to the document name with the extension of the format.</li>
+ * <li>format: png, svg, pdf or csv. Defaults to the extension of the output file, or png.</li>
+ * <li>frame, or frames with the first and last frame: the frames to render. When rendering more than one frame,
+ * the frame number is added to the name of every output file. Defaults to frame 1.</li>
+ * <li>overrides: port values to use instead of the values in the document, keyed by "node.port". The node name has
+ * to be unique in the document.</li>
+ * <li>id: returned with the response.</li>
+ * </ul>
+ * For every job the server writes a JSON line with the id, a status of "ok" or "error", and the rendered files or
+ * the error message. Jobs run concurrently, so the responses can come in a different order than the jobs.
+ */
+public class RenderServer {
+
+    public static final ImmutableSet<String> FORMATS = ImmutableSet.of("png", "svg", "pdf", "csv");
+    private static final ImmutableSet<String> OVERRIDABLE_TYPES = ImmutableSet.of(
+            Port.TYPE_INT, Port.TYPE_FLOAT, Port.TYPE_STRING, Port.TYPE_BOOLEAN, Port.TYPE_POINT, Port.TYPE_COLOR);
+    private static final int MAXIMUM_DOCUMENTS = 100;
+
+    private final NodeRepository systemRepository;
+    private final ExecutorService executor;
+    private final Cache<String, Document> documents;
+    private final JsonProvider jsonProvider = Configuration.defaultConfiguration().jsonProvider();
+    // Documents with scripting or device nodes are rendered one at a time.
+    private final Object serialRenderLock = new Object();
+
+    public RenderServer(NodeRepository systemRepository, int threadCount) {
+        checkNotNull(systemRepository);
+        checkArgument(threadCount > 0, "The thread count needs to be at least one.");
+        this.systemRepository = systemRepository;
+        this.executor = Executors.newFixedThreadPool(threadCount,
+                new ThreadFactoryBuilder().setNameFormat("render-server-%d").setDaemon(true).build());
+        this.documents = CacheBuilder.newBuilder().maximumSize(MAXIMUM_DOCUMENTS).build();
+    }
+
+    /**
+     * A parsed document, with the modification time of the file it was loaded from.
+     */
+    private static final class Document {
+        private final NodeLibrary library;
+        private final FunctionRepository functionRepository;
+        private final boolean threadSafe;
+        private final long lastModified;
+        private final long length;
+
+        private Document(NodeLibrary library, FunctionRepository functionRepository, File file) {
+            this.library = library;
+            this.functionRepository = functionRepository;
+            this.threadSafe = FrameRenderer.isThreadSafe(library, functionRepository);
+            this.lastModified = file.lastModified();
+            this.length = file.length();
+        }
+
+        private boolean isCurrent(File file) {
+            return file.lastModified() == lastModified && file.length() == length;
+        }
+    }
+
+    private Document getDocument(File file) throws IOException {
+        if (!file.isFile()) {
+            throw new FileNotFoundException("File " + file + " does not exist.");
+        }
+        String key = file.getCanonicalPath();
+        Document document = documents.getIfPresent(key);
+        if (document == null || !document.isCurrent(file)) {
+            NodeLibrary library = NodeBox.loadLibrary(file, systemRepository);
+            FunctionRepository functionRepository = FunctionRepository.combine(systemRepository.getFunctionRepository(), library.getFunctionRepository());
+            document = new Document(library, functionRepository, file);
+            documents.put(key, document);
+        }
+        return document;
+    }
+
+    /**
+     * Render a job.
+     *
+     * @param job The job, with the keys described in the class documentation.
+     * @return The rendered files.
+     * @throws IOException              If the document can't be read.
+     * @throws IllegalArgumentException If the job is not valid.
+     * @throws NodeRenderException      If rendering fails.
+     */
+    public List<File> render(Map<String, ?> job) throws IOException {
+        Object fileName = job.get("file");
+        checkArgument(fileName instanceof String, "The job needs a file.");
+        File file = new File((String) fileName);
+        String format = (String) job.get("format");
+        String output = (String) job.get("output");
+        if (format == null) {
+            String extension = output == null ? "" : FileUtils.getExtension(output);
+            format = FORMATS.contains(extension) ? extension : "png";
+        }
+        checkArgument(FORMATS.contains(format), "Unknown format %s.", format);
+        if (output == null) {
+            output = FileUtils.stripExtension(file.getPath()) + "." + format;
+        } else if (!output.toLowerCase(Locale.US).endsWith("." + format)) {
+            output = output + "." + format;
+        }
+        int fromFrame = 1;
+        int toFrame = 1;
+        if (job.get("frames") != null) {
+            List<?> frames = (List<?>) job.get("frames");
+            checkArgument(frames.size() == 2, "The frames need to be a list of the first and last frame.");
+            fromFrame = ((Number) frames.get(0)).intValue();
+            toFrame = ((Number) frames.get(1)).intValue();
+            checkArgument(fromFrame <= toFrame, "The first frame comes after the last frame.");
+        } else if (job.get("frame") != null) {
+            fromFrame = toFrame = ((Number) job.get("frame")).intValue();
+        }
+
+        Document document = getDocument(file);
+        Map<?, ?> overrides = job.get("overrides") == null ? ImmutableMap.of() : (Map<?, ?>) job.get("overrides");
+        Map<String, ?> portOverrides = convertOverrides(document.library, overrides);
+        FrameRenderer renderer = new FrameRenderer(document.library, document.functionRepository, ImmutableMap.<String, Object>of(), portOverrides, 1);
+        final ImmutableList.Builder<File> files = ImmutableList.builder();
+        final java.awt.geom.Rectangle2D bounds = document.library.getBounds().getRectangle2D();
+        final boolean singleFrame = fromFrame == toFrame;
+        final String outputFile = output;
+        final String outputFormat = format;
+        FrameRenderer.FrameListener listener = new FrameRenderer.FrameListener() {
+            public void frameDone(int frame, List<?> results) {
+                File f = singleFrame ? new File(outputFile) : frameFile(outputFile, outputFormat, frame);
+                ObjectsRenderer.render(results, bounds, f, ImmutableMap.<String, Object>of());
+                files.add(f);
+            }
+        };
+        if (document.threadSafe) {
+            renderer.render(fromFrame, toFrame, listener);
+        } else {
+            synchronized (serialRenderLock) {
+                renderer.render(fromFrame, toFrame, listener);
+            }
+        }
+        return files.build();
+    }
+
+    private static File frameFile(String outputFile, String format, int frame) {
+        return new File(String.format("%s-%05d.%s", FileUtils.stripExtension(outputFile), frame, format));
+    }
+
+    /**
+     * Convert the override values to the types of their ports.
+     * <p/>
+     * The keys have the same "node.port" form as the port overrides of the NodeContext. Numbers are converted to the
+     * number type of the port, other values are parsed from their string form.
+     * <p/>
+     * Node names are only unique within their network, and the NodeContext overrides the port of every node with the
+     * name. A key that matches nodes in more than one network is rejected, instead of changing nodes the job didn't
+     * mean to change.
+     */
+    private static Map<String, ?> convertOverrides(NodeLibrary library, Map<?, ?> overrides) {
+        if (overrides.isEmpty()) return ImmutableMap.of();
+        ImmutableMap.Builder<String, Object> b = ImmutableMap.builder();
+        Collection<Node> nodes = library.getFlattenedNodeMap().values();
+        for (Map.Entry<?, ?> entry : overrides.entrySet()) {
+            String key = String.valueOf(entry.getKey());
+            int dot = key.lastIndexOf('.');
+            checkArgument(dot > 0, "Override %s should be in the form node.port.", key);
+            String nodeName = key.substring(0, dot);
+            String portName = key.substring(dot + 1);
+            Port port = null;
+            for (Node node : nodes) {
+                if (node.getName().equals(nodeName) && node.hasInput(portName)) {
+                    checkArgument(port == null, "Override %s matches more than one node. Give the nodes unique names.", key);
+                    port = node.getInput(portName);
+                }
+            }
+            checkArgument(port != null, "Unknown port %s.", key);
+            checkArgument(OVERRIDABLE_TYPES.contains(port.getType()), "Port %s of type %s can not be overridden.", key, port.getType());
+            Object value = entry.getValue();
+            checkArgument(value != null, "Override %s has no value.", key);
+            if (value instanceof Number && port.getType().equals(Port.TYPE_INT)) {
+                b.put(key, ((Number) value).longValue());
+            } else if (value instanceof Number && port.getType().equals(Port.TYPE_FLOAT)) {
+                b.put(key, ((Number) value).doubleValue());
+            } else {
+                b.put(key, Port.parseValue(port.getType(), value.toString()));
+            }
+        }
+        return b.build();
+    }
+
+    /**
+     * Render a job and describe the result.
+     *
+     * @param job The job.
+     * @return A response with the job id, the status, and the rendered files or the error message.
+     */
+    public Map<String, Object> handle(Map<String, ?> job) {
+        Map<String, Object> response = new LinkedHashMap<String, Object>();
+        if (job.containsKey("id")) {
+            response.put("id", job.get("id"));
+        }
+        long startTime = System.currentTimeMillis();
+        try {
+            List<String> paths = new ArrayList<String>();
+            for (File f : render(job)) {
+                paths.add(f.getPath());
+            }
+            response.put("status", "ok");
+            response.put("files", paths);
+            response.put("time", System.currentTimeMillis() - startTime);
+        } catch (IOException | IllegalArgumentException e) {
+            response.put("status", "error");
+            response.put("message", errorMessage(e));
+        } catch (RuntimeException e) {
+            Log.warn("Error while rendering job " + job, e);
+            response.put("status", "error");
+            response.put("message", errorMessage(e));
+        }
+        return response;
+    }
+
+    private static String errorMessage(Exception e) {
+        return e.getMessage() != null ? e.getMessage() : e.toString();
+    }
+
+    /**
+     * Read jobs from the input, one JSON object per line, and write a response line for every job.
+     * <p/>
+     * The jobs are rendered concurrently. This method returns when the input ends and all jobs are done.
+     *
+     * @param in  The job input.
+     * @param out The response output.
+     * @throws IOException If reading the input fails.
+     */
+    public void serve(Reader in, final Writer out) throws IOException {
+        BufferedReader reader = new BufferedReader(in);
+        List<Future<?>> pendingJobs = new ArrayList<Future<?>>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.trim().isEmpty()) continue;
+            final Map<String, ?> job;
+            try {
+                job = parseJob(line);
+            } catch (RuntimeException e) {
+                writeResponse(out, ImmutableMap.<String, Object>of("status", "error", "message", "Invalid job: " + e.getMessage()));
+                continue;
+            }
+            pendingJobs.add(executor.submit(new Runnable() {
+                public void run() {
+                    writeResponse(out, handle(job));
+                }
+            }));
+        }
+        for (Future<?> job : pendingJobs) {
+            try {
+                job.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                Log.warn("Error while serving job", e.getCause());
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, ?> parseJob(String line) {
+        Object job = jsonProvider.parse(line);
+        checkArgument(job instanceof Map, "The job should be a JSON object.");
+        return (Map<String, ?>) job;
+    }
+
+    private void writeResponse(Writer out, Map<String, ?> response) {
+        String json = jsonProvider.toJson(response);
+        synchronized (out) {
+            try {
+                out.write(json);
+                out.write('\n');
+                out.flush();
+            } catch (IOException e) {
+                Log.warn("Could not write response " + json, e);
+            }
+        }
+    }
+
+    /**
+     * Accept connections on the given port of the local machine, and serve jobs for every connection.
+     * <p/>
+     * This method doesn't return.
+     *
+     * @param port The port number.
+     * @throws IOException If the port can't be opened.
+     */
+    public void listen(int port) throws IOException {
+        ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        Log.info("Render server listening on port " + serverSocket.getLocalPort());
+        while (true) {
+            final Socket socket = serverSocket.accept();
+            Thread t = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        serve(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8),
+                                new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+                    } catch (IOException e) {
+                        Log.warn("Error while serving connection", e);
+                    } finally {
+                        try {
+                            socket.close();
+                        } catch (IOException ignored) {
+                        }
+                    }
+                }
+            }, "render-server-connection");
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+
+    /**
+     * Stop the render threads.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+}
@@ -19,6 +19,7 @@
 package nodebox.client;
 
 import nodebox.Log;
+import nodebox.function.NetworkFunctions;
 import nodebox.node.NodeLibrary;
 import nodebox.node.NodeRepository;
 import nodebox.ui.ExceptionDialog;
@@ -47,6 +48,12 @@ public class Application implements Host {
 
     public static final String PREFERENCE_ENABLE_DEVICE_SUPPORT = "NBEnableDeviceSupport";
     public static boolean ENABLE_DEVICE_SUPPORT = false;
+    public static final String PREFERENCE_ENABLE_RENDER_CACHE = "NBEnableRenderCache";
+    public static boolean ENABLE_RENDER_CACHE = false;
+    public static final String PREFERENCE_ENABLE_PARALLEL_EVALUATION = "NBEnableParallelEvaluation";
+    public static boolean ENABLE_PARALLEL_EVALUATION = false;
+    public static final String PREFERENCE_ENABLE_PERSISTENT_HTTP_CACHE = "NBEnablePersistentHttpCache";
+    public static boolean ENABLE_PERSISTENT_HTTP_CACHE = false;
 
     private static Application instance;
 
@@ -232,6 +239,12 @@ public class Application implements Host {
     private void applyPreferences() {
         Preferences preferences = Preferences.userNodeForPackage(Application.class);
         ENABLE_DEVICE_SUPPORT = Boolean.valueOf(preferences.get(Application.PREFERENCE_ENABLE_DEVICE_SUPPORT, "false"));
+        ENABLE_RENDER_CACHE = Boolean.valueOf(preferences.get(Application.PREFERENCE_ENABLE_RENDER_CACHE, "false"));
+        ENABLE_PARALLEL_EVALUATION = Boolean.valueOf(preferences.get(Application.PREFERENCE_ENABLE_PARALLEL_EVALUATION, "false"));
+        ENABLE_PERSISTENT_HTTP_CACHE = Boolean.valueOf(preferences.get(Application.PREFERENCE_ENABLE_PERSISTENT_HTTP_CACHE, "false"));
+        if (ENABLE_PERSISTENT_HTTP_CACHE) {
+            NetworkFunctions.responseCache.setDirectory(new File(Platform.getUserDataDirectory(), "http-cache"));
+        }
     }
 
     /**
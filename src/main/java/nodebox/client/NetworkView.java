@@ -5,6 +5,7 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.*;
+import nodebox.graphics.ImageCache;
 import nodebox.node.*;
 import nodebox.ui.PaneView;
 import nodebox.ui.Platform;
@@ -22,7 +23,6 @@ import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -48,7 +48,6 @@ public class NetworkView extends ZoomableView implements PaneView, Zoom {
     public static final String SELECT_PROPERTY = "NetworkView.select";
     public static final int COMMENT_BOX_MARGIN_HORIZONTAL = 5;
 
-    private static Map<String, BufferedImage> fileImageCache = new HashMap<String, BufferedImage>();
     private static BufferedImage nodeGeneric, commentIcon, commentBox;
 
     public static final float MIN_ZOOM = 0.05f;
@@ -156,17 +155,11 @@ public class NetworkView extends ZoomableView implements PaneView, Zoom {
     }
 
     public static BufferedImage readNodeImage(File nodeImageFile) {
-        String imagePath = nodeImageFile.getAbsolutePath();
-        if (fileImageCache.containsKey(imagePath)) {
-            return fileImageCache.get(imagePath);
-        } else {
-            try {
-                BufferedImage image = ImageIO.read(nodeImageFile);
-                fileImageCache.put(imagePath, image);
-                return image;
-            } catch (IOException e) {
-                return null;
-            }
+        try {
+            // Icons are drawn small, so keep a smaller version that still looks sharp on high-resolution screens.
+            return ImageCache.SHARED.read(nodeImageFile, NODE_ICON_SIZE * 4);
+        } catch (IOException e) {
+            return null;
         }
     }
 
@@ -34,6 +34,7 @@ import java.util.List;
 import java.util.*;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.google.common.base.Preconditions.*;
@@ -77,7 +78,7 @@ public class NodeBoxDocument extends JFrame implements WindowListener, HandleDel
     private boolean needsResave;
     private AnimationTimer animationTimer;
     private boolean loaded = false;
-    private UndoManager undoManager = new UndoManager();
+    private NodeLibraryUndoManager undoManager = new NodeLibraryUndoManager();
     private boolean holdEdits = false;
     private String lastEditType = null;
     private String lastEditObjectId = null;
@@ -91,6 +92,10 @@ public class NodeBoxDocument extends JFrame implements WindowListener, HandleDel
     private SwingWorker<List<?>, Node> currentRender = null;
     private Iterable<?> lastRenderResult = null;
     private Map<String, List<?>> renderResults = ImmutableMap.of();
+    private final RenderCache renderCache = Application.ENABLE_RENDER_CACHE ? new RenderCache() : null;
+    // Written by the render worker, read when the next render starts.
+    private volatile NodeContext lastRenderContext = null;
+    private static ForkJoinPool evaluationPool = null;
     private JSplitPane parameterNetworkSplit;
     private JSplitPane topSplit;
     private FullScreenFrame fullScreenFrame = null;
@@ -1256,13 +1261,22 @@ public class NodeBoxDocument extends JFrame implements WindowListener, HandleDel
             handler.addData(dataMap);
         final ImmutableMap<String, ?> data = ImmutableMap.copyOf(dataMap);
 
-        final NodeContext context = new NodeContext(renderLibrary, getFunctionRepository(), data, renderResults, ImmutableMap.<String, Object>of());
+        final NodeContext context = new NodeContext(renderLibrary, getFunctionRepository(), data, renderResults, ImmutableMap.<String, Object>of(), renderCache);
+        if (Application.ENABLE_PARALLEL_EVALUATION)
+            context.setEvaluationPool(getEvaluationPool());
+        // Reusing results is part of caching results between renders, and uses the same preference.
+        final NodeContext previousContext = Application.ENABLE_RENDER_CACHE ? lastRenderContext : null;
         currentRender = new SwingWorker<List<?>, Node>() {
             @Override
             protected List<?> doInBackground() throws Exception {
+                // Only evaluate the nodes that changed since the last render, and the nodes downstream of them.
+                if (previousContext != null)
+                    context.reuseResults(previousContext);
                 List<?> results = context.renderNode(renderNetwork);
                 context.renderAlwaysRenderedNodes(renderNetwork);
                 renderResults = context.getRenderResults();
+                if (Application.ENABLE_RENDER_CACHE)
+                    lastRenderContext = context;
                 return results;
             }
 
@@ -1305,6 +1319,18 @@ public class NodeBoxDocument extends JFrame implements WindowListener, HandleDel
         currentRender.execute();
     }
 
+    /**
+     * Get the pool that is shared by all documents for evaluating nodes in parallel.
+     * <p/>
+     * The pool is only created when parallel evaluation is enabled.
+     */
+    private static synchronized ForkJoinPool getEvaluationPool() {
+        if (evaluationPool == null) {
+            evaluationPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        }
+        return evaluationPool;
+    }
+
     /**
      * Returns the first output value, or null if the map of output values is empty.
      *
@@ -1318,6 +1344,7 @@ public class NodeBoxDocument extends JFrame implements WindowListener, HandleDel
 
     private synchronized void resetRenderResults() {
         renderResults = ImmutableMap.of();
+        lastRenderContext = null;
     }
 
     //// Undo ////
@@ -1398,12 +1425,17 @@ public class NodeBoxDocument extends JFrame implements WindowListener, HandleDel
     public void undo() {
         if (!undoManager.canUndo()) return;
         undoManager.undo();
+        // An edit after an undo starts a new edit, even if it changes the same port as the edit before it.
+        lastEditType = null;
+        lastEditObjectId = null;
         menuBar.updateUndoRedoState();
     }
 
     public void redo() {
         if (!undoManager.canRedo()) return;
         undoManager.redo();
+        lastEditType = null;
+        lastEditObjectId = null;
         menuBar.updateUndoRedoState();
     }
 
@@ -1435,6 +1467,8 @@ public class NodeBoxDocument extends JFrame implements WindowListener, HandleDel
             Application.getInstance().removeDocument(this);
             for (DeviceHandler handler : deviceHandlers)
                 handler.stop();
+            // Remove the undo states that were moved to disk.
+            undoManager.discardAllEdits();
             dispose();
             // On Mac the application does not close if the last window is closed.
             if (!Platform.onMac()) {
@@ -1676,26 +1710,23 @@ public class NodeBoxDocument extends JFrame implements WindowListener, HandleDel
         Thread t = new Thread(new Runnable() {
             public void run() {
                 try {
-                    Map<String, List<?>> renderResults = ImmutableMap.of();
-                    for (int frame = fromValue; frame <= toValue; frame++) {
-                        if (Thread.currentThread().isInterrupted())
-                            break;
-                        HashMap<String, Object> data = new HashMap<String, Object>();
-                        data.put("frame", (double) frame);
-                        data.put("mouse.position", viewer.getLastMousePosition());
-                        NodeContext context = new NodeContext(exportLibrary, exportFunctionRepository, data, renderResults, ImmutableMap.<String, Object>of());
-
-                        List<?> results = context.renderNode("/");
-                        renderResults = context.getRenderResults();
-                        viewer.setOutputValues((List<?>) results);
-                        exportDelegate.frameDone(frame, results);
-
-                        SwingUtilities.invokeLater(new Runnable() {
-                            public void run() {
-                                d.tick();
-                            }
-                        });
-                    }
+                    Map<String, ?> data = ImmutableMap.of("mouse.position", viewer.getLastMousePosition());
+                    // Frames are rendered in parallel when no node depends on the previous frame.
+                    // With the render cache, functions that give the same result for every frame are only invoked once.
+                    RenderCache exportCache = Application.ENABLE_RENDER_CACHE ? new RenderCache() : null;
+                    FrameRenderer renderer = new FrameRenderer(exportLibrary, exportFunctionRepository, data, ImmutableMap.<String, Object>of(), exportCache, Runtime.getRuntime().availableProcessors());
+                    renderer.render(fromValue, toValue, new FrameRenderer.FrameListener() {
+                        public void frameDone(int frame, List<?> results) {
+                            viewer.setOutputValues(results);
+                            exportDelegate.frameDone(frame, results);
+
+                            SwingUtilities.invokeLater(new Runnable() {
+                                public void run() {
+                                    d.tick();
+                                }
+                            });
+                        }
+                    });
                     exportDelegate.exportDone();
                 } catch (Exception e) {
                     Log.warn("Error while exporting", e);
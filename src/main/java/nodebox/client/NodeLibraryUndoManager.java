@@ -0,0 +1,254 @@
+package nodebox.client;
+
+import nodebox.Log;
+import nodebox.node.Node;
+import nodebox.node.Port;
+
+import javax.swing.undo.UndoManager;
+import javax.swing.undo.UndoableEdit;
+import java.util.*;
+
+/**
+ * An undo manager that keeps the memory taken by the undo history within a budget.
+ * <p/>
+ * Undo states share all nodes and ports that didn't change between them, so the manager counts every node and port
+ * once, no matter how many states hold on to it. When the states take more than the budget, the oldest ones are
+ * moved to disk. They are read back when they are undone. If a state can't be written to disk, it stays in memory and
+ * no more states are moved to disk.
+ * <p/>
+ * The sizes are estimates: they count the objects and the text they hold, but not the objects that are shared with the
+ * rest of the application, such as prototypes from the node repository.
+ */
+public class NodeLibraryUndoManager extends UndoManager {
+
+    /**
+     * By default, the undo history in memory can take up a sixteenth of the maximum memory.
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = Runtime.getRuntime().maxMemory() / 16;
+
+    private static final int NODE_BYTES = 200;
+    private static final int PORT_BYTES = 120;
+    private static final int CONNECTION_BYTES = 48;
+    private static final int MENU_ITEM_BYTES = 64;
+
+    private final long memoryBudget;
+    private final SpilledStates spilledStates;
+    // The nodes and ports of the states in memory, with the number of states, nodes or ports that refer to them.
+    private final Map<Object, Integer> references = new IdentityHashMap<Object, Integer>();
+    // The states that are counted, with the root they had when they were counted.
+    private final Map<NodeLibraryUndoableEdit.UndoState, Node> countedStates = new IdentityHashMap<NodeLibraryUndoableEdit.UndoState, Node>();
+    private long retainedBytes;
+    private boolean spillingDisabled;
+
+    public NodeLibraryUndoManager() {
+        this(DEFAULT_MEMORY_BUDGET);
+    }
+
+    /**
+     * Create an undo manager.
+     *
+     * @param memoryBudget The estimated number of bytes the undo states can retain before they are moved to disk.
+     */
+    public NodeLibraryUndoManager(long memoryBudget) {
+        this(memoryBudget, new SpilledStates());
+    }
+
+    NodeLibraryUndoManager(long memoryBudget, SpilledStates spilledStates) {
+        this.memoryBudget = memoryBudget;
+        this.spilledStates = spilledStates;
+    }
+
+    @Override
+    public synchronized boolean addEdit(UndoableEdit anEdit) {
+        boolean added = super.addEdit(anEdit);
+        updateMemory();
+        return added;
+    }
+
+    @Override
+    public synchronized void undo() {
+        super.undo();
+        updateMemory();
+    }
+
+    @Override
+    public synchronized void redo() {
+        super.redo();
+        updateMemory();
+    }
+
+    @Override
+    public synchronized void setLimit(int l) {
+        super.setLimit(l);
+        updateMemory();
+    }
+
+    @Override
+    public synchronized void discardAllEdits() {
+        super.discardAllEdits();
+        updateMemory();
+        spilledStates.clear();
+    }
+
+    /**
+     * Get the estimated number of bytes taken by the undo states in memory.
+     */
+    public synchronized long getRetainedBytes() {
+        return retainedBytes;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Get the number of files the spilled undo states take up on disk.
+     */
+    synchronized int getSpilledFileCount() {
+        return spilledStates.getFileCount();
+    }
+
+    /**
+     * Count the states that were added or removed, and move the oldest states to disk if they take more than the budget.
+     */
+    private void updateMemory() {
+        List<NodeLibraryUndoableEdit.UndoState> states = currentStates();
+        countStates(states);
+        // The two newest states stay in memory, so undoing the last edit is always fast.
+        int spillable = states.size() - 2;
+        for (int i = 0; i < spillable && retainedBytes > memoryBudget && !spillingDisabled; i++) {
+            NodeLibraryUndoableEdit.UndoState state = states.get(i);
+            if (!state.isSpilled()) {
+                try {
+                    state.spill(spilledStates);
+                } catch (RuntimeException e) {
+                    // Moving states to disk only saves memory, so keep the history in memory instead of failing the edit.
+                    Log.warn("Could not move undo states to disk, keeping them in memory.", e);
+                    spillingDisabled = true;
+                }
+                countStates(states);
+            }
+        }
+    }
+
+    /**
+     * Get the undo and redo states of all edits, from the oldest to the newest.
+     */
+    private List<NodeLibraryUndoableEdit.UndoState> currentStates() {
+        List<NodeLibraryUndoableEdit.UndoState> states = new ArrayList<NodeLibraryUndoableEdit.UndoState>();
+        for (UndoableEdit edit : edits) {
+            if (edit instanceof NodeLibraryUndoableEdit) {
+                NodeLibraryUndoableEdit libraryEdit = (NodeLibraryUndoableEdit) edit;
+                states.add(libraryEdit.getUndoState());
+                if (libraryEdit.getRedoState() != null) {
+                    states.add(libraryEdit.getRedoState());
+                }
+            }
+        }
+        return states;
+    }
+
+    private void countStates(List<NodeLibraryUndoableEdit.UndoState> states) {
+        Set<NodeLibraryUndoableEdit.UndoState> inMemory = Collections.newSetFromMap(new IdentityHashMap<NodeLibraryUndoableEdit.UndoState, Boolean>());
+        for (NodeLibraryUndoableEdit.UndoState state : states) {
+            if (!state.isSpilled()) {
+                inMemory.add(state);
+            }
+        }
+        for (NodeLibraryUndoableEdit.UndoState state : inMemory) {
+            if (!countedStates.containsKey(state)) {
+                Node root = state.getRoot();
+                countedStates.put(state, root);
+                retain(root);
+            }
+        }
+        Iterator<Map.Entry<NodeLibraryUndoableEdit.UndoState, Node>> it = countedStates.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<NodeLibraryUndoableEdit.UndoState, Node> entry = it.next();
+            // States that were spilled or discarded no longer hold on to their nodes.
+            if (!inMemory.contains(entry.getKey())) {
+                release(entry.getValue());
+                it.remove();
+            }
+        }
+    }
+
+    //// Reference counting ////
+
+    /**
+     * Count the node. Nodes that are already counted have all of their children and ports counted too.
+     */
+    private void retain(Node node) {
+        if (addReference(node)) {
+            retainedBytes += nodeBytes(node);
+            for (Port port : node.getInputs()) {
+                if (addReference(port)) {
+                    retainedBytes += portBytes(port);
+                }
+            }
+            for (Node child : node.getChildren()) {
+                retain(child);
+            }
+        }
+    }
+
+    private void release(Node node) {
+        if (removeReference(node)) {
+            retainedBytes -= nodeBytes(node);
+            for (Port port : node.getInputs()) {
+                if (removeReference(port)) {
+                    retainedBytes -= portBytes(port);
+                }
+            }
+            for (Node child : node.getChildren()) {
+                release(child);
+            }
+        }
+    }
+
+    /**
+     * Add a reference to the object.
+     *
+     * @return true if this is the first reference.
+     */
+    private boolean addReference(Object o) {
+        Integer count = references.get(o);
+        references.put(o, count == null ? 1 : count + 1);
+        return count == null;
+    }
+
+    /**
+     * Remove a reference to the object.
+     *
+     * @return true if this was the last reference.
+     */
+    private boolean removeReference(Object o) {
+        Integer count = references.get(o);
+        if (count == null) return false;
+        if (count == 1) {
+            references.remove(o);
+            return true;
+        }
+        references.put(o, count - 1);
+        return false;
+    }
+
+    private static long nodeBytes(Node node) {
+        return NODE_BYTES + stringBytes(node.getComment()) + stringBytes(node.getDescription())
+                + (long) node.getConnections().size() * CONNECTION_BYTES;
+    }
+
+    private static long portBytes(Port port) {
+        long bytes = PORT_BYTES + stringBytes(port.getDescription()) + (long) port.getMenuItems().size() * MENU_ITEM_BYTES;
+        Object value = port.getValue();
+        if (value instanceof String) {
+            bytes += stringBytes((String) value);
+        }
+        return bytes;
+    }
+
+    private static long stringBytes(String s) {
+        return s == null ? 0 : 40 + 2L * s.length();
+    }
+
+}
@@ -1,5 +1,6 @@
 package nodebox.client;
 
+import nodebox.node.Node;
 import nodebox.node.NodeLibrary;
 
 import javax.swing.undo.AbstractUndoableEdit;
@@ -20,17 +21,53 @@ public class NodeLibraryUndoableEdit extends AbstractUndoableEdit {
      * <p/>
      * Because the NodeLibrary and all objects below it are immutable the UndoState just has to retain a reference
      * to the given NodeLibrary.
+     * <p/>
+     * To save memory, the undo manager can move old states to disk. A spilled state only keeps the library without its
+     * nodes, and reads the nodes back when it is restored.
      */
-    private class UndoState {
-        private final NodeLibrary nodeLibrary;
+    static class UndoState {
+        private NodeLibrary nodeLibrary;
         private final String activeNetworkPath;
         private final String activeNodeName;
+        private SpilledStates store;
+        private int record;
 
-        private UndoState(NodeLibrary nodeLibrary, String activeNetworkPath, String activeNodeName) {
+        UndoState(NodeLibrary nodeLibrary, String activeNetworkPath, String activeNodeName) {
             this.nodeLibrary = nodeLibrary;
             this.activeNetworkPath = activeNetworkPath;
             this.activeNodeName = activeNodeName;
         }
+
+        /**
+         * Get the root of the library if the state is in memory.
+         *
+         * @return The root node, or null if the state is spilled to disk.
+         */
+        Node getRoot() {
+            return store == null ? nodeLibrary.getRoot() : null;
+        }
+
+        NodeLibrary getNodeLibrary() {
+            if (store == null) return nodeLibrary;
+            return store.read(record, nodeLibrary);
+        }
+
+        boolean isSpilled() {
+            return store != null;
+        }
+
+        void spill(SpilledStates store) {
+            if (this.store != null) return;
+            this.record = store.write(nodeLibrary);
+            this.store = store;
+            nodeLibrary = nodeLibrary.withRoot(Node.ROOT);
+        }
+
+        void discard() {
+            if (store != null) {
+                store.release(record);
+            }
+        }
     }
 
     public NodeLibraryUndoableEdit(NodeBoxDocument document, String command) {
@@ -39,6 +76,12 @@ public class NodeLibraryUndoableEdit extends AbstractUndoableEdit {
         undoState = saveState();
     }
 
+    NodeLibraryUndoableEdit(NodeBoxDocument document, String command, UndoState undoState) {
+        this.document = document;
+        this.command = command;
+        this.undoState = undoState;
+    }
+
     @Override
     public String getPresentationName() {
         return command;
@@ -58,12 +101,28 @@ public class NodeLibraryUndoableEdit extends AbstractUndoableEdit {
         restoreState(redoState);
     }
 
+    @Override
+    public void die() {
+        super.die();
+        undoState.discard();
+        if (redoState != null)
+            redoState.discard();
+    }
+
+    UndoState getUndoState() {
+        return undoState;
+    }
+
+    UndoState getRedoState() {
+        return redoState;
+    }
+
     public UndoState saveState() {
         return new UndoState(document.getNodeLibrary(), document.getActiveNetworkPath(), document.getActiveNodeName());
     }
 
     public void restoreState(UndoState state) {
-        document.restoreState(state.nodeLibrary, state.activeNetworkPath, state.activeNodeName);
+        document.restoreState(state.getNodeLibrary(), state.activeNetworkPath, state.activeNodeName);
     }
 
 }
@@ -1,9 +1,11 @@
 package nodebox.client;
 
+import nodebox.client.visualizer.GrobVisualizer;
 import nodebox.client.visualizer.Visualizer;
 import nodebox.client.visualizer.VisualizerFactory;
 import nodebox.graphics.CSVRenderer;
 import nodebox.graphics.Drawable;
+import nodebox.graphics.Grob;
 import nodebox.graphics.PDFRenderer;
 import nodebox.graphics.SVGRenderer;
 import nodebox.util.FileUtils;
@@ -16,6 +18,8 @@ import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
@@ -41,13 +45,46 @@ public class ObjectsRenderer {
             CSVRenderer.renderToFile(objects, file, delimiter, quotes);
         } else {
             try {
-                ImageIO.write(createImage(objects, v, bounds, null), FileUtils.getExtension(file), file);
+                List<Grob> grobs = tiledGrobs(objects, v, bounds, options);
+                if (grobs != null) {
+                    TiledImage img = new TiledImage(grobs, bounds, null, Runtime.getRuntime().availableProcessors());
+                    try {
+                        ImageIO.write(img, FileUtils.getExtension(file), file);
+                    } finally {
+                        img.dispose();
+                    }
+                } else {
+                    ImageIO.write(createImage(objects, v, bounds, null), FileUtils.getExtension(file), file);
+                }
             } catch (IOException e) {
                 throw new RuntimeException("Could not write image file " + file, e);
             }
         }
     }
 
+    /**
+     * Return the grobs to draw in strips, or null if the image should be drawn at once.
+     * <p/>
+     * Images that would take more than a quarter of the memory are drawn in strips, on all processors, and written
+     * while they are drawn. Set the "tiled" option to choose for yourself. Only lists of grobs can be drawn in strips.
+     *
+     * @see TiledImage
+     */
+    private static List<Grob> tiledGrobs(Iterable<?> objects, Visualizer visualizer, Rectangle2D bounds, Map<String, ?> options) {
+        long imageBytes = Math.round(bounds.getWidth()) * Math.round(bounds.getHeight()) * 4;
+        boolean tiled = imageBytes > Runtime.getRuntime().maxMemory() / 4;
+        if (options.containsKey("tiled")) {
+            tiled = (Boolean) options.get("tiled");
+        }
+        if (!tiled || visualizer != GrobVisualizer.INSTANCE) return null;
+        List<Grob> grobs = new ArrayList<Grob>();
+        for (Object o : objects) {
+            if (!(o instanceof Grob)) return null;
+            grobs.add((Grob) o);
+        }
+        return grobs;
+    }
+
     public static BufferedImage createMovieImage(Iterable<?> objects, Rectangle2D bounds) {
         Visualizer v = VisualizerFactory.getVisualizer(objects, ListUtils.listClass(objects));
         return createImage(objects, v, bounds, Color.WHITE);
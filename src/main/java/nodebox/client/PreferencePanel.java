@@ -12,6 +12,9 @@ public class PreferencePanel extends JDialog implements ActionListener {
     private final Application application;
     private final Preferences preferences;
     private JCheckBox enableDeviceSupportCheck;
+    private JCheckBox enableRenderCacheCheck;
+    private JCheckBox enableParallelEvaluationCheck;
+    private JCheckBox enablePersistentHttpCacheCheck;
 
     public PreferencePanel(Application application, Window owner) {
         super(owner, "Preferences");
@@ -32,6 +35,18 @@ public class PreferencePanel extends JDialog implements ActionListener {
         enableDeviceSupportCheck.setAlignmentX(Component.LEFT_ALIGNMENT);
         contentPanel.add(enableDeviceSupportCheck);
 
+        enableRenderCacheCheck = new JCheckBox("Cache Results Between Renders");
+        enableRenderCacheCheck.setAlignmentX(Component.LEFT_ALIGNMENT);
+        contentPanel.add(enableRenderCacheCheck);
+
+        enableParallelEvaluationCheck = new JCheckBox("Parallel Evaluation");
+        enableParallelEvaluationCheck.setAlignmentX(Component.LEFT_ALIGNMENT);
+        contentPanel.add(enableParallelEvaluationCheck);
+
+        enablePersistentHttpCacheCheck = new JCheckBox("Keep Network Responses Between Sessions");
+        enablePersistentHttpCacheCheck.setAlignmentX(Component.LEFT_ALIGNMENT);
+        contentPanel.add(enablePersistentHttpCacheCheck);
+
         rootPanel.add(contentPanel, BorderLayout.CENTER);
 
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.TRAILING, 10, 10));
@@ -66,8 +81,38 @@ public class PreferencePanel extends JDialog implements ActionListener {
         preferences.put(Application.PREFERENCE_ENABLE_DEVICE_SUPPORT, Boolean.toString(enabled));
     }
 
+    private boolean isRenderCacheEnabled() {
+        return Boolean.valueOf(preferences.get(Application.PREFERENCE_ENABLE_RENDER_CACHE, "false"));
+    }
+
+    private void setEnableRenderCache(boolean enabled) {
+        application.ENABLE_RENDER_CACHE = enabled;
+        preferences.put(Application.PREFERENCE_ENABLE_RENDER_CACHE, Boolean.toString(enabled));
+    }
+
+    private boolean isParallelEvaluationEnabled() {
+        return Boolean.valueOf(preferences.get(Application.PREFERENCE_ENABLE_PARALLEL_EVALUATION, "false"));
+    }
+
+    private void setEnableParallelEvaluation(boolean enabled) {
+        application.ENABLE_PARALLEL_EVALUATION = enabled;
+        preferences.put(Application.PREFERENCE_ENABLE_PARALLEL_EVALUATION, Boolean.toString(enabled));
+    }
+
+    private boolean isPersistentHttpCacheEnabled() {
+        return Boolean.valueOf(preferences.get(Application.PREFERENCE_ENABLE_PERSISTENT_HTTP_CACHE, "false"));
+    }
+
+    private void setEnablePersistentHttpCache(boolean enabled) {
+        application.ENABLE_PERSISTENT_HTTP_CACHE = enabled;
+        preferences.put(Application.PREFERENCE_ENABLE_PERSISTENT_HTTP_CACHE, Boolean.toString(enabled));
+    }
+
     private void readPreferences() {
         enableDeviceSupportCheck.setSelected(isDeviceSupportEnabled());
+        enableRenderCacheCheck.setSelected(isRenderCacheEnabled());
+        enableParallelEvaluationCheck.setSelected(isParallelEvaluationEnabled());
+        enablePersistentHttpCacheCheck.setSelected(isPersistentHttpCacheEnabled());
     }
 
     public void actionPerformed(ActionEvent actionEvent) {
@@ -77,6 +122,18 @@ public class PreferencePanel extends JDialog implements ActionListener {
             setEnableDeviceSupport(enableDeviceSupportCheck.isSelected());
             changed = true;
         }
+        if (isRenderCacheEnabled() != enableRenderCacheCheck.isSelected()) {
+            setEnableRenderCache(enableRenderCacheCheck.isSelected());
+            changed = true;
+        }
+        if (isParallelEvaluationEnabled() != enableParallelEvaluationCheck.isSelected()) {
+            setEnableParallelEvaluation(enableParallelEvaluationCheck.isSelected());
+            changed = true;
+        }
+        if (isPersistentHttpCacheEnabled() != enablePersistentHttpCacheCheck.isSelected()) {
+            setEnablePersistentHttpCache(enablePersistentHttpCacheCheck.isSelected());
+            changed = true;
+        }
         if (changed) {
             JOptionPane.showMessageDialog(this, "Please restart NodeBox for the changes to take effect.");
             try {
@@ -0,0 +1,195 @@
+package nodebox.client;
+
+import nodebox.function.FunctionRepository;
+import nodebox.node.NodeLibrary;
+import nodebox.util.FileUtils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps undo states on disk, as compressed NDBX.
+ * <p/>
+ * Undo states that follow each other only differ in a few lines of NDBX, so most records only store the lines that
+ * changed since the record before it. Every {@link #KEYFRAME_INTERVAL} records a full copy is written, so reading a
+ * record never has to go back further than that.
+ * <p/>
+ * Only the nodes are stored. The function repository and the other parts of the library are kept in memory by the
+ * undo state, since they are shared with the document anyway.
+ */
+class SpilledStates {
+
+    static final int KEYFRAME_INTERVAL = 16;
+
+    private File directory;
+    private int recordCount;
+    private String[] lastLines;
+    private final BitSet released = new BitSet();
+
+    /**
+     * Write the nodes of the library to disk.
+     *
+     * @param library The library to store.
+     * @return The number of the record, used for reading it back.
+     */
+    synchronized int write(NodeLibrary library) {
+        String xml = library.withFunctionRepository(FunctionRepository.of()).toXml();
+        String[] lines = xml.split("\n", -1);
+        int record = recordCount;
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(recordFile(record)))));
+            try {
+                if (record % KEYFRAME_INTERVAL == 0) {
+                    writeLines(out, lines, 0, lines.length);
+                } else {
+                    int prefix = 0;
+                    int max = Math.min(lines.length, lastLines.length);
+                    while (prefix < max && lines[prefix].equals(lastLines[prefix])) {
+                        prefix++;
+                    }
+                    int suffix = 0;
+                    while (suffix < max - prefix && lines[lines.length - 1 - suffix].equals(lastLines[lastLines.length - 1 - suffix])) {
+                        suffix++;
+                    }
+                    out.writeInt(prefix);
+                    out.writeInt(suffix);
+                    writeLines(out, lines, prefix, lines.length - suffix);
+                }
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write undo state: " + e.getMessage(), e);
+        }
+        lastLines = lines;
+        recordCount++;
+        return record;
+    }
+
+    /**
+     * Read the nodes of a record back into a library.
+     *
+     * @param record  The number of the record.
+     * @param library The library without its nodes.
+     * @return The library with the stored nodes.
+     */
+    synchronized NodeLibrary read(int record, NodeLibrary library) {
+        String[] lines;
+        try {
+            int keyframe = record - record % KEYFRAME_INTERVAL;
+            DataInputStream in = openRecord(keyframe);
+            try {
+                lines = readLines(in);
+            } finally {
+                in.close();
+            }
+            for (int r = keyframe + 1; r <= record; r++) {
+                in = openRecord(r);
+                try {
+                    int prefix = in.readInt();
+                    int suffix = in.readInt();
+                    String[] changed = readLines(in);
+                    String[] next = new String[prefix + changed.length + suffix];
+                    System.arraycopy(lines, 0, next, 0, prefix);
+                    System.arraycopy(changed, 0, next, prefix, changed.length);
+                    System.arraycopy(lines, lines.length - suffix, next, prefix + changed.length, suffix);
+                    lines = next;
+                } finally {
+                    in.close();
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read undo state: " + e.getMessage(), e);
+        }
+        StringBuilder xml = new StringBuilder();
+        for (int i = 0; i < lines.length; i++) {
+            if (i > 0) xml.append('\n');
+            xml.append(lines[i]);
+        }
+        NodeLibrary stored = NodeLibrary.load(library.getName(), xml.toString(), library.getFile(), library.getNodeRepository());
+        return library.withRoot(stored.getRoot());
+    }
+
+    /**
+     * Mark the record as no longer needed.
+     * <p/>
+     * The records are removed from disk when every record that is written relative to the same keyframe is released.
+     */
+    synchronized void release(int record) {
+        released.set(record);
+        int keyframe = record - record % KEYFRAME_INTERVAL;
+        int written = Math.min(keyframe + KEYFRAME_INTERVAL, recordCount);
+        if (released.nextClearBit(keyframe) < written) return;
+        for (int r = keyframe; r < written; r++) {
+            recordFile(r).delete();
+        }
+        if (written == recordCount) {
+            // The newest records are gone, so the next record has to start a new keyframe.
+            released.set(written, keyframe + KEYFRAME_INTERVAL);
+            recordCount = keyframe + KEYFRAME_INTERVAL;
+            lastLines = null;
+        }
+    }
+
+    /**
+     * Remove all records from disk.
+     * <p/>
+     * The states that were spilled before can no longer be read, so only call this when they are discarded.
+     */
+    synchronized void clear() {
+        if (directory != null) {
+            FileUtils.deleteDirectory(directory);
+            directory = null;
+        }
+        // Start a new keyframe, since the records before it are gone.
+        recordCount = 0;
+        lastLines = null;
+        released.clear();
+    }
+
+    /**
+     * Get the number of records on disk.
+     */
+    synchronized int getFileCount() {
+        if (directory == null) return 0;
+        File[] files = directory.listFiles();
+        return files == null ? 0 : files.length;
+    }
+
+    private File recordFile(int record) {
+        if (directory == null) {
+            directory = FileUtils.createTemporaryDirectory("undo");
+        }
+        return new File(directory, String.format("%06d.ndbx.gz", record));
+    }
+
+    private DataInputStream openRecord(int record) throws IOException {
+        return new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(recordFile(record)))));
+    }
+
+    private static void writeLines(DataOutputStream out, String[] lines, int start, int end) throws IOException {
+        out.writeInt(end - start);
+        for (int i = start; i < end; i++) {
+            byte[] bytes = lines[i].getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String[] readLines(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<String> lines = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            lines.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return lines.toArray(new String[count]);
+    }
+
+}
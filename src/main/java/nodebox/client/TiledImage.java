@@ -0,0 +1,322 @@
+package nodebox.client;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import nodebox.graphics.Geometry;
+import nodebox.graphics.Grob;
+import nodebox.graphics.Path;
+import nodebox.graphics.Rect;
+
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.*;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * An image of grobs that is drawn in horizontal strips, on a pool of threads, when the strips are requested.
+ * <p/>
+ * Image writers such as the PNG writer read the image a row at a time, so only the strips around the rows being
+ * written are kept in memory, while the next strips are drawn in the background. Every strip only draws the grobs
+ * whose bounds touch it. The strips are offset by whole pixels, so they have the same pixels as the image drawn
+ * at once. The exception are curves that cross the edge of a strip: the Java 2D renderer clips curves to the drawing
+ * area, which can change the antialiasing of a few of their edge pixels.
+ * <p/>
+ * Paths and geometry are drawn by several strips at the same time. Other grobs keep state while drawing, so they are
+ * drawn by one strip at a time.
+ */
+final class TiledImage implements RenderedImage {
+
+    public static final int DEFAULT_STRIP_HEIGHT = 256;
+
+    private final List<Grob> grobs;
+    // The indices of the grobs to draw in every strip, in drawing order.
+    private final int[][] stripGrobs;
+    private final double originX, originY;
+    private final int width, height;
+    private final int stripHeight;
+    private final int stripCount;
+    private final Color backgroundColor;
+    private final ColorModel colorModel = ColorModel.getRGBdefault();
+    private final SampleModel sampleModel;
+    private final ExecutorService executor;
+    private final int window;
+    private final Map<Integer, Future<Raster>> strips = new HashMap<Integer, Future<Raster>>();
+
+    TiledImage(List<Grob> grobs, Rectangle2D bounds, Color backgroundColor, int threadCount) {
+        this(grobs, bounds, backgroundColor, threadCount, DEFAULT_STRIP_HEIGHT);
+    }
+
+    TiledImage(List<Grob> grobs, Rectangle2D bounds, Color backgroundColor, int threadCount, int stripHeight) {
+        checkArgument(threadCount > 0, "The thread count needs to be at least one.");
+        checkArgument(stripHeight > 0, "The strip height needs to be at least one.");
+        this.grobs = grobs;
+        this.originX = bounds.getX();
+        this.originY = bounds.getY();
+        this.width = (int) Math.round(bounds.getWidth());
+        this.height = (int) Math.round(bounds.getHeight());
+        this.stripHeight = stripHeight;
+        this.stripCount = (height + stripHeight - 1) / stripHeight;
+        this.backgroundColor = backgroundColor;
+        this.sampleModel = colorModel.createCompatibleSampleModel(width, stripHeight);
+        this.stripGrobs = assignGrobs();
+        this.executor = Executors.newFixedThreadPool(threadCount,
+                new ThreadFactoryBuilder().setNameFormat("tiled-image-%d").setDaemon(true).build());
+        this.window = threadCount * 2;
+    }
+
+    /**
+     * Find the strips every grob is drawn in.
+     * <p/>
+     * This also fills the path and bounds caches of the paths, so the strips only read them.
+     */
+    private int[][] assignGrobs() {
+        int grobCount = grobs.size();
+        int[] firstStrip = new int[grobCount];
+        int[] lastStrip = new int[grobCount];
+        int[] counts = new int[stripCount];
+        for (int i = 0; i < grobCount; i++) {
+            Rectangle2D reach = drawingBounds(grobs.get(i));
+            if (reach == null) {
+                firstStrip[i] = 0;
+                lastStrip[i] = stripCount - 1;
+            } else {
+                double top = reach.getMinY() - originY;
+                double bottom = reach.getMaxY() - originY;
+                firstStrip[i] = (int) Math.max(0, Math.floor(top / stripHeight));
+                lastStrip[i] = (int) Math.min(stripCount - 1, Math.floor(bottom / stripHeight));
+                double left = reach.getMinX() - originX;
+                double right = reach.getMaxX() - originX;
+                if (right < 0 || left > width) {
+                    lastStrip[i] = -1;
+                }
+            }
+            for (int s = firstStrip[i]; s <= lastStrip[i]; s++) {
+                counts[s]++;
+            }
+        }
+        int[][] assigned = new int[stripCount][];
+        for (int s = 0; s < stripCount; s++) {
+            assigned[s] = new int[counts[s]];
+            counts[s] = 0;
+        }
+        for (int i = 0; i < grobCount; i++) {
+            for (int s = firstStrip[i]; s <= lastStrip[i]; s++) {
+                assigned[s][counts[s]++] = i;
+            }
+        }
+        return assigned;
+    }
+
+    /**
+     * Return the area the grob can draw in, or null if it is not known.
+     */
+    private static Rectangle2D drawingBounds(Grob grob) {
+        if (grob instanceof Path) {
+            Path path = (Path) grob;
+            path.getGeneralPath();
+            return pad(path.getBounds(), strokeMargin(path));
+        } else if (grob instanceof Geometry) {
+            double margin = 0;
+            for (Path path : ((Geometry) grob).getPaths()) {
+                path.getGeneralPath();
+                margin = Math.max(margin, strokeMargin(path));
+            }
+            return pad(grob.getBounds(), margin);
+        } else {
+            // The bounds of images and text don't include their transform.
+            return null;
+        }
+    }
+
+    private static double strokeMargin(Path path) {
+        // Antialiasing can touch the pixel next to the outline.
+        double margin = 1;
+        if (path.getStroke() != null && path.getStrokeWidth() > 0) {
+            // The default stroke has mitered joins with a limit of ten, which reach five stroke widths out.
+            margin += path.getStrokeWidth() * 5;
+        }
+        return margin;
+    }
+
+    private static Rectangle2D pad(Rect r, double margin) {
+        return new Rectangle2D.Double(r.getX() - margin, r.getY() - margin, r.getWidth() + margin * 2, r.getHeight() + margin * 2);
+    }
+
+    private Raster drawStrip(int strip) {
+        int stripY = strip * stripHeight;
+        int h = Math.min(stripHeight, height - stripY);
+        BufferedImage img = new BufferedImage(width, h, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        if (backgroundColor != null) {
+            g.setColor(backgroundColor);
+            g.fillRect(0, 0, width, h);
+        }
+        g.translate(0, -stripY);
+        g.translate(-originX, -originY);
+        for (int i : stripGrobs[strip]) {
+            Grob grob = grobs.get(i);
+            if (grob instanceof Path || grob instanceof Geometry) {
+                grob.draw(g);
+            } else {
+                synchronized (grob) {
+                    grob.draw(g);
+                }
+            }
+        }
+        g.dispose();
+        return img.getRaster().createTranslatedChild(0, stripY);
+    }
+
+    /**
+     * Return the pixels of the strip, and start drawing the strips after it.
+     */
+    private Raster getStrip(final int strip) {
+        Future<Raster> future;
+        synchronized (strips) {
+            // Writers go through the image from top to bottom, so earlier strips are no longer needed.
+            Iterator<Integer> it = strips.keySet().iterator();
+            while (it.hasNext()) {
+                if (it.next() < strip) {
+                    it.remove();
+                }
+            }
+            for (int s = strip; s < Math.min(strip + window, stripCount); s++) {
+                if (!strips.containsKey(s)) {
+                    final int stripToDraw = s;
+                    strips.put(s, executor.submit(new Callable<Raster>() {
+                        public Raster call() {
+                            return drawStrip(stripToDraw);
+                        }
+                    }));
+                }
+            }
+            future = strips.get(strip);
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while drawing the image.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Stop the drawing threads.
+     */
+    public void dispose() {
+        executor.shutdownNow();
+        synchronized (strips) {
+            strips.clear();
+        }
+    }
+
+    public Vector<RenderedImage> getSources() {
+        return null;
+    }
+
+    public Object getProperty(String name) {
+        return Image.UndefinedProperty;
+    }
+
+    public String[] getPropertyNames() {
+        return null;
+    }
+
+    public ColorModel getColorModel() {
+        return colorModel;
+    }
+
+    public SampleModel getSampleModel() {
+        return sampleModel;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getMinX() {
+        return 0;
+    }
+
+    public int getMinY() {
+        return 0;
+    }
+
+    public int getNumXTiles() {
+        return 1;
+    }
+
+    public int getNumYTiles() {
+        return stripCount;
+    }
+
+    public int getMinTileX() {
+        return 0;
+    }
+
+    public int getMinTileY() {
+        return 0;
+    }
+
+    public int getTileWidth() {
+        return width;
+    }
+
+    public int getTileHeight() {
+        return stripHeight;
+    }
+
+    public int getTileGridXOffset() {
+        return 0;
+    }
+
+    public int getTileGridYOffset() {
+        return 0;
+    }
+
+    public Raster getTile(int tileX, int tileY) {
+        checkArgument(tileX == 0 && tileY >= 0 && tileY < stripCount, "Tile %s,%s is outside of the image.", tileX, tileY);
+        return getStrip(tileY);
+    }
+
+    public Raster getData() {
+        return copyData(null);
+    }
+
+    public Raster getData(Rectangle rect) {
+        WritableRaster raster = Raster.createWritableRaster(
+                sampleModel.createCompatibleSampleModel(rect.width, rect.height), new java.awt.Point(rect.x, rect.y));
+        return copyData(raster);
+    }
+
+    public WritableRaster copyData(WritableRaster raster) {
+        if (raster == null) {
+            raster = Raster.createWritableRaster(sampleModel.createCompatibleSampleModel(width, height), null);
+        }
+        Rectangle area = raster.getBounds().intersection(new Rectangle(0, 0, width, height));
+        if (area.isEmpty()) return raster;
+        int firstStrip = area.y / stripHeight;
+        int lastStrip = (area.y + area.height - 1) / stripHeight;
+        for (int s = firstStrip; s <= lastStrip; s++) {
+            Raster stripRaster = getStrip(s);
+            Rectangle part = area.intersection(stripRaster.getBounds());
+            // The child keeps the coordinates of the image, which setDataElements adds to the offset.
+            raster.setDataElements(0, 0, stripRaster.createChild(part.x, part.y, part.width, part.height, part.x, part.y, null));
+        }
+        return raster;
+    }
+
+}
@@ -1,9 +1,11 @@
 package nodebox.client;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
 import nodebox.client.visualizer.*;
 import nodebox.graphics.CanvasContext;
 import nodebox.graphics.IGeometry;
+import nodebox.graphics.PointCursor;
 import nodebox.handle.Handle;
 import nodebox.ui.Theme;
 import nodebox.ui.Zoom;
@@ -14,7 +16,7 @@ import java.awt.event.*;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
-import java.util.LinkedList;
+import java.util.ArrayList;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static nodebox.util.ListUtils.listClass;
@@ -287,13 +289,12 @@ public class Viewer extends ZoomableView implements OutputView, Zoom, MouseListe
 
     private void paintPoints(Graphics2D g) {
         if (showPoints && IGeometry.class.isAssignableFrom(valuesClass)) {
-            // TODO Create a dynamic iterator that combines all output values into one flat sequence.
-            LinkedList<nodebox.graphics.Point> points = new LinkedList<nodebox.graphics.Point>();
+            java.util.List<Iterable<nodebox.graphics.Point>> points = new ArrayList<Iterable<nodebox.graphics.Point>>(outputValues.size());
             for (Object o : outputValues) {
                 IGeometry geo = (IGeometry) o;
-                points.addAll(geo.getPoints());
+                points.add(geo.getPoints());
             }
-            PointVisualizer.drawPoints(g, points);
+            PointVisualizer.drawPoints(g, Iterables.concat(points));
         }
     }
 
@@ -306,9 +307,9 @@ public class Viewer extends ZoomableView implements OutputView, Zoom, MouseListe
 
         if (IGeometry.class.isAssignableFrom(valuesClass)) {
             for (Object o : outputValues) {
-                IGeometry geo = (IGeometry) o;
-                for (nodebox.graphics.Point pt : geo.getPoints())
-                    paintPointNumber(g, pt, index++);
+                PointCursor cursor = ((IGeometry) o).pointCursor();
+                while (cursor.next())
+                    paintPointNumber(g, cursor.getX(), cursor.getY(), cursor.isOnCurve(), index++);
             }
         } else if (nodebox.graphics.Point.class.isAssignableFrom(valuesClass)) {
             for (Object o : outputValues)
@@ -317,12 +318,16 @@ public class Viewer extends ZoomableView implements OutputView, Zoom, MouseListe
     }
 
     private void paintPointNumber(Graphics2D g, nodebox.graphics.Point pt, int number) {
-        if (pt.isOnCurve()) {
+        paintPointNumber(g, pt.x, pt.y, pt.isOnCurve(), number);
+    }
+
+    private void paintPointNumber(Graphics2D g, double x, double y, boolean onCurve, int number) {
+        if (onCurve) {
             g.setColor(Color.BLUE);
         } else {
             g.setColor(Color.RED);
         }
-        g.drawString(number + "", (int) (pt.x + 3), (int) (pt.y - 2));
+        g.drawString(number + "", (int) (x + 3), (int) (y - 2));
     }
 
     public void paintOrigin(Graphics2D g) {
@@ -0,0 +1,469 @@
+package nodebox.function;
+
+import com.google.common.collect.ImmutableMap;
+import com.opencsv.CSVParserBuilder;
+import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+import com.opencsv.exceptions.CsvValidationException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.text.NumberFormat;
+import java.text.ParsePosition;
+import java.util.*;
+
+/**
+ * A table read from a CSV file, stored by column.
+ * <p/>
+ * Columns where every value is a number are stored as an array of doubles. Other columns are stored as an index into
+ * the distinct values of the column, so a value that is repeated on many rows is only kept once. The table is a list of
+ * rows, where every row is a read-only map from the column name to the value, in the order of the columns. Cells that
+ * are missing from a short row are not in its map.
+ * <p/>
+ * Tables can't be changed, so the same table can be returned to every render.
+ */
+public final class CSVTable extends AbstractList<Map<String, Object>> implements RandomAccess {
+
+    private static final int MISSING = -1;
+
+    private final String[] columnNames;
+    private final Map<String, Integer> columnIndices;
+    private final int rowCount;
+    // For every column, either the numbers, or the codes of the strings; the other one is null.
+    private final double[][] numbers;
+    private final int[][] codes;
+    private final String[][] dictionaries;
+    // For numeric columns, the rows that have a value. Null if all rows have one.
+    private final BitSet[] present;
+
+    private CSVTable(String[] columnNames, int rowCount, double[][] numbers, int[][] codes, String[][] dictionaries, BitSet[] present) {
+        this.columnNames = columnNames;
+        this.rowCount = rowCount;
+        this.numbers = numbers;
+        this.codes = codes;
+        this.dictionaries = dictionaries;
+        this.present = present;
+        Map<String, Integer> indices = new HashMap<String, Integer>();
+        for (int i = columnNames.length - 1; i >= 0; i--) {
+            indices.put(columnNames[i], i);
+        }
+        this.columnIndices = indices;
+    }
+
+    /**
+     * Read a CSV file.
+     * <p/>
+     * The first row holds the names of the columns. Empty names are replaced by "Column 1", "Column 2", ...
+     * and names that occur more than once are numbered. Values are trimmed. A column is numeric if every value in it
+     * can be read as a number in the given locale.
+     * <p/>
+     * Numbers are parsed while reading. If a column turns out to have text after rows of numbers, the original text
+     * of those rows is gone, so the file is read a second time with that column read as text.
+     *
+     * @param file         The CSV file.
+     * @param separator    The character between values.
+     * @param quote        The character around values that contain the separator.
+     * @param numberLocale The locale of the numbers, which sets the decimal and grouping separators.
+     * @return The table.
+     * @throws IOException if the file can't be read.
+     */
+    public static CSVTable read(File file, char separator, char quote, Locale numberLocale) throws IOException {
+        NumberParser parser = new NumberParser(numberLocale);
+        Builder builder = read(file, separator, quote, parser, Collections.<Integer>emptySet());
+        Set<Integer> textColumns = builder.lateTextColumns();
+        if (!textColumns.isEmpty()) {
+            builder = read(file, separator, quote, parser, textColumns);
+        }
+        return builder.build();
+    }
+
+    private static Builder read(File file, char separator, char quote, NumberParser parser, Set<Integer> textColumns) throws IOException {
+        try (InputStreamReader in = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8);
+             CSVReader reader = new CSVReaderBuilder(in)
+                     .withCSVParser(new CSVParserBuilder()
+                             .withSeparator(separator)
+                             .withQuoteChar(quote)
+                             .build())
+                     .build()) {
+            String[] headers;
+            try {
+                headers = reader.readNext();
+            } catch (CsvValidationException e) {
+                throw new RuntimeException("Could not parse CSV headers: " + e.getMessage(), e);
+            }
+            if (headers == null) {
+                headers = new String[0];
+            }
+            Builder builder = new Builder(uniqueHeaders(headers), parser, textColumns);
+            while (true) {
+                String[] row;
+                try {
+                    row = reader.readNext();
+                } catch (CsvValidationException e) {
+                    throw new RuntimeException("Could not parse CSV row: " + e.getMessage(), e);
+                }
+                if (row == null) break;
+                builder.addRow(row);
+            }
+            return builder;
+        }
+    }
+
+    private static List<String> uniqueHeaders(String[] headers) {
+        Map<String, Integer> duplicates = new HashMap<String, Integer>();
+        Set<String> seen = new HashSet<String>();
+        for (int i = 0; i < headers.length; i++) {
+            headers[i] = headers[i].trim();
+            if (headers[i].isEmpty())
+                headers[i] = String.format("Column %s", i + 1);
+            if (!seen.add(headers[i]))
+                duplicates.put(headers[i], 0);
+        }
+        List<String> names = new ArrayList<String>(headers.length);
+        for (String header : headers) {
+            Integer number = duplicates.get(header);
+            if (number != null) {
+                duplicates.put(header, number + 1);
+                names.add(header + " " + (number + 1));
+            } else {
+                names.add(header);
+            }
+        }
+        return names;
+    }
+
+    //// Table access ////
+
+    public List<String> getColumnNames() {
+        return Collections.unmodifiableList(Arrays.asList(columnNames));
+    }
+
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Estimate the number of bytes the table takes in memory.
+     */
+    public long estimateBytes() {
+        long bytes = 0;
+        for (int column = 0; column < columnNames.length; column++) {
+            if (numbers[column] != null) {
+                bytes += 8L * rowCount;
+                if (present[column] != null) bytes += rowCount / 8;
+            } else {
+                bytes += 4L * rowCount;
+                for (String value : dictionaries[column]) {
+                    bytes += 40 + 2L * value.length();
+                }
+            }
+        }
+        return Math.max(1, bytes);
+    }
+
+    /**
+     * Check if the column only holds numbers.
+     */
+    public boolean isNumeric(int column) {
+        return numbers[column] != null;
+    }
+
+    /**
+     * Get a value of the table.
+     *
+     * @return a Double for numeric columns, a String for other columns, or null if the row has no value for the column.
+     */
+    public Object getValue(int row, int column) {
+        if (numbers[column] != null) {
+            if (present[column] != null && !present[column].get(row)) return null;
+            return numbers[column][row];
+        } else {
+            int code = codes[column][row];
+            return code == MISSING ? null : dictionaries[column][code];
+        }
+    }
+
+    private boolean hasValue(int row, int column) {
+        if (numbers[column] != null) {
+            return present[column] == null || present[column].get(row);
+        } else {
+            return codes[column][row] != MISSING;
+        }
+    }
+
+    //// List view ////
+
+    @Override
+    public Map<String, Object> get(int index) {
+        if (index < 0 || index >= rowCount) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + rowCount);
+        }
+        return new Row(index);
+    }
+
+    @Override
+    public int size() {
+        return rowCount;
+    }
+
+    /**
+     * A row of the table. The values are read from the columns when they are asked for.
+     */
+    private final class Row extends AbstractMap<String, Object> {
+
+        private final int row;
+        private Set<Map.Entry<String, Object>> entrySet;
+
+        private Row(int row) {
+            this.row = row;
+        }
+
+        @Override
+        public Object get(Object key) {
+            Integer column = columnIndices.get(key);
+            return column == null ? null : getValue(row, column);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            Integer column = columnIndices.get(key);
+            return column != null && hasValue(row, column);
+        }
+
+        @Override
+        public Set<Map.Entry<String, Object>> entrySet() {
+            if (entrySet == null) {
+                ImmutableMap.Builder<String, Object> b = ImmutableMap.builder();
+                for (int column = 0; column < columnNames.length; column++) {
+                    if (hasValue(row, column)) {
+                        b.put(columnNames[column], getValue(row, column));
+                    }
+                }
+                entrySet = b.build().entrySet();
+            }
+            return entrySet;
+        }
+
+    }
+
+    //// Building ////
+
+    private static final class Builder {
+
+        private final List<String> names;
+        private final List<ColumnBuilder> columns = new ArrayList<ColumnBuilder>();
+        private final NumberParser parser;
+        private final Set<Integer> textColumns;
+        private int rowCount;
+
+        private Builder(List<String> headers, NumberParser parser, Set<Integer> textColumns) {
+            this.names = new ArrayList<String>(headers);
+            this.parser = parser;
+            this.textColumns = textColumns;
+            for (int i = 0; i < headers.size(); i++) {
+                columns.add(new ColumnBuilder(0, textColumns.contains(i)));
+            }
+        }
+
+        private void addRow(String[] row) {
+            for (int i = columns.size(); i < row.length; i++) {
+                // Rows can be longer than the header row.
+                names.add(String.format("Column %s", i + 1));
+                columns.add(new ColumnBuilder(rowCount, textColumns.contains(i)));
+            }
+            for (int i = 0; i < columns.size(); i++) {
+                columns.get(i).add(rowCount, i < row.length ? row[i].trim() : null, parser);
+            }
+            rowCount++;
+        }
+
+        /**
+         * Get the columns that found text after they already had numbers.
+         */
+        private Set<Integer> lateTextColumns() {
+            Set<Integer> late = new HashSet<Integer>();
+            for (int i = 0; i < columns.size(); i++) {
+                if (columns.get(i).textAfterNumbers) {
+                    late.add(i);
+                }
+            }
+            return late;
+        }
+
+        private CSVTable build() {
+            int columnCount = columns.size();
+            double[][] numbers = new double[columnCount][];
+            int[][] codes = new int[columnCount][];
+            String[][] dictionaries = new String[columnCount][];
+            BitSet[] present = new BitSet[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                ColumnBuilder column = columns.get(i);
+                if (column.numeric) {
+                    numbers[i] = Arrays.copyOf(column.numbers, rowCount);
+                    if (column.missing != null) {
+                        present[i] = new BitSet(rowCount);
+                        present[i].set(0, rowCount);
+                        present[i].andNot(column.missing);
+                    }
+                } else {
+                    codes[i] = Arrays.copyOf(column.codes, rowCount);
+                    dictionaries[i] = column.dictionary.toArray(new String[column.dictionary.size()]);
+                }
+            }
+            return new CSVTable(names.toArray(new String[columnCount]), rowCount, numbers, codes, dictionaries, present);
+        }
+
+    }
+
+    /**
+     * Collects the values of a column, as numbers for as long as all values are numbers, and as codes into the distinct
+     * values of the column after that.
+     */
+    private static final class ColumnBuilder {
+
+        private boolean numeric;
+        private boolean textAfterNumbers;
+        private int numberCount;
+        private double[] numbers;
+        private BitSet missing;
+        private int[] codes;
+        private Map<String, Integer> index;
+        private List<String> dictionary;
+
+        private ColumnBuilder(int firstRow, boolean text) {
+            if (text) {
+                switchToText();
+            } else {
+                numeric = true;
+                numbers = new double[16];
+            }
+            for (int row = 0; row < firstRow; row++) {
+                addMissing(row);
+            }
+        }
+
+        private void switchToText() {
+            numeric = false;
+            numbers = null;
+            codes = new int[16];
+            index = new HashMap<String, Integer>();
+            dictionary = new ArrayList<String>();
+        }
+
+        private void add(int row, String value, NumberParser parser) {
+            if (value == null) {
+                addMissing(row);
+                return;
+            }
+            if (numeric) {
+                if (parser.parse(value)) {
+                    if (row >= numbers.length) {
+                        numbers = Arrays.copyOf(numbers, Math.max(row + 1, numbers.length * 2));
+                    }
+                    numbers[row] = parser.value;
+                    numberCount++;
+                    return;
+                }
+                // The earlier rows of this column still need to be read as text, in a second pass.
+                textAfterNumbers = numberCount > 0;
+                BitSet missingRows = missing;
+                switchToText();
+                for (int r = 0; r < row; r++) {
+                    codes = ensureCapacity(codes, r);
+                    codes[r] = missingRows != null && missingRows.get(r) ? MISSING : 0;
+                }
+            }
+            Integer code = index.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(value);
+                index.put(value, code);
+            }
+            codes = ensureCapacity(codes, row);
+            codes[row] = code;
+        }
+
+        private void addMissing(int row) {
+            if (numeric) {
+                if (missing == null) {
+                    missing = new BitSet();
+                }
+                missing.set(row);
+            } else {
+                codes = ensureCapacity(codes, row);
+                codes[row] = MISSING;
+            }
+        }
+
+        private static int[] ensureCapacity(int[] array, int index) {
+            if (index < array.length) return array;
+            return Arrays.copyOf(array, Math.max(index + 1, array.length * 2));
+        }
+
+    }
+
+    /**
+     * Parses numbers the way NumberFormat does, with a faster path for plain decimal numbers.
+     */
+    private static final class NumberParser {
+
+        private final NumberFormat format;
+        private final ParsePosition position = new ParsePosition(0);
+        private final char decimalSeparator;
+        private double value;
+
+        private NumberParser(Locale locale) {
+            format = NumberFormat.getNumberInstance(locale);
+            decimalSeparator = locale.equals(Locale.GERMANY) ? ',' : '.';
+        }
+
+        /**
+         * Parse the whole string as a number. If it is one, the number is kept in the value field.
+         */
+        private boolean parse(String v) {
+            if (isPlainNumber(v)) {
+                value = Double.parseDouble(decimalSeparator == '.' ? v : v.replace(decimalSeparator, '.'));
+                return true;
+            }
+            position.setIndex(0);
+            position.setErrorIndex(-1);
+            Number n = format.parse(v, position);
+            if (n == null || position.getIndex() != v.length()) return false;
+            value = n.doubleValue();
+            return true;
+        }
+
+        /**
+         * Check if the value is an optional minus sign, digits, and optionally a decimal separator followed by digits.
+         * <p/>
+         * These values are read the same by Double.parseDouble and NumberFormat. Long values are left to
+         * NumberFormat, since it reads them differently past the precision of a double.
+         */
+        private boolean isPlainNumber(String v) {
+            int length = v.length();
+            if (length == 0 || length > 15) return false;
+            int i = v.charAt(0) == '-' ? 1 : 0;
+            int digitsBefore = 0;
+            while (i < length && Character.isDigit(v.charAt(i)) && v.charAt(i) < 128) {
+                i++;
+                digitsBefore++;
+            }
+            if (digitsBefore == 0) return false;
+            if (i == length) return true;
+            if (v.charAt(i) != decimalSeparator) return false;
+            i++;
+            int digitsAfter = 0;
+            while (i < length && Character.isDigit(v.charAt(i)) && v.charAt(i) < 128) {
+                i++;
+                digitsAfter++;
+            }
+            return digitsAfter > 0 && i == length;
+        }
+
+    }
+
+}
@@ -8,11 +8,23 @@ import nodebox.graphics.*;
 import nodebox.handle.*;
 import nodebox.util.MathUtils;
 
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
 import java.awt.geom.Arc2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static nodebox.function.MathFunctions.angle;
 import static nodebox.function.MathFunctions.coordinates;
+import static nodebox.function.MathFunctions.distance;
 
 /**
  * Core vector function library.
@@ -24,9 +36,10 @@ public class CoreVectorFunctions {
     static {
         LIBRARY = JavaLibrary.ofClass("corevector", CoreVectorFunctions.class,
                 "generator", "filter",
-                "align", "arc", "centroid", "colorize", "connect", "copy", "doNothing", "ellipse", "fit", "fitTo",
-                "freehand", "grid", "group", "line", "lineAngle", "link", "makePoint", "point", "pointOnPath", "rect",
-                "snap", "skew", "toPoints", "ungroup", "textpath",
+                "align", "arc", "centroid", "colorize", "compound", "connect", "copy", "delete", "distribute",
+                "doNothing", "ellipse", "fit", "fitTo", "freehand", "grid", "group", "line", "lineAngle", "link",
+                "makePoint", "point", "pointOnPath", "rect", "reflect", "resample", "scatter", "shapeOnPath", "snap",
+                "skew", "stack", "textOnPath", "toPoints", "ungroup", "textpath", "wiggle",
                 "fourPointHandle", "freehandHandle", "lineAngleHandle", "lineHandle", "pointHandle", "snapHandle",
                 "translateHandle");
     }
@@ -162,6 +175,45 @@ public class CoreVectorFunctions {
         return newShape;
     }
 
+    /**
+     * Add, subtract or intersect two shapes.
+     * <p/>
+     * Geometry objects are first combined into a single path by uniting all of their paths.
+     *
+     * @param shape1           The first shape.
+     * @param shape2           The second shape.
+     * @param function         The operation. Either "united", "subtracted" or "intersected".
+     * @param invertDifference If true, switch the first and second shape.
+     * @return The combined shape, or null if the operation is unknown.
+     */
+    public static Path compound(IGeometry shape1, IGeometry shape2, String function, boolean invertDifference) {
+        if (shape1 == null) return null;
+        Path path1 = unitedPaths(shape1);
+        if (shape2 == null) return path1.clone();
+        Path path2 = unitedPaths(shape2);
+        if (invertDifference) {
+            Path tmp = path1;
+            path1 = path2;
+            path2 = tmp;
+        }
+        if (function.equals("united")) {
+            return path1.united(path2);
+        } else if (function.equals("subtracted")) {
+            return path1.subtracted(path2);
+        } else if (function.equals("intersected")) {
+            return path1.intersected(path2);
+        }
+        return null;
+    }
+
+    private static Path unitedPaths(IGeometry shape) {
+        if (shape instanceof Path) return (Path) shape;
+        List<Path> paths = ((Geometry) shape).getPaths();
+        if (paths.isEmpty()) return new Path();
+        if (paths.size() == 1) return paths.get(0);
+        return Path.union(paths);
+    }
+
     /**
      * Connects all given points, in order, as a new path.
      *
@@ -219,6 +271,179 @@ public class CoreVectorFunctions {
         return builder.build();
     }
 
+    /**
+     * Delete the points or paths that lie within the given bounding shape.
+     * <p/>
+     * Paths are selected if any one of their points is within the bounding shape.
+     *
+     * @param shape     The shape to delete from. This can also be a list of points.
+     * @param bounding  The bounding shape.
+     * @param scope     What to delete. Either "points" or "paths".
+     * @param operation Either "selected" to delete everything within the bounds, or "non-selected" to delete
+     *                  everything outside of the bounds.
+     * @return The new shape, or null if the shape or scope is not supported.
+     */
+    public static Object delete(Object shape, IGeometry bounding, String scope, String operation) {
+        if (shape == null || bounding == null) return null;
+        boolean deleteSelected = operation.equals("selected");
+        if (scope.equals("points")) {
+            return deletePoints(shape, bounding, deleteSelected);
+        } else if (scope.equals("paths")) {
+            return deletePaths(shape, bounding, deleteSelected);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object deletePoints(Object shape, IGeometry bounding, boolean deleteSelected) {
+        if (shape instanceof List) {
+            return remainingPoints((List<Point>) shape, bounding, deleteSelected);
+        } else if (shape instanceof Path) {
+            Path path = (Path) shape;
+            Path newPath = new Path(path, false);
+            for (Contour c : path.getContours()) {
+                newPath.add(new Contour(remainingPoints(c.getPoints(), bounding, deleteSelected), c.isClosed()));
+            }
+            return newPath;
+        } else if (shape instanceof Geometry) {
+            Geometry newGeometry = new Geometry();
+            for (Path path : ((Geometry) shape).getPaths()) {
+                newGeometry.add((Path) deletePoints(path, bounding, deleteSelected));
+            }
+            return newGeometry;
+        }
+        return null;
+    }
+
+    private static List<Point> remainingPoints(List<Point> points, IGeometry bounding, boolean deleteSelected) {
+        List<Point> remaining = new ArrayList<Point>(points.size());
+        for (Point point : points) {
+            if (contains(bounding, point) != deleteSelected) {
+                remaining.add(point);
+            }
+        }
+        return remaining;
+    }
+
+    private static Geometry deletePaths(Object shape, IGeometry bounding, boolean deleteSelected) {
+        List<Path> paths;
+        if (shape instanceof Path) {
+            paths = ImmutableList.of((Path) shape);
+        } else if (shape instanceof Geometry) {
+            paths = ((Geometry) shape).getPaths();
+        } else {
+            return null;
+        }
+        Geometry newGeometry = new Geometry();
+        for (Path path : paths) {
+            boolean selected = false;
+            PointCursor cursor = path.pointCursor();
+            while (cursor.next()) {
+                if (contains(bounding, cursor.getX(), cursor.getY())) {
+                    selected = true;
+                    break;
+                }
+            }
+            if (selected != deleteSelected) {
+                newGeometry.add(path.clone());
+            }
+        }
+        return newGeometry;
+    }
+
+    /**
+     * Distribute shapes on a horizontal or vertical axis.
+     * <p/>
+     * The outermost shapes stay in place, the other shapes are spread evenly between them.
+     *
+     * @param shapes     The shapes to distribute.
+     * @param horizontal The horizontal edge to distribute on. Either "left", "center", "right" or "none".
+     * @param vertical   The vertical edge to distribute on. Either "top", "middle", "bottom" or "none".
+     * @return A list of new shapes.
+     */
+    public static List<IGeometry> distribute(List<IGeometry> shapes, String horizontal, String vertical) {
+        if (shapes == null) return null;
+        List<IGeometry> newShapes;
+        if (shapes.size() < 3 || horizontal.equals("none")) {
+            newShapes = new ArrayList<IGeometry>(shapes.size());
+            for (IGeometry shape : shapes) {
+                newShapes.add(shape.clone());
+            }
+        } else {
+            newShapes = distributeOn(shapes, horizontal);
+        }
+        if (shapes.size() >= 3 && !vertical.equals("none")) {
+            newShapes = distributeOn(newShapes, vertical);
+        }
+        return newShapes;
+    }
+
+    private static List<IGeometry> distributeOn(List<IGeometry> shapes, String edge) {
+        boolean horizontal = edge.equals("left") || edge.equals("center") || edge.equals("right");
+        Map<IGeometry, Rect> bounds = new IdentityHashMap<IGeometry, Rect>();
+        for (IGeometry shape : shapes) {
+            bounds.put(shape, shape.getBounds());
+        }
+        List<IGeometry> sortedShapes = sortedByEdge(shapes, bounds, edge);
+        IGeometry extremum1 = sortedByEdge(shapes, bounds, horizontal ? "left" : "top").get(0);
+        List<IGeometry> sortedByLastEdge = sortedByEdge(shapes, bounds, horizontal ? "right" : "bottom");
+        IGeometry extremum2 = sortedByLastEdge.get(sortedByLastEdge.size() - 1);
+        double outer1 = edge(bounds.get(extremum1), edge);
+        double outer2 = edge(bounds.get(extremum2), edge);
+        double skip = (outer2 - outer1) / (shapes.size() - 1);
+        Map<IGeometry, Integer> sortedIndices = new IdentityHashMap<IGeometry, Integer>();
+        for (int i = 0; i < sortedShapes.size(); i++) {
+            sortedIndices.put(sortedShapes.get(i), i);
+        }
+        int extremumIndex1 = sortedIndices.get(extremum1);
+        int extremumIndex2 = sortedIndices.get(extremum2);
+
+        List<IGeometry> newShapes = new ArrayList<IGeometry>(shapes.size());
+        for (IGeometry shape : shapes) {
+            if (shape == extremum1 || shape == extremum2) {
+                newShapes.add(shape.clone());
+            } else {
+                int i = sortedIndices.get(shape);
+                if (i < extremumIndex1) i += 1;
+                if (i > extremumIndex2) i -= 1;
+                double d = outer1 + (i * skip) - edge(bounds.get(shape), edge);
+                Transform t = horizontal ? Transform.translated(d, 0) : Transform.translated(0, d);
+                newShapes.add(t.map(shape));
+            }
+        }
+        return newShapes;
+    }
+
+    private static List<IGeometry> sortedByEdge(List<IGeometry> shapes, final Map<IGeometry, Rect> bounds, final String edge) {
+        List<IGeometry> sortedShapes = new ArrayList<IGeometry>(shapes);
+        Collections.sort(sortedShapes, new Comparator<IGeometry>() {
+            public int compare(IGeometry shape1, IGeometry shape2) {
+                double e1 = edge(bounds.get(shape1), edge);
+                double e2 = edge(bounds.get(shape2), edge);
+                return e1 < e2 ? -1 : e1 > e2 ? 1 : 0;
+            }
+        });
+        return sortedShapes;
+    }
+
+    private static double edge(Rect bounds, String edge) {
+        if (edge.equals("left")) {
+            return bounds.x;
+        } else if (edge.equals("center")) {
+            return bounds.x + bounds.width / 2;
+        } else if (edge.equals("right")) {
+            return bounds.x + bounds.width;
+        } else if (edge.equals("top")) {
+            return bounds.y;
+        } else if (edge.equals("middle")) {
+            return bounds.y + bounds.height / 2;
+        } else if (edge.equals("bottom")) {
+            return bounds.y + bounds.height;
+        } else {
+            throw new IllegalArgumentException("Unknown distribution " + edge);
+        }
+    }
+
     /**
      * Return the given object back, as-is.
      * <p/>
@@ -502,6 +727,55 @@ public class CoreVectorFunctions {
         });
     }
 
+    /**
+     * Arrange shapes next to each other.
+     * <p/>
+     * The first shape stays in place, the other shapes are placed next to it in the given direction.
+     *
+     * @param shapes    The shapes to arrange.
+     * @param direction The compass direction of the layout. Either "n", "e", "s" or "w".
+     * @param margin    The space between the shapes.
+     * @return A list of new shapes.
+     */
+    public static List<IGeometry> stack(List<IGeometry> shapes, String direction, double margin) {
+        if (shapes == null) return ImmutableList.of();
+        if (shapes.size() <= 1) return shapes;
+        Rect firstBounds = shapes.get(0).getBounds();
+        ImmutableList.Builder<IGeometry> newShapes = ImmutableList.builder();
+        if (direction.equals("e")) {
+            double tx = firstBounds.x;
+            for (IGeometry shape : shapes) {
+                Rect bounds = shape.getBounds();
+                newShapes.add(Transform.translated(tx - bounds.x, 0).map(shape));
+                tx += bounds.width + margin;
+            }
+        } else if (direction.equals("w")) {
+            double tx = firstBounds.x + firstBounds.width;
+            for (IGeometry shape : shapes) {
+                Rect bounds = shape.getBounds();
+                newShapes.add(Transform.translated(tx - (bounds.x + bounds.width), 0).map(shape));
+                tx -= bounds.width + margin;
+            }
+        } else if (direction.equals("n")) {
+            double ty = firstBounds.y + firstBounds.height;
+            for (IGeometry shape : shapes) {
+                Rect bounds = shape.getBounds();
+                newShapes.add(Transform.translated(0, ty - (bounds.y + bounds.height)).map(shape));
+                ty -= bounds.height + margin;
+            }
+        } else if (direction.equals("s")) {
+            double ty = firstBounds.y;
+            for (IGeometry shape : shapes) {
+                Rect bounds = shape.getBounds();
+                newShapes.add(Transform.translated(0, ty - bounds.y).map(shape));
+                ty += bounds.height + margin;
+            }
+        } else {
+            throw new IllegalArgumentException("Invalid direction \"" + direction + ".\"");
+        }
+        return newShapes.build();
+    }
+
     /**
      * Create a rectangle.
      *
@@ -521,6 +795,174 @@ public class CoreVectorFunctions {
         return p;
     }
 
+    /**
+     * Mirror the shape around an axis.
+     *
+     * @param shape        The input shape.
+     * @param position     The center point of the axis.
+     * @param angle        The angle of the axis.
+     * @param keepOriginal If true, also return the original shape.
+     * @return The mirrored shape, grouped with the original shape if keepOriginal is true.
+     */
+    public static IGeometry reflect(IGeometry shape, Point position, double angle, boolean keepOriginal) {
+        if (shape == null) return null;
+        if (shape instanceof Path) {
+            Path newPath = reflect((Path) shape, position, angle);
+            if (!keepOriginal) return newPath;
+            Geometry g = new Geometry();
+            // The input belongs to the upstream node, so add a copy.
+            g.add(((Path) shape).clone());
+            g.add(newPath);
+            return g;
+        } else if (shape instanceof Geometry) {
+            List<Path> paths = ((Geometry) shape).getPaths();
+            Geometry g = new Geometry();
+            // Every path is followed by its reflection.
+            for (Path path : paths) {
+                if (keepOriginal) {
+                    g.add(path.clone());
+                }
+                g.add(reflect(path, position, angle));
+            }
+            return g;
+        } else {
+            throw new IllegalArgumentException("Unsupported geometry type " + shape);
+        }
+    }
+
+    private static Path reflect(Path path, Point position, double angle) {
+        Path newPath = path.cloneAndClear();
+        for (Contour contour : path.getContours()) {
+            Contour c = new Contour();
+            for (Point point : contour.getPoints()) {
+                double d = distance(point, position);
+                double a = angle(point, position);
+                Point pt = coordinates(position, 180 + angle, d * Math.cos(Math.toRadians(a - angle)));
+                d = distance(point, pt);
+                a = angle(point, pt);
+                pt = coordinates(point, a, d * 2);
+                c.addPoint(new Point(pt.x, pt.y, point.type));
+            }
+            if (contour.isClosed()) {
+                c.close();
+            }
+            newPath.add(c);
+        }
+        return newPath;
+    }
+
+    /**
+     * Distribute points along a shape.
+     *
+     * @param shape      The input shape.
+     * @param method     Either "length" to place points a fixed distance apart, or "amount" for a fixed amount of points.
+     * @param length     The maximum length of each segment, when the method is "length".
+     * @param points     The amount of points, when the method is "amount".
+     * @param perContour If true, the amount of points is for every contour, not for the whole shape.
+     * @return The resampled shape.
+     */
+    public static IGeometry resample(IGeometry shape, String method, double length, long points, boolean perContour) {
+        if (shape == null) return null;
+        if (method.equals("length")) {
+            return shape.resampleByLength(length);
+        } else {
+            return shape.resampleByAmount((int) points, perContour);
+        }
+    }
+
+    /**
+     * Generate random points within the boundaries of a shape.
+     * <p/>
+     * Points are tried at random positions within the bounds of the shape. If no point inside the shape
+     * is found after 100 tries, the point is skipped, so fewer points than requested can be returned.
+     *
+     * @param shape  The input shape.
+     * @param amount The amount of points to generate.
+     * @param seed   The random seed.
+     * @return A list of points.
+     */
+    public static List<Point> scatter(IGeometry shape, long amount, long seed) {
+        if (shape == null) return null;
+        Rect bounds = shape.getBounds();
+        PythonRandom random = new PythonRandom(seed);
+        ImmutableList.Builder<Point> points = ImmutableList.builder();
+        for (long i = 0; i < amount; i++) {
+            for (int tries = 100; tries > 0; tries--) {
+                double x = bounds.x + random.nextDouble() * bounds.width;
+                double y = bounds.y + random.nextDouble() * bounds.height;
+                Point pt = new Point(x, y);
+                if (contains(shape, pt)) {
+                    points.add(pt);
+                    break;
+                }
+            }
+        }
+        return points.build();
+    }
+
+    /**
+     * Copy shapes along a path.
+     * <p/>
+     * The shapes are repeated, in order, and rotated to follow the direction of the path.
+     *
+     * @param shapes         The shapes to copy.
+     * @param path           The path to copy the shapes on.
+     * @param amount         The amount of copies of each shape.
+     * @param alignment      Either "leading", "trailing" or "distributed".
+     * @param spacing        The distance between the shapes, for leading and trailing alignment.
+     * @param margin         The empty space before and/or after the shapes.
+     * @param baselineOffset The vertical offset of the shapes from the path.
+     * @return A list of new shapes.
+     */
+    public static List<IGeometry> shapeOnPath(List<IGeometry> shapes, AbstractGeometry path, long amount, String alignment,
+                                              double spacing, double margin, double baselineOffset) {
+        if (shapes == null || shapes.isEmpty()) return ImmutableList.of();
+        if (path == null) return ImmutableList.of();
+        double pathLength = path.getLength();
+        if (pathLength <= 0) return ImmutableList.of();
+
+        if (alignment.equals("trailing")) {
+            shapes = new ArrayList<IGeometry>(shapes);
+            Collections.reverse(shapes);
+        }
+
+        double length = pathLength - margin;
+        double m = margin / pathLength;
+        long total = amount * shapes.size();
+        long c = 0;
+
+        ImmutableList.Builder<IGeometry> newShapes = ImmutableList.builder();
+        for (long i = 0; i < amount; i++) {
+            for (IGeometry shape : shapes) {
+                double pos;
+                if (alignment.equals("distributed")) {
+                    double p = length / (total - 1);
+                    pos = total > 1 ? c * p / length : 0;
+                    pos = m + (pos * (1 - 2 * m));
+                } else {
+                    pos = pythonMod(c * spacing, length) / length;
+                    pos = m + (pos * (1 - m));
+                    if (alignment.equals("trailing")) {
+                        pos = 1 - pos;
+                    }
+                }
+
+                Point p1 = path.pointAt(pos);
+                Point p2 = path.pointAt(pos + 0.0000001);
+                double a = angle(p1, p2);
+                if (baselineOffset != 0) {
+                    p1 = coordinates(p1, a - 90, baselineOffset);
+                }
+                Transform t = new Transform();
+                t.translate(p1);
+                t.rotate(a);
+                newShapes.add(t.map(shape));
+                c++;
+            }
+        }
+        return newShapes.build();
+    }
+
     /**
      * Get the points of a given shape.
      *
@@ -577,6 +1019,204 @@ public class CoreVectorFunctions {
         return t.getPath();
     }
 
+    /**
+     * Create a text path that follows a shape.
+     * <p/>
+     * Every character is placed and rotated separately. Text that is longer than the shape wraps around to the start.
+     *
+     * @param text           The input text.
+     * @param shape          The shape to follow.
+     * @param fontName       The name of the font.
+     * @param fontSize       The size of the font.
+     * @param alignment      Either "leading" or "trailing".
+     * @param margin         The position of the text on the shape, between 0.0-100.0.
+     * @param baselineOffset The vertical offset of the text from the shape.
+     * @return A new path with the outlines of all characters.
+     */
+    public static Path textOnPath(String text, AbstractGeometry shape, String fontName, double fontSize, String alignment,
+                                  double margin, double baselineOffset) {
+        if (shape == null || shape.getLength() <= 0) return null;
+        if (text == null) return null;
+        double length = shape.getLength();
+
+        Path p = new Path();
+        if (text.isEmpty()) return p;
+
+        FontMetrics fm = fontMetrics(fontName, fontSize);
+        double stringWidth = textWidth(text, fm);
+        double dw = stringWidth / length;
+
+        double t = 0;
+        if (alignment.equals("trailing")) {
+            boolean first = true;
+            for (int i = 0; i < text.length(); i = text.offsetByCodePoints(i, 1)) {
+                double charWidth = textWidth(characterAt(text, i), fm);
+                if (first) {
+                    t = (99.9 - margin) / 100.0;
+                    first = false;
+                } else {
+                    t -= charAdvance(charWidth, stringWidth, dw);
+                }
+                t = pythonMod(t, 1.0);
+            }
+            margin = t * 100;
+        }
+
+        boolean first = true;
+        for (int i = 0; i < text.length(); i = text.offsetByCodePoints(i, 1)) {
+            String character = characterAt(text, i);
+            double charWidth = textWidth(character, fm);
+            if (first) {
+                t = margin / 100.0;
+                first = false;
+            } else {
+                t += charAdvance(charWidth, stringWidth, dw);
+            }
+            // Always loop around the shape.
+            t = pythonMod(t, 1.0);
+
+            Point pt1 = shape.pointAt(t);
+            Point pt2 = shape.pointAt(t + 0.0000001);
+            double a = angle(pt2, pt1);
+
+            Text tp = new Text(character, -charWidth, -baselineOffset);
+            tp.setAlign(Text.Align.LEFT);
+            tp.setFontName(fontName);
+            tp.setFontSize(fontSize);
+            tp.translate(pt1.x, pt1.y);
+            tp.rotate(a - 180);
+            for (Contour contour : tp.getPath().getContours()) {
+                p.add(contour);
+            }
+        }
+        return p;
+    }
+
+    private static FontMetrics fontMetrics(String fontName, double fontSize) {
+        BufferedImage img = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        try {
+            return g.getFontMetrics(new Font(fontName, Font.PLAIN, (int) fontSize));
+        } finally {
+            g.dispose();
+        }
+    }
+
+    private static String characterAt(String text, int index) {
+        return text.substring(index, text.offsetByCodePoints(index, 1));
+    }
+
+    private static double textWidth(String text, FontMetrics fm) {
+        if (text.codePointCount(0, text.length()) == 1) {
+            return fm.charWidth(text.codePointAt(0));
+        } else {
+            return fm.stringWidth(text);
+        }
+    }
+
+    private static double charAdvance(double charWidth, double stringWidth, double dw) {
+        return stringWidth > 0 ? charWidth / stringWidth * dw : 0;
+    }
+
+    /**
+     * Shift points, contours or paths by a random amount.
+     *
+     * @param shape  The input shape. For the "points" scope, this can also be a point or a list of points.
+     * @param scope  What to move. Either "points", "contours" or "paths".
+     * @param offset The maximum amount of translation in each direction.
+     * @param seed   The random seed.
+     * @return The new shape, or null if the shape or scope is not supported.
+     */
+    public static Object wiggle(Object shape, String scope, Point offset, long seed) {
+        if (shape == null) return null;
+        PythonRandom random = new PythonRandom(seed);
+        if (scope.equals("points")) {
+            return wigglePoints(shape, offset, random);
+        } else if (scope.equals("contours")) {
+            return wiggleContours(shape, offset, random);
+        } else if (scope.equals("paths")) {
+            return wigglePaths(shape, offset, random);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object wigglePoints(Object shape, Point offset, PythonRandom random) {
+        if (shape instanceof List) {
+            List<Point> points = (List<Point>) shape;
+            List<Point> newPoints = new ArrayList<Point>(points.size());
+            for (Point point : points) {
+                newPoints.add(wigglePoint(point, offset, random));
+            }
+            return newPoints;
+        } else if (shape instanceof Point) {
+            return wigglePoint((Point) shape, offset, random);
+        } else if (shape instanceof Contour) {
+            Contour contour = (Contour) shape;
+            return new Contour((List<Point>) wigglePoints(contour.getPoints(), offset, random), contour.isClosed());
+        } else if (shape instanceof Path) {
+            Path path = (Path) shape;
+            Path newPath = path.cloneAndClear();
+            for (Contour contour : path.getContours()) {
+                newPath.add((Contour) wigglePoints(contour, offset, random));
+            }
+            return newPath;
+        } else if (shape instanceof Geometry) {
+            Geometry newGeometry = new Geometry();
+            for (Path path : ((Geometry) shape).getPaths()) {
+                newGeometry.add((Path) wigglePoints(path, offset, random));
+            }
+            return newGeometry;
+        }
+        return null;
+    }
+
+    private static Point wigglePoint(Point point, Point offset, PythonRandom random) {
+        double dx = (random.nextDouble() - 0.5) * offset.x * 2;
+        double dy = (random.nextDouble() - 0.5) * offset.y * 2;
+        return new Point(point.x + dx, point.y + dy, point.type);
+    }
+
+    private static Object wiggleContours(Object shape, Point offset, PythonRandom random) {
+        if (shape instanceof Contour) {
+            Contour contour = (Contour) shape;
+            return new Contour(randomTranslation(offset, random).map(contour.getPoints()), contour.isClosed());
+        } else if (shape instanceof Path) {
+            Path path = (Path) shape;
+            Path newPath = path.cloneAndClear();
+            for (Contour contour : path.getContours()) {
+                newPath.add((Contour) wiggleContours(contour, offset, random));
+            }
+            return newPath;
+        } else if (shape instanceof Geometry) {
+            Geometry newGeometry = new Geometry();
+            for (Path path : ((Geometry) shape).getPaths()) {
+                newGeometry.add((Path) wiggleContours(path, offset, random));
+            }
+            return newGeometry;
+        }
+        return null;
+    }
+
+    private static Object wigglePaths(Object shape, Point offset, PythonRandom random) {
+        if (shape instanceof Path) {
+            return randomTranslation(offset, random).map((Path) shape);
+        } else if (shape instanceof Geometry) {
+            Geometry newGeometry = new Geometry();
+            for (Path path : ((Geometry) shape).getPaths()) {
+                newGeometry.add(randomTranslation(offset, random).map(path));
+            }
+            return newGeometry;
+        }
+        return null;
+    }
+
+    private static Transform randomTranslation(Point offset, PythonRandom random) {
+        double dx = (random.nextDouble() - 0.5) * offset.x * 2;
+        double dy = (random.nextDouble() - 0.5) * offset.y * 2;
+        return Transform.translated(dx, dy);
+    }
+
     /**
      * Create a new point with the given x,y coordinates.
      *
@@ -650,6 +1290,54 @@ public class CoreVectorFunctions {
         }
     }
 
+    private static boolean contains(IGeometry shape, Point point) {
+        return contains(shape, point.x, point.y);
+    }
+
+    private static boolean contains(IGeometry shape, double x, double y) {
+        if (shape instanceof Path) {
+            return ((Path) shape).contains(x, y);
+        } else if (shape instanceof Geometry) {
+            return ((Geometry) shape).contains(x, y);
+        } else {
+            throw new IllegalArgumentException("Unsupported geometry type " + shape);
+        }
+    }
+
+    /**
+     * The modulo operator as used in Python: the result has the same sign as the divisor.
+     */
+    private static double pythonMod(double a, double b) {
+        double mod = a % b;
+        if (mod != 0 && (mod < 0) != (b < 0)) {
+            mod += b;
+        }
+        return mod;
+    }
+
+    /**
+     * A random number generator that returns the same sequence as the random module in Jython.
+     * <p/>
+     * The scatter and wiggle nodes used to be implemented in Python. Using the same sequence keeps the output of
+     * existing documents the same.
+     */
+    private static final class PythonRandom {
+
+        private final Random random;
+
+        private PythonRandom(long seed) {
+            // Jython uses the absolute value of the seed, modulo Long.MAX_VALUE.
+            random = new Random(seed == Long.MIN_VALUE ? 1 : Math.abs(seed) % Long.MAX_VALUE);
+        }
+
+        private double nextDouble() {
+            long a = random.nextInt() >>> 5;
+            long b = random.nextInt() >>> 6;
+            return (a * 67108864.0 + b) * (1.0 / 9007199254740992.0);
+        }
+
+    }
+
     //// Handles ////
 
     public static Handle fourPointHandle() {
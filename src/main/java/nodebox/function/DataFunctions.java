@@ -1,18 +1,14 @@
 package nodebox.function;
 
-import com.opencsv.CSVParserBuilder;
-import com.opencsv.CSVReader;
-import com.opencsv.CSVReaderBuilder;
-import com.opencsv.exceptions.CsvValidationException;
 import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import nodebox.util.ReflectionUtils;
 
 import java.io.*;
-import java.text.NumberFormat;
-import java.text.ParseException;
-import java.text.ParsePosition;
 import java.util.*;
 
 public class DataFunctions {
@@ -22,6 +18,17 @@ public class DataFunctions {
     private static final Map<String, Character> separators;
     private static final Splitter DOT_SPLITTER = Splitter.on('.');
 
+    /**
+     * Cached CSV tables can take up an eighth of the maximum memory. Larger tables are not cached.
+     */
+    private static final long MAXIMUM_CSV_BYTES = Runtime.getRuntime().maxMemory() / 8;
+    private static final Cache<CSVKey, CSVTable> csvTables = CacheBuilder.newBuilder()
+            // The cache splits the weight between its segments. Tables can be large, so use one segment.
+            .concurrencyLevel(1)
+            .maximumWeight(MAXIMUM_CSV_BYTES)
+            .weigher(new CSVTableWeigher())
+            .build();
+
     static {
         LIBRARY = JavaLibrary.ofClass("data", DataFunctions.class,
                 "lookup", "importText", "importCSV", "filterData", "makeTable");
@@ -117,123 +124,99 @@ public class DataFunctions {
      * <p/>
      * This method assumes the first row is the header row. It will not be returned: instead, it will serves as the
      * keys for the maps we return.
+     * <p/>
+     * The file is read into a table that is stored by column, and kept until the file changes. Every call with an
+     * unchanged file returns the same table, unless the table is too large to cache.
      *
      * @param fileName           The file to read in.
      * @param delimiter          The name of the character delimiting column values.
      * @param quotationCharacter The name of the character acting as the quotation separator.
      * @param numberSeparator    The character used to separate the fractional part.
      * @return A list of maps.
+     * @see CSVTable
      */
     public static List<Map<String, Object>> importCSV(String fileName, String delimiter, String quotationCharacter, String numberSeparator) {
         if (fileName == null || fileName.trim().isEmpty()) return ImmutableList.of();
+        Character sep = separators.get(delimiter);
+        if (sep == null) sep = ',';
+        Character quot = separators.get(quotationCharacter);
+        if (quot == null) quot = '"';
+        Locale numberLocale = "comma".equals(numberSeparator) ? Locale.GERMANY : Locale.US;
         try {
-            Character sep = separators.get(delimiter);
-            if (sep == null) sep = ',';
-            Character quot = separators.get(quotationCharacter);
-            if (quot == null) quot = '"';
-            try (InputStreamReader in = new InputStreamReader(new FileInputStream(fileName), "UTF-8");
-                 CSVReader reader = new CSVReaderBuilder(in)
-                         .withCSVParser(new CSVParserBuilder()
-                                 .withSeparator(sep)
-                                 .withQuoteChar(quot)
-                                 .build())
-                         .build()) {
-                ImmutableList.Builder<Map<String, Object>> b = ImmutableList.builder();
-                String[] headers;
-                try {
-                    headers = reader.readNext();
-                } catch (CsvValidationException e) {
-                    throw new RuntimeException("Could not parse CSV headers: " + e.getMessage(), e);
+            final File file = new File(fileName);
+            if (!file.isFile()) {
+                throw new FileNotFoundException(fileName + " (No such file)");
+            }
+            CSVKey key = new CSVKey(file.getCanonicalPath(), file.lastModified(), file.length(), sep, quot, numberLocale);
+            CSVTable table = csvTables.getIfPresent(key);
+            if (table == null) {
+                removeOtherVersions(key);
+                table = CSVTable.read(file, sep, quot, numberLocale);
+                // A table that is larger than the cache would evict all other tables, and then itself.
+                if (table.estimateBytes() <= MAXIMUM_CSV_BYTES) {
+                    csvTables.put(key, table);
                 }
+            }
+            return table;
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read file " + fileName + ": " + e.getMessage(), e);
+        }
+    }
 
-                Map<String, Integer> headerDuplicates = new HashMap<String, Integer>();
-                Map<String, Boolean> columnNumerics = new HashMap<String, Boolean>();
-                List<String> tmp = new ArrayList<String>();
-                for (int i = 0; i < headers.length; i++) {
-                    headers[i] = headers[i].trim();
-                    if (headers[i].isEmpty())
-                        headers[i] = String.format("Column %s", i + 1);
-                    if (tmp.contains(headers[i]))
-                        headerDuplicates.put(headers[i], 0);
-                    tmp.add(headers[i]);
-                }
+    /**
+     * Remove the tables of the same file that were read before it changed.
+     */
+    private static void removeOtherVersions(CSVKey key) {
+        Iterator<CSVKey> it = csvTables.asMap().keySet().iterator();
+        while (it.hasNext()) {
+            CSVKey other = it.next();
+            if (other.path.equals(key.path) && (other.lastModified != key.lastModified || other.length != key.length)) {
+                it.remove();
+            }
+        }
+    }
 
-                for (int i = 0; i < headers.length; i++) {
-                    String header = headers[i];
-                    if (headerDuplicates.get(header) != null) {
-                        int number = headerDuplicates.get(header) + 1;
-                        headers[i] = header + " " + number;
-                        headerDuplicates.put(header, number);
-                    }
-                    columnNumerics.put(headers[i], null);
-                }
+    private static final class CSVKey {
 
-                String[] row;
+        private final String path;
+        private final long lastModified;
+        private final long length;
+        private final char separator;
+        private final char quote;
+        private final Locale numberLocale;
 
-                NumberFormat nf = NumberFormat.getNumberInstance(numberSeparator.equals("comma") ? Locale.GERMANY : Locale.US);
-                while (true) {
-                    try {
-                        row = reader.readNext();
-                    } catch (CsvValidationException e) {
-                        throw new RuntimeException("Could not parse CSV row: " + e.getMessage(), e);
-                    }
-                    if (row == null) {
-                        break;
-                    }
-                    ImmutableMap.Builder<String, Object> mb = ImmutableMap.builder();
-                    for (int i = 0; i < row.length; i++) {
-                        String header = i < headers.length ? headers[i] : String.format("Column %s", i + 1);
-                        if (!columnNumerics.containsKey(header))
-                            columnNumerics.put(header, null);
+        private CSVKey(String path, long lastModified, long length, char separator, char quote, Locale numberLocale) {
+            this.path = path;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.separator = separator;
+            this.quote = quote;
+            this.numberLocale = numberLocale;
+        }
 
-                        String v = row[i].trim();
-                        try {
-                            ParsePosition position = new ParsePosition(0);
-                            nf.parse(v, position).doubleValue();
-                            if (columnNumerics.get(header) == null)
-                                columnNumerics.put(header, true);
-                            if (position.getIndex() != v.length()) {
-                                throw new ParseException("Failed to parse entire string: " + v, position.getIndex());
-                            }
-                        } catch (ParseException e) {
-                            columnNumerics.put(header, false);
-                        } catch (NullPointerException e) {
-                            columnNumerics.put(header, false);
-                        }
-                        mb.put(header, v);
-                    }
-                    b.add(mb.build());
-                }
-                List<Map<String, Object>> tempRows = b.build();
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CSVKey)) return false;
+            CSVKey other = (CSVKey) o;
+            return lastModified == other.lastModified
+                    && length == other.length
+                    && separator == other.separator
+                    && quote == other.quote
+                    && path.equals(other.path)
+                    && numberLocale.equals(other.numberLocale);
+        }
 
-                List<String> headersNumericCols = new ArrayList<String>();
-                for (String header : columnNumerics.keySet()) {
-                    if (columnNumerics.get(header) == true)
-                        headersNumericCols.add(header);
-                }
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, lastModified, length, separator, quote, numberLocale);
+        }
 
-                if (headersNumericCols.isEmpty()) return tempRows;
+    }
 
-                b = ImmutableList.builder();
-                for (Map<String, Object> r : tempRows) {
-                    ImmutableMap.Builder<String, Object> mb = ImmutableMap.builder();
-                    for (String header : r.keySet()) {
-                        if (headersNumericCols.contains(header)) {
-                            try {
-                                double d = nf.parse(((String) r.get(header))).doubleValue();
-                                mb.put(header, d);
-                            } catch (ParseException e) {
-                            }
-                        } else {
-                            mb.put(header, r.get(header));
-                        }
-                    }
-                    b.add(mb.build());
-                }
-                return b.build();
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("Could not read file " + fileName + ": " + e.getMessage(), e);
+    private static final class CSVTableWeigher implements Weigher<CSVKey, CSVTable> {
+        public int weigh(CSVKey key, CSVTable table) {
+            return (int) Math.min(Integer.MAX_VALUE, table.estimateBytes());
         }
     }
 
@@ -0,0 +1,511 @@
+package nodebox.function;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import nodebox.Log;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.ParseException;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A cache of HTTP responses, shared by all renders and threads.
+ * <p/>
+ * Responses are keyed by URL, user name and password. A response is returned from the cache while it is younger than
+ * the refresh time of the request. Older responses are revalidated: if the server sent an ETag or Last-Modified
+ * header, the request asks the server if the response changed, and a "304 Not Modified" answer keeps the cached body.
+ * <p/>
+ * When several threads ask for the same response at the same time, only one of them sends the request; the others
+ * wait for its response. The cache holds a limited number of responses, and forgets responses that were not used for
+ * a while. If a directory is set, responses are also written to disk, so they survive a restart. Responses to requests
+ * with a user name or password are only kept in memory.
+ * <p/>
+ * If the server can't be reached, the response has status code 408 (Request Timeout). The failure is kept in memory
+ * for a few seconds, so an outage doesn't make every render wait for a new request. If an older response is cached,
+ * that response is returned instead of the failure, until the server answers again.
+ */
+public final class HttpCache {
+
+    public static final int DEFAULT_MAXIMUM_ENTRIES = 1000;
+    public static final long DEFAULT_MAXIMUM_AGE_HOURS = 24;
+    public static final long DEFAULT_FAILURE_RETRY_SECONDS = 10;
+
+    private static final int FILE_VERSION = 2;
+    private static final String FILE_EXTENSION = ".response";
+    // The response when the request failed without an answer from the server.
+    private static final Map<String, Object> NETWORK_FAILURE = emptyResponse(408);
+
+    private final Cache<Key, Entry> cache;
+    private final ConcurrentMap<Key, SettableFuture<Entry>> pendingRequests = new ConcurrentHashMap<Key, SettableFuture<Entry>>();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final long maximumAgeMillis;
+    private final long failureRetryMillis;
+    private volatile File directory;
+
+    public HttpCache() {
+        this(DEFAULT_MAXIMUM_ENTRIES, DEFAULT_MAXIMUM_AGE_HOURS, TimeUnit.HOURS);
+    }
+
+    /**
+     * Create a HTTP cache.
+     *
+     * @param maximumEntries The number of responses to keep.
+     * @param maximumAge     The time after its last use that a response is forgotten.
+     * @param unit           The unit of the maximum age.
+     */
+    public HttpCache(int maximumEntries, long maximumAge, TimeUnit unit) {
+        this(maximumEntries, maximumAge, unit, TimeUnit.SECONDS.toMillis(DEFAULT_FAILURE_RETRY_SECONDS));
+    }
+
+    /**
+     * Create a HTTP cache that sends a failed request again after the given time.
+     */
+    HttpCache(int maximumEntries, long maximumAge, TimeUnit unit, long failureRetryMillis) {
+        checkArgument(maximumEntries > 0, "The cache needs to hold at least one response.");
+        checkArgument(failureRetryMillis >= 0, "The failure retry time can't be negative.");
+        maximumAgeMillis = unit.toMillis(maximumAge);
+        this.failureRetryMillis = failureRetryMillis;
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumEntries)
+                .expireAfterAccess(maximumAge, unit)
+                .removalListener(new FileRemover())
+                .build();
+    }
+
+    /**
+     * Get the response for the URL, from the cache or from the server.
+     *
+     * @param url                The URL.
+     * @param username           The user name for basic authentication, or null.
+     * @param password           The password for basic authentication, or null.
+     * @param refreshTimeSeconds The age in seconds up to which a cached response is returned without asking the server.
+     * @return The response, as a map with the body, the status code and the headers.
+     */
+    public Map<String, Object> get(String url, String username, String password, long refreshTimeSeconds) {
+        Key key = new Key(url, username, password);
+        long refreshTimeMillis = refreshTimeSeconds * 1000;
+        Entry cached = getCachedEntry(key);
+        if (cached != null && isUsable(cached, refreshTimeMillis)) {
+            return cached.response;
+        }
+        SettableFuture<Entry> future = SettableFuture.create();
+        SettableFuture<Entry> pending = pendingRequests.putIfAbsent(key, future);
+        if (pending != null) {
+            return waitFor(pending).response;
+        }
+        try {
+            // Another thread could have finished the request between the first look in the cache and now.
+            cached = getCachedEntry(key);
+            Entry entry;
+            if (cached != null && isUsable(cached, refreshTimeMillis)) {
+                entry = cached;
+            } else {
+                entry = fetch(key, cached);
+                cache.put(key, entry);
+                if (!entry.isFailure()) {
+                    writeEntry(key, entry);
+                }
+            }
+            future.set(entry);
+            return entry.response;
+        } catch (RuntimeException e) {
+            future.setException(e);
+            throw e;
+        } finally {
+            pendingRequests.remove(key, future);
+        }
+    }
+
+    /**
+     * Check if the entry can be returned without sending a request. After a failed request, the entry is used until
+     * the failure retry time has passed.
+     */
+    private boolean isUsable(Entry entry, long refreshTimeMillis) {
+        if (entry.response != NETWORK_FAILURE && entry.isFresh(refreshTimeMillis)) return true;
+        return entry.timeFailed != 0 && System.currentTimeMillis() - entry.timeFailed < failureRetryMillis;
+    }
+
+    private static Entry waitFor(SettableFuture<Entry> future) {
+        try {
+            return Uninterruptibles.getUninterruptibly(future);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private Entry getCachedEntry(Key key) {
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null && directory != null && !key.hasCredentials()) {
+            entry = readEntry(key);
+            if (entry != null) {
+                cache.put(key, entry);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Set the directory to keep responses in between sessions, or null to only keep them in memory.
+     * <p/>
+     * Response files that were not used for longer than the maximum age are removed.
+     */
+    public void setDirectory(File directory) {
+        if (directory != null) {
+            directory.mkdirs();
+            File[] files = directory.listFiles();
+            if (files != null) {
+                long now = System.currentTimeMillis();
+                for (File f : files) {
+                    if (f.getName().endsWith(FILE_EXTENSION) && now - f.lastModified() > maximumAgeMillis) {
+                        f.delete();
+                    }
+                }
+            }
+        }
+        this.directory = directory;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Get the number of requests that were sent to a server.
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Get the number of responses in memory.
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * Forget all responses in memory. Responses on disk are kept.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    //// Requests ////
+
+    private Entry fetch(Key key, Entry previous) {
+        HttpGet request = new HttpGet(key.url);
+        if (key.username != null && !key.username.trim().isEmpty()) {
+            String safePassword = key.password == null ? "" : key.password;
+            String credentials = key.username + ":" + safePassword;
+            String encodedCredentials = Base64.getEncoder()
+                    .encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+            request.addHeader("Authorization", "Basic " + encodedCredentials);
+        }
+        if (previous != null && previous.eTag != null) {
+            request.addHeader("If-None-Match", previous.eTag);
+        }
+        if (previous != null && previous.lastModified != null) {
+            request.addHeader("If-Modified-Since", previous.lastModified);
+        }
+        requestCount.incrementAndGet();
+        Map<String, Object> response = execute(request);
+        if (response == NETWORK_FAILURE) {
+            long now = System.currentTimeMillis();
+            if (previous != null && previous.response != NETWORK_FAILURE) {
+                // Keep serving the last good response, and keep its age so the next request after the retry time
+                // tries to refresh it again.
+                return new Entry(previous.timeFetched, previous.response, now);
+            }
+            return new Entry(now, NETWORK_FAILURE, now);
+        }
+        if (previous != null && Integer.valueOf(304).equals(response.get("statusCode"))) {
+            // The response didn't change: keep the body, but start counting its age again.
+            return new Entry(System.currentTimeMillis(), previous.response);
+        }
+        return new Entry(System.currentTimeMillis(), response);
+    }
+
+    private static Map<String, Object> execute(HttpGet request) {
+        try (CloseableHttpClient client = HttpClients.createDefault()) {
+            HttpClientResponseHandler<Map<String, Object>> handler = new HttpClientResponseHandler<Map<String, Object>>() {
+                @Override
+                public Map<String, Object> handleResponse(ClassicHttpResponse response) throws IOException {
+                    HttpEntity entity = response.getEntity();
+                    if (response.getCode() == 304) {
+                        return emptyResponse(304);
+                    } else if (entity != null) {
+                        String body;
+                        try {
+                            body = EntityUtils.toString(entity);
+                        } catch (ParseException e) {
+                            throw new IOException(e);
+                        }
+                        HashMap<String, String> m = new HashMap<String, String>();
+                        for (Header h : response.getHeaders()) {
+                            m.put(h.getName(), h.getValue());
+                        }
+
+                        Map<String, String> headers = ImmutableMap.copyOf(m);
+                        return ImmutableMap.of(
+                                "body", body,
+                                "statusCode", response.getCode(),
+                                "headers", headers);
+                    } else {
+                        // 204 No Content
+                        return emptyResponse(204);
+                    }
+                }
+            };
+            return client.execute(request, handler);
+        } catch (IllegalArgumentException e) {
+            String message = e.getMessage();
+            if (message != null && message.contains("URI with undefined scheme")) {
+                throw new RuntimeException("URL should start with \"http://\" or \"https://\".");
+            } else {
+                throw e;
+            }
+        } catch (IOException e) {
+            // We return status code 408 (Request Timeout) here since we always want to return a valid response.
+            // However, the exception signifies an IO error, so maybe the network connection is down.
+            // This has no valid HTTP response (since there is NO response).
+            return NETWORK_FAILURE;
+        }
+    }
+
+    private static Map<String, Object> emptyResponse(int statusCode) {
+        return ImmutableMap.<String, Object>of(
+                "body", "",
+                "statusCode", statusCode
+        );
+    }
+
+    //// Files ////
+
+    private File fileFor(Key key) {
+        String name = Hashing.sha256().hashString(key.url, StandardCharsets.UTF_8).toString();
+        return new File(directory, name + FILE_EXTENSION);
+    }
+
+    /**
+     * Write the response to disk. Responses to requests with credentials are not written, since they could hold private
+     * data and the file name would give away the password.
+     */
+    private void writeEntry(Key key, Entry entry) {
+        File dir = directory;
+        if (dir == null || key.hasCredentials()) return;
+        File file = fileFor(key);
+        File temporaryFile = new File(dir, file.getName() + ".tmp");
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+            try {
+                out.writeInt(FILE_VERSION);
+                writeString(out, key.url);
+                out.writeLong(entry.timeFetched);
+                Object statusCode = entry.response.get("statusCode");
+                out.writeInt(statusCode instanceof Integer ? (Integer) statusCode : 0);
+                writeString(out, String.valueOf(entry.response.get("body")));
+                Object headers = entry.response.get("headers");
+                if (headers instanceof Map) {
+                    out.writeInt(((Map<?, ?>) headers).size());
+                    for (Map.Entry<?, ?> header : ((Map<?, ?>) headers).entrySet()) {
+                        writeString(out, String.valueOf(header.getKey()));
+                        writeString(out, String.valueOf(header.getValue()));
+                    }
+                } else {
+                    out.writeInt(-1);
+                }
+            } finally {
+                out.close();
+            }
+            Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            temporaryFile.delete();
+            Log.warn("Could not write the HTTP cache file " + file, e);
+        }
+    }
+
+    private Entry readEntry(Key key) {
+        File file = fileFor(key);
+        if (!file.isFile()) return null;
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                if (in.readInt() != FILE_VERSION) return null;
+                String url = readString(in);
+                if (!Objects.equal(url, key.url)) return null;
+                long timeFetched = in.readLong();
+                int statusCode = in.readInt();
+                String body = readString(in);
+                int headerCount = in.readInt();
+                if (headerCount < 0) {
+                    return new Entry(timeFetched, ImmutableMap.<String, Object>of(
+                            "body", body,
+                            "statusCode", statusCode));
+                }
+                ImmutableMap.Builder<String, String> headers = ImmutableMap.builder();
+                for (int i = 0; i < headerCount; i++) {
+                    headers.put(readString(in), readString(in));
+                }
+                return new Entry(timeFetched, ImmutableMap.<String, Object>of(
+                        "body", body,
+                        "statusCode", statusCode,
+                        "headers", headers.build()));
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            // A broken file is only a missed response.
+            file.delete();
+            return null;
+        } catch (IllegalArgumentException e) {
+            // Duplicate headers.
+            file.delete();
+            return null;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Remove the file of a response that was evicted from memory, so the files on disk stay within the same bounds.
+     */
+    private final class FileRemover implements RemovalListener<Key, Entry> {
+        public void onRemoval(RemovalNotification<Key, Entry> notification) {
+            if (directory == null || notification.getKey() == null || notification.getKey().hasCredentials()) return;
+            RemovalCause cause = notification.getCause();
+            if (cause == RemovalCause.SIZE || cause == RemovalCause.EXPIRED) {
+                fileFor(notification.getKey()).delete();
+            }
+        }
+    }
+
+    private static final class Key {
+
+        private final String url;
+        private final String username;
+        private final String password;
+
+        private Key(String url, String username, String password) {
+            this.url = url;
+            this.username = username;
+            this.password = password;
+        }
+
+        private boolean hasCredentials() {
+            return !Strings.isNullOrEmpty(username) || !Strings.isNullOrEmpty(password);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return Objects.equal(url, other.url)
+                    && Objects.equal(username, other.username)
+                    && Objects.equal(password, other.password);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(url, username, password);
+        }
+
+    }
+
+    private static final class Entry {
+
+        private final long timeFetched;
+        private final Map<String, Object> response;
+        private final String eTag;
+        private final String lastModified;
+        // The time of the last failed request, or 0 if the last request succeeded.
+        private final long timeFailed;
+
+        private Entry(long timeFetched, Map<String, Object> response) {
+            this(timeFetched, response, 0);
+        }
+
+        private Entry(long timeFetched, Map<String, Object> response, long timeFailed) {
+            this.timeFetched = timeFetched;
+            this.response = response;
+            this.timeFailed = timeFailed;
+            this.eTag = header("ETag");
+            this.lastModified = header("Last-Modified");
+        }
+
+        private boolean isFailure() {
+            return timeFailed != 0;
+        }
+
+        private boolean isFresh(long refreshTimeMillis) {
+            return System.currentTimeMillis() - timeFetched <= refreshTimeMillis;
+        }
+
+        private Map<?, ?> headers() {
+            Object headers = response.get("headers");
+            return headers instanceof Map ? (Map<?, ?>) headers : ImmutableMap.of();
+        }
+
+        /**
+         * Find a response header. Header names are not case sensitive.
+         */
+        private String header(String name) {
+            for (Map.Entry<?, ?> header : headers().entrySet()) {
+                if (name.equalsIgnoreCase(String.valueOf(header.getKey()))) {
+                    return String.valueOf(header.getValue());
+                }
+            }
+            return null;
+        }
+
+    }
+
+}
@@ -5,7 +5,11 @@ import com.google.common.collect.ImmutableMap;
 import nodebox.util.LoadException;
 
 import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
@@ -80,28 +84,87 @@ public final class JavaLibrary extends FunctionLibrary {
         return functionMap.containsKey(name);
     }
 
+    /**
+     * A function that calls a public static method.
+     * <p/>
+     * The method is bound to a method handle once, when the library is created. Calling the handle avoids the
+     * access checks and argument copying of Method.invoke, and can be inlined by the JIT.
+     * <p/>
+     * The handle behaves like Method.invoke: exceptions thrown by the method are wrapped in an
+     * InvocationTargetException and arguments of the wrong type cause an IllegalArgumentException.
+     */
     private static class StaticMethodFunction implements Function {
 
+        private static final MethodHandle WRAP_EXCEPTION;
+
+        static {
+            try {
+                WRAP_EXCEPTION = MethodHandles.lookup().findStatic(StaticMethodFunction.class, "wrapException",
+                        MethodType.methodType(Object.class, Throwable.class));
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
         public static StaticMethodFunction find(Class c, String methodName) {
             Method m = Functions.findMethod(c, methodName, false);
             return new StaticMethodFunction(m);
         }
 
         private final Method method;
+        private final MethodHandle handle;
         private final ImmutableList<Argument> arguments;
 
         public StaticMethodFunction(Method method) {
             checkArgument(Modifier.isStatic(method.getModifiers()), "Method %s is not a static method.", method);
             this.method = method;
+            this.handle = bind(method);
             this.arguments = Functions.introspect(method);
         }
 
+        /**
+         * Create a method handle of type (Object[])Object that calls the given static method.
+         */
+        private static MethodHandle bind(Method method) {
+            MethodHandle target;
+            try {
+                target = MethodHandles.lookup().unreflect(method).asFixedArity();
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("Method " + method + " is not accessible.", e);
+            }
+            MethodType targetType = target.type();
+            // Wrap exceptions thrown by the method itself before the arguments and return value get converted,
+            // so we can tell them apart from conversion errors.
+            MethodHandle handler = WRAP_EXCEPTION.asType(MethodType.methodType(targetType.returnType(), Throwable.class));
+            handler = MethodHandles.dropArguments(handler, 1, targetType.parameterList());
+            target = MethodHandles.catchException(target, Throwable.class, handler);
+            int parameterCount = targetType.parameterCount();
+            return target.asType(MethodType.genericMethodType(parameterCount))
+                    .asSpreader(Object[].class, parameterCount);
+        }
+
+        private static Object wrapException(Throwable t) throws InvocationTargetException {
+            throw new InvocationTargetException(t);
+        }
+
         public String getName() {
             return method.getName();
         }
 
         public Object invoke(Object... args) throws Exception {
-            return method.invoke(null, args);
+            try {
+                return (Object) handle.invokeExact(args);
+            } catch (ClassCastException e) {
+                throw new IllegalArgumentException("Wrong argument type for " + method.getName() + ": " + e.getMessage(), e);
+            } catch (NullPointerException e) {
+                throw new IllegalArgumentException("Null argument for primitive parameter of " + method.getName() + ".", e);
+            } catch (Exception e) {
+                throw e;
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
         }
 
         public ImmutableList<Argument> getArguments() {
@@ -78,6 +78,31 @@ public abstract class AbstractGeometry extends AbstractTransformable implements
 
     public abstract Point pointAt(double t);
 
+    /**
+     * Calculate the length of the geometry. This is the sum of all segment lengths.
+     *
+     * @return the length of the geometry.
+     */
+    public abstract double getLength();
+
+    /**
+     * Returns the points at the given relative positions on the geometry.
+     * <p/>
+     * The segment lengths are calculated once and each position is looked up with a binary search,
+     * so this is a lot faster than walking the segments for every point.
+     *
+     * @param ts relative coordinates of the points (between 0.0 and 1.0).
+     * @return an array with a point for every position.
+     * @see #pointAt(double)
+     */
+    public Point[] pointsAt(double[] ts) {
+        Point[] points = new Point[ts.length];
+        for (int i = 0; i < ts.length; i++) {
+            points[i] = pointAt(ts[i]);
+        }
+        return points;
+    }
+
     public abstract IGeometry clone();
 
     /**
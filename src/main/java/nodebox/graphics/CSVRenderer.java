@@ -2,6 +2,7 @@ package nodebox.graphics;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import nodebox.util.DoubleFormatter;
 import nodebox.util.FileUtils;
 
 import java.io.File;
@@ -80,6 +81,18 @@ public class CSVRenderer {
         return sb.toString();
     }
 
+    private static void appendValue(StringBuilder sb, Object value, boolean quotes) {
+        if (value instanceof Double) {
+            // Numbers never need escaping, so they are written straight into the output.
+            if (quotes) sb.append('"');
+            DoubleFormatter.appendShortest(sb, (Double) value);
+            if (quotes) sb.append('"');
+        } else {
+            String v = value.toString();
+            sb.append(quotes ? valueInQuotes(v) : v);
+        }
+    }
+
     public static String renderToString(Iterable<?> objects, char delimiter, boolean quotes) {
         checkArgument(objects != null);
 
@@ -113,8 +126,7 @@ public class CSVRenderer {
                 } else {
                     sb.append(delimiter);
                 }
-                String v = m.get(k).toString();
-                sb.append(quotes ? valueInQuotes(v) : v);
+                appendValue(sb, m.get(k), quotes);
             }
             sb.append('\n');
         }
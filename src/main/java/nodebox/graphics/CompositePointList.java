@@ -0,0 +1,64 @@
+package nodebox.graphics;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A list view on the points of a sequence of contours.
+ * <p/>
+ * The points are read from the contours when they are accessed, so creating the view doesn't copy any points.
+ * The view has a fixed size: it reflects the contours and their point counts at the moment it was created.
+ * <p/>
+ * The view is read-only. The contours are owned by a path or geometry that caches its bounds and length, so points
+ * should be changed through the contours themselves.
+ */
+final class CompositePointList extends AbstractList<Point> implements RandomAccess {
+
+    private final Contour[] contours;
+    // The index of the first point of every contour, followed by the total point count.
+    private final int[] offsets;
+    private int lastContour;
+
+    CompositePointList(List<Contour> contours) {
+        this.contours = contours.toArray(new Contour[contours.size()]);
+        offsets = new int[this.contours.length + 1];
+        for (int i = 0; i < this.contours.length; i++) {
+            offsets[i + 1] = offsets[i] + this.contours[i].getPointCount();
+        }
+    }
+
+    @Override
+    public Point get(int index) {
+        int c = contourIndex(index);
+        int i = index - offsets[c];
+        Contour contour = contours[c];
+        return new Point(contour.getX(i), contour.getY(i), contour.getType(i));
+    }
+
+    @Override
+    public int size() {
+        return offsets[contours.length];
+    }
+
+    private int contourIndex(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        // Points are mostly accessed in order, so try the contour of the previous access first.
+        int c = lastContour;
+        if (index < offsets[c] || index >= offsets[c + 1]) {
+            c = Arrays.binarySearch(offsets, index);
+            // Empty contours share their offset with the next contour, so skip to the last one.
+            if (c >= 0) {
+                while (offsets[c + 1] == index) c++;
+            } else {
+                c = -c - 2;
+            }
+            lastContour = c;
+        }
+        return c;
+    }
+
+}
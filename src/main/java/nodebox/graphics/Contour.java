@@ -3,37 +3,71 @@ package nodebox.graphics;
 import com.google.common.base.Function;
 
 import java.awt.*;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.GeneralPath;
-import java.util.ArrayList;
-import java.util.List;
-
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * A sequence of points forming a line or a closed shape.
+ * <p/>
+ * The points are not stored as Point objects, but packed in parallel arrays of x and y coordinates and point types.
+ * This keeps large contours compact in memory and lets geometric operations run over the arrays directly.
+ * Point objects are only created when they are requested through {@link #getPoints()}.
+ */
 public class Contour extends AbstractGeometry {
 
     private static final BasicStroke DEFAULT_STROKE = new BasicStroke(1);
-    private static final int SEGMENT_ACCURACY = 20;
-
-    private List<Point> points;
+    private static final int MAX_FLATTEN_SUBDIVISIONS = 16;
+    private static final double[] EMPTY_COORDINATES = new double[0];
+    private static final byte[] EMPTY_TYPES = new byte[0];
+
+    private double[] xs;
+    private double[] ys;
+    private byte[] types;
+    private int pointCount;
     private boolean closed;
-    private transient ArrayList<Double> segmentLengths;
-    private transient double length = -1;
+    // The caches are computed lazily, and can be computed by several threads that read the same contour.
+    // Each one is an immutable object, published through a volatile field.
+    private transient volatile SegmentLengths segmentLengths;
+    private transient PointList pointList;
+    private transient volatile Rect bounds;
+    private transient volatile Rect curveBounds;
 
     public Contour() {
-        points = new ArrayList<Point>();
+        xs = EMPTY_COORDINATES;
+        ys = EMPTY_COORDINATES;
+        types = EMPTY_TYPES;
         closed = false;
     }
 
     public Contour(Contour other) {
-        points = new ArrayList<Point>(other.points.size());
-        for (Point p : other.points) {
-            points.add(p);
-        }
+        pointCount = other.pointCount;
+        xs = Arrays.copyOf(other.xs, pointCount);
+        ys = Arrays.copyOf(other.ys, pointCount);
+        types = Arrays.copyOf(other.types, pointCount);
         closed = other.closed;
+        // The copy has the same points, so it can share the bounds.
+        bounds = other.bounds;
+        curveBounds = other.curveBounds;
     }
 
     public Contour(Iterable<Point> points, boolean closed) {
-        this.points = new ArrayList<Point>();
-        for (Point p : points) {
-            this.points.add(p);
+        this();
+        if (points instanceof PointList) {
+            Contour other = ((PointList) points).contour();
+            pointCount = other.pointCount;
+            xs = Arrays.copyOf(other.xs, pointCount);
+            ys = Arrays.copyOf(other.ys, pointCount);
+            types = Arrays.copyOf(other.types, pointCount);
+        } else {
+            if (points instanceof java.util.Collection) {
+                ensureCapacity(((java.util.Collection) points).size());
+            }
+            for (Point p : points) {
+                appendPoint(p.x, p.y, p.type);
+            }
         }
         this.closed = closed;
     }
@@ -41,27 +75,70 @@ public class Contour extends AbstractGeometry {
     //// Point operations ////
 
     public int getPointCount() {
-        return points.size();
+        return pointCount;
     }
 
+    /**
+     * Get the points of this contour.
+     * <p/>
+     * This returns a live view on the points of the contour. The Point objects are created when they are accessed.
+     * Changing the list will change the contour.
+     *
+     * @return a list of Points.
+     */
     public java.util.List<Point> getPoints() {
-        return points;
+        if (pointList == null) {
+            pointList = new PointList();
+        }
+        return pointList;
     }
 
-    void setPoints(List<Point> points) {
-        this.points = points;
+    public PointCursor pointCursor() {
+        return new PointCursor(this);
     }
 
     public void addPoint(Point pt) {
-        points.add(pt);
+        appendPoint(pt.x, pt.y, pt.type);
         invalidate();
     }
 
     public void addPoint(double x, double y) {
-        points.add(new Point(x, y));
+        appendPoint(x, y, Point.LINE_TO);
         invalidate();
     }
 
+    double getX(int index) {
+        return xs[index];
+    }
+
+    double getY(int index) {
+        return ys[index];
+    }
+
+    int getType(int index) {
+        return types[index];
+    }
+
+    private Point point(int index) {
+        return new Point(xs[index], ys[index], types[index]);
+    }
+
+    private void appendPoint(double x, double y, int type) {
+        ensureCapacity(pointCount + 1);
+        xs[pointCount] = x;
+        ys[pointCount] = y;
+        types[pointCount] = (byte) type;
+        pointCount++;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= xs.length) return;
+        int newCapacity = Math.max(capacity, Math.max(8, xs.length + (xs.length >> 1)));
+        xs = Arrays.copyOf(xs, newCapacity);
+        ys = Arrays.copyOf(ys, newCapacity);
+        types = Arrays.copyOf(types, newCapacity);
+    }
+
     //// Close ////
 
     public boolean isClosed() {
@@ -81,31 +158,92 @@ public class Contour extends AbstractGeometry {
     //// Geometric queries ////
 
     public boolean isEmpty() {
-        return points.isEmpty();
+        return pointCount == 0;
     }
 
+    /**
+     * Get the bounding box of the points of this contour, including the control points of curves.
+     * <p/>
+     * The bounds are cached until the contour changes.
+     *
+     * @return the bounding box.
+     */
     public Rect getBounds() {
-        if (points.isEmpty()) {
-            return new Rect();
+        Rect cached = bounds;
+        if (cached != null) return cached;
+        if (pointCount == 0) {
+            cached = new Rect();
+            bounds = cached;
+            return cached;
         }
         double minX = Double.MAX_VALUE;
         double minY = Double.MAX_VALUE;
-        double maxX = Double.MIN_VALUE;
-        double maxY = Double.MIN_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
         double px, py;
-        for (Point p : points) {
-            px = p.getX();
-            py = p.getY();
+        for (int i = 0; i < pointCount; i++) {
+            px = xs[i];
+            py = ys[i];
             if (px < minX) minX = px;
             if (py < minY) minY = py;
             if (px > maxX) maxX = px;
             if (py > maxY) maxY = py;
         }
-        return new Rect(minX, minY, maxX - minX, maxY - minY);
+        cached = new Rect(minX, minY, maxX - minX, maxY - minY);
+        bounds = cached;
+        return cached;
+    }
+
+    /**
+     * Get the bounding box of the outline of this contour.
+     * <p/>
+     * Unlike getBounds, this only includes the parts of the control points that the curves actually reach.
+     * The bounds are cached until the contour changes.
+     *
+     * @return the bounding box, or null if the contour has no points on the outline.
+     */
+    Rect getCurveBounds() {
+        Rect cached = curveBounds;
+        if (cached != null || pointCount == 0) return cached;
+        double minX = Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        boolean found = false;
+        double px, py;
+        for (int i = 0; i < pointCount; i++) {
+            int type = types[i];
+            if (type == Point.LINE_TO) {
+                px = xs[i];
+                py = ys[i];
+                if (px < minX) minX = px;
+                if (py < minY) minY = py;
+                if (px > maxX) maxX = px;
+                if (py > maxY) maxY = py;
+                found = true;
+            } else if (type == Point.CURVE_TO) {
+                Path.Bezier b = new Path.Bezier(xs[i - 3], ys[i - 3], xs[i - 2], ys[i - 2],
+                        xs[i - 1], ys[i - 1], xs[i], ys[i]);
+                Rect r = b.extrema();
+                double right = r.getX() + r.getWidth();
+                double bottom = r.getY() + r.getHeight();
+                if (r.getX() < minX) minX = r.getX();
+                if (right > maxX) maxX = right;
+                if (r.getY() < minY) minY = r.getY();
+                if (bottom > maxY) maxY = bottom;
+                found = true;
+            }
+        }
+        if (found) {
+            cached = new Rect(minX, minY, maxX - minX, maxY - minY);
+            curveBounds = cached;
+        }
+        return cached;
     }
 
     /**
-     * Invalidates the cache. Querying the contour length or calling makePoints/resample will an up-to-date result.
+     * Invalidates the cache. Querying the contour length or bounds, or calling makePoints/resample will return an
+     * up-to-date result.
      * <p/>
      * Cache invalidation happens automatically when using the Contour methods, such as addPoint/close. You should
      * invalidate the cache only after manually changing the point positions.
@@ -116,59 +254,71 @@ public class Contour extends AbstractGeometry {
 
     public void invalidate() {
         segmentLengths = null;
+        bounds = null;
+        curveBounds = null;
     }
 
+    /**
+     * Calculate the length of every segment.
+     * <p/>
+     * The lengths are stored as a running total, together with the index of the point that ends each segment.
+     * This allows pointAt to find the segment for a position with a binary search.
+     *
+     * @return the length of the contour.
+     */
     public double updateSegmentLengths() {
-        java.util.List<Point> points = getPoints();
-        segmentLengths = new ArrayList<Double>();
+        double[] lengths = new double[pointCount + 1];
+        int[] endPoints = new int[pointCount + 1];
+        int count = 0;
         double totalLength = 0;
 
         // We cannot form a line or curve with the first point.
         // Since the algorithm looks back at previous points, we
         // start looking from the first useful point, which is
         // the second (index of 1).
-        for (int pi = 1; pi < points.size(); pi++) {
-            Point pt = points.get(pi);
-            if (pt.isLineTo()) {
-                Point pt0 = points.get(pi - 1);
-                double length = Path.lineLength(pt0.x, pt0.y, pt.x, pt.y);
-                segmentLengths.add(length);
-                totalLength += length;
-            } else if (pt.isCurveTo()) {
-                Point pt0 = points.get(pi - 3);
-                Point c1 = points.get(pi - 2);
-                Point c2 = points.get(pi - 1);
-                double length = Path.curveLength(pt0.x, pt0.y,
-                        c1.x, c1.y,
-                        c2.x, c2.y,
-                        pt.x, pt.y, SEGMENT_ACCURACY);
-                segmentLengths.add(length);
-                totalLength += length;
+        for (int pi = 1; pi < pointCount; pi++) {
+            int type = types[pi];
+            if (type == Point.LINE_TO) {
+                totalLength += Path.lineLength(xs[pi - 1], ys[pi - 1], xs[pi], ys[pi]);
+                lengths[count] = totalLength;
+                endPoints[count++] = pi;
+            } else if (type == Point.CURVE_TO) {
+                totalLength += Path.adaptiveCurveLength(xs[pi - 3], ys[pi - 3],
+                        xs[pi - 2], ys[pi - 2],
+                        xs[pi - 1], ys[pi - 1],
+                        xs[pi], ys[pi], Path.DEFAULT_LENGTH_TOLERANCE);
+                lengths[count] = totalLength;
+                endPoints[count++] = pi;
             }
         }
-        // If the path is closed, add the closing segment.
-        if (closed && !points.isEmpty()) {
-            Point pt0 = points.get(points.size() - 1);
-            Point pt1 = points.get(0);
-            double length = Path.lineLength(pt0.x, pt0.y, pt1.x, pt1.y);
-            segmentLengths.add(length);
-            totalLength += length;
+        // If the path is closed, add the closing segment. It ends at the first point.
+        if (closed && pointCount > 0) {
+            int last = pointCount - 1;
+            totalLength += Path.lineLength(xs[last], ys[last], xs[0], ys[0]);
+            lengths[count] = totalLength;
+            endPoints[count++] = 0;
         }
 
-        this.length = totalLength;
+        segmentLengths = new SegmentLengths(lengths, endPoints, count, totalLength);
         return totalLength;
     }
 
+    private SegmentLengths segmentLengths() {
+        SegmentLengths lengths = segmentLengths;
+        if (lengths == null) {
+            updateSegmentLengths();
+            lengths = segmentLengths;
+        }
+        return lengths;
+    }
+
     /**
      * Calculate the length of the contour. This is not the number of segments, but rather the sum of all segment lengths.
      *
      * @return the length of the contour
      */
     public double getLength() {
-        if (segmentLengths == null)
-            updateSegmentLengths();
-        assert (length != -1);
-        return length;
+        return segmentLengths().length;
     }
 
     /**
@@ -184,54 +334,38 @@ public class Contour extends AbstractGeometry {
      * @return coordinates for point at t.
      */
     public Point pointAt(double t) {
-        if (segmentLengths == null)
-            updateSegmentLengths();
-
         // Check if there is a path.
-        if (points.isEmpty())
+        if (pointCount == 0)
             throw new NodeBoxError("The path is empty.");
 
+        SegmentLengths lengths = segmentLengths();
+
         // If the path has no length, return the position of the first point.
-        if (length == 0)
-            return points.get(0);
+        if (lengths.length == 0)
+            return point(0);
 
         // Since t is relative, convert it to the absolute length.
-        double absT = t * length;
-        // The resT is what remains of t after we traversed all segments.
-        double resT = t;
-
-        // Find the segment that contains t.
-        int segnum = -1;
-        for (Double seglength : segmentLengths) {
-            segnum++;
-            if (absT <= seglength || segnum == segmentLengths.size() - 1)
-                break;
-            absT -= seglength;
-            resT -= seglength / length;
-        }
-        resT /= (segmentLengths.get(segnum) / length);
+        double absT = t * lengths.length;
 
-        // Find the point index for the segment.
-        int pi = pointIndexForSegment(segnum + 1);
-        Point pt1 = points.get(pi);
-        // If the path is closed, the point index is set to zero.
-        // Set the index to the last point to get the one-but-last point for pt0. 
-        if (pi == 0) {
-            pi = points.size();
-        }
+        // Find the segment that contains t, and the relative position on that segment.
+        int segnum = MathUtils.segmentIndex(lengths.cumulative, lengths.count, absT);
+        double segmentStart = segnum > 0 ? lengths.cumulative[segnum - 1] : 0;
+        double segmentLength = lengths.cumulative[segnum] - segmentStart;
+        double resT = segmentLength > 0 ? (absT - segmentStart) / segmentLength : 0;
 
-        if (pt1.isLineTo()) {
-            Point pt0 = points.get(pi - 1);
-            return Path.linePoint(resT, pt0.x, pt0.y, pt1.x, pt1.y);
-        } else if (pt1.isCurveTo()) {
-            Point pt0 = points.get(pi - 3);
-            Point c1 = points.get(pi - 2);
-            Point c2 = points.get(pi - 1);
+        int pi = lengths.endPoints[segnum];
+        if (pi == 0) {
+            // The closing segment runs from the last point back to the first point.
+            int last = pointCount - 1;
+            return Path.linePoint(resT, xs[last], ys[last], xs[0], ys[0]);
+        } else if (types[pi] == Point.LINE_TO) {
+            return Path.linePoint(resT, xs[pi - 1], ys[pi - 1], xs[pi], ys[pi]);
+        } else if (types[pi] == Point.CURVE_TO) {
             return Path.curvePoint(resT,
-                    pt0.x, pt0.y,
-                    c1.x, c1.y,
-                    c2.x, c2.y,
-                    pt1.x, pt1.y);
+                    xs[pi - 3], ys[pi - 3],
+                    xs[pi - 2], ys[pi - 2],
+                    xs[pi - 1], ys[pi - 1],
+                    xs[pi], ys[pi]);
         } else {
             throw new AssertionError("Incorrect point.");
         }
@@ -250,32 +384,6 @@ public class Contour extends AbstractGeometry {
         return pointAt(t);
     }
 
-    /**
-     * Calculate the point index for the segment number. Segments lie between points. The first point of the segment
-     * is returned. The point index will be a valid index, even if the segment number doesn't exist.
-     *
-     * @param segnum the segment index
-     * @return the index of the point.
-     */
-    private int pointIndexForSegment(int segnum) {
-        int pointIndex = 0;
-        for (Point pt : points) {
-            if (pt.isCurveTo() || pt.isLineTo()) {
-                if (segnum == 0) break;
-                segnum--;
-            }
-            pointIndex++;
-        }
-        int pointCount = points.size();
-        if (pointIndex < pointCount) {
-            return pointIndex;
-        } else if (closed) {
-            return 0;
-        } else {
-            return pointCount - 1;
-        }
-    }
-
     //// Geometric operations ////
 
     /**
@@ -286,7 +394,7 @@ public class Contour extends AbstractGeometry {
      */
     public Point[] makePoints(int amount) {
         // If the contour is empty, pointAt will fail. Return an empty array.
-        if (points.isEmpty()) return new Point[0];
+        if (pointCount == 0) return new Point[0];
         Point[] points = new Point[amount];
         double delta = 1;
         if (closed) {
@@ -372,11 +480,87 @@ public class Contour extends AbstractGeometry {
     }
 
     public void flatten() {
-        throw new UnsupportedOperationException();
+        flatten(Path.DEFAULT_FLATNESS);
+    }
+
+    /**
+     * Replace all curves with lines.
+     *
+     * @param flatness the maximum distance between the curves and the lines that replace them.
+     * @see #flattened(double)
+     */
+    public void flatten(double flatness) {
+        Contour c = flattened(flatness);
+        xs = c.xs;
+        ys = c.ys;
+        types = c.types;
+        pointCount = c.pointCount;
+        invalidate();
+    }
+
+    public Contour flattened() {
+        return flattened(Path.DEFAULT_FLATNESS);
+    }
+
+    /**
+     * Make a copy of the contour where all curves are replaced with lines.
+     * <p/>
+     * Curves are split in half until their control points lie within the flatness distance from the line between
+     * the start and end point. Nearly straight curves will only produce a single line, while sharp bends get
+     * more points.
+     *
+     * @param flatness the maximum distance between the curves and the lines that replace them.
+     * @return a new Contour with only lines.
+     */
+    public Contour flattened(double flatness) {
+        Contour c = new Contour();
+        c.closed = closed;
+        c.ensureCapacity(pointCount);
+        for (int i = 0; i < pointCount; i++) {
+            int type = types[i];
+            if (i == 0 || type == Point.LINE_TO) {
+                c.appendPoint(xs[i], ys[i], Point.LINE_TO);
+            } else if (type == Point.CURVE_TO) {
+                c.appendCurve(xs[i - 3], ys[i - 3], xs[i - 2], ys[i - 2], xs[i - 1], ys[i - 1], xs[i], ys[i],
+                        flatness * flatness, 0);
+            }
+        }
+        return c;
     }
 
-    public IGeometry flattened() {
-        throw new UnsupportedOperationException();
+    /**
+     * Append the curve as lines. The start point of the curve is not added.
+     */
+    private void appendCurve(double x0, double y0, double x1, double y1, double x2, double y2, double x3, double y3,
+                             double flatnessSquared, int depth) {
+        if (depth >= MAX_FLATTEN_SUBDIVISIONS
+                || (distanceToLineSquared(x1, y1, x0, y0, x3, y3) <= flatnessSquared
+                && distanceToLineSquared(x2, y2, x0, y0, x3, y3) <= flatnessSquared)) {
+            appendPoint(x3, y3, Point.LINE_TO);
+            return;
+        }
+        // Split the curve in half using de Casteljau's algorithm.
+        double x01 = (x0 + x1) / 2, y01 = (y0 + y1) / 2;
+        double x12 = (x1 + x2) / 2, y12 = (y1 + y2) / 2;
+        double x23 = (x2 + x3) / 2, y23 = (y2 + y3) / 2;
+        double x012 = (x01 + x12) / 2, y012 = (y01 + y12) / 2;
+        double x123 = (x12 + x23) / 2, y123 = (y12 + y23) / 2;
+        double xm = (x012 + x123) / 2, ym = (y012 + y123) / 2;
+        appendCurve(x0, y0, x01, y01, x012, y012, xm, ym, flatnessSquared, depth + 1);
+        appendCurve(xm, ym, x123, y123, x23, y23, x3, y3, flatnessSquared, depth + 1);
+    }
+
+    private static double distanceToLineSquared(double px, double py, double x0, double y0, double x1, double y1) {
+        double dx = x1 - x0;
+        double dy = y1 - y0;
+        double lengthSquared = dx * dx + dy * dy;
+        if (lengthSquared == 0) {
+            double ex = px - x0;
+            double ey = py - y0;
+            return ex * ex + ey * ey;
+        }
+        double cross = (px - x0) * dy - (py - y0) * dx;
+        return cross * cross / lengthSquared;
     }
 
     //// Graphics ////
@@ -399,19 +583,14 @@ public class Contour extends AbstractGeometry {
     /* package private */
 
     void _extendPath(GeneralPath gp) {
-        if (points.size() == 0) return;
-        Point pt = points.get(0);
-        Point ctrl1, ctrl2;
-        gp.moveTo(pt.x, pt.y);
-        int pointCount = getPointCount();
+        if (pointCount == 0) return;
+        gp.moveTo(xs[0], ys[0]);
         for (int i = 1; i < pointCount; i++) {
-            pt = points.get(i);
-            if (pt.isLineTo()) {
-                gp.lineTo(pt.x, pt.y);
-            } else if (pt.isCurveTo()) {
-                ctrl1 = points.get(i - 2);
-                ctrl2 = points.get(i - 1);
-                gp.curveTo(ctrl1.x, ctrl1.y, ctrl2.x, ctrl2.y, pt.x, pt.y);
+            int type = types[i];
+            if (type == Point.LINE_TO) {
+                gp.lineTo(xs[i], ys[i]);
+            } else if (type == Point.CURVE_TO) {
+                gp.curveTo(xs[i - 2], ys[i - 2], xs[i - 1], ys[i - 1], xs[i], ys[i]);
             }
         }
         if (closed)
@@ -419,10 +598,39 @@ public class Contour extends AbstractGeometry {
     }
 
     public void transform(Transform t) {
-        this.points = t.map(getPoints());
+        AffineTransform at = t.getAffineTransform();
+        double m00 = at.getScaleX();
+        double m01 = at.getShearX();
+        double m02 = at.getTranslateX();
+        double m10 = at.getShearY();
+        double m11 = at.getScaleY();
+        double m12 = at.getTranslateY();
+        for (int i = 0; i < pointCount; i++) {
+            double x = xs[i];
+            double y = ys[i];
+            xs[i] = x * m00 + y * m01 + m02;
+            ys[i] = x * m10 + y * m11 + m12;
+        }
         invalidate();
     }
 
+    /**
+     * Create a copy of this contour that is moved by the given offset.
+     *
+     * @param dx The horizontal offset.
+     * @param dy The vertical offset.
+     * @return a new Contour.
+     */
+    Contour translated(double dx, double dy) {
+        Contour c = new Contour();
+        c.closed = closed;
+        c.ensureCapacity(pointCount);
+        for (int i = 0; i < pointCount; i++) {
+            c.appendPoint(xs[i] + dx, ys[i] + dy, types[i]);
+        }
+        return c;
+    }
+
     //// Conversions ////
 
     public Path toPath() {
@@ -434,9 +642,10 @@ public class Contour extends AbstractGeometry {
     public AbstractGeometry mapPoints(Function<Point, Point> pointFunction) {
         Contour c = new Contour();
         c.setClosed(isClosed());
-        for (Point point : getPoints()) {
-            Point newPoint = pointFunction.apply(point);
-            c.addPoint(newPoint);
+        c.ensureCapacity(pointCount);
+        for (int i = 0; i < pointCount; i++) {
+            Point newPoint = pointFunction.apply(point(i));
+            c.appendPoint(newPoint.x, newPoint.y, newPoint.type);
         }
         return c;
     }
@@ -447,4 +656,88 @@ public class Contour extends AbstractGeometry {
         return new Contour(this);
     }
 
+    /**
+     * The running total of the segment lengths, with the index of the point that ends each segment.
+     */
+    private static final class SegmentLengths {
+        private final double[] cumulative;
+        private final int[] endPoints;
+        private final int count;
+        private final double length;
+
+        private SegmentLengths(double[] cumulative, int[] endPoints, int count, double length) {
+            this.cumulative = cumulative;
+            this.endPoints = endPoints;
+            this.count = count;
+            this.length = length;
+        }
+    }
+
+    /**
+     * A list view on the packed points of the contour.
+     */
+    private final class PointList extends AbstractList<Point> implements RandomAccess {
+
+        private Contour contour() {
+            return Contour.this;
+        }
+
+        @Override
+        public Point get(int index) {
+            checkIndex(index, pointCount);
+            return point(index);
+        }
+
+        @Override
+        public int size() {
+            return pointCount;
+        }
+
+        @Override
+        public Point set(int index, Point pt) {
+            checkIndex(index, pointCount);
+            Point oldPoint = point(index);
+            xs[index] = pt.x;
+            ys[index] = pt.y;
+            types[index] = (byte) pt.type;
+            invalidate();
+            return oldPoint;
+        }
+
+        @Override
+        public void add(int index, Point pt) {
+            checkIndex(index, pointCount + 1);
+            ensureCapacity(pointCount + 1);
+            int moved = pointCount - index;
+            System.arraycopy(xs, index, xs, index + 1, moved);
+            System.arraycopy(ys, index, ys, index + 1, moved);
+            System.arraycopy(types, index, types, index + 1, moved);
+            xs[index] = pt.x;
+            ys[index] = pt.y;
+            types[index] = (byte) pt.type;
+            pointCount++;
+            modCount++;
+            invalidate();
+        }
+
+        @Override
+        public Point remove(int index) {
+            checkIndex(index, pointCount);
+            Point oldPoint = point(index);
+            int moved = pointCount - index - 1;
+            System.arraycopy(xs, index + 1, xs, index, moved);
+            System.arraycopy(ys, index + 1, ys, index, moved);
+            System.arraycopy(types, index + 1, types, index, moved);
+            pointCount--;
+            modCount++;
+            invalidate();
+            return oldPoint;
+        }
+
+        private void checkIndex(int index, int size) {
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + pointCount);
+        }
+    }
+
 }
@@ -10,9 +10,23 @@ public class Geometry extends AbstractGeometry implements Colorizable {
 
     private ArrayList<Path> paths;
     private Path currentPath;
-    private boolean lengthDirty = true;
-    private ArrayList<Double> pathLengths;
-    private double groupLength;
+    // The caches are computed lazily, and can be computed by several threads that read the same geometry.
+    // Each one is published through a volatile field, and null means it has to be computed again.
+    // The running total of the path lengths. The last value is the length of the geometry.
+    private transient volatile double[] pathLengths;
+    private transient volatile SpatialIndex pathIndex;
+    // The union of the bounds of all non-empty paths, or NO_BOUNDS if there are none.
+    private transient volatile Rect bounds;
+    // The sum of the modification counts of the paths when the caches were last checked.
+    // Paths can be changed after they were added, which makes the caches stale.
+    private transient volatile long pathModifications;
+
+    private static final Rect NO_BOUNDS = new Rect();
+
+    /**
+     * Below this number of paths, hit testing just loops over all paths.
+     */
+    static final int SPATIAL_INDEX_THRESHOLD = 16;
 
     public Geometry() {
         paths = new ArrayList<Path>();
@@ -26,6 +40,7 @@ public class Geometry extends AbstractGeometry implements Colorizable {
         }
         // TODO: We might want to refer to the latest Path object in the items.
         currentPath = null;
+        bounds = other.bounds;
     }
 
     //// Container operations ////
@@ -52,7 +67,7 @@ public class Geometry extends AbstractGeometry implements Colorizable {
     public void add(Path path) {
         paths.add(path);
         currentPath = path;
-        invalidate(false);
+        pathAdded(path);
     }
 
     /**
@@ -94,9 +109,10 @@ public class Geometry extends AbstractGeometry implements Colorizable {
      */
     public void extend(Geometry g) {
         for (Path path : g.paths) {
-            paths.add(path.clone());
+            Path clone = path.clone();
+            paths.add(clone);
+            pathAdded(clone);
         }
-        invalidate(false);
     }
 
     /**
@@ -155,16 +171,22 @@ public class Geometry extends AbstractGeometry implements Colorizable {
     /**
      * Get the points for this geometry.
      * <p/>
-     * This returns a live reference to the points of the geometry. Changing the points will change the geometry.
+     * This returns a read-only view on the points of the geometry; the points are not copied. The view has a fixed
+     * size: points or paths added to the geometry afterwards are not in the list.
      *
      * @return a list of Points.
+     * @see #pointCursor()
      */
     public java.util.List<Point> getPoints() {
-        ArrayList<Point> points = new ArrayList<Point>();
+        ArrayList<Contour> contours = new ArrayList<Contour>();
         for (Path path : paths) {
-            points.addAll(path.getPoints());
+            contours.addAll(path.getContours());
         }
-        return points;
+        return new CompositePointList(contours);
+    }
+
+    public PointCursor pointCursor() {
+        return new PointCursor(this);
     }
 
     public void addPoint(Point pt) {
@@ -202,7 +224,9 @@ public class Geometry extends AbstractGeometry implements Colorizable {
     }
 
     private void invalidate(boolean recursive) {
-        lengthDirty = true;
+        pathLengths = null;
+        pathIndex = null;
+        bounds = null;
         if (recursive) {
             for (Path path : paths) {
                 path.invalidate();
@@ -210,25 +234,70 @@ public class Geometry extends AbstractGeometry implements Colorizable {
         }
     }
 
+    /**
+     * Update the cache after a path was appended.
+     * <p/>
+     * Appending a path can only grow the bounds, so cached bounds are extended instead of recalculated.
+     *
+     * @param path the appended path.
+     */
+    private void pathAdded(Path path) {
+        pathLengths = null;
+        pathIndex = null;
+        pathModifications += path.getModificationCount();
+        Rect cached = bounds;
+        if (cached != null && !path.isEmpty()) {
+            bounds = cached == NO_BOUNDS ? path.getBounds() : cached.united(path.getBounds());
+        }
+    }
+
+    /**
+     * Drop the caches if any of the paths changed since they were computed.
+     */
+    private void checkPaths() {
+        long modifications = 0;
+        for (Path path : paths) {
+            modifications += path.getModificationCount();
+        }
+        if (modifications != pathModifications) {
+            pathLengths = null;
+            pathIndex = null;
+            bounds = null;
+            pathModifications = modifications;
+        }
+    }
+
     //// Geometric queries ////
 
     /**
      * Returns the bounding box of all elements in the group.
+     * <p/>
+     * Empty paths are ignored. The bounds are cached until the geometry or one of its paths changes.
      *
      * @return a bounding box that contains all elements in the group.
      */
     public Rect getBounds() {
-        if (isEmpty()) return new Rect();
-        Rect r = null;
-        for (Grob g : paths) {
-            if (r == null) {
-                r = g.getBounds();
-            }
-            if (!g.isEmpty()) {
-                r = r.united(g.getBounds());
+        checkPaths();
+        Rect cached = bounds;
+        if (cached == null) {
+            double minX = Double.MAX_VALUE;
+            double minY = Double.MAX_VALUE;
+            double maxX = -Double.MAX_VALUE;
+            double maxY = -Double.MAX_VALUE;
+            boolean found = false;
+            for (Path p : paths) {
+                if (p.isEmpty()) continue;
+                Rect r = p.getBounds();
+                if (r.x < minX) minX = r.x;
+                if (r.y < minY) minY = r.y;
+                if (r.x + r.width > maxX) maxX = r.x + r.width;
+                if (r.y + r.height > maxY) maxY = r.y + r.height;
+                found = true;
             }
+            cached = found ? new Rect(minX, minY, maxX - minX, maxY - minY) : NO_BOUNDS;
+            bounds = cached;
         }
-        return r != null ? r : new Rect();
+        return cached != NO_BOUNDS ? cached : new Rect();
     }
 
     //// Geometric math ////
@@ -239,22 +308,26 @@ public class Geometry extends AbstractGeometry implements Colorizable {
      * @return the length of the path.
      */
     public double getLength() {
-        if (lengthDirty) {
-            updatePathLengths();
-        }
-        return groupLength;
+        double[] lengths = pathLengths();
+        return lengths.length == 0 ? 0 : lengths[lengths.length - 1];
     }
 
-    private void updatePathLengths() {
-        pathLengths = new ArrayList<Double>(paths.size());
-        groupLength = 0;
-        double length;
+    /**
+     * Get the running total of the path lengths, so pointAt can find the path with a binary search.
+     */
+    private double[] pathLengths() {
+        checkPaths();
+        double[] lengths = pathLengths;
+        if (lengths != null) return lengths;
+        lengths = new double[paths.size()];
+        double groupLength = 0;
+        int i = 0;
         for (Path p : paths) {
-            length = p.getLength();
-            pathLengths.add(length);
-            groupLength += length;
+            groupLength += p.getLength();
+            lengths[i++] = groupLength;
         }
-        lengthDirty = false;
+        pathLengths = lengths;
+        return lengths;
     }
 
     /**
@@ -270,39 +343,33 @@ public class Geometry extends AbstractGeometry implements Colorizable {
      * @return coordinates for point at t.
      */
     public Point pointAt(double t) {
-        double length = getLength();
+        double[] lengths = pathLengths();
+        if (paths.isEmpty()) return Point.ZERO;
         // Since t is relative, convert it to the absolute length.
-        double absT = t * length;
-        // The resT is what remains of t after we traversed all segments.
-        double resT = t;
-        // Find the contour that contains t.
-        double cLength;
-        Path currentPath = null;
-        for (Path p : paths) {
-            currentPath = p;
-            cLength = p.getLength();
-            if (absT <= cLength) break;
-            absT -= cLength;
-            resT -= cLength / length;
-        }
-        if (currentPath == null) return Point.ZERO;
-        resT /= (currentPath.getLength() / length);
-        return currentPath.pointAt(resT);
+        double absT = t * lengths[lengths.length - 1];
+        // Find the path that contains t, and the relative position on that path.
+        int index = MathUtils.segmentIndex(lengths, lengths.length, absT);
+        double pathStart = index > 0 ? lengths[index - 1] : 0;
+        double pathLength = lengths[index] - pathStart;
+        double resT = pathLength > 0 ? (absT - pathStart) / pathLength : 0;
+        return paths.get(index).pointAt(resT);
     }
 
 
     //// Geometric queries ////
 
     public boolean contains(Point pt) {
-        for (Path p : paths) {
-            if (p.contains(pt)) {
-                return true;
-            }
-        }
-        return false;
+        return contains(pt.getX(), pt.getY());
     }
 
     public boolean contains(double x, double y) {
+        SpatialIndex index = getPathIndex();
+        if (index != null) {
+            for (int i : index.itemsAt(x, y)) {
+                if (paths.get(i).contains(x, y)) return true;
+            }
+            return false;
+        }
         for (Path p : paths) {
             if (p.contains(x, y)) {
                 return true;
@@ -312,6 +379,13 @@ public class Geometry extends AbstractGeometry implements Colorizable {
     }
 
     public boolean contains(Rect r) {
+        SpatialIndex index = getPathIndex();
+        if (index != null) {
+            for (int i : index.itemsIntersecting(r)) {
+                if (paths.get(i).contains(r)) return true;
+            }
+            return false;
+        }
         for (Path p : paths) {
             if (p.contains(r)) {
                 return true;
@@ -320,18 +394,48 @@ public class Geometry extends AbstractGeometry implements Colorizable {
         return false;
     }
 
+    /**
+     * Get the index over the bounding boxes of the paths, used to speed up hit testing on large groups.
+     * <p/>
+     * The index is built on first use and dropped when the geometry is invalidated.
+     *
+     * @return the index, or null if the group is too small to benefit from one.
+     */
+    private SpatialIndex getPathIndex() {
+        if (paths.size() < SPATIAL_INDEX_THRESHOLD) return null;
+        checkPaths();
+        SpatialIndex index = pathIndex;
+        if (index == null || index.size() != paths.size()) {
+            ArrayList<Rect> bounds = new ArrayList<Rect>(paths.size());
+            for (Path p : paths) {
+                bounds.add(p.getBounds());
+            }
+            index = new SpatialIndex(bounds);
+            pathIndex = index;
+        }
+        return index;
+    }
+
     //// Geometric operations ////
 
     public boolean intersects(Geometry g2) {
-        for (Path p1 : getPaths()) {
-            for (Path p2 : g2.getPaths()) {
-                if (p1.intersects(p2)) return true;
-            }
+        if (g2.getPaths().size() > paths.size()) {
+            return g2.intersects(this);
+        }
+        for (Path p : g2.getPaths()) {
+            if (intersects(p)) return true;
         }
         return false;
     }
 
     public boolean intersects(Path p) {
+        SpatialIndex index = getPathIndex();
+        if (index != null) {
+            for (int i : index.itemsIntersecting(p.getBounds())) {
+                if (paths.get(i).intersects(p)) return true;
+            }
+            return false;
+        }
         for (Path p1 : getPaths()) {
             if (p1.intersects(p)) return true;
         }
@@ -406,11 +510,18 @@ public class Geometry extends AbstractGeometry implements Colorizable {
     }
 
     public void flatten() {
-        throw new UnsupportedOperationException();
+        for (Path p : paths) {
+            p.flatten();
+        }
+        invalidate(false);
     }
 
-    public IGeometry flattened() {
-        throw new UnsupportedOperationException();
+    public Geometry flattened() {
+        Geometry g = new Geometry();
+        for (Path p : paths) {
+            g.add(p.flattened());
+        }
+        return g;
     }
 
     //// Functional operations ////
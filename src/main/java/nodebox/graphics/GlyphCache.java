@@ -0,0 +1,139 @@
+package nodebox.graphics;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+
+import java.awt.Font;
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A shared cache of glyph outlines, so text with the same font and size only asks the font for every glyph once.
+ * <p/>
+ * Glyphs are keyed by the name of the font face, the font size and the glyph code. The outlines are kept at the
+ * origin, and are copied to the position of the glyph when a text path is made. The weight of a glyph is its number
+ * of points, so the least recently used glyphs are evicted when the total number of points runs out.
+ */
+final class GlyphCache {
+
+    public static final long MAXIMUM_POINTS = 500000;
+
+    /**
+     * The render context for outlines and metrics: antialiased and with fractional metrics, so outlines are not hinted.
+     */
+    static final FontRenderContext FONT_RENDER_CONTEXT = new FontRenderContext(null, true, true);
+
+    private static final Cache<Key, Glyph> cache = CacheBuilder.newBuilder()
+            .maximumWeight(MAXIMUM_POINTS)
+            .weigher(new GlyphWeigher())
+            .recordStats()
+            .build();
+
+    private GlyphCache() {
+    }
+
+    /**
+     * Get the outline of a glyph of the given font.
+     *
+     * @param font      The font. Its face name and size are part of the key.
+     * @param glyphCode The glyph code, as found in a GlyphVector of the font.
+     * @return The glyph outline, at the origin.
+     */
+    static Glyph getGlyph(final Font font, final int glyphCode) {
+        try {
+            return cache.get(new Key(font.getFontName(), font.getSize2D(), glyphCode), new Callable<Glyph>() {
+                public Glyph call() {
+                    Shape outline = font.createGlyphVector(FONT_RENDER_CONTEXT, new int[]{glyphCode}).getGlyphOutline(0);
+                    return new Glyph(new Path(outline));
+                }
+            });
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Could not get the outline of glyph " + glyphCode + " of " + font.getFontName(), e.getCause());
+        }
+    }
+
+    static CacheStats stats() {
+        return cache.stats();
+    }
+
+    static void clear() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * The outline of a single glyph, placed at the origin.
+     * <p/>
+     * Glyphs are shared between threads, so the contours are never handed out, only translated copies of them.
+     */
+    static final class Glyph {
+
+        private final Contour[] contours;
+        private final Rect bounds;
+        private final int pointCount;
+
+        private Glyph(Path outline) {
+            List<Contour> outlineContours = outline.getContours();
+            contours = outlineContours.toArray(new Contour[outlineContours.size()]);
+            bounds = outline.getPointCount() == 0 ? null : outline.getBounds();
+            pointCount = outline.getPointCount();
+        }
+
+        /**
+         * Add the contours of the glyph, moved by the given offset, to the path.
+         */
+        void addTo(Path path, double dx, double dy) {
+            for (Contour c : contours) {
+                path.add(c.translated(dx, dy));
+            }
+        }
+
+        /**
+         * Get the bounds of the outline at the origin, or null if the glyph has no outline, like a space.
+         */
+        Rect getBounds() {
+            return bounds;
+        }
+
+    }
+
+    private static final class Key {
+
+        private final String fontName;
+        private final float fontSize;
+        private final int glyphCode;
+
+        private Key(String fontName, float fontSize, int glyphCode) {
+            this.fontName = fontName;
+            this.fontSize = fontSize;
+            this.glyphCode = glyphCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return glyphCode == other.glyphCode
+                    && Float.compare(fontSize, other.fontSize) == 0
+                    && fontName.equals(other.fontName);
+        }
+
+        @Override
+        public int hashCode() {
+            return (fontName.hashCode() * 31 + Float.floatToIntBits(fontSize)) * 31 + glyphCode;
+        }
+
+    }
+
+    private static final class GlyphWeigher implements Weigher<Key, Glyph> {
+        public int weigh(Key key, Glyph glyph) {
+            return Math.max(1, glyph.pointCount);
+        }
+    }
+
+}
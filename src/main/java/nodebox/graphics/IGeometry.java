@@ -21,6 +21,16 @@ public interface IGeometry extends Grob {
      */
     public List<Point> getPoints();
 
+    /**
+     * Get a cursor over the points of this geometry.
+     * <p/>
+     * The cursor reads the coordinates without creating Point objects, which makes it the fastest way to visit
+     * all points.
+     *
+     * @return a new PointCursor, positioned before the first point.
+     */
+    public PointCursor pointCursor();
+
     /**
      * Add the given point to the geometry. The point is cloned.
      *
@@ -23,12 +23,20 @@ public class Image extends AbstractGrob {
         this(new File(BLANK_IMAGE));
     }
 
+    /**
+     * Create an image from a file.
+     * <p/>
+     * The file is read through the shared image cache, so images of the same file share their pixels.
+     *
+     * @param file The image file.
+     * @see ImageCache
+     */
     public Image(File file) {
         if (file == null || file.getPath().equals(BLANK_IMAGE)) {
             image = blankImage;
         } else {
             try {
-                image = ImageIO.read(file);
+                image = ImageCache.SHARED.read(file);
             } catch (IOException e) {
                 throw new RuntimeErrorException(null, "Could not read image " + file);
             }
@@ -0,0 +1,216 @@
+package nodebox.graphics;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A cache of decoded image files, shared by all images in the process.
+ * <p/>
+ * Files are keyed by their canonical path, modification time and size, so a file that changes on disk is read again,
+ * while every frame of an animation and every copy of an image node share the same decoded image. The weight of an
+ * entry is the size of its pixel data in bytes, and the least recently used images are evicted when the cache is full.
+ * <p/>
+ * The cached images are shared, so they should not be changed.
+ */
+public final class ImageCache {
+
+    /**
+     * By default, decoded images can take up an eighth of the maximum memory.
+     */
+    public static final long DEFAULT_MAXIMUM_BYTES = Runtime.getRuntime().maxMemory() / 8;
+
+    public static final ImageCache SHARED = new ImageCache(DEFAULT_MAXIMUM_BYTES);
+
+    private final Cache<Key, BufferedImage> cache;
+
+    /**
+     * Create an image cache.
+     *
+     * @param maximumBytes The total size of the pixel data of all images before the least recently used ones are evicted.
+     */
+    public ImageCache(long maximumBytes) {
+        cache = CacheBuilder.newBuilder()
+                // The cache splits the weight between its segments. Images are large, so use one segment.
+                .concurrencyLevel(1)
+                .maximumWeight(maximumBytes)
+                .weigher(new ImageWeigher())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Read the image file, or return the cached image if the file hasn't changed.
+     *
+     * @param file The image file.
+     * @return The decoded image, or null if the file is not in a known image format.
+     * @throws IOException if the file could not be read.
+     */
+    public BufferedImage read(File file) throws IOException {
+        return read(file, 0);
+    }
+
+    /**
+     * Read a smaller version of the image file, for showing it at a small size.
+     * <p/>
+     * The image is scaled down so its longest side is not larger than the maximum size. Images that are already small
+     * enough are returned as is. The smaller version is cached separately from the full image.
+     *
+     * @param file        The image file.
+     * @param maximumSize The maximum width and height of the image, or 0 for the full image.
+     * @return The decoded image, or null if the file is not in a known image format.
+     * @throws IOException if the file could not be read.
+     */
+    public BufferedImage read(final File file, final int maximumSize) throws IOException {
+        checkArgument(maximumSize >= 0, "The maximum size can not be negative.");
+        if (!file.isFile()) {
+            throw new IOException("Image file " + file + " does not exist.");
+        }
+        final Key key = new Key(file.getCanonicalPath(), file.lastModified(), file.length(), maximumSize);
+        try {
+            return cache.get(key, new Callable<BufferedImage>() {
+                public BufferedImage call() throws IOException {
+                    removeOtherVersions(key);
+                    BufferedImage image = maximumSize == 0 ? ImageIO.read(file) : read(file, 0);
+                    if (image == null) {
+                        throw new UnknownFormatException();
+                    }
+                    return maximumSize == 0 ? image : scaleDown(image, maximumSize);
+                }
+            });
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UnknownFormatException) {
+                return null;
+            } else if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new RuntimeException("Could not read image " + file, e.getCause());
+        }
+    }
+
+    /**
+     * Remove the images of the same file that were read before it changed.
+     */
+    private void removeOtherVersions(Key key) {
+        Iterator<Key> it = cache.asMap().keySet().iterator();
+        while (it.hasNext()) {
+            Key other = it.next();
+            if (other.path.equals(key.path) && (other.lastModified != key.lastModified || other.length != key.length)) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Scale the image down in steps of at most half, so every pixel of the source contributes to the result.
+     */
+    private static BufferedImage scaleDown(BufferedImage image, int maximumSize) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double scale = Math.min(1.0, (double) maximumSize / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+        BufferedImage result = image;
+        while (width != targetWidth || height != targetHeight) {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage step = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = step.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(result, 0, 0, width, height, null);
+            g.dispose();
+            result = step;
+        }
+        return result;
+    }
+
+    /**
+     * Get the hit and miss counts of the cache.
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Get the number of cached images.
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * Remove all images from the cache.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private static int imageBytes(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        long bytes = (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1, bytes));
+    }
+
+    private static final class Key {
+
+        private final String path;
+        private final long lastModified;
+        private final long length;
+        private final int maximumSize;
+
+        private Key(String path, long lastModified, long length, int maximumSize) {
+            this.path = path;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.maximumSize = maximumSize;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return lastModified == other.lastModified
+                    && length == other.length
+                    && maximumSize == other.maximumSize
+                    && path.equals(other.path);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = path.hashCode();
+            result = 31 * result + (int) (lastModified ^ (lastModified >>> 32));
+            result = 31 * result + (int) (length ^ (length >>> 32));
+            result = 31 * result + maximumSize;
+            return result;
+        }
+
+    }
+
+    private static final class ImageWeigher implements Weigher<Key, BufferedImage> {
+        public int weigh(Key key, BufferedImage image) {
+            return imageBytes(image);
+        }
+    }
+
+    /**
+     * Thrown inside the loader when no image reader knows the file, since the cache can't hold null.
+     */
+    private static final class UnknownFormatException extends IOException {
+    }
+
+}
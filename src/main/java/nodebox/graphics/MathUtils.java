@@ -7,6 +7,32 @@ public final class MathUtils {
     private MathUtils() {
     }
 
+    /**
+     * Find the segment that contains the given position, using a table of cumulative lengths.
+     * <p/>
+     * Each entry in the table is the total length up to and including that segment, so the table is sorted.
+     * This returns the index of the first segment that ends at or after the position.
+     * Positions before the start return the first segment, positions past the end return the last segment.
+     *
+     * @param cumulativeLengths the running total of the segment lengths.
+     * @param count             the number of segments in the table.
+     * @param position          the absolute position along the segments.
+     * @return the segment index, between 0 and count - 1.
+     */
+    public static int segmentIndex(double[] cumulativeLengths, int count, double position) {
+        int low = 0;
+        int high = count - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulativeLengths[mid] < position) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
     /**
      * Clamps the value so the result is between 0.0 and 1.0.
      * <p/>
@@ -16,17 +16,37 @@ public class Path extends AbstractGeometry implements Colorizable, Iterable<Poin
     // Simulate a quarter of a circle.
     private static final double ONE_MINUS_QUARTER = 1.0 - 0.552;
 
+    /**
+     * The maximum error of the length of a curve segment, in pixels.
+     */
+    public static final double DEFAULT_LENGTH_TOLERANCE = 0.001;
+
+    /**
+     * The maximum distance between a curve and the lines that replace it when flattening, in pixels.
+     */
+    public static final double DEFAULT_FLATNESS = 0.1;
+
+    private static final int MAX_CURVE_SUBDIVISIONS = 16;
+
+    // Abscissae and weights of five-point Gauss-Legendre quadrature on [-1, 1].
+    private static final double[] GAUSS_ABSCISSAE = {
+            0, -0.5384693101056831, 0.5384693101056831, -0.9061798459386640, 0.9061798459386640};
+    private static final double[] GAUSS_WEIGHTS = {
+            0.5688888888888889, 0.4786286704993665, 0.4786286704993665, 0.2369268850561891, 0.2369268850561891};
+
     private Color fillColor = null;
     private Color strokeColor = null;
     private double strokeWidth = 1;
     private ArrayList<Contour> contours;
     private transient Contour currentContour = null;
-    private transient boolean pathDirty = true;
-    private transient boolean lengthDirty = true;
-    private transient java.awt.geom.GeneralPath awtPath;
-    private transient Rect bounds;
-    private transient ArrayList<Double> contourLengths;
-    private transient double pathLength = -1;
+    // The caches are computed lazily, and can be computed by several threads that read the same path.
+    // Each one is published through a volatile field, and null means it has to be computed again.
+    private transient volatile java.awt.geom.GeneralPath awtPath;
+    private transient volatile Rect bounds;
+    // The running total of the contour lengths. The last value is the length of the path.
+    private transient volatile double[] contourLengths;
+    // Counts the changes to the path, so a geometry holding the path can tell that its own caches are stale.
+    private transient volatile int modificationCount;
 
     public Path() {
         fillColor = Color.BLACK;
@@ -47,6 +67,7 @@ public class Path extends AbstractGeometry implements Colorizable, Iterable<Poin
         if (cloneContours) {
             contours = new ArrayList<Contour>(other.contours.size());
             extend(other);
+            bounds = other.bounds;
             if (!contours.isEmpty()) {
                 // Set the current contour to the last contour.
                 currentContour = contours.get(contours.size() - 1);
@@ -134,17 +155,18 @@ public class Path extends AbstractGeometry implements Colorizable, Iterable<Poin
     /**
      * Get the points for this geometry.
      * <p/>
-     * This returns a live reference to the points of the geometry. Changing the points will change the geometry.
+     * This returns a read-only view on the points of the geometry; the points are not copied. The view has a fixed
+     * size: points or contours added to the path afterwards are not in the list.
      *
      * @return a list of Points.
+     * @see #pointCursor()
      */
     public java.util.List<Point> getPoints() {
-        if (contours.isEmpty()) return new ArrayList<Point>(0);
-        ArrayList<Point> points = new ArrayList<Point>();
-        for (Contour c : contours) {
-            points.addAll(c.getPoints());
-        }
-        return points;
+        return new CompositePointList(contours);
+    }
+
+    public PointCursor pointCursor() {
+        return new PointCursor(this);
     }
 
     //// Primitives ////
@@ -214,8 +236,10 @@ public class Path extends AbstractGeometry implements Colorizable, Iterable<Poin
     }
 
     private void invalidate(boolean recursive) {
-        pathDirty = true;
-        lengthDirty = true;
+        modificationCount++;
+        awtPath = null;
+        contourLengths = null;
+        bounds = null;
         if (recursive) {
             for (Contour c : contours) {
                 c.invalidate();
@@ -223,6 +247,13 @@ public class Path extends AbstractGeometry implements Colorizable, Iterable<Poin
         }
     }
 
+    /**
+     * Get the number of times the path was invalidated.
+     */
+    int getModificationCount() {
+        return modificationCount;
+    }
+
     /**
      * Ensure that there is a contour available.
      */
@@ -519,16 +550,7 @@ public class Path extends AbstractGeometry implements Colorizable, Iterable<Poin
     /**
      * Returns the length of the spline.
      * <p/>
-     * Integrates the estimated length of the cubic bezier spline
-     * defined by x0, y0, ... x3, y3, by adding the lengths of
-     * linear lines between points at t.
-     * <p/>
-     * The number of points is defined by n
-     * (n=10 would add the lengths of lines between 0.0 and 0.1,
-     * between 0.1 and 0.2, and so on).
-     * <p/>
-     * This will use a default accuracy of 20, which is fine for most cases, usually
-     * resulting in a deviation of less than 0.01.
+     * This uses adaptive integration with the default tolerance.
      *
      * @param x0 X start coordinate
      * @param y0 Y start coordinate
@@ -541,7 +563,62 @@ public class Path extends AbstractGeometry implements Colorizable, Iterable<Poin
      * @return the length of the spline.
      */
     public static double curveLength(double x0, double y0, double x1, double y1, double x2, double y2, double x3, double y3) {
-        return curveLength(x0, y0, x1, y1, x2, y2, x3, y3, 20);
+        return adaptiveCurveLength(x0, y0, x1, y1, x2, y2, x3, y3, DEFAULT_LENGTH_TOLERANCE);
+    }
+
+    /**
+     * Returns the length of the spline, within the given tolerance.
+     * <p/>
+     * Integrates the speed along the curve with Gauss-Legendre quadrature. The interval is split in half until
+     * the estimate of the two halves agrees with the estimate of the whole, so small or flat curves take a single
+     * step, and large or sharply bent curves are subdivided where needed.
+     *
+     * @param x0        X start coordinate
+     * @param y0        Y start coordinate
+     * @param x1        X control point 1
+     * @param y1        Y control point 1
+     * @param x2        X control point 2
+     * @param y2        Y control point 2
+     * @param x3        X end coordinate
+     * @param y3        Y end coordinate
+     * @param tolerance the maximum error of the result.
+     * @return the length of the spline.
+     */
+    public static double adaptiveCurveLength(double x0, double y0, double x1, double y1, double x2, double y2, double x3, double y3, double tolerance) {
+        // The derivative of the curve is a quadratic curve with these control points, times three.
+        double[] d = {x1 - x0, y1 - y0, x2 - x1, y2 - y1, x3 - x2, y3 - y2};
+        return adaptiveCurveLength(d, 0, 1, curveSegmentLength(d, 0, 1), tolerance, 0);
+    }
+
+    private static double adaptiveCurveLength(double[] d, double t0, double t1, double estimate, double tolerance, int depth) {
+        double tm = (t0 + t1) / 2;
+        double left = curveSegmentLength(d, t0, tm);
+        double right = curveSegmentLength(d, tm, t1);
+        if (depth >= MAX_CURVE_SUBDIVISIONS || Math.abs(left + right - estimate) <= tolerance) {
+            return left + right;
+        }
+        return adaptiveCurveLength(d, t0, tm, left, tolerance / 2, depth + 1)
+                + adaptiveCurveLength(d, tm, t1, right, tolerance / 2, depth + 1);
+    }
+
+    /**
+     * Estimate the length of the curve between t0 and t1 with five-point Gauss-Legendre quadrature.
+     */
+    private static double curveSegmentLength(double[] d, double t0, double t1) {
+        double halfRange = (t1 - t0) / 2;
+        double center = (t0 + t1) / 2;
+        double sum = 0;
+        for (int i = 0; i < GAUSS_ABSCISSAE.length; i++) {
+            double t = center + halfRange * GAUSS_ABSCISSAE[i];
+            double mt = 1 - t;
+            double a = mt * mt;
+            double b = 2 * mt * t;
+            double c = t * t;
+            double dx = a * d[0] + b * d[2] + c * d[4];
+            double dy = a * d[1] + b * d[3] + c * d[5];
+            sum += GAUSS_WEIGHTS[i] * Math.sqrt(dx * dx + dy * dy);
+        }
+        return 3 * halfRange * sum;
     }
 
     /**
@@ -631,36 +708,36 @@ public class Path extends AbstractGeometry implements Colorizable, Iterable<Poin
      * @return the length of the path.
      */
     public double getLength() {
-        if (lengthDirty) {
-            updateContourLengths();
-        }
-        return pathLength;
+        return totalLength(contourLengths());
     }
 
-    private void updateContourLengths() {
-        contourLengths = new ArrayList<Double>(contours.size());
-        pathLength = 0;
-        double length;
+    /**
+     * Get the running total of the contour lengths, so pointAt can find the contour with a binary search.
+     */
+    private double[] contourLengths() {
+        double[] lengths = contourLengths;
+        if (lengths != null) return lengths;
+        lengths = new double[contours.size()];
+        double pathLength = 0;
+        int i = 0;
         for (Contour c : contours) {
-            length = c.getLength();
-            contourLengths.add(length);
-            pathLength += length;
+            pathLength += c.getLength();
+            lengths[i++] = pathLength;
         }
-        lengthDirty = false;
+        contourLengths = lengths;
+        return lengths;
+    }
+
+    private static double totalLength(double[] contourLengths) {
+        return contourLengths.length == 0 ? 0 : contourLengths[contourLengths.length - 1];
     }
 
     public Contour contourAt(double t) {
+        double[] lengths = contourLengths();
         // Since t is relative, convert it to the absolute length.
-        double absT = t * getLength();
-
-        // Find the contour that contains t.
-        double cLength;
-        for (Contour c : contours) {
-            cLength = c.getLength();
-            if (absT <= cLength) return c;
-            absT -= cLength;
-        }
-        return null;
+        double absT = t * totalLength(lengths);
+        if (contours.isEmpty() || absT > totalLength(lengths)) return null;
+        return contours.get(MathUtils.segmentIndex(lengths, lengths.length, absT));
     }
 
     /**
@@ -676,24 +753,16 @@ public class Path extends AbstractGeometry implements Colorizable, Iterable<Poin
      * @return coordinates for point at t.
      */
     public Point pointAt(double t) {
-        double length = getLength();
+        double[] lengths = contourLengths();
+        if (contours.isEmpty()) return new Point();
         // Since t is relative, convert it to the absolute length.
-        double absT = t * length;
-        // The resT is what remains of t after we traversed all segments.
-        double resT = t;
-        // Find the contour that contains t.
-        double cLength;
-        Contour currentContour = null;
-        for (Contour c : contours) {
-            currentContour = c;
-            cLength = c.getLength();
-            if (absT <= cLength) break;
-            absT -= cLength;
-            resT -= cLength / length;
-        }
-        if (currentContour == null) return new Point();
-        resT /= (currentContour.getLength() / length);
-        return currentContour.pointAt(resT);
+        double absT = t * totalLength(lengths);
+        // Find the contour that contains t, and the relative position on that contour.
+        int index = MathUtils.segmentIndex(lengths, lengths.length, absT);
+        double contourStart = index > 0 ? lengths[index - 1] : 0;
+        double contourLength = lengths[index] - contourStart;
+        double resT = contourLength > 0 ? (absT - contourStart) / contourLength : 0;
+        return contours.get(index).pointAt(resT);
     }
 
     /**
@@ -865,11 +934,15 @@ public class Path extends AbstractGeometry implements Colorizable, Iterable<Poin
     //// Geometric queries ////
 
     public boolean contains(Point p) {
-        return getGeneralPath().contains(p.toPoint2D());
+        return contains(p.getX(), p.getY());
     }
 
     public boolean contains(double x, double y) {
-        return getGeneralPath().contains(x, y);
+        GeneralPath gp = getGeneralPath();
+        // Most points tested against a path are nowhere near it, so check the bounds first.
+        Rect r = getBounds();
+        if (x < r.x || x > r.x + r.width || y < r.y || y > r.y + r.height) return false;
+        return gp.contains(x, y);
     }
 
     public boolean contains(Rect r) {
@@ -883,87 +956,106 @@ public class Path extends AbstractGeometry implements Colorizable, Iterable<Poin
     }
 
     public boolean intersects(Path p) {
-        Area a1 = new Area(getGeneralPath());
-        Area a2 = new Area(p.getGeneralPath());
-        a1.intersect(a2);
-        return !a1.isEmpty();
+        if (!getBounds().intersects(p.getBounds())) return false;
+        return PolygonClipper.intersects(this, p);
     }
 
+    /**
+     * Return the area shared by this path and the given path.
+     * <p/>
+     * Curves are flattened with the default flatness, so the resulting path only contains lines.
+     *
+     * @param p the other path
+     * @return a new path.
+     */
     public Path intersected(Path p) {
-        Area a1 = new Area(getGeneralPath());
-        Area a2 = new Area(p.getGeneralPath());
-        a1.intersect(a2);
-        return new Path(a1);
+        return PolygonClipper.intersection(this, p);
     }
 
+    /**
+     * Return the area of this path that is not covered by the given path.
+     * <p/>
+     * Curves are flattened with the default flatness, so the resulting path only contains lines.
+     *
+     * @param p the other path
+     * @return a new path.
+     */
     public Path subtracted(Path p) {
-        Area a1 = new Area(getGeneralPath());
-        Area a2 = new Area(p.getGeneralPath());
-        a1.subtract(a2);
-        return new Path(a1);
+        return PolygonClipper.difference(this, p);
     }
 
+    /**
+     * Return the area covered by this path or the given path.
+     * <p/>
+     * Curves are flattened with the default flatness, so the resulting path only contains lines.
+     *
+     * @param p the other path
+     * @return a new path.
+     * @see #union(Iterable)
+     */
     public Path united(Path p) {
-        Area a1 = new Area(getGeneralPath());
-        Area a2 = new Area(p.getGeneralPath());
-        a1.add(a2);
-        return new Path(a1);
+        return PolygonClipper.union(this, p);
+    }
+
+    /**
+     * Return the area covered by any of the given paths.
+     * <p/>
+     * All paths are united in one operation, which is much faster than uniting them one by one.
+     *
+     * @param paths the paths to unite
+     * @return a new path.
+     */
+    public static Path union(Iterable<? extends Path> paths) {
+        return PolygonClipper.union(paths);
     }
 
     //// Path ////
 
     public java.awt.geom.GeneralPath getGeneralPath() {
-        if (!pathDirty) return awtPath;
-        GeneralPath gp = new GeneralPath(GeneralPath.WIND_NON_ZERO);
+        GeneralPath gp = awtPath;
+        if (gp != null) return gp;
+        gp = new GeneralPath(GeneralPath.WIND_NON_ZERO);
         for (Contour c : contours) {
             c._extendPath(gp);
         }
         awtPath = gp;
-        pathDirty = false;
         return gp;
     }
 
+    /**
+     * Get the bounding box of the path.
+     * <p/>
+     * The bounds are calculated from the cached bounds of the contours, and are cached until the path is invalidated.
+     *
+     * @return the bounding box.
+     */
     public Rect getBounds() {
-        if (!pathDirty && bounds != null) return bounds;
-        if (isEmpty()) {
-            bounds = new Rect();
-        } else {
-            double minX = Double.MAX_VALUE;
-            double minY = Double.MAX_VALUE;
-            double maxX = -Double.MAX_VALUE;
-            double maxY = -Double.MAX_VALUE;
-            double px, py;
-            ArrayList<Point> points = (ArrayList<Point>) getPoints();
-            for (int i = 0; i < getPointCount(); i++) {
-                Point p = points.get(i);
-                if (p.getType() == Point.LINE_TO) {
-                    px = p.getX();
-                    py = p.getY();
-                    if (px < minX) minX = px;
-                    if (py < minY) minY = py;
-                    if (px > maxX) maxX = px;
-                    if (py > maxY) maxY = py;
-                } else if (p.getType() == Point.CURVE_TO) {
-                    Bezier b = new Bezier(points.get(i - 3), points.get(i - 2), points.get(i - 1), p);
-                    Rect r = b.extrema();
-                    double right = r.getX() + r.getWidth();
-                    double bottom = r.getY() + r.getHeight();
-                    if (r.getX() < minX) minX = r.getX();
-                    if (right > maxX) maxX = right;
-                    if (r.getY() < minY) minY = r.getY();
-                    if (bottom > maxY) maxY = bottom;
-                }
-            }
-            bounds = new Rect(minX, minY, maxX - minX, maxY - minY);
+        Rect cached = bounds;
+        if (cached != null) return cached;
+        double minX = Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        boolean found = false;
+        for (Contour c : contours) {
+            Rect r = c.getCurveBounds();
+            if (r == null) continue;
+            if (r.x < minX) minX = r.x;
+            if (r.y < minY) minY = r.y;
+            if (r.x + r.width > maxX) maxX = r.x + r.width;
+            if (r.y + r.height > maxY) maxY = r.y + r.height;
+            found = true;
         }
-        return bounds;
+        cached = found ? new Rect(minX, minY, maxX - minX, maxY - minY) : new Rect();
+        bounds = cached;
+        return cached;
     }
 
     //// Transformations ////
 
     public void transform(Transform t) {
         for (Contour c : contours) {
-            c.setPoints(t.map(c.getPoints()));
+            c.transform(t);
         }
         invalidate(true);
     }
@@ -972,9 +1064,24 @@ public class Path extends AbstractGeometry implements Colorizable, Iterable<Poin
 
     /**
      * Flatten the geometry.
+     * <p/>
+     * All curves are replaced by lines that lie within the default flatness of the curve.
      */
     public void flatten() {
-        throw new UnsupportedOperationException("Not implemented.");
+        flatten(DEFAULT_FLATNESS);
+    }
+
+    /**
+     * Flatten the geometry.
+     *
+     * @param flatness the maximum distance between the curves and the lines that replace them.
+     * @see Contour#flatten(double)
+     */
+    public void flatten(double flatness) {
+        for (Contour c : contours) {
+            c.flatten(flatness);
+        }
+        invalidate(true);
     }
 
     /**
@@ -983,7 +1090,21 @@ public class Path extends AbstractGeometry implements Colorizable, Iterable<Poin
      * @return a flattened copy.
      */
     public Path flattened() {
-        throw new UnsupportedOperationException("Not implemented.");
+        return flattened(DEFAULT_FLATNESS);
+    }
+
+    /**
+     * Make a flattened copy of the geometry.
+     *
+     * @param flatness the maximum distance between the curves and the lines that replace them.
+     * @return a flattened copy.
+     */
+    public Path flattened(double flatness) {
+        Path p = cloneAndClear();
+        for (Contour c : contours) {
+            p.add(c.flattened(flatness));
+        }
+        return p;
     }
 
     //// Operations on the current context. ////
@@ -1035,19 +1156,19 @@ public class Path extends AbstractGeometry implements Colorizable, Iterable<Poin
     }
 
 
-    private class Bezier {
+    static final class Bezier {
         private double x1, y1, x2, y2, x3, y3, x4, y4;
         private double minx, maxx, miny, maxy;
 
-        public Bezier(Point p1, Point p2, Point p3, Point p4) {
-            x1 = p1.getX();
-            y1 = p1.getY();
-            x2 = p2.getX();
-            y2 = p2.getY();
-            x3 = p3.getX();
-            y3 = p3.getY();
-            x4 = p4.getX();
-            y4 = p4.getY();
+        public Bezier(double x1, double y1, double x2, double y2, double x3, double y3, double x4, double y4) {
+            this.x1 = x1;
+            this.y1 = y1;
+            this.x2 = x2;
+            this.y2 = y2;
+            this.x3 = x3;
+            this.y3 = y3;
+            this.x4 = x4;
+            this.y4 = y4;
         }
 
         private boolean fuzzyCompare(double p1, double p2) {
@@ -2,9 +2,9 @@ package nodebox.graphics;
 
 import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableList;
+import nodebox.util.DoubleFormatter;
 
 import java.awt.geom.Point2D;
-import java.util.Locale;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
@@ -103,7 +103,11 @@ public final class Point {
 
     @Override
     public String toString() {
-        return String.format(Locale.US, "%.2f,%.2f", x, y);
+        StringBuilder sb = new StringBuilder(16);
+        DoubleFormatter.appendFixed(sb, x, 2);
+        sb.append(',');
+        DoubleFormatter.appendFixed(sb, y, 2);
+        return sb.toString();
     }
 
     public Point2D toPoint2D() {
@@ -0,0 +1,115 @@
+package nodebox.graphics;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * A cursor over the points of a geometry.
+ * <p/>
+ * The cursor reads the coordinates directly from the contours, so walking over all points of a geometry doesn't
+ * create any lists or Point objects. The cursor starts before the first point; call {@link #next()} to move to it.
+ * <pre>
+ * PointCursor c = geometry.pointCursor();
+ * while (c.next()) {
+ *     sumX += c.getX();
+ * }
+ * </pre>
+ * Changing the geometry while the cursor is in use gives undefined results.
+ */
+public final class PointCursor {
+
+    private final List<Path> paths;
+    private List<Contour> contours;
+    private int pathIndex = -1;
+    private int contourIndex = -1;
+    private Contour contour;
+    private int pointIndex;
+    private int index = -1;
+
+    PointCursor(Contour contour) {
+        this.paths = ImmutableList.of();
+        this.contours = ImmutableList.of(contour);
+    }
+
+    PointCursor(Path path) {
+        this.paths = ImmutableList.of();
+        this.contours = path.getContours();
+    }
+
+    PointCursor(Geometry geometry) {
+        this.paths = geometry.getPaths();
+        this.contours = ImmutableList.of();
+    }
+
+    /**
+     * Move to the next point.
+     *
+     * @return false if there are no more points.
+     */
+    public boolean next() {
+        while (contour == null || pointIndex + 1 >= contour.getPointCount()) {
+            if (contourIndex + 1 < contours.size()) {
+                contour = contours.get(++contourIndex);
+                pointIndex = -1;
+            } else if (pathIndex + 1 < paths.size()) {
+                contours = paths.get(++pathIndex).getContours();
+                contourIndex = -1;
+                contour = null;
+            } else {
+                return false;
+            }
+        }
+        pointIndex++;
+        index++;
+        return true;
+    }
+
+    /**
+     * Get the index of the current point in the whole geometry.
+     *
+     * @return the point index.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Get the index of the current point in its contour.
+     *
+     * @return the point index, starting from zero for every contour.
+     */
+    public int getContourPointIndex() {
+        return pointIndex;
+    }
+
+    public Contour getContour() {
+        return contour;
+    }
+
+    public double getX() {
+        return contour.getX(pointIndex);
+    }
+
+    public double getY() {
+        return contour.getY(pointIndex);
+    }
+
+    public int getType() {
+        return contour.getType(pointIndex);
+    }
+
+    public boolean isOnCurve() {
+        return getType() != Point.CURVE_DATA;
+    }
+
+    /**
+     * Create a Point object for the current point.
+     *
+     * @return a new Point.
+     */
+    public Point getPoint() {
+        return new Point(getX(), getY(), getType());
+    }
+
+}
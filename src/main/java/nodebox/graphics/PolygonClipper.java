@@ -0,0 +1,701 @@
+package nodebox.graphics;
+
+import java.util.Arrays;
+
+/**
+ * Boolean operations on paths.
+ * <p/>
+ * This is a scanbeam clipper. The curves of all paths are flattened into lines, and the plane is cut into horizontal
+ * beams at every vertex and at every crossing of two edges. Within a beam no edges cross, so the edges can be
+ * classified from left to right using their winding numbers. The edges that separate the inside of the result from
+ * the outside are chained together into the contours of the result.
+ * <p/>
+ * All contours are treated as closed and filled with the non-zero winding rule, the same way a path is drawn.
+ * Because every operand is handled in the same sweep, uniting many paths at once is much faster than uniting them
+ * one at a time.
+ */
+final class PolygonClipper {
+
+    static final int UNION = 0;
+    static final int INTERSECTION = 1;
+    static final int DIFFERENCE = 2;
+
+    /**
+     * Coordinates closer together than this fraction of the largest coordinate are considered equal.
+     */
+    private static final double EPSILON_FACTOR = 1e-10;
+
+    private final int operation;
+    private final double flatness;
+    private int operandCount;
+
+    // The edges, pointing up: y0 is always smaller than y1. The winding is the original direction of the edge.
+    private int edgeCount;
+    private double[] ex0 = new double[64], ey0 = new double[64], ex1 = new double[64], ey1 = new double[64];
+    private int[] windings = new int[64], operands = new int[64];
+    private double scale;
+    private double eps;
+
+    // The boundary pieces of the result, and the index of the scanline of each of their end points.
+    private int pieceCount;
+    private double[] px0 = new double[64], py0 = new double[64], px1 = new double[64], py1 = new double[64];
+    private int[] ps0 = new int[64], ps1 = new int[64];
+    private int scanlineCount;
+
+    static Path union(Path p1, Path p2) {
+        return execute(UNION, p1, p2);
+    }
+
+    static Path union(Iterable<? extends Path> paths) {
+        PolygonClipper clipper = new PolygonClipper(UNION, Path.DEFAULT_FLATNESS);
+        for (Path p : paths) {
+            clipper.addPath(p);
+        }
+        return clipper.execute();
+    }
+
+    static Path intersection(Path p1, Path p2) {
+        return execute(INTERSECTION, p1, p2);
+    }
+
+    static Path difference(Path p1, Path p2) {
+        return execute(DIFFERENCE, p1, p2);
+    }
+
+    /**
+     * Check if the filled areas of the two paths overlap.
+     * <p/>
+     * This stops at the first overlap, and never builds the intersection.
+     */
+    static boolean intersects(Path p1, Path p2) {
+        PolygonClipper clipper = new PolygonClipper(INTERSECTION, Path.DEFAULT_FLATNESS);
+        clipper.addPath(p1);
+        clipper.addPath(p2);
+        return clipper.sweep(true);
+    }
+
+    private static Path execute(int operation, Path p1, Path p2) {
+        PolygonClipper clipper = new PolygonClipper(operation, Path.DEFAULT_FLATNESS);
+        clipper.addPath(p1);
+        clipper.addPath(p2);
+        return clipper.execute();
+    }
+
+    PolygonClipper(int operation, double flatness) {
+        this.operation = operation;
+        this.flatness = flatness;
+    }
+
+    /**
+     * Add the path as the next operand. For a difference, the first operand is the one that is subtracted from.
+     */
+    void addPath(Path path) {
+        int operand = operandCount++;
+        for (Contour c : path.getContours()) {
+            Contour flat = c.flattened(flatness);
+            int n = flat.getPointCount();
+            if (n < 2) continue;
+            double px = flat.getX(n - 1);
+            double py = flat.getY(n - 1);
+            for (int i = 0; i < n; i++) {
+                double x = flat.getX(i);
+                double y = flat.getY(i);
+                addEdge(px, py, x, y, operand);
+                px = x;
+                py = y;
+            }
+        }
+    }
+
+    Path execute() {
+        sweep(false);
+        return buildPath();
+    }
+
+    private void addEdge(double ax, double ay, double bx, double by, int operand) {
+        // Horizontal edges never change the winding number, the sweep reconstructs them.
+        if (ay == by || !isFinite(ax) || !isFinite(ay) || !isFinite(bx) || !isFinite(by)) return;
+        if (edgeCount == ey0.length) {
+            int capacity = edgeCount * 2;
+            ex0 = Arrays.copyOf(ex0, capacity);
+            ey0 = Arrays.copyOf(ey0, capacity);
+            ex1 = Arrays.copyOf(ex1, capacity);
+            ey1 = Arrays.copyOf(ey1, capacity);
+            windings = Arrays.copyOf(windings, capacity);
+            operands = Arrays.copyOf(operands, capacity);
+        }
+        int e = edgeCount++;
+        if (ay < by) {
+            ex0[e] = ax;
+            ey0[e] = ay;
+            ex1[e] = bx;
+            ey1[e] = by;
+            windings[e] = 1;
+        } else {
+            ex0[e] = bx;
+            ey0[e] = by;
+            ex1[e] = ax;
+            ey1[e] = ay;
+            windings[e] = -1;
+        }
+        operands[e] = operand;
+        scale = Math.max(scale, Math.max(Math.max(Math.abs(ax), Math.abs(ay)), Math.max(Math.abs(bx), Math.abs(by))));
+    }
+
+    private static boolean isFinite(double v) {
+        return v - v == 0;
+    }
+
+    /**
+     * Return the index of the largest value that is not larger than the given value.
+     */
+    private static int floorIndex(double[] values, int count, double value) {
+        int i = Arrays.binarySearch(values, 0, count, value);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    private double xAt(int e, double y) {
+        if (y <= ey0[e]) return ex0[e];
+        if (y >= ey1[e]) return ex1[e];
+        return ex0[e] + (ex1[e] - ex0[e]) * ((y - ey0[e]) / (ey1[e] - ey0[e]));
+    }
+
+    private boolean isInside(int[] windingPerOperand, int insideCount) {
+        switch (operation) {
+            case UNION:
+                return insideCount > 0;
+            case INTERSECTION:
+                return insideCount == operandCount;
+            default:
+                return windingPerOperand[0] != 0 && insideCount == 1;
+        }
+    }
+
+    /**
+     * Sweep a line from the top to the bottom, collecting the boundary pieces of the result.
+     *
+     * @param testOnly only check if the result is not empty, without collecting the pieces.
+     * @return true if the test found a non-empty result.
+     */
+    private boolean sweep(boolean testOnly) {
+        int n = edgeCount;
+        if (n == 0) return false;
+        eps = Math.max(scale * EPSILON_FACTOR, Double.MIN_NORMAL);
+
+        // The sorted y coordinates of all end points. Coordinates closer than epsilon become the same scanline,
+        // and edges that become horizontal are dropped.
+        double[] events = new double[n * 2];
+        for (int e = 0; e < n; e++) {
+            events[e * 2] = ey0[e];
+            events[e * 2 + 1] = ey1[e];
+        }
+        Arrays.sort(events);
+        int eventCount = 1;
+        for (int i = 1; i < events.length; i++) {
+            if (events[i] - events[i - 1] > eps) events[eventCount++] = events[i];
+        }
+
+        // Bucket the edges by their start event.
+        int[] starts = new int[eventCount + 1];
+        int[] startEvent = new int[n];
+        for (int e = 0; e < n; e++) {
+            int start = floorIndex(events, eventCount, ey0[e]);
+            int end = floorIndex(events, eventCount, ey1[e]);
+            if (start == end) {
+                startEvent[e] = -1;
+                continue;
+            }
+            ey0[e] = events[start];
+            ey1[e] = events[end];
+            startEvent[e] = start;
+            starts[start + 1]++;
+        }
+        for (int i = 0; i < eventCount; i++) {
+            starts[i + 1] += starts[i];
+        }
+        int startCount = starts[eventCount];
+        int[] byStart = new int[startCount];
+        int[] fill = Arrays.copyOf(starts, eventCount);
+        for (int e = 0; e < n; e++) {
+            if (startEvent[e] >= 0) byStart[fill[startEvent[e]]++] = e;
+        }
+        if (startCount == 0) return false;
+
+        int[] active = new int[n];
+        double[] xb = new double[n];
+        double[] xt = new double[n];
+        int activeCount = 0;
+        int[] windingPerOperand = new int[operandCount];
+        Boundaries below = new Boundaries(n);
+        Boundaries current = new Boundaries(n);
+        // The boundary index of each edge in the previous beam, only valid if the stamp matches that beam.
+        // The stamps start at zero, so the first beam has no previous beam.
+        int[] edgeBoundary = new int[n];
+        int[] edgeStamp = new int[n];
+        int beam = 2;
+
+        int started = 0;
+        int eventIndex = 0;
+        double y = ey0[byStart[0]];
+        while (true) {
+            int k = 0;
+            for (int i = 0; i < activeCount; i++) {
+                if (ey1[active[i]] > y) active[k++] = active[i];
+            }
+            activeCount = k;
+            while (started < startCount && ey0[byStart[started]] <= y) {
+                active[activeCount++] = byStart[started++];
+            }
+            while (eventIndex < eventCount && events[eventIndex] <= y) {
+                eventIndex++;
+            }
+            if (activeCount == 0) {
+                // Close the previous beam, the next one starts on a new scanline.
+                if (!testOnly) {
+                    for (int i = 0; i < below.count; i++) {
+                        closePiece(below, i, y);
+                    }
+                    current.count = 0;
+                    addHorizontals(y, below, current);
+                    scanlineCount++;
+                }
+                below.count = 0;
+                beam++;
+                if (started == startCount) break;
+                y = ey0[byStart[started]];
+                continue;
+            }
+            double yn = events[eventIndex];
+
+            // Sort the active edges on their position at the bottom of the beam, then at the top.
+            for (int i = 0; i < activeCount; i++) {
+                int e = active[i];
+                double b = xAt(e, y);
+                double t = xAt(e, yn);
+                int j = i;
+                while (j > 0 && (xb[j - 1] > b || (xb[j - 1] == b && xt[j - 1] > t))) {
+                    active[j] = active[j - 1];
+                    xb[j] = xb[j - 1];
+                    xt[j] = xt[j - 1];
+                    j--;
+                }
+                active[j] = e;
+                xb[j] = b;
+                xt[j] = t;
+            }
+
+            // Edges that swap places within the beam cross each other. Only adjacent edges can cross first,
+            // so shrink the beam to the lowest crossing of two neighbours.
+            double limit = yn;
+            for (int pass = 0; pass <= activeCount; pass++) {
+                boolean swapped = false;
+                limit = yn;
+                for (int i = 0; i + 1 < activeCount; i++) {
+                    if (xt[i] - xt[i + 1] > eps) {
+                        double d = (xt[i] - xt[i + 1]) - (xb[i] - xb[i + 1]);
+                        double yc = y + (yn - y) * ((xb[i + 1] - xb[i]) / d);
+                        if (yc - y <= eps) {
+                            // The edges cross at the bottom of the beam, so they are just out of order.
+                            swap(active, i, i + 1);
+                            swap(xb, i, i + 1);
+                            swap(xt, i, i + 1);
+                            swapped = true;
+                        } else if (yc < limit) {
+                            limit = yc;
+                        }
+                    }
+                }
+                if (!swapped) break;
+            }
+            if (limit < yn) {
+                yn = limit;
+                for (int i = 0; i < activeCount; i++) {
+                    xt[i] = xAt(active[i], yn);
+                }
+            }
+            // Remove the rounding errors so the edges in the beam never cross.
+            for (int i = 1; i < activeCount; i++) {
+                if (xb[i] < xb[i - 1]) xb[i] = xb[i - 1];
+                if (xt[i] < xt[i - 1]) xt[i] = xt[i - 1];
+            }
+
+            // Classify the edges from left to right. Coincident edges are handled as a group.
+            for (int i = 0; i < activeCount; i++) {
+                windingPerOperand[operands[active[i]]] = 0;
+            }
+            int insideCount = 0;
+            boolean inside = false;
+            current.count = 0;
+            int i = 0;
+            while (i < activeCount) {
+                int leader = active[i];
+                double gb = xb[i];
+                double gt = xt[i];
+                do {
+                    int e = active[i];
+                    int operand = operands[e];
+                    boolean was = windingPerOperand[operand] != 0;
+                    windingPerOperand[operand] += windings[e];
+                    boolean is = windingPerOperand[operand] != 0;
+                    if (was != is) insideCount += is ? 1 : -1;
+                    i++;
+                } while (i < activeCount && xb[i] - gb <= eps && xt[i] - gt <= eps);
+                boolean nowInside = isInside(windingPerOperand, insideCount);
+                if (nowInside == inside) continue;
+                inside = nowInside;
+                int c = current.count++;
+                current.bottoms[c] = gb;
+                current.tops[c] = gt;
+                if (testOnly) {
+                    if (!nowInside && (gb - current.bottoms[c - 1]) + (gt - current.tops[c - 1]) > eps) {
+                        return true;
+                    }
+                    continue;
+                }
+                current.entering[c] = nowInside;
+                current.continued[c] = false;
+                current.previous[c] = edgeStamp[leader] == beam - 1 ? edgeBoundary[leader] : -1;
+                edgeStamp[leader] = beam;
+                edgeBoundary[leader] = c;
+            }
+
+            if (!testOnly) {
+                // A boundary that keeps following the same edge doesn't need a point on every scanline,
+                // unless another boundary touches it there.
+                for (int c = 0; c < current.count; c++) {
+                    int b = current.previous[c];
+                    double x = current.bottoms[c];
+                    if (b >= 0 && below.entering[b] == current.entering[c] && below.tops[b] == x
+                            && isIsolated(current.bottoms, current.count, c) && isIsolated(below.tops, below.count, b)) {
+                        below.continued[b] = true;
+                        current.startX[c] = below.startX[b];
+                        current.startY[c] = below.startY[b];
+                        current.startScanline[c] = below.startScanline[b];
+                    } else {
+                        current.startX[c] = x;
+                        current.startY[c] = y;
+                        current.startScanline[c] = scanlineCount;
+                    }
+                }
+                for (int j = 0; j < below.count; j++) {
+                    if (!below.continued[j]) closePiece(below, j, y);
+                }
+                addHorizontals(y, below, current);
+                scanlineCount++;
+            }
+            Boundaries tmp = below;
+            below = current;
+            current = tmp;
+            beam++;
+            y = yn;
+        }
+        return false;
+    }
+
+    /**
+     * Check if the neighbours of a value in a sorted array are more than epsilon away.
+     */
+    private boolean isIsolated(double[] values, int count, int i) {
+        return (i == 0 || values[i] - values[i - 1] > eps) && (i == count - 1 || values[i + 1] - values[i] > eps);
+    }
+
+    /**
+     * Add the piece for a boundary that ends on the given scanline.
+     */
+    private void closePiece(Boundaries boundaries, int i, double y) {
+        if (boundaries.entering[i]) {
+            // The inside is on the right, so the boundary goes down.
+            addPiece(boundaries.tops[i], y, scanlineCount,
+                    boundaries.startX[i], boundaries.startY[i], boundaries.startScanline[i]);
+        } else {
+            addPiece(boundaries.startX[i], boundaries.startY[i], boundaries.startScanline[i],
+                    boundaries.tops[i], y, scanlineCount);
+        }
+    }
+
+    private static void swap(int[] a, int i, int j) {
+        int tmp = a[i];
+        a[i] = a[j];
+        a[j] = tmp;
+    }
+
+    private static void swap(double[] a, int i, int j) {
+        double tmp = a[i];
+        a[i] = a[j];
+        a[j] = tmp;
+    }
+
+    /**
+     * Add the horizontal boundary pieces on a scanline.
+     * <p/>
+     * The boundaries below and above alternate between entering and leaving the inside. Where the line is inside
+     * on one side but not on the other, it is part of the boundary.
+     */
+    private void addHorizontals(double y, Boundaries below, Boundaries above) {
+        int belowCount = below.count;
+        int aboveCount = above.count;
+        int s = scanlineCount;
+        boolean insideBelow = false;
+        boolean insideAbove = false;
+        double x = 0;
+        int i = 0, j = 0;
+        while (i < belowCount || j < aboveCount) {
+            boolean fromBelow = j >= aboveCount || (i < belowCount && below.tops[i] <= above.bottoms[j]);
+            double next = fromBelow ? below.tops[i++] : above.bottoms[j++];
+            if (insideBelow != insideAbove && next > x) {
+                if (insideBelow) {
+                    addPiece(next, y, s, x, y, s);
+                } else {
+                    addPiece(x, y, s, next, y, s);
+                }
+            }
+            if (fromBelow) {
+                insideBelow = !insideBelow;
+            } else {
+                insideAbove = !insideAbove;
+            }
+            x = next;
+        }
+    }
+
+    private void addPiece(double x0, double y0, int s0, double x1, double y1, int s1) {
+        if (pieceCount == px0.length) {
+            int capacity = pieceCount * 2;
+            px0 = Arrays.copyOf(px0, capacity);
+            py0 = Arrays.copyOf(py0, capacity);
+            px1 = Arrays.copyOf(px1, capacity);
+            py1 = Arrays.copyOf(py1, capacity);
+            ps0 = Arrays.copyOf(ps0, capacity);
+            ps1 = Arrays.copyOf(ps1, capacity);
+        }
+        int p = pieceCount++;
+        px0[p] = x0;
+        py0[p] = y0;
+        ps0[p] = s0;
+        px1[p] = x1;
+        py1[p] = y1;
+        ps1[p] = s1;
+    }
+
+    /**
+     * Chain the boundary pieces into closed contours.
+     */
+    private Path buildPath() {
+        Path path = new Path();
+        int m = pieceCount;
+        if (m == 0) return path;
+
+        // Bucket the end points per scanline. End point 2p is the start of piece p, 2p + 1 is its end.
+        int[] bucketStarts = new int[scanlineCount + 2];
+        for (int p = 0; p < m; p++) {
+            bucketStarts[ps0[p] + 1]++;
+            bucketStarts[ps1[p] + 1]++;
+        }
+        for (int s = 0; s <= scanlineCount; s++) {
+            bucketStarts[s + 1] += bucketStarts[s];
+        }
+        int[] ends = new int[m * 2];
+        int[] fill = Arrays.copyOf(bucketStarts, scanlineCount + 1);
+        for (int p = 0; p < m; p++) {
+            ends[fill[ps0[p]]++] = p * 2;
+            ends[fill[ps1[p]]++] = p * 2 + 1;
+        }
+
+        // Points on the same scanline that are closer than epsilon become the same node.
+        int[] nodeOf = new int[m * 2];
+        double[] nodeX = new double[m * 2];
+        double[] nodeY = new double[m * 2];
+        int nodeCount = 0;
+        double[] xs = new double[16];
+        int[] nodeIds = new int[16];
+        for (int s = 0; s <= scanlineCount; s++) {
+            int from = bucketStarts[s];
+            int count = bucketStarts[s + 1] - from;
+            if (count == 0) continue;
+            if (xs.length < count) {
+                xs = new double[count];
+                nodeIds = new int[count];
+            }
+            for (int i = 0; i < count; i++) {
+                xs[i] = endX(ends[from + i]);
+            }
+            Arrays.sort(xs, 0, count);
+            double y = endY(ends[from]);
+            for (int i = 0; i < count; i++) {
+                if (i == 0 || xs[i] - xs[i - 1] > eps) {
+                    nodeX[nodeCount] = xs[i];
+                    nodeY[nodeCount] = y;
+                    nodeCount++;
+                }
+                nodeIds[i] = nodeCount - 1;
+            }
+            for (int i = 0; i < count; i++) {
+                int end = ends[from + i];
+                nodeOf[end] = nodeIds[Arrays.binarySearch(xs, 0, count, endX(end))];
+            }
+        }
+
+        // Index the pieces by their start node. Pieces that collapsed into a single node are dropped.
+        int[] outStarts = new int[nodeCount + 1];
+        for (int p = 0; p < m; p++) {
+            if (nodeOf[p * 2] != nodeOf[p * 2 + 1]) outStarts[nodeOf[p * 2] + 1]++;
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            outStarts[i + 1] += outStarts[i];
+        }
+        int[] out = new int[outStarts[nodeCount]];
+        int[] next = Arrays.copyOf(outStarts, nodeCount);
+        for (int p = 0; p < m; p++) {
+            if (nodeOf[p * 2] != nodeOf[p * 2 + 1]) out[next[nodeOf[p * 2]]++] = p;
+        }
+        System.arraycopy(outStarts, 0, next, 0, nodeCount);
+
+        // Every node has as many pieces coming in as going out, so following unused pieces always returns
+        // to the start node.
+        boolean[] used = new boolean[m];
+        double[] cx = new double[16];
+        double[] cy = new double[16];
+        for (int i = 0; i < out.length; i++) {
+            int piece = out[i];
+            if (used[piece]) continue;
+            int startNode = nodeOf[piece * 2];
+            int n = 0;
+            while (piece >= 0) {
+                used[piece] = true;
+                if (n == cx.length) {
+                    cx = Arrays.copyOf(cx, n * 2);
+                    cy = Arrays.copyOf(cy, n * 2);
+                }
+                int node = nodeOf[piece * 2];
+                cx[n] = nodeX[node];
+                cy[n] = nodeY[node];
+                n++;
+                int end = nodeOf[piece * 2 + 1];
+                if (end == startNode) break;
+                piece = nextPiece(node, end, out, outStarts, next, used, nodeX, nodeY, nodeOf);
+            }
+            n = simplify(cx, cy, n, eps);
+            if (n < 3) continue;
+            Contour c = new Contour();
+            for (int j = 0; j < n; j++) {
+                c.addPoint(cx[j], cy[j]);
+            }
+            c.close();
+            path.add(c);
+        }
+        return path;
+    }
+
+    /**
+     * Find the unused piece that leaves the node with the sharpest turn to the left.
+     * <p/>
+     * The inside is always on the left of the boundary, so this keeps shapes that only touch in a single point
+     * in separate contours.
+     */
+    private static int nextPiece(int from, int node, int[] out, int[] outStarts, int[] next, boolean[] used,
+                                 double[] nodeX, double[] nodeY, int[] nodeOf) {
+        while (next[node] < outStarts[node + 1] && used[out[next[node]]]) {
+            next[node]++;
+        }
+        int first = next[node];
+        int last = outStarts[node + 1];
+        if (first == last) return -1;
+        if (last - first == 1) return out[first];
+        double dx = nodeX[node] - nodeX[from];
+        double dy = nodeY[node] - nodeY[from];
+        int best = -1;
+        double bestAngle = Double.NEGATIVE_INFINITY;
+        for (int i = first; i < last; i++) {
+            int candidate = out[i];
+            if (used[candidate]) continue;
+            int to = nodeOf[candidate * 2 + 1];
+            double ox = nodeX[to] - nodeX[node];
+            double oy = nodeY[to] - nodeY[node];
+            double angle = Math.atan2(dx * oy - dy * ox, dx * ox + dy * oy);
+            if (angle > bestAngle) {
+                bestAngle = angle;
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private double endX(int end) {
+        return (end & 1) == 0 ? px0[end >> 1] : px1[end >> 1];
+    }
+
+    private double endY(int end) {
+        return (end & 1) == 0 ? py0[end >> 1] : py1[end >> 1];
+    }
+
+    /**
+     * Remove the points of a closed polygon that lie on the line between their neighbours.
+     *
+     * @return the new number of points.
+     */
+    static int simplify(double[] xs, double[] ys, int n, double eps) {
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            xs[k] = xs[i];
+            ys[k] = ys[i];
+            k++;
+            while (k >= 3 && isCollinear(xs, ys, k - 3, k - 2, k - 1, eps)) {
+                xs[k - 2] = xs[k - 1];
+                ys[k - 2] = ys[k - 1];
+                k--;
+            }
+        }
+        while (k >= 3) {
+            if (isCollinear(xs, ys, k - 2, k - 1, 0, eps)) {
+                k--;
+            } else if (isCollinear(xs, ys, k - 1, 0, 1, eps)) {
+                System.arraycopy(xs, 1, xs, 0, k - 1);
+                System.arraycopy(ys, 1, ys, 0, k - 1);
+                k--;
+            } else {
+                break;
+            }
+        }
+        return k;
+    }
+
+    /**
+     * Check if point b lies within epsilon of the line through a and c.
+     */
+    private static boolean isCollinear(double[] xs, double[] ys, int a, int b, int c, double eps) {
+        double dx = xs[c] - xs[a];
+        double dy = ys[c] - ys[a];
+        double cross = (xs[b] - xs[a]) * dy - (ys[b] - ys[a]) * dx;
+        return Math.abs(cross) <= eps * Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * The boundaries of the result in one beam, from left to right.
+     * <p/>
+     * Each boundary remembers where it started, so a boundary that follows one edge through many beams becomes
+     * a single piece.
+     */
+    private static final class Boundaries {
+        int count;
+        final double[] bottoms;
+        final double[] tops;
+        final boolean[] entering;
+        final boolean[] continued;
+        final int[] previous;
+        final double[] startX;
+        final double[] startY;
+        final int[] startScanline;
+
+        Boundaries(int capacity) {
+            bottoms = new double[capacity];
+            tops = new double[capacity];
+            entering = new boolean[capacity];
+            continued = new boolean[capacity];
+            previous = new int[capacity];
+            startX = new double[capacity];
+            startY = new double[capacity];
+            startScanline = new int[capacity];
+        }
+    }
+
+}
@@ -125,7 +125,7 @@ public class Rect implements Iterable {
     public boolean intersects(Rect r) {
         Rect r1 = normalized();
         Rect r2 = r.normalized();
-        return Math.max(r1.x, r1.y) < Math.min(r1.x + r1.width, r2.width) &&
+        return Math.max(r1.x, r2.x) < Math.min(r1.x + r1.width, r2.x + r2.width) &&
                 Math.max(r1.y, r2.y) < Math.min(r1.y + r1.height, r2.y + r2.height);
     }
 
@@ -1,10 +1,11 @@
 package nodebox.graphics;
 
-import nodebox.util.FileUtils;
+import nodebox.util.DoubleFormatter;
 import org.python.google.common.collect.ImmutableMap;
 
 import java.awt.geom.Rectangle2D;
-import java.io.File;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -15,68 +16,56 @@ public class SVGRenderer {
     public static String XML_DECLARATION = "<?xml version=\"1.0\"?>\n";
 
     public static String smartFloat(double v) {
-        if ((long) v == v) {
-            return String.valueOf((long) v);
-        } else {
-            return String.format(Locale.US, "%.2f", v);
-        }
+        return DoubleFormatter.formatSmart(v, 2);
     }
 
     public static void appendFloat(StringBuilder sb, double v) {
-        sb.append(smartFloat(v));
+        DoubleFormatter.appendSmart(sb, v, 2);
+    }
+
+    private static void appendPoint(StringBuilder sb, Contour c, int index) {
+        appendFloat(sb, c.getX(index));
+        sb.append(',');
+        appendFloat(sb, c.getY(index));
     }
 
     public static String renderPathData(Path path) {
         StringBuilder sb = new StringBuilder();
+        appendPathData(sb, path);
+        return sb.toString();
+    }
+
+    public static void appendPathData(StringBuilder sb, Path path) {
         for (Contour c : path.getContours()) {
-            List<Point> points = c.getPoints();
-            for (int i = 0; i < points.size(); i += 1) {
-                Point pt = points.get(i);
-                if (pt.getType() == Point.LINE_TO) {
-                    if (i == 0) {
-                        sb.append('M');
-                        appendFloat(sb, pt.x);
-                        sb.append(',');
-                        appendFloat(sb, pt.y);
-                    } else {
-                        sb.append('L');
-                        appendFloat(sb, pt.x);
-                        sb.append(',');
-                        appendFloat(sb, pt.y);
-                    }
-                } else if (pt.getType() == Point.CURVE_DATA) {
+            int pointCount = c.getPointCount();
+            for (int i = 0; i < pointCount; i += 1) {
+                int type = c.getType(i);
+                if (type == Point.LINE_TO) {
+                    sb.append(i == 0 ? 'M' : 'L');
+                    appendPoint(sb, c, i);
+                } else if (type == Point.CURVE_DATA) {
                     // We expect three points.
                     sb.append('C');
-                    appendFloat(sb, pt.x);
-                    sb.append(',');
-                    appendFloat(sb, pt.y);
-
-                    pt = points.get(++i);
-                    checkState(pt.getType() == Point.CURVE_DATA);
+                    appendPoint(sb, c, i);
+                    checkState(c.getType(++i) == Point.CURVE_DATA);
                     sb.append(' ');
-                    appendFloat(sb, pt.x);
-                    sb.append(',');
-                    appendFloat(sb, pt.y);
-
-                    pt = points.get(++i);
-                    checkState(pt.getType() == Point.CURVE_TO);
+                    appendPoint(sb, c, i);
+                    checkState(c.getType(++i) == Point.CURVE_TO);
                     sb.append(' ');
-                    appendFloat(sb, pt.x);
-                    sb.append(',');
-                    appendFloat(sb, pt.y);
+                    appendPoint(sb, c, i);
                 }
             }
             if (c.isClosed()) {
                 sb.append('Z');
             }
         }
-        return sb.toString();
     }
 
     public static Element renderPath(Path path) {
         String d = renderPathData(path);
 
-        HashMap<String, String> attrs = new HashMap<String, String>();
+        // The attributes are in the same order as the ones written by appendPathElement.
+        Map<String, String> attrs = new LinkedHashMap<String, String>();
         attrs.put("d", d);
         if (path.getFill() != null) {
             if (!path.getFill().equals(Color.BLACK)) {
@@ -95,6 +84,41 @@ public class SVGRenderer {
         return new Element("path", attrs, null);
     }
 
+    /**
+     * Append the path element for the given path, in the same form as {@link #renderPath(Path)}.
+     */
+    private static void appendPathElement(StringBuilder sb, Path path) {
+        sb.append("<path d=\"");
+        appendPathData(sb, path);
+        sb.append('"');
+        if (path.getFill() != null) {
+            if (!path.getFill().equals(Color.BLACK)) {
+                appendAttribute(sb, "fill", path.getFill().toCSS());
+            }
+        } else {
+            appendAttribute(sb, "fill", "none");
+        }
+        if (path.getStroke() != null && path.getStroke().isVisible()) {
+            appendAttribute(sb, "stroke", path.getStroke().toCSS());
+            if (path.getStrokeWidth() != 1) {
+                sb.append(" stroke-width=\"");
+                appendFloat(sb, path.getStrokeWidth());
+                sb.append('"');
+            }
+        }
+        sb.append("/>");
+    }
+
+    private static void appendAttribute(StringBuilder sb, String name, String value) {
+        sb.append(' ').append(name).append("=\"").append(value).append('"');
+    }
+
+    private static void appendIndent(StringBuilder sb, int indent) {
+        for (int i = 0; i < indent; i++) {
+            sb.append(' ');
+        }
+    }
+
     public static Element renderGeometry(Geometry geo) {
         List<Element> elements = new LinkedList<Element>();
 
@@ -133,15 +157,104 @@ public class SVGRenderer {
         return new Element("svg", attrs, elements);
     }
 
-    public static String renderToString(Iterable<?> objects, Rectangle2D bounds) {
+    /**
+     * Write the objects as an SVG document.
+     * <p/>
+     * The document is written while walking the objects, one path at a time, so the memory use doesn't depend on the
+     * number of objects. The output is the same as the output of {@link #renderToString(Iterable, Rectangle2D)}.
+     *
+     * @param objects The paths and geometry to render.
+     * @param bounds  The bounds of the document.
+     * @param writer  The writer to write to. This method doesn't close the writer.
+     * @throws IOException If writing fails.
+     */
+    public static void renderSVG(Iterable<?> objects, Rectangle2D bounds, Writer writer) throws IOException {
         checkArgument(objects != null);
-        Element svg = renderSVG(objects, bounds);
-        return XML_DECLARATION + svg.toString(4, 0);
+        ElementWriter out = new ElementWriter(writer);
+        StringBuilder sb = out.buffer;
+        sb.append(XML_DECLARATION);
+        sb.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"");
+        appendFloat(sb, bounds.getWidth());
+        sb.append("\" height=\"");
+        appendFloat(sb, bounds.getHeight());
+        sb.append("\" viewBox=\"");
+        appendFloat(sb, bounds.getX());
+        sb.append(' ');
+        appendFloat(sb, bounds.getY());
+        sb.append(' ');
+        appendFloat(sb, bounds.getWidth());
+        sb.append(' ');
+        appendFloat(sb, bounds.getHeight());
+        sb.append("\">\n");
+        out.write();
+        for (Object o : objects) {
+            if (o instanceof Geometry) {
+                appendIndent(sb, 4);
+                sb.append("<g>\n");
+                for (Path path : ((Geometry) o).getPaths()) {
+                    appendIndent(sb, 8);
+                    appendPathElement(sb, path);
+                    sb.append('\n');
+                    out.write();
+                }
+                appendIndent(sb, 4);
+                sb.append("</g>\n");
+            } else if (o instanceof Path) {
+                appendIndent(sb, 4);
+                appendPathElement(sb, (Path) o);
+                sb.append('\n');
+            } else {
+                throw new RuntimeException("Don't know how to render " + o.getClass().getName());
+            }
+            out.write();
+        }
+        sb.append("</svg>");
+        out.write();
+    }
+
+    public static String renderToString(Iterable<?> objects, Rectangle2D bounds) {
+        StringWriter writer = new StringWriter();
+        try {
+            renderSVG(objects, bounds, writer);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not render SVG", e);
+        }
+        return writer.toString();
     }
 
     public static void renderToFile(Iterable<?> objects, Rectangle2D bounds, File file) {
         checkArgument(objects != null);
-        FileUtils.writeFile(file, renderToString(objects, bounds));
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            renderSVG(objects, bounds, writer);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write file " + file, e);
+        }
+    }
+
+    /**
+     * Writes the elements collected in a reusable buffer.
+     * <p/>
+     * Appending a StringBuilder to a Writer copies it into a new String first, so the characters are copied through
+     * a reusable array instead.
+     */
+    private static final class ElementWriter {
+        private final Writer writer;
+        private final StringBuilder buffer = new StringBuilder(256);
+        private char[] chars = new char[256];
+
+        private ElementWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        private void write() throws IOException {
+            int length = buffer.length();
+            if (chars.length < length) {
+                chars = new char[Math.max(length, chars.length * 2)];
+            }
+            buffer.getChars(0, length, chars, 0);
+            writer.write(chars, 0, length);
+            buffer.setLength(0);
+        }
     }
 
     public static class Element {
@@ -0,0 +1,206 @@
+package nodebox.graphics;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A uniform grid over the bounding boxes of a list of items.
+ * <p/>
+ * The index is used to narrow down the items that can contain a point or overlap a rectangle, so hit testing
+ * doesn't have to look at every item. It only compares bounding boxes: callers still need to do the exact test
+ * on the items it returns.
+ * <p/>
+ * Items that would cover more than {@link #MAXIMUM_CELLS_PER_ITEM} cells are not put in the grid, but kept in a
+ * separate list that every query checks. This keeps the size of the index linear in the number of items, even when
+ * many large boxes overlap. Items with NaN coordinates are in that list too, and are returned by every query, since
+ * their bounding box can't tell if they match.
+ * <p/>
+ * The index is immutable once it is built, and can be queried from multiple threads.
+ */
+final class SpatialIndex {
+
+    static final int MAXIMUM_CELLS_PER_ITEM = 16;
+
+    private final int itemCount;
+    private final double[] boxes;
+    private final double minX, minY;
+    private final double cellWidth, cellHeight;
+    private final int columns, rows;
+    // The items in each cell, stored as one array. The items of cell i are between cellStarts[i] and cellStarts[i + 1].
+    private final int[] cellStarts;
+    private final int[] cellItems;
+    // The items that are not in the grid, in ascending order.
+    private final int[] largeItems;
+
+    /**
+     * Build an index over the given bounding boxes. The position of each box in the list is its item index.
+     *
+     * @param bounds the bounding boxes of the items.
+     */
+    SpatialIndex(List<Rect> bounds) {
+        itemCount = bounds.size();
+        boxes = new double[itemCount * 4];
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < itemCount; i++) {
+            Rect r = bounds.get(i).normalized();
+            boxes[i * 4] = r.x;
+            boxes[i * 4 + 1] = r.y;
+            boxes[i * 4 + 2] = r.x + r.width;
+            boxes[i * 4 + 3] = r.y + r.height;
+            if (isFinite(i)) {
+                minX = Math.min(minX, r.x);
+                minY = Math.min(minY, r.y);
+                maxX = Math.max(maxX, r.x + r.width);
+                maxY = Math.max(maxY, r.y + r.height);
+            }
+        }
+        if (minX > maxX) {
+            minX = minY = maxX = maxY = 0;
+        }
+        // Aim for about one item per cell.
+        int side = Math.max(1, (int) Math.ceil(Math.sqrt(itemCount)));
+        this.minX = minX;
+        this.minY = minY;
+        this.columns = side;
+        this.rows = side;
+        this.cellWidth = maxX > minX ? (maxX - minX) / side : 1;
+        this.cellHeight = maxY > minY ? (maxY - minY) / side : 1;
+
+        // First count the items in every cell, then fill them in.
+        cellStarts = new int[columns * rows + 1];
+        boolean[] large = new boolean[itemCount];
+        int largeCount = 0;
+        for (int i = 0; i < itemCount; i++) {
+            int c0 = column(boxes[i * 4]), c1 = column(boxes[i * 4 + 2]);
+            int r0 = row(boxes[i * 4 + 1]), r1 = row(boxes[i * 4 + 3]);
+            if (!isFinite(i) || (long) (c1 - c0 + 1) * (r1 - r0 + 1) > MAXIMUM_CELLS_PER_ITEM) {
+                large[i] = true;
+                largeCount++;
+                continue;
+            }
+            for (int r = r0; r <= r1; r++) {
+                for (int c = c0; c <= c1; c++) {
+                    cellStarts[r * columns + c + 1]++;
+                }
+            }
+        }
+        for (int i = 1; i < cellStarts.length; i++) {
+            cellStarts[i] += cellStarts[i - 1];
+        }
+        cellItems = new int[cellStarts[cellStarts.length - 1]];
+        int[] fill = Arrays.copyOf(cellStarts, cellStarts.length - 1);
+        largeItems = new int[largeCount];
+        largeCount = 0;
+        for (int i = 0; i < itemCount; i++) {
+            if (large[i]) {
+                largeItems[largeCount++] = i;
+                continue;
+            }
+            int c0 = column(boxes[i * 4]), c1 = column(boxes[i * 4 + 2]);
+            int r0 = row(boxes[i * 4 + 1]), r1 = row(boxes[i * 4 + 3]);
+            for (int r = r0; r <= r1; r++) {
+                for (int c = c0; c <= c1; c++) {
+                    cellItems[fill[r * columns + c]++] = i;
+                }
+            }
+        }
+    }
+
+    int size() {
+        return itemCount;
+    }
+
+    /**
+     * Find the items whose bounding box contains the given point.
+     *
+     * @param x the x coordinate of the point.
+     * @param y the y coordinate of the point.
+     * @return the item indices, in ascending order.
+     */
+    int[] itemsAt(double x, double y) {
+        if (itemCount == 0 || Double.isNaN(x) || Double.isNaN(y)) return new int[0];
+        int cell = row(y) * columns + column(x);
+        int[] found = new int[cellStarts[cell + 1] - cellStarts[cell] + largeItems.length];
+        int count = 0;
+        for (int j = cellStarts[cell]; j < cellStarts[cell + 1]; j++) {
+            int i = cellItems[j];
+            if (x >= boxes[i * 4] && x <= boxes[i * 4 + 2] && y >= boxes[i * 4 + 1] && y <= boxes[i * 4 + 3]) {
+                found[count++] = i;
+            }
+        }
+        int gridCount = count;
+        for (int i : largeItems) {
+            if (hasNaN(i) || x >= boxes[i * 4] && x <= boxes[i * 4 + 2] && y >= boxes[i * 4 + 1] && y <= boxes[i * 4 + 3]) {
+                found[count++] = i;
+            }
+        }
+        found = Arrays.copyOf(found, count);
+        if (gridCount > 0 && count > gridCount) {
+            Arrays.sort(found);
+        }
+        return found;
+    }
+
+    /**
+     * Find the items whose bounding box overlaps the given rectangle.
+     * <p/>
+     * Boxes that only touch the rectangle are included.
+     *
+     * @param r the rectangle.
+     * @return the item indices, in ascending order.
+     */
+    int[] itemsIntersecting(Rect r) {
+        r = r.normalized();
+        double x0 = r.x, y0 = r.y, x1 = r.x + r.width, y1 = r.y + r.height;
+        if (itemCount == 0 || Double.isNaN(x0) || Double.isNaN(y0) || Double.isNaN(x1) || Double.isNaN(y1))
+            return new int[0];
+        BitSet found = new BitSet(itemCount);
+        int c0 = column(x0), c1 = column(x1);
+        int r0 = row(y0), r1 = row(y1);
+        for (int row = r0; row <= r1; row++) {
+            for (int c = c0; c <= c1; c++) {
+                int cell = row * columns + c;
+                for (int j = cellStarts[cell]; j < cellStarts[cell + 1]; j++) {
+                    int i = cellItems[j];
+                    if (x0 <= boxes[i * 4 + 2] && x1 >= boxes[i * 4] && y0 <= boxes[i * 4 + 3] && y1 >= boxes[i * 4 + 1]) {
+                        found.set(i);
+                    }
+                }
+            }
+        }
+        for (int i : largeItems) {
+            if (hasNaN(i) || x0 <= boxes[i * 4 + 2] && x1 >= boxes[i * 4] && y0 <= boxes[i * 4 + 3] && y1 >= boxes[i * 4 + 1]) {
+                found.set(i);
+            }
+        }
+        return found.stream().toArray();
+    }
+
+    private boolean isFinite(int i) {
+        for (int k = 0; k < 4; k++) {
+            double v = boxes[i * 4 + k];
+            if (Double.isNaN(v) || Double.isInfinite(v)) return false;
+        }
+        return true;
+    }
+
+    private boolean hasNaN(int i) {
+        for (int k = 0; k < 4; k++) {
+            if (Double.isNaN(boxes[i * 4 + k])) return true;
+        }
+        return false;
+    }
+
+    private int column(double x) {
+        int c = (int) Math.floor((x - minX) / cellWidth);
+        return c < 0 ? 0 : c >= columns ? columns - 1 : c;
+    }
+
+    private int row(double y) {
+        int r = (int) Math.floor((y - minY) / cellHeight);
+        return r < 0 ? 0 : r >= rows ? rows - 1 : r;
+    }
+
+}
@@ -1,13 +1,15 @@
 package nodebox.graphics;
 
 import java.awt.*;
-import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
 import java.awt.font.LineBreakMeasurer;
 import java.awt.font.TextAttribute;
 import java.awt.font.TextLayout;
 import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.text.AttributedString;
+import java.text.Bidi;
 import java.util.Hashtable;
 import java.util.Iterator;
 
@@ -175,12 +177,12 @@ public class Text extends AbstractGrob {
 
     //// Metrics ////
 
-    private AttributedString getStyledText(String text) {
+    private AttributedString getStyledText(String text, Font font) {
         // TODO: Find a better way to handle empty Strings (like for example paragraph line breaks)
         if (text.length() == 0)
             text = " ";
         AttributedString attrString = new AttributedString(text);
-        attrString.addAttribute(TextAttribute.FONT, getFont());
+        attrString.addAttribute(TextAttribute.FONT, font);
         if (fillColor != null)
             attrString.addAttribute(TextAttribute.FOREGROUND, fillColor.getAwtColor());
         if (align == Align.RIGHT) {
@@ -226,16 +228,32 @@ public class Text extends AbstractGrob {
         restoreTransform(g);
     }
 
+    /**
+     * Get the outlines of the text as a path.
+     * <p/>
+     * The outlines of the glyphs come from the shared glyph cache. Only lines that can't be built from single glyphs,
+     * such as justified lines and right-to-left text, ask the text layout for their outline.
+     *
+     * @return a new Path.
+     */
     public Path getPath() {
         Path p = new Path();
         p.setFillColor(fillColor == null ? null : fillColor.clone());
         TextLayoutIterator iterator = new TextLayoutIterator();
         while (iterator.hasNext()) {
             TextLayout layout = iterator.next();
-            AffineTransform trans = new AffineTransform();
-            trans.translate(baseLineX + iterator.getX(), baseLineY + iterator.getY());
-            Shape shape = layout.getOutline(trans);
-            p.extend(shape);
+            double x = baseLineX + iterator.getX();
+            double y = baseLineY + iterator.getY();
+            GlyphVector glyphs = iterator.getGlyphs();
+            if (glyphs == null) {
+                p.extend(layout.getOutline(AffineTransform.getTranslateInstance(x, y)));
+            } else {
+                Font font = glyphs.getFont();
+                for (int i = 0; i < glyphs.getNumGlyphs(); i++) {
+                    Point2D position = glyphs.getGlyphPosition(i);
+                    GlyphCache.getGlyph(font, glyphs.getGlyphCode(i)).addTo(p, x + position.getX(), y + position.getY());
+                }
+            }
         }
         p.transform(getTransform());
         return p;
@@ -245,9 +263,52 @@ public class Text extends AbstractGrob {
         return text.trim().length() == 0;
     }
 
+    /**
+     * Get the bounds of the text outlines.
+     * <p/>
+     * When the text is not rotated or skewed, the bounds are combined from the cached bounds of the glyphs, without
+     * building the path. Rotated text is measured on its path.
+     *
+     * @return the bounding box.
+     */
     public Rect getBounds() {
-        // TODO: This is correct, but creating a full path just for measuring bounds is slow.
-        return getPath().getBounds();
+        AffineTransform t = getTransform().getAffineTransform();
+        int rotated = AffineTransform.TYPE_GENERAL_ROTATION | AffineTransform.TYPE_QUADRANT_ROTATION | AffineTransform.TYPE_GENERAL_TRANSFORM;
+        if ((t.getType() & rotated) != 0) {
+            return getPath().getBounds();
+        }
+        Rectangle2D bounds = null;
+        TextLayoutIterator iterator = new TextLayoutIterator();
+        while (iterator.hasNext()) {
+            TextLayout layout = iterator.next();
+            double x = baseLineX + iterator.getX();
+            double y = baseLineY + iterator.getY();
+            GlyphVector glyphs = iterator.getGlyphs();
+            if (glyphs == null) {
+                Path line = new Path(layout.getOutline(AffineTransform.getTranslateInstance(x, y)));
+                if (line.getPointCount() > 0) {
+                    bounds = union(bounds, line.getBounds(), 0, 0);
+                }
+            } else {
+                Font font = glyphs.getFont();
+                for (int i = 0; i < glyphs.getNumGlyphs(); i++) {
+                    Rect glyphBounds = GlyphCache.getGlyph(font, glyphs.getGlyphCode(i)).getBounds();
+                    if (glyphBounds == null) continue;
+                    Point2D position = glyphs.getGlyphPosition(i);
+                    bounds = union(bounds, glyphBounds, x + position.getX(), y + position.getY());
+                }
+            }
+        }
+        if (bounds == null) return new Rect();
+        // Without rotation, the corners of the bounds stay the corners of the transformed bounds.
+        return new Rect(t.createTransformedShape(bounds).getBounds2D());
+    }
+
+    private static Rectangle2D union(Rectangle2D bounds, Rect r, double dx, double dy) {
+        Rectangle2D moved = new Rectangle2D.Double(r.getX() + dx, r.getY() + dy, r.getWidth(), r.getHeight());
+        if (bounds == null) return moved;
+        Rectangle2D.union(bounds, moved, bounds);
+        return bounds;
     }
 
     public Text clone() {
@@ -264,16 +325,20 @@ public class Text extends AbstractGrob {
         private LineBreakMeasurer currentMeasurer;
         private String currentText;
         private boolean first;
+        private Font font;
+        private int lineStart, lineLimit;
+        private TextLayout currentLayout;
+        private boolean justified;
 
         private TextLayoutIterator() {
             x = 0;
             y = 0;
             textParts = text.split("\n");
             measurers = new LineBreakMeasurer[textParts.length];
-            FontRenderContext frc = new FontRenderContext(new AffineTransform(), true, true);
+            font = getFont();
             for (int i = 0; i < textParts.length; i++) {
-                AttributedString s = getStyledText(textParts[i]);
-                measurers[i] = new LineBreakMeasurer(s.getIterator(), frc);
+                AttributedString s = getStyledText(textParts[i], font);
+                measurers[i] = new LineBreakMeasurer(s.getIterator(), GlyphCache.FONT_RENDER_CONTEXT);
             }
             currentMeasurer = measurers[currentIndex];
             currentText = textParts[currentIndex];
@@ -303,7 +368,10 @@ public class Text extends AbstractGrob {
             }
             double layoutWidth = width == 0 ? Float.MAX_VALUE : width;
 
+            lineStart = currentMeasurer.getPosition();
+            justified = false;
             TextLayout layout = currentMeasurer.nextLayout((float) layoutWidth);
+            lineLimit = currentMeasurer.getPosition();
             if (width == 0) {
                 layoutWidth = layout.getAdvance();
                 if (align == Align.RIGHT) {
@@ -319,14 +387,32 @@ public class Text extends AbstractGrob {
                 // Don't justify the last line.
                 if (currentMeasurer.getPosition() < currentText.length()) {
                     layout = layout.getJustifiedLayout((float) width);
+                    justified = true;
                 }
             }
             ascent = layout.getAscent();
             // y += layout.getDescent() + layout.getLeading() + layout.getAscent();
 
+            currentLayout = layout;
             return layout;
         }
 
+        /**
+         * Get the glyphs of the current line, at the same positions as in the text layout.
+         *
+         * @return the glyphs, or null if the line can't be placed glyph by glyph.
+         */
+        public GlyphVector getGlyphs() {
+            if (justified) return null;
+            char[] chars = currentText.toCharArray();
+            if (Bidi.requiresBidi(chars, lineStart, lineLimit)) return null;
+            GlyphVector glyphs = font.layoutGlyphVector(GlyphCache.FONT_RENDER_CONTEXT, chars, lineStart, lineLimit, Font.LAYOUT_LEFT_TO_RIGHT);
+            // The glyphs should end where the layout ends. If not, the layout did something the glyphs don't know about.
+            double advance = glyphs.getGlyphPosition(glyphs.getNumGlyphs()).getX();
+            if (Math.abs(advance - currentLayout.getAdvance()) > 0.01) return null;
+            return glyphs;
+        }
+
         public double getX() {
             return x;
         }
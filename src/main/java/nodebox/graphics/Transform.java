@@ -167,7 +167,8 @@ public class Transform implements Cloneable {
     public Path map(Path p) {
         Path newPath = new Path(p, false);
         for (Contour c : p.getContours()) {
-            Contour newContour = new Contour(map(c.getPoints()), c.isClosed());
+            Contour newContour = c.clone();
+            newContour.transform(this);
             newPath.add(newContour);
         }
         return newPath;
@@ -40,6 +40,19 @@ public abstract class AbstractVideoFormat implements VideoFormat {
         return getArgumentList(null);
     }
 
+    public ArrayList<String> getRawInputArgumentList(Movie movie) {
+        ArrayList<String> argumentList = new ArrayList<String>();
+        argumentList.add("-f");
+        argumentList.add("rawvideo");
+        argumentList.add("-pix_fmt");
+        argumentList.add("rgba");
+        argumentList.add("-s");
+        argumentList.add(String.format(SIZE_ARG_TEMPLATE, movie.getWidth(), movie.getHeight()));
+        argumentList.add("-i");
+        argumentList.add("-");
+        return argumentList;
+    }
+
     protected String getSizeArgument(int inputWidth, int inputHeight) {
         if (inputWidth > width || inputHeight > height) {
             float widthRatio = (float) inputWidth / width;
@@ -1,5 +1,6 @@
 package nodebox.movie;
 
+import com.google.common.collect.ImmutableList;
 import nodebox.Log;
 
 import javax.imageio.ImageIO;
@@ -8,12 +9,15 @@ import java.awt.image.BufferedImage;
 import java.awt.image.RenderedImage;
 import java.io.*;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 public class Movie {
 
     private static final File FFMPEG_BINARY;
     private static final String TEMPORARY_FILE_PREFIX = "sme";
+    // The number of encoder output lines in the error message when the encoder fails.
+    private static final int ERROR_OUTPUT_LINES = 20;
 
     public static final ArrayList<VideoFormat> VIDEO_FORMATS;
     public static final VideoFormat DEFAULT_FORMAT = MP4VideoFormat.HighFormat;
@@ -55,6 +59,14 @@ public class Movie {
     private boolean verbose;
     private int frameCount = 0;
     private String temporaryFileTemplate;
+    private List<String> encoderCommand = ImmutableList.of(FFMPEG_BINARY.getAbsolutePath());
+    private boolean streaming = true;
+    private Process encoder;
+    private OutputStream encoderInput;
+    private Thread encoderOutputReader;
+    private final List<String> encoderOutput = new ArrayList<String>();
+    private int[] pixelRow;
+    private byte[] byteRow;
 
     public Movie(String movieFilename, VideoFormat format, int width, int height) {
         this(movieFilename, format, width, height, false);
@@ -97,6 +109,45 @@ public class Movie {
         return frameCount;
     }
 
+    /**
+     * Check if frames are streamed to the encoder.
+     *
+     * @return true if frames are streamed, false if they are stored as temporary images.
+     * @see #setStreaming(boolean)
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * Set if frames are streamed to the encoder.
+     * <p/>
+     * When streaming, the encoder is started when the first frame is added and every frame is sent to it as raw RGBA
+     * pixels. Otherwise, every frame is stored as a temporary PNG image and the encoder only runs when the movie is
+     * saved. Streaming is on by default. If the encoder can not be started, the movie falls back to temporary images.
+     * <p/>
+     * This can only be changed before the first frame is added.
+     *
+     * @param streaming true to stream frames to the encoder.
+     */
+    public void setStreaming(boolean streaming) {
+        if (frameCount > 0) {
+            throw new IllegalStateException("Streaming can only be changed before adding frames.");
+        }
+        this.streaming = streaming;
+    }
+
+    /**
+     * Set the command that starts the encoder. The encoder arguments are appended to this command.
+     * <p/>
+     * This is used for testing with a fake encoder.
+     *
+     * @param encoderCommand the encoder binary, followed by any arguments that come before the encoder arguments.
+     */
+    void setEncoderCommand(List<String> encoderCommand) {
+        this.encoderCommand = ImmutableList.copyOf(encoderCommand);
+    }
+
     public String getMovieFilename() {
         return movieFilename;
     }
@@ -114,8 +165,9 @@ public class Movie {
      * <p/>
      * The image size needs to be exactly the same size as the movie.
      * <p/>
-     * Internally, this saves the image to a temporary image and increases the frame counter. Temporary images are
-     * cleaned up when calling save() or if an error occurs.
+     * When streaming, this writes the pixels of the image to the encoder. This blocks when the encoder is not keeping
+     * up, so frames never pile up in memory. Otherwise, this saves the image to a temporary image. Temporary images
+     * are cleaned up when calling save() or if an error occurs.
      *
      * @param img the image to add to the movie.
      */
@@ -123,33 +175,33 @@ public class Movie {
         if (img.getWidth() != width || img.getHeight() != height) {
             throw new RuntimeException("Given image does not have the same size as the movie.");
         }
+        if (frameCount == 0 && streaming) {
+            startEncoder();
+        }
         try {
-            ImageIO.write(img, "png", temporaryFileForFrame(frameCount));
+            if (streaming) {
+                writeRawFrame(img);
+            } else {
+                ImageIO.write(img, "png", temporaryFileForFrame(frameCount));
+            }
             frameCount++;
         } catch (IOException e) {
             cleanupAndThrowException(e);
         }
     }
 
-    public void save() {
-        save(new StringWriter());
-    }
-
-    /**
-     * Finishes the export and save the movie.
-     */
-    public void save(StringWriter sw) {
-        Log.info(String.format("Exporting movie %s with inputs %s (ffmpeg %s)", movieFilename, temporaryFileTemplate, FFMPEG_BINARY.getAbsolutePath()));
-        PrintWriter out = new PrintWriter(sw, true);
+    private ArrayList<String> encoderCommandList(List<String> inputArguments) {
         ArrayList<String> commandList = new ArrayList<String>();
-        commandList.add(FFMPEG_BINARY.getAbsolutePath());
+        commandList.addAll(encoderCommand);
         commandList.add("-hide_banner"); // Hide the FFMPEG compilation banner
         commandList.add("-y"); // Overwrite target if exists
-        commandList.add("-i");
-        commandList.add(temporaryFileTemplate); // Input images
+        commandList.addAll(inputArguments);
         commandList.addAll(videoFormat.getArgumentList(this)); // Video format specific arguments
         commandList.add(movieFilename); // Target file name
+        return commandList;
+    }
 
+    private ProcessBuilder createProcessBuilder(List<String> commandList) {
         ProcessBuilder pb = new ProcessBuilder(commandList);
         if (verbose) {
             for (String cmd : pb.command()) {
@@ -158,26 +210,165 @@ public class Movie {
             System.out.println();
         }
         pb.redirectErrorStream(true);
+        return pb;
+    }
+
+    /**
+     * Start the encoder that reads raw frames from its standard input.
+     * <p/>
+     * If the encoder can't be started, the movie falls back to temporary images.
+     */
+    private void startEncoder() {
+        Log.info(String.format("Streaming movie %s to %s", movieFilename, encoderCommand.get(0)));
+        ProcessBuilder pb = createProcessBuilder(encoderCommandList(videoFormat.getRawInputArgumentList(this)));
+        try {
+            encoder = pb.start();
+        } catch (IOException e) {
+            Log.warn("Could not start the encoder, using temporary images instead.", e);
+            streaming = false;
+            return;
+        }
+        encoderInput = new BufferedOutputStream(encoder.getOutputStream(), 1 << 16);
+        // The encoder output needs to be read while frames are written, otherwise the encoder blocks on a full pipe.
+        final BufferedReader in = new BufferedReader(new InputStreamReader(encoder.getInputStream()));
+        encoderOutputReader = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        synchronized (encoderOutput) {
+                            encoderOutput.add(line);
+                        }
+                    }
+                } catch (IOException ignored) {
+                    // The encoder was stopped.
+                }
+            }
+        }, "Movie encoder output");
+        encoderOutputReader.setDaemon(true);
+        encoderOutputReader.start();
+    }
+
+    /**
+     * Write the pixels of the image to the encoder as non-premultiplied RGBA bytes.
+     */
+    private void writeRawFrame(RenderedImage img) throws IOException {
+        BufferedImage image;
+        if (img instanceof BufferedImage) {
+            image = (BufferedImage) img;
+        } else {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = image.createGraphics();
+            g.drawRenderedImage(img, null);
+            g.dispose();
+        }
+        if (pixelRow == null) {
+            pixelRow = new int[width];
+            byteRow = new byte[width * 4];
+        }
+        int type = image.getType();
+        boolean opaque = type == BufferedImage.TYPE_INT_RGB;
+        for (int y = 0; y < height; y++) {
+            if (type == BufferedImage.TYPE_INT_ARGB || type == BufferedImage.TYPE_INT_RGB) {
+                // The raster already holds packed pixels, so skip the color model conversion of getRGB.
+                image.getRaster().getDataElements(0, y, width, 1, pixelRow);
+            } else {
+                image.getRGB(0, y, width, 1, pixelRow, 0, width);
+            }
+            for (int x = 0, i = 0; x < width; x++) {
+                int argb = pixelRow[x];
+                byteRow[i++] = (byte) (argb >> 16);
+                byteRow[i++] = (byte) (argb >> 8);
+                byteRow[i++] = (byte) argb;
+                byteRow[i++] = opaque ? (byte) 0xff : (byte) (argb >>> 24);
+            }
+            encoderInput.write(byteRow);
+        }
+    }
+
+    public void save() {
+        save(new StringWriter());
+    }
+
+    /**
+     * Finishes the export and save the movie.
+     */
+    public void save(StringWriter sw) {
+        if (encoder != null) {
+            finishEncoder(sw);
+            return;
+        }
+        Log.info(String.format("Exporting movie %s with inputs %s (ffmpeg %s)", movieFilename, temporaryFileTemplate, encoderCommand.get(0)));
+        PrintWriter out = new PrintWriter(sw, true);
+        ArrayList<String> inputArguments = new ArrayList<String>();
+        inputArguments.add("-i");
+        inputArguments.add(temporaryFileTemplate); // Input images
+        ProcessBuilder pb = createProcessBuilder(encoderCommandList(inputArguments));
         Process p;
         try {
             p = pb.start();
             p.getOutputStream().close();
             BufferedReader in = new BufferedReader(new InputStreamReader(p.getInputStream()));
+            List<String> output = new ArrayList<String>();
             String line;
-            while ((line = in.readLine()) != null)
+            while ((line = in.readLine()) != null) {
                 out.println(line);
-            p.waitFor();
+                output.add(line);
+            }
+            int exitCode = p.waitFor();
+            if (verbose) {
+                System.out.println(sw.toString());
+            }
+            checkExitCode(exitCode, output);
+        } catch (IOException | InterruptedException e) {
+            cleanupAndThrowException(e);
+        }
+        cleanup();
+    }
+
+    /**
+     * Close the input of the streaming encoder and wait for it to finish the movie.
+     */
+    private void finishEncoder(StringWriter sw) {
+        PrintWriter out = new PrintWriter(sw, true);
+        try {
+            encoderInput.close();
+            encoderOutputReader.join();
+            int exitCode = encoder.waitFor();
+            synchronized (encoderOutput) {
+                for (String line : encoderOutput) {
+                    out.println(line);
+                }
+            }
             if (verbose) {
                 System.out.println(sw.toString());
             }
+            checkExitCode(exitCode, encoderOutput);
         } catch (IOException | InterruptedException e) {
             cleanupAndThrowException(e);
         }
+        encoder = null;
+    }
+
+    /**
+     * Throw an exception with the last lines of the encoder output if the encoder did not finish the movie.
+     */
+    private void checkExitCode(int exitCode, List<String> output) {
+        if (exitCode == 0) return;
         cleanup();
+        StringBuilder message = new StringBuilder();
+        message.append(String.format("The encoder failed to create movie %s (exit code %d).", movieFilename, exitCode));
+        synchronized (output) {
+            for (String line : output.subList(Math.max(0, output.size() - ERROR_OUTPUT_LINES), output.size())) {
+                message.append("\n").append(line);
+            }
+        }
+        Log.error(message.toString());
+        throw new RuntimeException(message.toString());
     }
 
     /**
-     * Cleans up the temporary images.
+     * Cleans up the temporary images, or stops the streaming encoder.
      * <p/>
      * Normally you should not call this method as it is called automatically when running finish() or if an error
      * occurred. The only reason to call it is if you have added images and then decide you don't want to generate
@@ -186,8 +377,15 @@ public class Movie {
      * @see #save()
      */
     public void cleanup() {
-        for (int i = 0; i < frameCount; i++) {
-            temporaryFileForFrame(i).delete();
+        if (encoder != null) {
+            // Stop the streaming encoder without finishing the movie.
+            encoder.destroy();
+            encoder = null;
+        }
+        if (!streaming) {
+            for (int i = 0; i < frameCount; i++) {
+                temporaryFileForFrame(i).delete();
+            }
         }
     }
 
@@ -16,6 +16,14 @@ public interface VideoFormat {
 
     public ArrayList<String> getArgumentList(Movie movie);
 
+    /**
+     * Get the arguments that tell the encoder to read raw RGBA frames of the movie size from its standard input.
+     *
+     * @param movie the movie that is being encoded.
+     * @return a list of input arguments, ending with the input file.
+     */
+    public ArrayList<String> getRawInputArgumentList(Movie movie);
+
     public File ensureFileExtension(File file);
 
     public String ensureFileExtension(String file);
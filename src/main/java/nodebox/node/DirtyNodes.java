@@ -0,0 +1,121 @@
+package nodebox.node;
+
+import com.google.common.collect.ImmutableSet;
+import nodebox.function.FunctionRepository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Find the nodes whose results are affected by going from one version of a node library to another.
+ * <p/>
+ * Every edit to a node library produces a new root node. Nodes that were not touched by the edit keep their
+ * identity, so comparing the old and the new tree tells us which nodes changed. A node is dirty if:
+ * <ul>
+ * <li>The node itself changed, or did not exist in the old network.</li>
+ * <li>The connections going into the node changed.</li>
+ * <li>One of the nodes connected to its inputs is dirty.</li>
+ * <li>The node is volatile: its output does not only depend on its inputs (see {@link #isVolatile(Node, FunctionRepository)}).</li>
+ * </ul>
+ * Networks are compared recursively. A network with a changed child is a different node, so the network
+ * and everything downstream of it is dirty as well. This also covers changes to published ports and the rendered child.
+ */
+public final class DirtyNodes {
+
+    private DirtyNodes() {
+    }
+
+    /**
+     * Get the absolute paths of all nodes under the new root that need to be evaluated again.
+     *
+     * @param oldRoot            The root node of the previous version. Can be null, in which case all nodes are dirty.
+     * @param newRoot            The root node of the current version.
+     * @param functionRepository The functions the nodes are rendered with.
+     * @return A set of absolute node paths.
+     */
+    public static ImmutableSet<String> find(Node oldRoot, Node newRoot, FunctionRepository functionRepository) {
+        Set<String> dirtyPaths = new HashSet<String>();
+        if (oldRoot != newRoot) {
+            dirtyPaths.add("/");
+        }
+        collectDirtyPaths("/", oldRoot, newRoot, functionRepository, dirtyPaths);
+        return ImmutableSet.copyOf(dirtyPaths);
+    }
+
+    /**
+     * Check if the output of the node can change without the node or its inputs changing.
+     * <p/>
+     * A network is volatile if any of its children are volatile. Functions that are not written in Java are volatile,
+     * since they can keep state.
+     *
+     * @param node               The node to check.
+     * @param functionRepository The functions the node is rendered with.
+     * @return true if the node has to be evaluated on every render.
+     * @see RenderCache#isCacheable(Node, FunctionRepository)
+     */
+    public static boolean isVolatile(Node node, FunctionRepository functionRepository) {
+        if (node.isNetwork()) {
+            for (Node child : node.getChildren()) {
+                if (isVolatile(child, functionRepository)) return true;
+            }
+            return node.isAlwaysRendered();
+        }
+        return !RenderCache.isCacheable(node, functionRepository);
+    }
+
+    private static void collectDirtyPaths(String networkPath, Node oldNetwork, Node newNetwork, FunctionRepository functionRepository, Set<String> dirtyPaths) {
+        Map<String, Boolean> dirtyChildren = new HashMap<String, Boolean>();
+        for (Node child : newNetwork.getChildren()) {
+            String childPath = Node.path(networkPath, child);
+            if (isDirty(oldNetwork, newNetwork, child, functionRepository, dirtyChildren)) {
+                dirtyPaths.add(childPath);
+            }
+            if (child.isNetwork()) {
+                Node oldChild = oldNetwork != null ? oldNetwork.getChild(child.getName()) : null;
+                if (oldChild != null && !oldChild.isNetwork()) {
+                    oldChild = null;
+                }
+                collectDirtyPaths(childPath, oldChild, child, functionRepository, dirtyPaths);
+            }
+        }
+    }
+
+    private static boolean isDirty(Node oldNetwork, Node newNetwork, Node child, FunctionRepository functionRepository, Map<String, Boolean> dirtyChildren) {
+        Boolean dirty = dirtyChildren.get(child.getName());
+        if (dirty != null) return dirty;
+        // Connections can't form cycles, but guard against it anyway by assuming the node is dirty while we look upstream.
+        dirtyChildren.put(child.getName(), true);
+        dirty = oldNetwork == null
+                || oldNetwork.getChild(child.getName()) != child
+                || isVolatile(child, functionRepository)
+                || !incomingConnections(oldNetwork, child).equals(incomingConnections(newNetwork, child));
+        if (!dirty) {
+            for (Connection c : newNetwork.getConnections()) {
+                if (c.getInputNode().equals(child.getName())) {
+                    Node outputNode = newNetwork.getChild(c.getOutputNode());
+                    if (outputNode != null && isDirty(oldNetwork, newNetwork, outputNode, functionRepository, dirtyChildren)) {
+                        dirty = true;
+                        break;
+                    }
+                }
+            }
+        }
+        dirtyChildren.put(child.getName(), dirty);
+        return dirty;
+    }
+
+    private static List<Connection> incomingConnections(Node network, Node child) {
+        List<Connection> connections = new ArrayList<Connection>();
+        for (Connection c : network.getConnections()) {
+            if (c.getInputNode().equals(child.getName())) {
+                connections.add(c);
+            }
+        }
+        return connections;
+    }
+
+}
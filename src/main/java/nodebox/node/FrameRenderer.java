@@ -0,0 +1,196 @@
+package nodebox.node;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import nodebox.function.FunctionRepository;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Renders a range of frames of a node library, for exporting.
+ * <p/>
+ * If no node depends on the previous frame, the frames are rendered in parallel on a bounded pool of threads,
+ * each frame with its own NodeContext. Otherwise, the frames are rendered one after another, and the results of
+ * each frame are passed to the next.
+ * <p/>
+ * Either way, the listener receives the frames in order, on the thread that called render. Frames that finish
+ * early wait until all frames before them are done. Only a few frames are rendered ahead, so a slow listener, such as
+ * a movie encoder, holds back rendering instead of letting results pile up in memory.
+ */
+public final class FrameRenderer {
+
+    public interface FrameListener {
+
+        /**
+         * Called for every rendered frame, in frame order.
+         *
+         * @param frame   The frame number.
+         * @param results The results of rendering the root node.
+         */
+        public void frameDone(int frame, List<?> results);
+
+    }
+
+    private final NodeLibrary nodeLibrary;
+    private final FunctionRepository functionRepository;
+    private final Map<String, ?> data;
+    private final Map<String, ?> portOverrides;
+    private final RenderCache renderCache;
+    private final int threadCount;
+
+    /**
+     * Create a frame renderer.
+     *
+     * @param nodeLibrary        The node library to render.
+     * @param functionRepository The functions used by the nodes.
+     * @param data               The context data for every frame. The "frame" key is set for each frame.
+     * @param threadCount        The maximum number of frames to render at the same time.
+     */
+    public FrameRenderer(NodeLibrary nodeLibrary, FunctionRepository functionRepository, Map<String, ?> data, int threadCount) {
+        this(nodeLibrary, functionRepository, data, ImmutableMap.<String, Object>of(), threadCount);
+    }
+
+    /**
+     * Create a frame renderer that replaces the values of some ports.
+     *
+     * @param portOverrides The port values to use instead of the values in the library, keyed by "node.port".
+     * @see NodeContext#NodeContext(NodeLibrary, FunctionRepository, Map, Map, Map)
+     */
+    public FrameRenderer(NodeLibrary nodeLibrary, FunctionRepository functionRepository, Map<String, ?> data, Map<String, ?> portOverrides, int threadCount) {
+        this(nodeLibrary, functionRepository, data, portOverrides, null, threadCount);
+    }
+
+    /**
+     * Create a frame renderer that shares function results between frames rendered in parallel.
+     *
+     * @param renderCache The cache for function results, or null to invoke every function for every frame.
+     */
+    public FrameRenderer(NodeLibrary nodeLibrary, FunctionRepository functionRepository, Map<String, ?> data, Map<String, ?> portOverrides, RenderCache renderCache, int threadCount) {
+        checkArgument(threadCount > 0, "The thread count needs to be at least one.");
+        this.nodeLibrary = nodeLibrary;
+        this.functionRepository = functionRepository;
+        this.data = ImmutableMap.copyOf(data);
+        this.portOverrides = ImmutableMap.copyOf(portOverrides);
+        this.renderCache = renderCache;
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Check if the node library can be rendered on more than one thread at the same time.
+     * <p/>
+     * Device nodes and nodes written in a scripting language have to be evaluated serially.
+     *
+     * @param nodeLibrary        The node library to render.
+     * @param functionRepository The functions used by the nodes.
+     * @return true if different frames or renders of the library can run at the same time.
+     */
+    public static boolean isThreadSafe(NodeLibrary nodeLibrary, FunctionRepository functionRepository) {
+        return !NodeContext.isSerialized(nodeLibrary.getRoot(), functionRepository);
+    }
+
+    /**
+     * Check if the frames of the node library can be rendered at the same time.
+     * <p/>
+     * This is not possible when a node has a state port, because it needs the result of the previous frame, or when
+     * the library is not thread safe.
+     *
+     * @return true if the frames can be rendered in parallel.
+     * @see #isThreadSafe(NodeLibrary, FunctionRepository)
+     */
+    public boolean isParallel() {
+        return threadCount > 1 && !usesState(nodeLibrary.getRoot()) && isThreadSafe(nodeLibrary, functionRepository);
+    }
+
+    private static boolean usesState(Node node) {
+        if (!node.getInputsOfType(Port.TYPE_STATE).isEmpty()) return true;
+        for (Node child : node.getChildren()) {
+            if (usesState(child)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Render the frames from the first up to and including the last frame.
+     * <p/>
+     * If the thread is interrupted, rendering stops after the current frame and the interrupted flag is kept.
+     *
+     * @param fromFrame The first frame.
+     * @param toFrame   The last frame.
+     * @param listener  The listener that receives the results of every frame.
+     * @throws NodeRenderException If rendering a frame fails.
+     */
+    public void render(int fromFrame, int toFrame, FrameListener listener) throws NodeRenderException {
+        if (isParallel()) {
+            renderParallel(fromFrame, toFrame, listener);
+        } else {
+            renderSerial(fromFrame, toFrame, listener);
+        }
+    }
+
+    private void renderSerial(int fromFrame, int toFrame, FrameListener listener) {
+        Map<String, List<?>> renderResults = ImmutableMap.of();
+        for (int frame = fromFrame; frame <= toFrame; frame++) {
+            if (Thread.currentThread().isInterrupted()) return;
+            NodeContext context = new NodeContext(nodeLibrary, functionRepository, frameData(frame), renderResults, portOverrides);
+            List<?> results = context.renderNode("/");
+            renderResults = context.getRenderResults();
+            listener.frameDone(frame, results);
+        }
+    }
+
+    private void renderParallel(int fromFrame, int toFrame, FrameListener listener) {
+        ExecutorService pool = Executors.newFixedThreadPool(threadCount,
+                new ThreadFactoryBuilder().setNameFormat("frame-renderer-%d").setDaemon(true).build());
+        // The frames that are rendering or waiting for their turn, in frame order.
+        ArrayDeque<Future<List<?>>> pendingFrames = new ArrayDeque<Future<List<?>>>();
+        int windowSize = threadCount * 2;
+        int nextFrame = fromFrame;
+        try {
+            for (int frame = fromFrame; frame <= toFrame; frame++) {
+                while (nextFrame <= toFrame && pendingFrames.size() < windowSize) {
+                    final Map<String, ?> frameData = frameData(nextFrame);
+                    pendingFrames.add(pool.submit(new Callable<List<?>>() {
+                        public List<?> call() {
+                            NodeContext context = new NodeContext(nodeLibrary, functionRepository, frameData, ImmutableMap.<String, List<?>>of(), portOverrides, renderCache);
+                            return context.renderNode("/");
+                        }
+                    }));
+                    nextFrame++;
+                }
+                if (Thread.currentThread().isInterrupted()) return;
+                List<?> results;
+                try {
+                    results = pendingFrames.remove().get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw new RuntimeException(e.getCause());
+                }
+                listener.frameDone(frame, results);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Map<String, ?> frameData(int frame) {
+        HashMap<String, Object> frameData = new HashMap<String, Object>(data);
+        frameData.put("frame", (double) frame);
+        return frameData;
+    }
+
+}
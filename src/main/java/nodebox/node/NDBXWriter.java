@@ -332,10 +332,10 @@ public class NDBXWriter {
             el.setAttribute("description", port.getDescription());
         if (shouldWriteAttribute(node, port, Port.Attribute.MINIMUM_VALUE))
             if (port.getMinimumValue() != null)
-                el.setAttribute("min", String.format(Locale.US, "%s", port.getMinimumValue()));
+                el.setAttribute("min", String.valueOf(port.getMinimumValue()));
         if (shouldWriteAttribute(node, port, Port.Attribute.MAXIMUM_VALUE))
             if (port.getMaximumValue() != null)
-                el.setAttribute("max", String.format(Locale.US, "%s", port.getMaximumValue()));
+                el.setAttribute("max", String.valueOf(port.getMaximumValue()));
         if (shouldWriteAttribute(node, port, Port.Attribute.MENU_ITEMS))
             writeMenuItems(doc, el, port.getMenuItems());
         parent.appendChild(el);
@@ -1,15 +1,24 @@
 package nodebox.node;
 
 import com.google.common.base.Objects;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import nodebox.function.Function;
+import nodebox.function.FunctionLibrary;
 import nodebox.function.FunctionRepository;
 import nodebox.graphics.Point;
 import nodebox.util.ListUtils;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
@@ -24,8 +33,14 @@ public final class NodeContext {
     private final Map<String, List<?>> renderResults;
     private final Map<NodeArguments, List<?>> nodeArgumentsResults;
     private final Map<String, ?> portOverrides;
+    private final RenderCache renderCache;
+    private final Map<NodeArguments, CompletableFuture<List<?>>> pendingResults;
+    private final Map<String, Boolean> serializedNodes;
+    private ForkJoinPool evaluationPool;
 
     private static final ImmutableMap<String, ?> DEFAULT_CONTEXT_DATA = ImmutableMap.of("frame", 1.0);
+    private static final int PARALLEL_INVOCATION_THRESHOLD = 256;
+    private static final int MINIMUM_CHUNK_SIZE = 64;
 
     public NodeContext(NodeLibrary nodeLibrary) {
         this(nodeLibrary, null);
@@ -40,14 +55,29 @@ public final class NodeContext {
     }
 
     public NodeContext(NodeLibrary nodeLibrary, FunctionRepository functionRepository, Map<String, ?> data, Map<String, List<?>> previousRenderResults, Map<String, ?> portOverrides) {
+        this(nodeLibrary, functionRepository, data, previousRenderResults, portOverrides, null);
+    }
+
+    /**
+     * Create a node context that stores function results in the given render cache.
+     * <p/>
+     * The render cache is shared between renders, so nodes whose inputs did not change since the last render
+     * are not invoked again.
+     *
+     * @param renderCache The cache to use between renders, or null to disable caching.
+     */
+    public NodeContext(NodeLibrary nodeLibrary, FunctionRepository functionRepository, Map<String, ?> data, Map<String, List<?>> previousRenderResults, Map<String, ?> portOverrides, RenderCache renderCache) {
         this.nodeLibrary = nodeLibrary;
         this.nodeMap = nodeLibrary.getFlattenedNodeMap();
         this.functionRepository = functionRepository != null ? functionRepository : nodeLibrary.getFunctionRepository();
         this.data = ImmutableMap.copyOf(data);
-        this.renderResults = new HashMap<String, List<?>>();
-        this.nodeArgumentsResults = new HashMap<NodeArguments, List<?>>();
+        this.renderResults = new ConcurrentHashMap<String, List<?>>();
+        this.nodeArgumentsResults = new ConcurrentHashMap<NodeArguments, List<?>>();
+        this.pendingResults = new ConcurrentHashMap<NodeArguments, CompletableFuture<List<?>>>();
+        this.serializedNodes = new ConcurrentHashMap<String, Boolean>();
         this.previousRenderResults = ImmutableMap.copyOf(previousRenderResults);
         this.portOverrides = ImmutableMap.copyOf(portOverrides);
+        this.renderCache = renderCache;
     }
 
     public NodeLibrary getNodeLibrary() {
@@ -76,6 +106,63 @@ public final class NodeContext {
         return renderResults;
     }
 
+    public RenderCache getRenderCache() {
+        return renderCache;
+    }
+
+    public ForkJoinPool getEvaluationPool() {
+        return evaluationPool;
+    }
+
+    /**
+     * Evaluate independent input branches of a node in parallel on the given pool.
+     * <p/>
+     * Branches that contain side-effecting nodes (device functions, Python or Clojure functions, always rendered nodes)
+     * are always evaluated on the calling thread, one after the other.
+     * <p/>
+     * This method should be called before rendering.
+     *
+     * @param evaluationPool The pool to evaluate branches on, or null to evaluate everything on the calling thread.
+     */
+    public void setEvaluationPool(ForkJoinPool evaluationPool) {
+        this.evaluationPool = evaluationPool;
+    }
+
+    /**
+     * Reuse the results of a previous render for all nodes that were not affected by the changes since then.
+     * <p/>
+     * The dirty nodes are found by comparing the node library of the previous context with this one.
+     * Only the dirty nodes and the nodes downstream of them are evaluated again.
+     * If the previous context used different functions or port overrides, nothing is reused.
+     * <p/>
+     * The reused results are copied, so changing them doesn't change the results of the previous context.
+     * <p/>
+     * This method should be called before rendering.
+     *
+     * @param previousContext The context of the previous, completed render.
+     * @see DirtyNodes
+     */
+    public void reuseResults(NodeContext previousContext) {
+        checkNotNull(previousContext);
+        if (previousContext.functionRepository != functionRepository) return;
+        if (!previousContext.portOverrides.equals(portOverrides)) return;
+        if (!Objects.equal(previousContext.nodeLibrary.getFile(), nodeLibrary.getFile())) return;
+        Set<String> dirtyPaths = DirtyNodes.find(previousContext.nodeLibrary.getRoot(), nodeLibrary.getRoot(), functionRepository);
+        for (Map.Entry<NodeArguments, List<?>> entry : previousContext.nodeArgumentsResults.entrySet()) {
+            NodeArguments nodeArguments = entry.getKey();
+            String childPath = getChildPath(nodeArguments.network, nodeArguments.node);
+            if (nodeMap.containsKey(childPath) && !dirtyPaths.contains(childPath)) {
+                nodeArgumentsResults.put(nodeArguments, (List<?>) RenderCache.copyValue(entry.getValue()));
+            }
+        }
+        for (Map.Entry<String, List<?>> entry : previousContext.renderResults.entrySet()) {
+            String nodePath = entry.getKey();
+            if (nodeMap.containsKey(nodePath) && !dirtyPaths.contains(nodePath)) {
+                renderResults.put(nodePath, (List<?>) RenderCache.copyValue(entry.getValue()));
+            }
+        }
+    }
+
     private Node getNodeForPath(String nodePath) {
         return nodeMap.get(nodePath);
     }
@@ -105,7 +192,15 @@ public final class NodeContext {
         }
     }
 
-    public List<?> renderNode(String nodePath, Map<Port, ?> argumentMap) {
+    public List<?> renderNode(final String nodePath, final Map<Port, ?> argumentMap) {
+        if (evaluationPool != null && !isInEvaluationPool()) {
+            return evaluationPool.invoke(new RecursiveTask<List<?>>() {
+                @Override
+                protected List<?> compute() {
+                    return renderNode(nodePath, argumentMap);
+                }
+            });
+        }
         checkNotNull(getNodeForPath(nodePath));
         checkNotNull(functionRepository);
 
@@ -157,7 +252,48 @@ public final class NodeContext {
         return renderChild(networkPath, child, Collections.<Port, Object>emptyMap());
     }
 
-    public List<?> renderChild(String networkPath, Node child, Map<Port, ?> networkArgumentMap) {
+    public List<?> renderChild(final String networkPath, final Node child, final Map<Port, ?> networkArgumentMap) {
+        if (evaluationPool == null) {
+            return evaluateChild(networkPath, child, networkArgumentMap);
+        } else if (!isInEvaluationPool()) {
+            return evaluationPool.invoke(new RecursiveTask<List<?>>() {
+                @Override
+                protected List<?> compute() {
+                    return renderChild(networkPath, child, networkArgumentMap);
+                }
+            });
+        }
+
+        // Make sure that a node that is needed by several branches at the same time is only evaluated once.
+        NodeArguments nodeArguments = new NodeArguments(networkPath, child.getName(), networkArgumentMap);
+        List<?> storedResults = nodeArgumentsResults.get(nodeArguments);
+        if (storedResults != null) return storedResults;
+        CompletableFuture<List<?>> future = new CompletableFuture<List<?>>();
+        CompletableFuture<List<?>> pendingFuture = pendingResults.putIfAbsent(nodeArguments, future);
+        if (pendingFuture != null) {
+            try {
+                return pendingFuture.join();
+            } catch (CompletionException e) {
+                Throwables.throwIfUnchecked(e.getCause());
+                throw new RuntimeException(e.getCause());
+            }
+        }
+        try {
+            List<?> results = evaluateChild(networkPath, child, networkArgumentMap);
+            future.complete(results);
+            return results;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } catch (Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            pendingResults.remove(nodeArguments);
+        }
+    }
+
+    private List<?> evaluateChild(String networkPath, Node child, Map<Port, ?> networkArgumentMap) {
         Node network = nodeMap.get(networkPath);
         NodeArguments nodeArguments = new NodeArguments(networkPath, child.getName(), networkArgumentMap);
 
@@ -175,8 +311,10 @@ public final class NodeContext {
             Map<Port, List<?>> portArguments = new LinkedHashMap<Port, List<?>>();
 
             // Evaluate the port data.
+            List<List<?>> portResults = evaluatePorts(networkPath, child, networkArgumentMap);
+            int portIndex = 0;
             for (Port port : child.getInputs()) {
-                List<?> result = evaluatePort(networkPath, child, port, networkArgumentMap);
+                List<?> result = portResults.get(portIndex++);
                 result = convertResultsForPort(port, result);
                 result = clampResultsForPort(port, result);
                 portArguments.put(port, result);
@@ -199,19 +337,86 @@ public final class NodeContext {
                 }
             }
 
-            // A prepared list of argument lists, each for one invocation of the child node.
-            Iterable<Map<Port, ?>> argumentMaps = buildArgumentMaps(portArguments);
-
             String childPath = getChildPath(networkPath, child.getName());
-            for (Map<Port, ?> argumentMap : argumentMaps) {
-                List<?> results = renderNode(childPath, argumentMap);
-                resultsList.addAll(results);
+            if (child.isNetwork()) {
+                // A prepared list of argument lists, each for one invocation of the child node.
+                Iterable<Map<Port, ?>> argumentMaps = buildArgumentMaps(portArguments);
+                for (Map<Port, ?> argumentMap : argumentMaps) {
+                    List<?> results = renderNode(childPath, argumentMap);
+                    resultsList.addAll(results);
+                }
+            } else {
+                resultsList.addAll(invokeChild(childPath, child, portArguments));
             }
         }
         nodeArgumentsResults.put(nodeArguments, resultsList);
         return resultsList;
     }
 
+    /**
+     * Invoke the function of the child node once for every set of arguments.
+     * <p/>
+     * This does the same as calling renderNode for every argument map, but passes the arguments to the function
+     * directly. If an evaluation pool is set and the function has no side effects, the invocations are split
+     * into chunks that run in parallel. The results are always returned in order.
+     *
+     * @param childPath        The path of the child node.
+     * @param child            The child node. This can't be a network.
+     * @param argumentsPerPort The list of values for every input port of the child.
+     * @return The combined results of all invocations.
+     */
+    private List<?> invokeChild(final String childPath, final Node child, final Map<Port, List<?>> argumentsPerPort) {
+        if (smallestArgumentList(argumentsPerPort) == 0) return ImmutableList.of();
+        final int invocations = biggestArgumentList(argumentsPerPort);
+        final List<Port> inputs = child.getInputs();
+        final List<List<?>> portValues = new ArrayList<List<?>>(inputs.size());
+        for (Port port : inputs) {
+            portValues.add(argumentsPerPort.get(port));
+        }
+
+        final List<?>[] invocationResults = new List<?>[invocations];
+        if (evaluationPool != null && invocations >= PARALLEL_INVOCATION_THRESHOLD && !isSerialized(child, functionRepository)) {
+            int chunkSize = Math.max(MINIMUM_CHUNK_SIZE, invocations / (evaluationPool.getParallelism() * 4));
+            List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+            for (int start = 0; start < invocations; start += chunkSize) {
+                final int from = start;
+                final int to = Math.min(start + chunkSize, invocations);
+                tasks.add(new RecursiveAction() {
+                    @Override
+                    protected void compute() {
+                        for (int i = from; i < to; i++) {
+                            invocationResults[i] = invokeChild(childPath, inputs, portValues, i);
+                        }
+                    }
+                });
+            }
+            ForkJoinTask.invokeAll(tasks);
+        } else {
+            for (int i = 0; i < invocations; i++) {
+                invocationResults[i] = invokeChild(childPath, inputs, portValues, i);
+            }
+        }
+        List<Object> results = new ArrayList<Object>();
+        for (List<?> r : invocationResults) {
+            results.addAll(r);
+        }
+        // Like renderNode, store the results of the last invocation.
+        renderResults.put(childPath, invocationResults[invocations - 1]);
+        return results;
+    }
+
+    private List<?> invokeChild(String childPath, List<Port> inputs, List<List<?>> portValues, int index) {
+        Object[] arguments = new Object[inputs.size()];
+        for (int i = 0; i < arguments.length; i++) {
+            if (inputs.get(i).hasListRange()) {
+                arguments[i] = portValues.get(i);
+            } else {
+                arguments[i] = wrappingGet(portValues.get(i), index);
+            }
+        }
+        return postProcessResult(childPath, invokeNode(childPath, arguments));
+    }
+
     private Object invokeNode(String nodePath, Map<Port, ?> argumentMap) {
         List<Port> inputs = nodeMap.get(nodePath).getInputs();
         Object[] arguments = new Object[inputs.size()];
@@ -235,7 +440,25 @@ public final class NodeContext {
     private Object invokeNode(String nodePath, Object[] arguments) {
         Node node = getNodeForPath(nodePath);
         Function function = functionRepository.getFunction(node.getFunction());
-        return invokeFunction(node, function, arguments);
+        if (renderCache == null) {
+            return invokeFunction(node, function, arguments);
+        } else if (!RenderCache.isCacheable(functionLibrary(node))) {
+            // The arguments can be results from the cache, and scripts are free to change them.
+            return invokeFunction(node, function, RenderCache.copyArguments(arguments));
+        } else if (!RenderCache.isCacheable(node)) {
+            return invokeFunction(node, function, arguments);
+        }
+        Object result = renderCache.getResult(node, function, arguments);
+        if (result == null) {
+            result = invokeFunction(node, function, arguments);
+            renderCache.putResult(node, function, arguments, result);
+        }
+        return result;
+    }
+
+    private FunctionLibrary functionLibrary(Node node) {
+        String identifier = node.getFunction();
+        return functionRepository.getLibrary(identifier.substring(0, identifier.indexOf('/')));
     }
 
     private List<?> convertResultsForPort(Port port, List<?> values) {
@@ -268,6 +491,100 @@ public final class NodeContext {
         return null;
     }
 
+    /**
+     * Evaluate all input ports of the child node.
+     * <p/>
+     * If an evaluation pool is set, the ports that are connected to branches without side effects are evaluated
+     * in parallel. The other ports are evaluated on the current thread.
+     *
+     * @return A list of results, one for each input port.
+     */
+    private List<List<?>> evaluatePorts(final String networkPath, final Node child, final Map<Port, ?> networkArgumentMap) {
+        List<Port> inputs = child.getInputs();
+        List<?>[] results = new List<?>[inputs.size()];
+        Map<Integer, ForkJoinTask<List<?>>> tasks = new LinkedHashMap<Integer, ForkJoinTask<List<?>>>();
+        if (evaluationPool != null && inputs.size() > 1) {
+            Node network = nodeMap.get(networkPath);
+            for (int i = 0; i < inputs.size(); i++) {
+                final Port port = inputs.get(i);
+                Node outputNode = findOutputNode(network, child, port);
+                if (outputNode != null && !isSerializedBranch(networkPath, outputNode)) {
+                    tasks.put(i, new RecursiveTask<List<?>>() {
+                        @Override
+                        protected List<?> compute() {
+                            return evaluatePort(networkPath, child, port, networkArgumentMap);
+                        }
+                    });
+                }
+            }
+            // Evaluating a single branch in parallel doesn't gain us anything.
+            if (tasks.size() < 2) {
+                tasks.clear();
+            }
+        }
+        for (ForkJoinTask<List<?>> task : tasks.values()) {
+            task.fork();
+        }
+        for (int i = 0; i < inputs.size(); i++) {
+            if (!tasks.containsKey(i)) {
+                results[i] = evaluatePort(networkPath, child, inputs.get(i), networkArgumentMap);
+            }
+        }
+        for (Map.Entry<Integer, ForkJoinTask<List<?>>> entry : tasks.entrySet()) {
+            results[entry.getKey()] = entry.getValue().join();
+        }
+        return Arrays.asList(results);
+    }
+
+    private boolean isInEvaluationPool() {
+        return ForkJoinTask.inForkJoinPool() && ForkJoinTask.getPool() == evaluationPool;
+    }
+
+    /**
+     * Check if the given node, or any node upstream of it, needs to be evaluated serially.
+     */
+    private boolean isSerializedBranch(String networkPath, Node node) {
+        String nodePath = getChildPath(networkPath, node.getName());
+        Boolean serialized = serializedNodes.get(nodePath);
+        if (serialized != null) return serialized;
+        serialized = isSerialized(node, functionRepository);
+        if (!serialized) {
+            Node network = nodeMap.get(networkPath);
+            for (Connection c : network.getConnections()) {
+                if (c.getInputNode().equals(node.getName())) {
+                    Node outputNode = network.getChild(c.getOutputNode());
+                    if (outputNode != null && isSerializedBranch(networkPath, outputNode)) {
+                        serialized = true;
+                        break;
+                    }
+                }
+            }
+        }
+        serializedNodes.put(nodePath, serialized);
+        return serialized;
+    }
+
+    /**
+     * Check if the node has side effects or calls into a scripting language that can't be used from multiple threads.
+     */
+    static boolean isSerialized(Node node, FunctionRepository functionRepository) {
+        if (node.isAlwaysRendered()) return true;
+        if (node.isNetwork()) {
+            for (Node child : node.getChildren()) {
+                if (isSerialized(child, functionRepository)) return true;
+            }
+            return false;
+        }
+        // Nodes without inputs are executed for their side effects.
+        if (node.getInputs().isEmpty()) return true;
+        String[] functionParts = node.getFunction().split("/");
+        if (functionParts.length != 2) return true;
+        String namespace = functionParts[0];
+        if (namespace.equals("device")) return true;
+        if (!functionRepository.hasLibrary(namespace)) return true;
+        return !functionRepository.getLibrary(namespace).getLanguage().equals("java");
+    }
+
     private List<?> evaluatePort(String networkPath, Node child, Port childPort, Map<Port, ?> networkArgumentMap) {
         Node outputNode = findOutputNode(nodeMap.get(networkPath), child, childPort);
         if (outputNode != null) {
@@ -0,0 +1,355 @@
+package nodebox.node;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableSet;
+import nodebox.function.CSVTable;
+import nodebox.function.Function;
+import nodebox.function.FunctionLibrary;
+import nodebox.function.FunctionRepository;
+import nodebox.graphics.Color;
+import nodebox.graphics.Geometry;
+import nodebox.graphics.Grob;
+import nodebox.graphics.Path;
+import nodebox.graphics.Point;
+import nodebox.graphics.Rect;
+
+import java.util.*;
+
+/**
+ * A bounded cache of function results that is kept between renders.
+ * <p/>
+ * A NodeContext only lives for a single render. Passing the same RenderCache to subsequent contexts
+ * allows nodes whose Node object, function and argument values are unchanged to skip invocation.
+ * <p/>
+ * Entries are keyed by the identity of the Node and Function objects. Because nodes are immutable,
+ * any change to a node creates a new Node object, so stale entries are never returned, they are simply
+ * evicted when the cache runs out of space.
+ * <p/>
+ * Numbers, strings, points, colors, rectangles and CSV tables are compared by value. Other arguments, such as paths
+ * and geometry, are compared by identity: the cache hands out the instance it stored, so a node downstream of a cache
+ * hit gets the same object as in the previous render, and hits the cache as well. The key only holds a stamp for
+ * these objects, so it doesn't keep them in memory. This relies on Java functions never changing their arguments or
+ * the results they returned. Functions written in other languages get copies of their arguments instead.
+ * <p/>
+ * Only the results of Java functions are cached. Python and Clojure functions are written by users and can have side
+ * effects or keep state, so they are invoked on every render. Results are only cached if they are made of values,
+ * grobs, lists and maps.
+ */
+public final class RenderCache {
+
+    public static final long DEFAULT_MAXIMUM_WEIGHT = 1000000;
+
+    /**
+     * Functions in these namespaces depend on the outside world (devices, network) and are never cached.
+     */
+    private static final ImmutableSet<String> UNCACHED_NAMESPACES = ImmutableSet.of("device", "network");
+
+    private final Cache<Key, Object> cache;
+    // A stamp for every object that was used as an argument, compared by identity.
+    // The objects are weakly held, so stamps of objects that are no longer used disappear.
+    private final Cache<Object, Object> stamps = CacheBuilder.newBuilder().weakKeys().build();
+
+    public RenderCache() {
+        this(DEFAULT_MAXIMUM_WEIGHT);
+    }
+
+    /**
+     * Create a render cache.
+     * <p/>
+     * The weight of an entry is the number of values held by its key and result, where every point and contour of
+     * a path counts as a value. So large geometry takes more space than single values.
+     *
+     * @param maximumWeight The total weight of all entries before the least recently used ones are evicted.
+     */
+    public RenderCache(long maximumWeight) {
+        cache = CacheBuilder.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher(new ResultWeigher())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Check if the results of the given node can be stored in the cache.
+     * <p/>
+     * Nodes are not cacheable if their output does not only depend on their input values:
+     * <ul>
+     * <li>Nodes without inputs are executed for their side effects.</li>
+     * <li>Nodes with a context port can look at the frame or device data.</li>
+     * <li>Nodes with a state port depend on the previous render.</li>
+     * <li>Nodes with a file port read a file that can change between renders.</li>
+     * <li>Always rendered nodes and device or network functions talk to the outside world.</li>
+     * </ul>
+     *
+     * @param node The node to check.
+     * @return true if the results of this node can be cached.
+     */
+    public static boolean isCacheable(Node node) {
+        if (node.isNetwork() || node.isAlwaysRendered()) return false;
+        if (node.getInputs().isEmpty()) return false;
+        String functionName = node.getFunction();
+        int slash = functionName.indexOf('/');
+        if (slash > 0 && UNCACHED_NAMESPACES.contains(functionName.substring(0, slash))) return false;
+        for (Port port : node.getInputs()) {
+            if (port.getType().equals(Port.TYPE_CONTEXT) || port.getType().equals(Port.TYPE_STATE)) return false;
+            if (port.isFileWidget()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Check if the results of functions in the given library can be stored in the cache.
+     *
+     * @param library The library of the function.
+     * @return true if the library is written in Java.
+     */
+    public static boolean isCacheable(FunctionLibrary library) {
+        return "java".equals(library.getLanguage());
+    }
+
+    /**
+     * Check if the results of the given node can be stored in the cache, looking at the node and its function library.
+     *
+     * @param node               The node to check.
+     * @param functionRepository The functions the node is rendered with.
+     * @return true if the node is cacheable and its function is written in Java.
+     */
+    public static boolean isCacheable(Node node, FunctionRepository functionRepository) {
+        if (!isCacheable(node)) return false;
+        String identifier = node.getFunction();
+        int slash = identifier.indexOf('/');
+        if (slash < 0 || !functionRepository.hasLibrary(identifier.substring(0, slash))) return false;
+        return isCacheable(functionRepository.getLibrary(identifier.substring(0, slash)));
+    }
+
+    /**
+     * Get the stored result of invoking the function of the given node with the given arguments.
+     * <p/>
+     * The result is the instance that was stored, so it should not be changed.
+     *
+     * @param node      The node that was invoked.
+     * @param function  The function of the node.
+     * @param arguments The argument values.
+     * @return The stored result, or null if the result is not in the cache.
+     */
+    public Object getResult(Node node, Function function, Object[] arguments) {
+        return cache.getIfPresent(new Key(node, function, tokens(arguments)));
+    }
+
+    /**
+     * Store the result of invoking the function of the given node with the given arguments.
+     * <p/>
+     * Null results and results of types the cache doesn't know are not stored.
+     *
+     * @param node      The node that was invoked.
+     * @param function  The function of the node.
+     * @param arguments The argument values.
+     * @param result    The result of the invocation.
+     */
+    public void putResult(Node node, Function function, Object[] arguments, Object result) {
+        if (!isCacheableResult(result)) return;
+        cache.put(new Key(node, function, tokens(arguments)), result);
+    }
+
+    /**
+     * Copy the arguments for a function that could change them.
+     * <p/>
+     * Grobs are cloned, and lists and maps holding grobs are copied. Other values are passed as they are.
+     *
+     * @param arguments The argument values.
+     * @return The copied arguments.
+     */
+    public static Object[] copyArguments(Object[] arguments) {
+        Object[] copies = new Object[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            copies[i] = copyValue(arguments[i]);
+        }
+        return copies;
+    }
+
+    /**
+     * Copy the value so changing the copy doesn't change the original.
+     *
+     * @return The copy, or the value itself if it has nothing that can be copied.
+     */
+    public static Object copyValue(Object value) {
+        if (value instanceof Grob) {
+            return ((Grob) value).clone();
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            List<Object> copy = new ArrayList<Object>(list.size());
+            boolean copied = false;
+            for (Object v : list) {
+                Object valueCopy = copyValue(v);
+                copied |= valueCopy != v;
+                copy.add(valueCopy);
+            }
+            return copied ? copy : value;
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            Map<Object, Object> copy = new LinkedHashMap<Object, Object>();
+            boolean copied = false;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                Object valueCopy = copyValue(entry.getValue());
+                copied |= valueCopy != entry.getValue();
+                copy.put(entry.getKey(), valueCopy);
+            }
+            return copied ? copy : value;
+        } else {
+            return value;
+        }
+    }
+
+    private static boolean isValue(Object o) {
+        return o instanceof String
+                || o instanceof Number
+                || o instanceof Boolean
+                || o instanceof Point
+                || o instanceof Color
+                || o instanceof Rect
+                || o instanceof CSVTable;
+    }
+
+    private static boolean isCacheableResult(Object result) {
+        if (result == null) {
+            return false;
+        } else if (isValue(result) || result instanceof Grob) {
+            return true;
+        } else if (result instanceof List) {
+            for (Object value : (List<?>) result) {
+                if (value != null && !isCacheableResult(value)) return false;
+            }
+            return true;
+        } else if (result instanceof Map) {
+            for (Object value : ((Map<?, ?>) result).values()) {
+                if (value != null && !isCacheableResult(value)) return false;
+            }
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    private Object[] tokens(Object[] arguments) {
+        Object[] tokens = new Object[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            tokens[i] = token(arguments[i]);
+        }
+        return tokens;
+    }
+
+    /**
+     * Get the value that stands for the argument in a key.
+     * <p/>
+     * Values are their own token, lists and maps are turned into lists and maps of tokens, and all other objects get
+     * a stamp that is only equal to itself.
+     */
+    private Object token(Object argument) {
+        if (argument == null || isValue(argument)) {
+            return argument;
+        } else if (argument instanceof List) {
+            List<?> list = (List<?>) argument;
+            List<Object> tokens = new ArrayList<Object>(list.size());
+            for (Object value : list) {
+                tokens.add(token(value));
+            }
+            return tokens;
+        } else if (argument instanceof Map) {
+            Map<Object, Object> tokens = new LinkedHashMap<Object, Object>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) argument).entrySet()) {
+                tokens.put(entry.getKey(), token(entry.getValue()));
+            }
+            return tokens;
+        } else {
+            Object stamp = stamps.getIfPresent(argument);
+            if (stamp == null) {
+                Object newStamp = new Object();
+                stamp = stamps.asMap().putIfAbsent(argument, newStamp);
+                if (stamp == null) {
+                    stamp = newStamp;
+                }
+            }
+            return stamp;
+        }
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Count the values held by an entry.
+     */
+    private static int weigh(Object o) {
+        if (o instanceof Path) {
+            Path path = (Path) o;
+            return 1 + path.getContours().size() + path.getPointCount();
+        } else if (o instanceof Geometry) {
+            long weight = 1;
+            for (Path path : ((Geometry) o).getPaths()) {
+                weight += weigh(path);
+            }
+            return (int) Math.min(weight, Integer.MAX_VALUE);
+        } else if (o instanceof Collection) {
+            long weight = 1;
+            for (Object value : (Collection<?>) o) {
+                weight += weigh(value);
+            }
+            return (int) Math.min(weight, Integer.MAX_VALUE);
+        } else if (o instanceof Map) {
+            return weigh(((Map<?, ?>) o).values());
+        } else if (o instanceof Object[]) {
+            return weigh(Arrays.asList((Object[]) o));
+        } else {
+            return 1;
+        }
+    }
+
+    private static final class ResultWeigher implements Weigher<Key, Object> {
+        @Override
+        public int weigh(Key key, Object result) {
+            return (int) Math.min((long) RenderCache.weigh(key.tokens) + RenderCache.weigh(result), Integer.MAX_VALUE);
+        }
+    }
+
+    private static final class Key {
+        private final Node node;
+        private final Function function;
+        private final Object[] tokens;
+        private final int hashCode;
+
+        private Key(Node node, Function function, Object[] tokens) {
+            this.node = node;
+            this.function = function;
+            this.tokens = tokens;
+            this.hashCode = 31 * (31 * System.identityHashCode(node) + System.identityHashCode(function)) + Arrays.hashCode(tokens);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            final Key other = (Key) o;
+            return node == other.node
+                    && function == other.function
+                    && hashCode == other.hashCode
+                    && Arrays.equals(tokens, other.tokens);
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+package nodebox.util;
+
+import java.util.Locale;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Formats doubles into a StringBuilder without going through a Formatter.
+ * <p/>
+ * The output is the same as the output of String.format and Double.toString, so switching a writer over doesn't
+ * change the files it writes. This matters when exporting large amounts of geometry, where formatting the
+ * coordinates is one of the main costs.
+ */
+public final class DoubleFormatter {
+
+    public static final int MAXIMUM_DECIMALS = 9;
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L
+    };
+
+    // Scaled values below this limit fit in a long with room to spare, and a double still has fractional bits.
+    private static final double FAST_PATH_LIMIT = 1e15;
+
+    private DoubleFormatter() {
+    }
+
+    /**
+     * Append the value with a fixed number of decimals.
+     * <p/>
+     * The output is the same as String.format(Locale.US, "%.2f", v) for two decimals: the value is rounded half up,
+     * and negative values that round to zero keep their sign.
+     *
+     * @param sb       The builder to append to.
+     * @param v        The value.
+     * @param decimals The number of decimals.
+     */
+    public static void appendFixed(StringBuilder sb, double v, int decimals) {
+        checkArgument(decimals >= 0, "The number of decimals can not be negative.");
+        if (decimals <= MAXIMUM_DECIMALS && !Double.isNaN(v) && !Double.isInfinite(v)) {
+            long scale = POWERS_OF_TEN[decimals];
+            double scaled = Math.abs(v) * scale;
+            if (scaled < FAST_PATH_LIMIT) {
+                long whole = (long) scaled;
+                double fraction = scaled - whole;
+                // The Formatter rounds the shortest decimal form of the value, while the scaled value can be a few
+                // units in the last place off. Both round the same way unless the value is close to a tie.
+                double margin = scaled * 1e-14 + 1e-12;
+                if (Math.abs(fraction - 0.5) > margin) {
+                    long rounded = fraction > 0.5 ? whole + 1 : whole;
+                    // This includes negative zero, like the Formatter.
+                    if (Double.compare(v, 0.0) < 0) {
+                        sb.append('-');
+                    }
+                    sb.append(rounded / scale);
+                    if (decimals > 0) {
+                        sb.append('.');
+                        appendPadded(sb, rounded % scale, decimals);
+                    }
+                    return;
+                }
+            }
+        }
+        sb.append(String.format(Locale.US, "%." + decimals + "f", v));
+    }
+
+    private static void appendPadded(StringBuilder sb, long value, int digits) {
+        for (int i = digits - 1; i > 0 && value < POWERS_OF_TEN[i]; i--) {
+            sb.append('0');
+        }
+        sb.append(value);
+    }
+
+    /**
+     * Format the value with a fixed number of decimals.
+     *
+     * @see #appendFixed(StringBuilder, double, int)
+     */
+    public static String formatFixed(double v, int decimals) {
+        StringBuilder sb = new StringBuilder(24);
+        appendFixed(sb, v, decimals);
+        return sb.toString();
+    }
+
+    /**
+     * Append whole numbers without decimals, and other values with a fixed number of decimals.
+     *
+     * @param sb       The builder to append to.
+     * @param v        The value.
+     * @param decimals The number of decimals for values that are not whole numbers.
+     */
+    public static void appendSmart(StringBuilder sb, double v, int decimals) {
+        if ((long) v == v) {
+            sb.append((long) v);
+        } else {
+            appendFixed(sb, v, decimals);
+        }
+    }
+
+    /**
+     * Format whole numbers without decimals, and other values with a fixed number of decimals.
+     *
+     * @see #appendSmart(StringBuilder, double, int)
+     */
+    public static String formatSmart(double v, int decimals) {
+        StringBuilder sb = new StringBuilder(24);
+        appendSmart(sb, v, decimals);
+        return sb.toString();
+    }
+
+    /**
+     * Append the shortest decimal form that reads back as the same value.
+     * <p/>
+     * The output is the same as Double.toString. The digits are written straight into the builder, without
+     * creating a String first.
+     *
+     * @param sb The builder to append to.
+     * @param v  The value.
+     */
+    public static void appendShortest(StringBuilder sb, double v) {
+        sb.append(v);
+    }
+
+}
@@ -0,0 +1,150 @@
+package nodebox;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import nodebox.function.FunctionRepository;
+import nodebox.function.MathFunctions;
+import nodebox.node.Node;
+import nodebox.node.NodeLibrary;
+import nodebox.node.NodeRepository;
+import nodebox.node.Port;
+import nodebox.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class RenderServerTest {
+
+    private File directory;
+    private File libraryFile;
+    private RenderServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = FileUtils.createTemporaryDirectory("render-server");
+        Node frame = Node.ROOT
+                .withName("frame1")
+                .withFunction("core/frame")
+                .withInputAdded(Port.customPort("context", "context"));
+        Node add = Node.ROOT
+                .withName("add1")
+                .withFunction("math/add")
+                .withInputAdded(Port.floatPort("v1", 0))
+                .withInputAdded(Port.floatPort("v2", 100));
+        Node net = Node.NETWORK
+                .withChildAdded(frame)
+                .withChildAdded(add)
+                .connect("frame1", "add1", "v1")
+                .withRenderedChildName("add1");
+        libraryFile = new File(directory, "test.ndbx");
+        NodeLibrary.create("test", net, FunctionRepository.of(MathFunctions.LIBRARY)).store(libraryFile);
+        server = new RenderServer(NodeRepository.of(), 2);
+    }
+
+    @After
+    public void tearDown() {
+        server.shutdown();
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Test
+    public void testRender() throws Exception {
+        List<File> files = server.render(ImmutableMap.of("file", libraryFile.getPath(), "format", "csv"));
+        File csvFile = new File(directory, "test.csv");
+        assertEquals(ImmutableList.of(csvFile), files);
+        assertTrue(FileUtils.readFile(csvFile).contains("101.0"));
+    }
+
+    @Test
+    public void testFramesAndOverrides() throws Exception {
+        String output = new File(directory, "out.csv").getPath();
+        List<File> files = server.render(ImmutableMap.of(
+                "file", libraryFile.getPath(),
+                "output", output,
+                "frames", ImmutableList.of(3, 4),
+                "overrides", ImmutableMap.of("add1.v2", 1000)));
+        assertEquals(2, files.size());
+        assertEquals(new File(directory, "out-00003.csv"), files.get(0));
+        assertTrue(FileUtils.readFile(files.get(0)).contains("1003.0"));
+        assertTrue(FileUtils.readFile(files.get(1)).contains("1004.0"));
+    }
+
+    @Test
+    public void testReloadChangedLibrary() throws Exception {
+        Map<String, ?> job = ImmutableMap.of("file", libraryFile.getPath(), "format", "csv");
+        server.render(job);
+        Node add = Node.ROOT
+                .withName("add1")
+                .withFunction("math/add")
+                .withInputAdded(Port.floatPort("v1", 42))
+                .withInputAdded(Port.floatPort("v2", 8));
+        NodeLibrary.create("test", add, FunctionRepository.of(MathFunctions.LIBRARY)).store(libraryFile);
+        // Make sure the modification time changes, even on file systems with a coarse resolution.
+        assertTrue(libraryFile.setLastModified(libraryFile.lastModified() + 2000));
+        List<File> files = server.render(job);
+        assertTrue(FileUtils.readFile(files.get(0)).contains("50.0"));
+    }
+
+    @Test
+    public void testErrors() {
+        Map<String, Object> response = server.handle(ImmutableMap.of("id", "missing", "file", new File(directory, "missing.ndbx").getPath()));
+        assertEquals("missing", response.get("id"));
+        assertEquals("error", response.get("status"));
+        response = server.handle(ImmutableMap.of("file", libraryFile.getPath(), "overrides", ImmutableMap.of("add1.v3", 1)));
+        assertEquals("error", response.get("status"));
+        assertEquals("Unknown port add1.v3.", response.get("message"));
+    }
+
+    @Test
+    public void testAmbiguousOverride() throws Exception {
+        Node add = Node.ROOT
+                .withName("add1")
+                .withFunction("math/add")
+                .withInputAdded(Port.floatPort("v1", 1))
+                .withInputAdded(Port.floatPort("v2", 2));
+        Node subnet = Node.NETWORK
+                .withName("subnet1")
+                .withChildAdded(add)
+                .withRenderedChildName("add1");
+        Node net = Node.NETWORK
+                .withChildAdded(add)
+                .withChildAdded(subnet)
+                .withRenderedChildName("add1");
+        NodeLibrary.create("test", net, FunctionRepository.of(MathFunctions.LIBRARY)).store(libraryFile);
+        Map<String, Object> response = server.handle(ImmutableMap.of("file", libraryFile.getPath(), "overrides", ImmutableMap.of("add1.v2", 1)));
+        assertEquals("error", response.get("status"));
+        assertEquals("Override add1.v2 matches more than one node. Give the nodes unique names.", response.get("message"));
+    }
+
+    @Test
+    public void testServe() throws Exception {
+        String path = libraryFile.getPath().replace("\\", "\\\\");
+        String jobs = "{\"id\": \"a\", \"file\": \"" + path + "\", \"format\": \"csv\"}\n" +
+                "\n" +
+                "not a job\n" +
+                "{\"id\": \"b\", \"file\": \"" + path + "\", \"output\": \"" + new File(directory, "b.csv").getPath().replace("\\", "\\\\") + "\"}\n";
+        StringWriter out = new StringWriter();
+        server.serve(new StringReader(jobs), out);
+        String[] responses = out.toString().split("\n");
+        assertEquals(3, responses.length);
+        JsonProvider jsonProvider = Configuration.defaultConfiguration().jsonProvider();
+        int ok = 0;
+        for (String response : responses) {
+            if ("ok".equals(((Map<?, ?>) jsonProvider.parse(response)).get("status"))) ok++;
+        }
+        assertEquals(2, ok);
+        assertTrue(new File(directory, "test.csv").exists());
+        assertTrue(new File(directory, "b.csv").exists());
+    }
+
+}
@@ -0,0 +1,137 @@
+package nodebox.client;
+
+import com.google.common.base.Strings;
+import nodebox.function.FunctionRepository;
+import nodebox.node.Node;
+import nodebox.node.NodeLibrary;
+import nodebox.node.Port;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class NodeLibraryUndoManagerTest {
+
+    private NodeLibraryUndoManager manager;
+
+    @After
+    public void tearDown() {
+        if (manager != null) {
+            manager.discardAllEdits();
+        }
+    }
+
+    @Test
+    public void testSharedNodesAreCountedOnce() {
+        manager = new NodeLibraryUndoManager(Long.MAX_VALUE);
+        NodeLibrary library = createLibrary(50, "");
+        addEdit(library);
+        long first = manager.getRetainedBytes();
+        assertTrue(first > 0);
+        addEdit(changeText(library, "node7", "changed"));
+        long second = manager.getRetainedBytes();
+        // Only the changed node, its port and the root are new.
+        assertTrue(second > first);
+        assertTrue(second - first < first / 10);
+        // The same library only counts once.
+        addEdit(library);
+        assertEquals(second, manager.getRetainedBytes());
+    }
+
+    @Test
+    public void testSpillOverBudget() {
+        String text = Strings.repeat("x", 100000);
+        NodeLibrary library = createLibrary(5, "");
+        List<NodeLibraryUndoableEdit> edits = new ArrayList<NodeLibraryUndoableEdit>();
+        List<NodeLibrary> libraries = new ArrayList<NodeLibrary>();
+        manager = new NodeLibraryUndoManager(1000000);
+        for (int i = 0; i < 20; i++) {
+            library = changeText(library, "node1", text + i);
+            libraries.add(library);
+            edits.add(addEdit(library));
+        }
+        assertTrue(manager.getRetainedBytes() <= manager.getMemoryBudget());
+        assertTrue(manager.getSpilledFileCount() > 0);
+        assertTrue(edits.get(0).getUndoState().isSpilled());
+        assertFalse(edits.get(19).getUndoState().isSpilled());
+        for (int i = 0; i < 20; i++) {
+            NodeLibrary restored = edits.get(i).getUndoState().getNodeLibrary();
+            assertEquals(libraries.get(i).getRoot(), restored.getRoot());
+            assertEquals(libraries.get(i).getName(), restored.getName());
+        }
+    }
+
+    @Test
+    public void testDiscardedStatesAreReleased() {
+        NodeLibrary library = createLibrary(5, "");
+        manager = new NodeLibraryUndoManager(200000);
+        for (int i = 0; i < 40; i++) {
+            library = changeText(library, "node1", Strings.repeat("y", 50000) + i);
+            addEdit(library);
+        }
+        assertTrue(manager.getSpilledFileCount() > 0);
+        manager.setLimit(2);
+        assertEquals(0, manager.getSpilledFileCount());
+        long retained = manager.getRetainedBytes();
+        manager.discardAllEdits();
+        assertTrue(retained > 0);
+        assertEquals(0, manager.getRetainedBytes());
+        assertEquals(0, manager.getSpilledFileCount());
+    }
+
+    @Test
+    public void testFailedSpillKeepsStatesInMemory() {
+        final AtomicInteger writes = new AtomicInteger();
+        SpilledStates failingStates = new SpilledStates() {
+            @Override
+            synchronized int write(NodeLibrary library) {
+                writes.incrementAndGet();
+                throw new RuntimeException("Could not write undo state: disk full");
+            }
+        };
+        NodeLibrary library = createLibrary(5, "");
+        List<NodeLibraryUndoableEdit> edits = new ArrayList<NodeLibraryUndoableEdit>();
+        List<NodeLibrary> libraries = new ArrayList<NodeLibrary>();
+        manager = new NodeLibraryUndoManager(200000, failingStates);
+        for (int i = 0; i < 10; i++) {
+            library = changeText(library, "node1", Strings.repeat("z", 50000) + i);
+            libraries.add(library);
+            edits.add(addEdit(library));
+        }
+        // Every edit is in the history, and spilling is only tried once.
+        assertEquals(10, edits.size());
+        assertTrue(manager.canUndo());
+        assertEquals(1, writes.get());
+        assertTrue(manager.getRetainedBytes() > manager.getMemoryBudget());
+        for (int i = 0; i < 10; i++) {
+            NodeLibraryUndoableEdit.UndoState state = edits.get(i).getUndoState();
+            assertFalse(state.isSpilled());
+            assertEquals(libraries.get(i).getRoot(), state.getNodeLibrary().getRoot());
+        }
+    }
+
+    private NodeLibraryUndoableEdit addEdit(NodeLibrary library) {
+        NodeLibraryUndoableEdit edit = new NodeLibraryUndoableEdit(null, "Change Value", new NodeLibraryUndoableEdit.UndoState(library, "/", null));
+        manager.addEdit(edit);
+        return edit;
+    }
+
+    private static NodeLibrary createLibrary(int nodeCount, String text) {
+        Node root = Node.NETWORK.withName("root");
+        for (int i = 0; i < nodeCount; i++) {
+            root = root.withChildAdded(Node.ROOT.withName("node" + i).withInputAdded(Port.stringPort("text", text)));
+        }
+        return NodeLibrary.create("test", root, FunctionRepository.of());
+    }
+
+    private static NodeLibrary changeText(NodeLibrary library, String nodeName, String text) {
+        Node root = library.getRoot();
+        Node node = root.getChild(nodeName).withInputValue("text", text);
+        return library.withRoot(root.withChildReplaced(nodeName, node));
+    }
+
+}
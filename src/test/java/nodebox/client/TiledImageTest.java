@@ -0,0 +1,138 @@
+package nodebox.client;
+
+import com.google.common.collect.ImmutableMap;
+import nodebox.graphics.Color;
+import nodebox.graphics.Geometry;
+import nodebox.graphics.Grob;
+import nodebox.graphics.Image;
+import nodebox.graphics.Path;
+import nodebox.graphics.Text;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TiledImageTest {
+
+    private static final Rectangle2D BOUNDS = new Rectangle2D.Double(-250, -150, 500, 300);
+
+    @Test
+    public void testSamePixels() {
+        List<Grob> grobs = makeGrobs();
+        BufferedImage expected = drawAtOnce(grobs, BOUNDS);
+        // A strip height that doesn't divide the image height leaves a shorter last strip.
+        TiledImage tiled = new TiledImage(grobs, BOUNDS, null, 4, 37);
+        try {
+            assertEquals(9, tiled.getNumYTiles());
+            assertSamePixels(expected.getRaster(), tiled.getData());
+            // Writers ask for single rows.
+            Raster row = tiled.getData(new Rectangle(0, 111, 500, 1));
+            assertEquals(111, row.getMinY());
+            assertArrayEquals(expected.getRaster().getPixels(0, 111, 500, 1, (int[]) null), row.getPixels(0, 111, 500, 1, (int[]) null));
+        } finally {
+            tiled.dispose();
+        }
+    }
+
+    @Test
+    public void testRenderTiledPNG() throws Exception {
+        // Lists of paths and geometry are drawn with the grob visualizer.
+        List<Grob> grobs = makeGrobs().subList(0, 300);
+        File fullFile = File.createTempFile("full", ".png");
+        File tiledFile = File.createTempFile("tiled", ".png");
+        try {
+            ObjectsRenderer.render(grobs, BOUNDS, fullFile, ImmutableMap.of("tiled", false));
+            ObjectsRenderer.render(grobs, BOUNDS, tiledFile, ImmutableMap.of("tiled", true));
+            BufferedImage full = ImageIO.read(fullFile);
+            BufferedImage tiled = ImageIO.read(tiledFile);
+            assertEquals(full.getWidth(), tiled.getWidth());
+            assertEquals(full.getHeight(), tiled.getHeight());
+            assertSamePixels(full.getRaster(), tiled.getRaster());
+        } finally {
+            fullFile.delete();
+            tiledFile.delete();
+        }
+    }
+
+    private static List<Grob> makeGrobs() {
+        Random random = new Random(42);
+        List<Grob> grobs = new ArrayList<Grob>();
+        for (int i = 0; i < 300; i++) {
+            Path p = new Path();
+            double x = random.nextDouble() * 600 - 300;
+            double y = random.nextDouble() * 400 - 200;
+            double size = random.nextDouble() * 80;
+            switch (i % 3) {
+                case 0:
+                    p.rect(x, y, size, size * 0.7);
+                    break;
+                case 1:
+                    p.ellipse(x, y, size, size * 1.3);
+                    break;
+                default:
+                    p.moveto(x, y);
+                    p.lineto(x + size, y + size * 0.3);
+                    p.lineto(x + size * 0.2, y + size * 1.5);
+                    p.close();
+            }
+            p.setFill(i % 5 == 0 ? null : new Color(random.nextDouble(), random.nextDouble(), random.nextDouble(), 0.7));
+            if (i % 4 == 0) {
+                p.setStroke(new Color(0.1, 0.2, 0.3));
+                p.setStrokeWidth(random.nextDouble() * 6);
+            }
+            if (i % 10 == 0) {
+                Geometry g = new Geometry();
+                g.add(p);
+                Path p2 = new Path();
+                p2.rect(x + 20, y + 20, 10.5, 10.5);
+                g.add(p2);
+                grobs.add(g);
+            } else {
+                grobs.add(p);
+            }
+        }
+        Text text = new Text("Tiles", -100, 10);
+        text.setFontSize(60);
+        grobs.add(text);
+        BufferedImage bi = new BufferedImage(40, 40, BufferedImage.TYPE_INT_ARGB);
+        bi.setRGB(5, 5, 0xff00ff00);
+        Image image = new Image(bi);
+        image.setX(30.5);
+        image.setY(-60.25);
+        image.rotate(30);
+        grobs.add(image);
+        return grobs;
+    }
+
+    private static BufferedImage drawAtOnce(List<Grob> grobs, Rectangle2D bounds) {
+        BufferedImage img = new BufferedImage((int) bounds.getWidth(), (int) bounds.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.translate(-bounds.getX(), -bounds.getY());
+        for (Grob grob : grobs) {
+            grob.draw(g);
+        }
+        g.dispose();
+        return img;
+    }
+
+    private static void assertSamePixels(Raster expected, Raster actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        int[] expectedPixels = expected.getPixels(0, 0, expected.getWidth(), expected.getHeight(), (int[]) null);
+        int[] actualPixels = actual.getPixels(0, 0, actual.getWidth(), actual.getHeight(), (int[]) null);
+        assertArrayEquals(expectedPixels, actualPixels);
+    }
+
+}
@@ -0,0 +1,116 @@
+package nodebox.function;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import nodebox.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CSVTableTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() {
+        directory = FileUtils.createTemporaryDirectory("csvtable");
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Test
+    public void testColumnTypes() throws IOException {
+        CSVTable table = read("name,x,mixed\nalpha,1,2\nbeta,2.5,b\nalpha,-3,4\n");
+        assertEquals(ImmutableList.of("name", "x", "mixed"), table.getColumnNames());
+        assertEquals(3, table.getRowCount());
+        assertFalse(table.isNumeric(0));
+        assertTrue(table.isNumeric(1));
+        assertFalse(table.isNumeric(2));
+        assertEquals(2.5, table.getValue(1, 1));
+        // The numbers before the text in the mixed column keep their original text.
+        assertEquals("2", table.getValue(0, 2));
+        assertEquals("b", table.getValue(1, 2));
+        assertSame(table.getValue(0, 0), table.getValue(2, 0));
+    }
+
+    @Test
+    public void testShortAndLongRows() throws IOException {
+        CSVTable table = read("a,b\n1,2\n3\n4,5,6\n");
+        assertEquals(ImmutableList.of("a", "b", "Column 3"), table.getColumnNames());
+        assertEquals(ImmutableMap.of("a", 1.0, "b", 2.0), table.get(0));
+        assertEquals(ImmutableMap.of("a", 3.0), table.get(1));
+        assertEquals(ImmutableMap.of("a", 4.0, "b", 5.0, "Column 3", 6.0), table.get(2));
+        assertFalse(table.get(1).containsKey("b"));
+        assertNull(table.get(1).get("b"));
+    }
+
+    @Test
+    public void testRowsAreMaps() throws IOException {
+        CSVTable table = read("name,value\nx,1\ny,2\n");
+        Map<String, Object> row = table.get(1);
+        assertEquals(ImmutableMap.of("name", "y", "value", 2.0), row);
+        assertEquals(ImmutableMap.of("name", "y", "value", 2.0).hashCode(), row.hashCode());
+        assertEquals(ImmutableList.of("name", "value"), ImmutableList.copyOf(row.keySet()));
+        assertEquals(2.0, DataFunctions.lookup(row, "value"));
+    }
+
+    @Test
+    public void testNumberLocale() throws IOException {
+        File file = write("a.csv", "x\n\"1,5\"\n2\n");
+        assertEquals(1.5, CSVTable.read(file, ',', '"', Locale.GERMANY).getValue(0, 0));
+        assertEquals(15.0, CSVTable.read(file, ',', '"', Locale.US).getValue(0, 0));
+    }
+
+    @Test
+    public void testImportCSVIsCached() throws IOException {
+        File file = write("cached.csv", "a\n1\n");
+        List<Map<String, Object>> first = DataFunctions.importCSV(file.getPath(), "comma", "double", "period");
+        assertSame(first, DataFunctions.importCSV(file.getPath(), "comma", "double", "period"));
+        assertNotSame(first, DataFunctions.importCSV(file.getPath(), "semicolon", "double", "period"));
+
+        write("cached.csv", "a\n1\n2\n");
+        file.setLastModified(file.lastModified() + 5000);
+        List<Map<String, Object>> changed = DataFunctions.importCSV(file.getPath(), "comma", "double", "period");
+        assertEquals(2, changed.size());
+    }
+
+    @Test
+    public void testEstimateBytes() throws IOException {
+        CSVTable numbers = read("x\n1\n2\n3\n4\n");
+        assertEquals(32, numbers.estimateBytes());
+        // Text columns store a code per row, and every distinct value once.
+        CSVTable text = read("name\nab\nab\nab\nab\n");
+        assertEquals(4 * 4 + 40 + 2 * 2, text.estimateBytes());
+    }
+
+    @Test
+    public void testFilterTable() throws IOException {
+        File file = write("filter.csv", "name,value\nx,1\ny,2\nz,3\n");
+        List<Map<String, Object>> rows = DataFunctions.importCSV(file.getPath(), "comma", "double", "period");
+        @SuppressWarnings("unchecked")
+        List<Object> filtered = DataFunctions.filterData((List) rows, "value", ">", 1.5);
+        assertEquals(ImmutableList.of(ImmutableMap.of("name", "y", "value", 2.0), ImmutableMap.of("name", "z", "value", 3.0)), filtered);
+    }
+
+    private CSVTable read(String contents) throws IOException {
+        return CSVTable.read(write("table.csv", contents), ',', '"', Locale.US);
+    }
+
+    private File write(String name, String contents) {
+        File file = new File(directory, name);
+        FileUtils.writeFile(file, contents);
+        return file;
+    }
+
+}
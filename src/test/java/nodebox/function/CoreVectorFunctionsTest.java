@@ -0,0 +1,196 @@
+package nodebox.function;
+
+import com.google.common.collect.ImmutableList;
+import nodebox.graphics.*;
+import org.junit.Test;
+
+import java.util.List;
+
+import static junit.framework.TestCase.*;
+import static nodebox.graphics.GraphicsTestUtils.assertPointEquals;
+
+public class CoreVectorFunctionsTest {
+
+    @Test
+    public void testCompound() {
+        Path r1 = rect(0, 0, 100, 100);
+        Path r2 = rect(50, 0, 100, 100);
+        assertEquals(new Rect(-50, -50, 150, 100), CoreVectorFunctions.compound(r1, r2, "united", false).getBounds());
+        assertEquals(new Rect(-50, -50, 50, 100), CoreVectorFunctions.compound(r1, r2, "subtracted", false).getBounds());
+        assertEquals(new Rect(50, -50, 50, 100), CoreVectorFunctions.compound(r1, r2, "subtracted", true).getBounds());
+        assertEquals(new Rect(0, -50, 50, 100), CoreVectorFunctions.compound(r1, r2, "intersected", false).getBounds());
+        assertEquals(r1.getBounds(), CoreVectorFunctions.compound(r1, null, "united", false).getBounds());
+        assertNull(CoreVectorFunctions.compound(null, r2, "united", false));
+        assertNull(CoreVectorFunctions.compound(r1, r2, "xor", false));
+    }
+
+    @Test
+    public void testDeletePoints() {
+        Path line = new Path();
+        line.line(0, 0, 100, 0);
+        line = line.resampleByAmount(11, false);
+        Path bounding = rect(50, 0, 30, 30);
+        Path deleted = (Path) CoreVectorFunctions.delete(line, bounding, "points", "selected");
+        assertEquals(8, deleted.getPointCount());
+        Path kept = (Path) CoreVectorFunctions.delete(line, bounding, "points", "non-selected");
+        assertEquals(3, kept.getPointCount());
+        assertPointEquals(40, 0, kept.getPoints().get(0));
+        assertPointEquals(60, 0, kept.getPoints().get(2));
+        List<?> points = (List<?>) CoreVectorFunctions.delete(line.getPoints(), bounding, "points", "selected");
+        assertEquals(8, points.size());
+        assertNull(CoreVectorFunctions.delete(line, bounding, "shapes", "selected"));
+    }
+
+    @Test
+    public void testDeletePaths() {
+        Geometry g = new Geometry();
+        g.add(rect(0, 0, 10, 10));
+        g.add(rect(100, 0, 10, 10));
+        g.add(rect(200, 0, 10, 10));
+        Path bounding = rect(100, 0, 50, 50);
+        Geometry deleted = (Geometry) CoreVectorFunctions.delete(g, bounding, "paths", "selected");
+        assertEquals(2, deleted.size());
+        Geometry kept = (Geometry) CoreVectorFunctions.delete(g, bounding, "paths", "non-selected");
+        assertEquals(1, kept.size());
+        assertEquals(new Rect(95, -5, 10, 10), kept.getBounds());
+    }
+
+    @Test
+    public void testDistribute() {
+        List<IGeometry> shapes = ImmutableList.<IGeometry>of(rect(0, 0, 10, 10), rect(90, 50, 10, 10), rect(20, 100, 10, 10));
+        List<IGeometry> distributed = CoreVectorFunctions.distribute(shapes, "left", "top");
+        assertEquals(new Rect(-5, -5, 10, 10), distributed.get(0).getBounds());
+        assertEquals(new Rect(85, 45, 10, 10), distributed.get(1).getBounds());
+        assertEquals(new Rect(40, 95, 10, 10), distributed.get(2).getBounds());
+        List<IGeometry> unchanged = CoreVectorFunctions.distribute(shapes, "none", "none");
+        assertEquals(3, unchanged.size());
+        assertEquals(shapes.get(2).getBounds(), unchanged.get(2).getBounds());
+        assertNotSame(shapes.get(2), unchanged.get(2));
+    }
+
+    @Test
+    public void testReflect() {
+        Path p = new Path();
+        p.line(10, 5, 20, 30);
+        Path reflected = (Path) CoreVectorFunctions.reflect(p, Point.ZERO, 90, false);
+        assertPointEquals(-10, 5, reflected.getPoints().get(0));
+        assertPointEquals(-20, 30, reflected.getPoints().get(1));
+        Geometry both = (Geometry) CoreVectorFunctions.reflect(p, new Point(0, 50), 0, true);
+        assertEquals(2, both.size());
+        // The original is copied, so changing the result doesn't change the input.
+        assertNotSame(p, both.getPaths().get(0));
+        assertPointEquals(10, 5, both.getPaths().get(0).getPoints().get(0));
+        assertPointEquals(10, 95, both.getPaths().get(1).getPoints().get(0));
+
+        // Every path of a geometry is followed by its reflection.
+        Path q = new Path();
+        q.line(50, 5, 60, 30);
+        Geometry g = new Geometry();
+        g.add(p);
+        g.add(q);
+        Geometry reflectedGroup = (Geometry) CoreVectorFunctions.reflect(g, Point.ZERO, 90, true);
+        assertEquals(4, reflectedGroup.size());
+        assertNotSame(p, reflectedGroup.getPaths().get(0));
+        assertPointEquals(10, 5, reflectedGroup.getPaths().get(0).getPoints().get(0));
+        assertPointEquals(-10, 5, reflectedGroup.getPaths().get(1).getPoints().get(0));
+        assertNotSame(q, reflectedGroup.getPaths().get(2));
+        assertPointEquals(50, 5, reflectedGroup.getPaths().get(2).getPoints().get(0));
+        assertPointEquals(-50, 5, reflectedGroup.getPaths().get(3).getPoints().get(0));
+    }
+
+    @Test
+    public void testResample() {
+        Path line = new Path();
+        line.line(0, 0, 100, 0);
+        assertEquals(11, CoreVectorFunctions.resample(line, "length", 10, 0, false).getPointCount());
+        assertEquals(5, CoreVectorFunctions.resample(line, "amount", 10, 5, false).getPointCount());
+    }
+
+    @Test
+    public void testScatter() {
+        Path ellipse = new Path();
+        ellipse.ellipse(0, 0, 100, 50);
+        List<Point> points = CoreVectorFunctions.scatter(ellipse, 100, 42);
+        assertEquals(100, points.size());
+        for (Point pt : points) {
+            assertTrue(ellipse.contains(pt));
+        }
+        assertEquals(points, CoreVectorFunctions.scatter(ellipse, 100, 42));
+        assertFalse(points.equals(CoreVectorFunctions.scatter(ellipse, 100, 43)));
+    }
+
+    @Test
+    public void testShapeOnPath() {
+        Path line = new Path();
+        line.line(0, 0, 100, 0);
+        Path shape = rect(0, 0, 2, 2);
+        List<IGeometry> shapes = CoreVectorFunctions.shapeOnPath(ImmutableList.<IGeometry>of(shape), line, 3, "leading", 20, 0, 0);
+        assertEquals(3, shapes.size());
+        assertEquals(new Rect(-1, -1, 2, 2), shapes.get(0).getBounds());
+        assertEquals(new Rect(19, -1, 2, 2), shapes.get(1).getBounds());
+        assertEquals(new Rect(39, -1, 2, 2), shapes.get(2).getBounds());
+        shapes = CoreVectorFunctions.shapeOnPath(ImmutableList.<IGeometry>of(shape), line, 5, "distributed", 20, 0, 0);
+        assertPointEquals(75, 0, shapes.get(3).getBounds().getCentroid());
+        assertTrue(CoreVectorFunctions.shapeOnPath(ImmutableList.<IGeometry>of(), line, 5, "leading", 20, 0, 0).isEmpty());
+    }
+
+    @Test
+    public void testStack() {
+        List<IGeometry> shapes = ImmutableList.<IGeometry>of(rect(0, 0, 10, 10), rect(50, 50, 20, 20), rect(-50, 0, 30, 30));
+        List<IGeometry> east = CoreVectorFunctions.stack(shapes, "e", 5);
+        assertEquals(new Rect(-5, -5, 10, 10), east.get(0).getBounds());
+        assertEquals(new Rect(10, 40, 20, 20), east.get(1).getBounds());
+        assertEquals(new Rect(35, -15, 30, 30), east.get(2).getBounds());
+        List<IGeometry> south = CoreVectorFunctions.stack(shapes, "s", 0);
+        assertEquals(new Rect(40, 5, 20, 20), south.get(1).getBounds());
+        try {
+            CoreVectorFunctions.stack(shapes, "x", 0);
+            fail("Should have thrown an IllegalArgumentException.");
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+    @Test
+    public void testTextOnPath() {
+        Path line = new Path();
+        line.line(0, 0, 1000, 0);
+        Path text = CoreVectorFunctions.textOnPath("hello", line, "Verdana", 24, "leading", 0, 0);
+        assertFalse(text.isEmpty());
+        // Each character is placed before its point on the path, so the text starts one character before the path.
+        Rect bounds = text.getBounds();
+        assertTrue(bounds.x < 0 && bounds.x > -24);
+        assertTrue(bounds.width < 100);
+        assertTrue(bounds.y + bounds.height <= 1);
+        assertTrue(CoreVectorFunctions.textOnPath("", line, "Verdana", 24, "leading", 0, 0).isEmpty());
+        assertNull(CoreVectorFunctions.textOnPath("hello", new Path(), "Verdana", 24, "leading", 0, 0));
+    }
+
+    @Test
+    public void testWiggle() {
+        Geometry g = new Geometry();
+        g.add(rect(0, 0, 10, 10));
+        g.add(rect(100, 0, 10, 10));
+        Geometry points = (Geometry) CoreVectorFunctions.wiggle(g, "points", new Point(5, 5), 0);
+        assertEquals(g.getPointCount(), points.getPointCount());
+        for (int i = 0; i < g.getPointCount(); i++) {
+            Point original = g.getPoints().get(i);
+            Point wiggled = points.getPoints().get(i);
+            assertTrue(Math.abs(original.x - wiggled.x) <= 5);
+            assertTrue(Math.abs(original.y - wiggled.y) <= 5);
+        }
+        assertEquals(points.getPoints(), ((Geometry) CoreVectorFunctions.wiggle(g, "points", new Point(5, 5), 0)).getPoints());
+
+        // Paths are moved as a whole, so their size doesn't change.
+        Geometry paths = (Geometry) CoreVectorFunctions.wiggle(g, "paths", new Point(5, 5), 0);
+        assertEquals(10.0, paths.getPaths().get(1).getBounds().width, 0.001);
+        assertNull(CoreVectorFunctions.wiggle(g, "shapes", new Point(5, 5), 0));
+        assertTrue(CoreVectorFunctions.wiggle(Point.ZERO, "points", new Point(5, 5), 0) instanceof Point);
+    }
+
+    private static Path rect(double x, double y, double width, double height) {
+        Path p = new Path();
+        p.rect(x, y, width, height);
+        return p;
+    }
+
+}
@@ -1,9 +1,11 @@
 package nodebox.function;
 
+import nodebox.graphics.Point;
 import nodebox.util.LoadException;
 import org.junit.Test;
 
 import java.io.File;
+import java.lang.reflect.InvocationTargetException;
 
 import static junit.framework.TestCase.*;
 
@@ -43,4 +45,39 @@ public class FunctionLibraryTest {
         String href = "java:nodebox.function.NonUniqueFunctions";
         FunctionLibrary javaLibrary = FunctionLibrary.load(href);
     }
+
+    @Test
+    public void testInvokeJava() throws Exception {
+        FunctionLibrary javaLibrary = FunctionLibrary.load("java:nodebox.function.MathFunctions");
+        assertEquals(5.0, javaLibrary.getFunction("add").invoke(2.0, 3.0));
+        // Arguments are unboxed and widened, like with reflection.
+        assertEquals(5.0, javaLibrary.getFunction("add").invoke(2, 3L));
+        Point pt = new Point(3, 4);
+        assertEquals("1, 2.0, a, " + pt, TestFunctions.LIBRARY.getFunction("allTypes").invoke(1, 2.0f, "a", pt));
+        assertNull(TestFunctions.LIBRARY.getFunction("makeNull").invoke(1.0));
+    }
+
+    @Test
+    public void testInvokeJavaErrors() throws Exception {
+        JavaLibrary library = JavaLibrary.ofClass("integer", Integer.class, "divideUnsigned");
+        Function divide = library.getFunction("divideUnsigned");
+        assertEquals(3, divide.invoke(7, 2));
+        try {
+            divide.invoke(7, 0);
+            fail("Should have thrown an InvocationTargetException.");
+        } catch (InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof ArithmeticException);
+        }
+        try {
+            divide.invoke(7, "x");
+            fail("Should have thrown an IllegalArgumentException.");
+        } catch (IllegalArgumentException ignored) {
+        }
+        try {
+            divide.invoke(7);
+            fail("Should have thrown an IllegalArgumentException.");
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
 }
@@ -0,0 +1,259 @@
+package nodebox.function;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import nodebox.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class HttpCacheTest {
+
+    private HttpServer server;
+    private String baseUrl;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger notModified = new AtomicInteger();
+    private volatile String body = "hello";
+    private volatile CountDownLatch gate;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", new StubHandler());
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @After
+    public void tearDown() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testCachedWithinRefreshTime() {
+        HttpCache cache = new HttpCache();
+        Map<String, Object> first = cache.get(baseUrl + "/a", null, null, 60);
+        assertEquals("hello", first.get("body"));
+        assertEquals(200, first.get("statusCode"));
+        assertSame(first, cache.get(baseUrl + "/a", null, null, 60));
+        assertEquals(1, hits.get());
+        cache.get(baseUrl + "/b", null, null, 60);
+        assertEquals(2, hits.get());
+    }
+
+    @Test
+    public void testCredentialsArePartOfTheKey() {
+        HttpCache cache = new HttpCache();
+        Map<String, Object> anonymous = cache.get(baseUrl + "/auth", null, null, 60);
+        Map<String, Object> alice = cache.get(baseUrl + "/auth", "alice", "secret", 60);
+        Map<String, Object> bob = cache.get(baseUrl + "/auth", "bob", "secret", 60);
+        assertEquals("anonymous", anonymous.get("body"));
+        assertEquals("Basic YWxpY2U6c2VjcmV0", alice.get("body"));
+        assertEquals("Basic Ym9iOnNlY3JldA==", bob.get("body"));
+        assertEquals(3, hits.get());
+    }
+
+    @Test
+    public void testConcurrentRequestsAreCoalesced() throws Exception {
+        final HttpCache cache = new HttpCache();
+        gate = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Map<String, Object>>> futures = new ArrayList<Future<Map<String, Object>>>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(new Callable<Map<String, Object>>() {
+                    public Map<String, Object> call() {
+                        return cache.get(baseUrl + "/slow", null, null, 60);
+                    }
+                }));
+            }
+            // Give every thread the time to ask for the response while the first request is held up.
+            Thread.sleep(200);
+            gate.countDown();
+            for (Future<Map<String, Object>> f : futures) {
+                assertEquals("hello", f.get(10, TimeUnit.SECONDS).get("body"));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, hits.get());
+        assertEquals(1, cache.getRequestCount());
+    }
+
+    @Test
+    public void testRevalidation() throws InterruptedException {
+        HttpCache cache = new HttpCache();
+        Map<String, Object> first = cache.get(baseUrl + "/etag", null, null, 0);
+        Thread.sleep(5);
+        Map<String, Object> second = cache.get(baseUrl + "/etag", null, null, 0);
+        assertEquals(2, hits.get());
+        assertEquals(1, notModified.get());
+        assertSame(first, second);
+        body = "changed";
+        Thread.sleep(5);
+        Map<String, Object> third = cache.get(baseUrl + "/etag", null, null, 0);
+        assertEquals("changed", third.get("body"));
+        assertEquals(1, notModified.get());
+    }
+
+    @Test
+    public void testEviction() {
+        HttpCache cache = new HttpCache(2, 1, TimeUnit.HOURS);
+        cache.get(baseUrl + "/a", null, null, 60);
+        cache.get(baseUrl + "/b", null, null, 60);
+        cache.get(baseUrl + "/c", null, null, 60);
+        assertEquals(2, cache.size());
+        cache.get(baseUrl + "/a", null, null, 60);
+        assertEquals(4, hits.get());
+    }
+
+    @Test
+    public void testPersistence() {
+        File directory = FileUtils.createTemporaryDirectory("http-cache");
+        try {
+            HttpCache cache = new HttpCache();
+            cache.setDirectory(directory);
+            Map<String, Object> response = cache.get(baseUrl + "/etag", null, null, 60);
+            assertEquals(1, directory.listFiles().length);
+
+            HttpCache restarted = new HttpCache();
+            restarted.setDirectory(directory);
+            Map<String, Object> restored = restarted.get(baseUrl + "/etag", null, null, 60);
+            assertEquals(response, restored);
+            assertEquals(1, hits.get());
+        } finally {
+            FileUtils.deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testCredentialsAreNotPersisted() {
+        File directory = FileUtils.createTemporaryDirectory("http-cache");
+        try {
+            HttpCache cache = new HttpCache();
+            cache.setDirectory(directory);
+            cache.get(baseUrl + "/auth", "alice", "secret", 60);
+            assertEquals(0, directory.listFiles().length);
+            // The response is still kept in memory.
+            cache.get(baseUrl + "/auth", "alice", "secret", 60);
+            assertEquals(1, hits.get());
+            // An anonymous response stored on disk is not given to a request with credentials.
+            cache.get(baseUrl + "/auth", null, null, 60);
+            HttpCache restarted = new HttpCache();
+            restarted.setDirectory(directory);
+            assertEquals("Basic YWxpY2U6c2VjcmV0", restarted.get(baseUrl + "/auth", "alice", "secret", 60).get("body"));
+            assertEquals(3, hits.get());
+        } finally {
+            FileUtils.deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testNetworkFailureIsCachedBriefly() throws Exception {
+        ServerSocket socket = new ServerSocket(0, 0, InetAddress.getLoopbackAddress());
+        String closedUrl = "http://127.0.0.1:" + socket.getLocalPort() + "/";
+        socket.close();
+        File directory = FileUtils.createTemporaryDirectory("http-cache");
+        try {
+            HttpCache cache = new HttpCache(10, 1, TimeUnit.HOURS, 200);
+            cache.setDirectory(directory);
+            assertEquals(408, cache.get(closedUrl, null, null, 60).get("statusCode"));
+            assertEquals(0, directory.listFiles().length);
+            // The failure is returned until the retry time has passed.
+            assertEquals(408, cache.get(closedUrl, null, null, 60).get("statusCode"));
+            assertEquals(1, cache.getRequestCount());
+            Thread.sleep(250);
+            cache.get(closedUrl, null, null, 60);
+            assertEquals(2, cache.getRequestCount());
+        } finally {
+            FileUtils.deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testStaleResponseIsKeptOnFailure() throws Exception {
+        File directory = FileUtils.createTemporaryDirectory("http-cache");
+        try {
+            HttpCache cache = new HttpCache(10, 1, TimeUnit.HOURS, 200);
+            cache.setDirectory(directory);
+            Map<String, Object> response = cache.get(baseUrl + "/a", null, null, 0);
+            server.stop(0);
+            server = null;
+            Thread.sleep(5);
+            assertSame(response, cache.get(baseUrl + "/a", null, null, 0));
+            assertEquals(2, cache.getRequestCount());
+            assertSame(response, cache.get(baseUrl + "/a", null, null, 0));
+            assertEquals(2, cache.getRequestCount());
+            Thread.sleep(250);
+            assertSame(response, cache.get(baseUrl + "/a", null, null, 0));
+            assertEquals(3, cache.getRequestCount());
+            // The good response stays on disk.
+            HttpCache restarted = new HttpCache();
+            restarted.setDirectory(directory);
+            assertEquals(response, restarted.get(baseUrl + "/a", null, null, 60));
+        } finally {
+            FileUtils.deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testHttpGet() {
+        NetworkFunctions.responseCache.invalidateAll();
+        Map<String, Object> response = NetworkFunctions.httpGet(baseUrl + "/json", null, null, 60);
+        assertEquals("hello", response.get("body"));
+        assertEquals(response, NetworkFunctions.httpGet(baseUrl + "/json", null, null, 60));
+        assertEquals(1, hits.get());
+    }
+
+    private class StubHandler implements HttpHandler {
+        public void handle(HttpExchange exchange) throws IOException {
+            hits.incrementAndGet();
+            String path = exchange.getRequestURI().getPath();
+            String responseBody = body;
+            if (path.equals("/slow") && gate != null) {
+                try {
+                    gate.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            } else if (path.equals("/auth")) {
+                String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+                responseBody = authorization == null ? "anonymous" : authorization;
+            } else if (path.equals("/etag")) {
+                String eTag = "\"" + responseBody.hashCode() + "\"";
+                exchange.getResponseHeaders().set("ETag", eTag);
+                if (eTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    notModified.incrementAndGet();
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+            }
+            byte[] bytes = responseBody.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(bytes);
+            out.close();
+        }
+    }
+
+}
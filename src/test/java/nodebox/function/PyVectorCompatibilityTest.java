@@ -0,0 +1,198 @@
+package nodebox.function;
+
+import com.google.common.collect.ImmutableList;
+import nodebox.graphics.*;
+import org.junit.Test;
+
+import java.util.List;
+
+import static junit.framework.TestCase.*;
+
+/**
+ * Check that the Java versions of the corevector functions give the same results as the old Python versions
+ * in pyvector.py.
+ */
+public class PyVectorCompatibilityTest {
+
+    private final FunctionLibrary pyvector = PythonLibrary.loadScript("pyvector", "libraries/corevector/pyvector.py");
+
+    @Test
+    public void testCompound() throws Exception {
+        Geometry g = new Geometry();
+        g.add(rect(0, 0, 100, 100));
+        g.add(rect(80, 0, 40, 40));
+        Path ellipse = ellipse(50, 50, 100, 60);
+        for (String function : ImmutableList.of("united", "subtracted", "intersected")) {
+            assertSameResult(python("compound", g, ellipse, function, false),
+                    CoreVectorFunctions.compound(g, ellipse, function, false));
+            assertSameResult(python("compound", g, ellipse, function, true),
+                    CoreVectorFunctions.compound(g, ellipse, function, true));
+        }
+    }
+
+    @Test
+    public void testDelete() throws Exception {
+        Geometry g = new Geometry();
+        g.add(ellipse(0, 0, 100, 100).resampleByAmount(40, false));
+        g.add(rect(150, 0, 30, 30));
+        Path bounding = rect(40, 0, 200, 50);
+        for (String scope : ImmutableList.of("points", "paths")) {
+            for (String operation : ImmutableList.of("selected", "non-selected")) {
+                assertSameResult(python("delete", g, bounding, scope, operation),
+                        CoreVectorFunctions.delete(g, bounding, scope, operation));
+            }
+        }
+    }
+
+    @Test
+    public void testDistribute() throws Exception {
+        List<IGeometry> shapes = ImmutableList.<IGeometry>of(rect(0, 0, 10, 10), rect(90, 50, 20, 10),
+                rect(20, 100, 10, 30), rect(-40, 30, 5, 5), rect(35, -20, 10, 10));
+        for (String horizontal : ImmutableList.of("none", "left", "center", "right")) {
+            for (String vertical : ImmutableList.of("none", "top", "middle", "bottom")) {
+                assertSameResult(python("distribute", shapes, horizontal, vertical),
+                        CoreVectorFunctions.distribute(shapes, horizontal, vertical));
+            }
+        }
+    }
+
+    @Test
+    public void testReflect() throws Exception {
+        Path star = star();
+        Point position = new Point(20, 30);
+        assertSameResult(python("reflect", star, position, 120.0, true),
+                CoreVectorFunctions.reflect(star, position, 120, true));
+        assertSameResult(python("reflect", star, position, 33.0, false),
+                CoreVectorFunctions.reflect(star, position, 33, false));
+        // Geometry is reflected path by path, so the order of the paths matches too.
+        Geometry g = new Geometry();
+        g.add(star);
+        g.add(rect(60, 10, 30, 20));
+        g.add(ellipse(-40, 0, 20, 40));
+        assertSameResult(python("reflect", g, position, 120.0, true),
+                CoreVectorFunctions.reflect(g, position, 120, true));
+        assertSameResult(python("reflect", g, position, 33.0, false),
+                CoreVectorFunctions.reflect(g, position, 33, false));
+    }
+
+    @Test
+    public void testResample() throws Exception {
+        Path star = star();
+        assertSameResult(python("resample", star, "length", 7.0, 10L, false),
+                CoreVectorFunctions.resample(star, "length", 7, 10, false));
+        assertSameResult(python("resample", star, "amount", 7.0, 33L, true),
+                CoreVectorFunctions.resample(star, "amount", 7, 33, true));
+    }
+
+    @Test
+    public void testScatter() throws Exception {
+        Path star = star();
+        for (long seed : new long[]{0, 1, 42, -7}) {
+            assertSameResult(python("scatter", star, 50L, seed), CoreVectorFunctions.scatter(star, 50, seed));
+        }
+    }
+
+    @Test
+    public void testShapeOnPath() throws Exception {
+        List<IGeometry> shapes = ImmutableList.<IGeometry>of(rect(0, 0, 10, 10), ellipse(0, 0, 10, 20));
+        Path path = ellipse(0, 0, 300, 200);
+        for (String alignment : ImmutableList.of("leading", "trailing", "distributed")) {
+            assertSameResult(python("shape_on_path", shapes, path, 5L, alignment, 20.0, 10.0, 5.0),
+                    CoreVectorFunctions.shapeOnPath(shapes, path, 5, alignment, 20, 10, 5));
+        }
+    }
+
+    @Test
+    public void testStack() throws Exception {
+        List<IGeometry> shapes = ImmutableList.<IGeometry>of(rect(0, 0, 10, 10), ellipse(50, 50, 20, 40), star());
+        for (String direction : ImmutableList.of("n", "e", "s", "w")) {
+            assertSameResult(python("stack", shapes, direction, 5.0),
+                    CoreVectorFunctions.stack(shapes, direction, 5));
+        }
+    }
+
+    @Test
+    public void testTextOnPath() throws Exception {
+        Path path = ellipse(0, 0, 300, 200);
+        for (String alignment : ImmutableList.of("leading", "trailing")) {
+            assertSameResult(python("text_on_path", "text following a path", path, "Verdana", 24.0, alignment, 10.0, 3.0),
+                    CoreVectorFunctions.textOnPath("text following a path", path, "Verdana", 24, alignment, 10, 3));
+        }
+    }
+
+    @Test
+    public void testWiggle() throws Exception {
+        Geometry g = new Geometry();
+        g.add(star());
+        g.add(rect(100, 0, 10, 10));
+        Point offset = new Point(10, 20);
+        for (String scope : ImmutableList.of("points", "contours", "paths")) {
+            assertSameResult(python("wiggle", g, scope, offset, 3L), CoreVectorFunctions.wiggle(g, scope, offset, 3));
+        }
+        List<Point> points = g.getPoints();
+        assertSameResult(python("wiggle", points, "points", offset, 5L), CoreVectorFunctions.wiggle(points, "points", offset, 5));
+    }
+
+    private Object python(String functionName, Object... args) throws Exception {
+        return pyvector.getFunction(functionName).invoke(args);
+    }
+
+    private static void assertSameResult(Object expected, Object actual) {
+        if (expected == null) {
+            assertNull(actual);
+        } else if (expected instanceof List) {
+            List<?> expectedList = (List<?>) expected;
+            List<?> actualList = (List<?>) actual;
+            assertEquals(expectedList.size(), actualList.size());
+            for (int i = 0; i < expectedList.size(); i++) {
+                assertSameResult(expectedList.get(i), actualList.get(i));
+            }
+        } else if (expected instanceof Geometry) {
+            assertTrue(actual instanceof Geometry);
+            assertSameResult(((Geometry) expected).getPaths(), ((Geometry) actual).getPaths());
+        } else if (expected instanceof Path) {
+            assertTrue(actual instanceof Path);
+            Path expectedPath = (Path) expected;
+            Path actualPath = (Path) actual;
+            assertEquals(expectedPath.getFillColor(), actualPath.getFillColor());
+            assertEquals(expectedPath.getStrokeColor(), actualPath.getStrokeColor());
+            assertSameResult(expectedPath.getContours(), actualPath.getContours());
+        } else if (expected instanceof Contour) {
+            assertEquals(((Contour) expected).isClosed(), ((Contour) actual).isClosed());
+            assertSameResult(((Contour) expected).getPoints(), ((Contour) actual).getPoints());
+        } else if (expected instanceof Point) {
+            Point expectedPoint = (Point) expected;
+            Point actualPoint = (Point) actual;
+            assertEquals(expectedPoint.x, actualPoint.x, 1e-9);
+            assertEquals(expectedPoint.y, actualPoint.y, 1e-9);
+            assertEquals(expectedPoint.type, actualPoint.type);
+        } else {
+            assertEquals(expected, actual);
+        }
+    }
+
+    private static Path rect(double x, double y, double width, double height) {
+        Path p = new Path();
+        p.rect(x, y, width, height);
+        return p;
+    }
+
+    private static Path ellipse(double x, double y, double width, double height) {
+        Path p = new Path();
+        p.ellipse(x, y, width, height);
+        return p;
+    }
+
+    private static Path star() {
+        Path p = new Path();
+        p.moveto(0, 50);
+        for (int i = 1; i < 10; i++) {
+            double angle = i * Math.PI / 5;
+            double radius = i % 2 == 1 ? 25 : 50;
+            p.lineto(radius * Math.sin(angle), radius * Math.cos(angle));
+        }
+        p.close();
+        return p;
+    }
+
+}
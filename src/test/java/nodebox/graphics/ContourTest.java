@@ -2,7 +2,12 @@ package nodebox.graphics;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static junit.framework.TestCase.*;
 import static nodebox.graphics.GraphicsTestUtils.addRect;
@@ -34,6 +39,50 @@ public class ContourTest {
         //assertEquals(new Point(150, 0), c2.pointAt(1.5));
     }
 
+    @Test
+    public void testPointAtClosingSegment() {
+        Contour c = new Contour();
+        c.addPoint(0, 0);
+        c.addPoint(SIDE, 0);
+        c.addPoint(SIDE, SIDE);
+        c.addPoint(0, SIDE);
+        c.close();
+        assertEquals(SIDE * 4, c.getLength());
+        assertPointEquals(SIDE, SIDE / 2, c.pointAt(0.375));
+        assertPointEquals(0, SIDE / 2, c.pointAt(0.875));
+        assertPointEquals(0, 0, c.pointAt(1));
+    }
+
+    @Test
+    public void testPointAtZeroLengthSegment() {
+        Contour c = new Contour();
+        c.addPoint(0, 0);
+        c.addPoint(0, 0);
+        c.addPoint(100, 0);
+        assertPointEquals(0, 0, c.pointAt(0));
+        assertPointEquals(50, 0, c.pointAt(0.5));
+    }
+
+    @Test
+    public void testPointsAt() {
+        Contour c = new Contour();
+        for (int i = 0; i <= 10000; i++) {
+            c.addPoint(i, i % 2 == 0 ? 0 : 1);
+        }
+        double[] ts = new double[10000];
+        for (int i = 0; i < ts.length; i++) {
+            ts[i] = i / (ts.length - 1.0);
+        }
+        Point[] points = c.pointsAt(ts);
+        assertEquals(ts.length, points.length);
+        for (int i = 0; i < ts.length; i += 997) {
+            assertEquals(c.pointAt(ts[i]), points[i]);
+        }
+        assertPointEquals(0, 0, points[0]);
+        assertPointEquals(5000, 0, c.pointAt(0.5));
+        assertPointEquals(10000, 0, points[ts.length - 1]);
+    }
+
     @Test
     public void testPointAtEmptyPath() {
         Contour c = new Contour();
@@ -238,6 +287,117 @@ public class ContourTest {
         assertEquals(new Rect(), r);
     }
 
+    @Test
+    public void testNegativeBounds() {
+        Contour c = new Contour();
+        c.addPoint(-10, -20);
+        c.addPoint(-30, -5);
+        assertEquals(new Rect(-30, -20, 20, 15), c.getBounds());
+    }
+
+    /**
+     * The bounds are cached, but every change to the contour updates them.
+     */
+    @Test
+    public void testCachedBounds() {
+        Contour c = new Contour();
+        c.addPoint(0, 0);
+        c.addPoint(10, 20);
+        assertSame(c.getBounds(), c.getBounds());
+        c.addPoint(-5, 0);
+        assertEquals(new Rect(-5, 0, 15, 20), c.getBounds());
+        c.getPoints().set(1, new Point(10, 50));
+        assertEquals(new Rect(-5, 0, 15, 50), c.getBounds());
+        Transform t = new Transform();
+        t.translate(5, 0);
+        c.transform(t);
+        assertEquals(new Rect(0, 0, 15, 50), c.getBounds());
+        assertEquals(new Rect(0, 0, 15, 50), c.clone().getBounds());
+    }
+
+    /**
+     * The points list is a live view: changes to the list change the contour.
+     */
+    @Test
+    public void testPointsView() {
+        Contour c = new Contour();
+        c.addPoint(0, 0);
+        c.addPoint(100, 0);
+        List<Point> points = c.getPoints();
+        assertEquals(100.0, c.getLength());
+        points.add(new Point(100, 100));
+        assertEquals(3, c.getPointCount());
+        assertEquals(200.0, c.getLength());
+        points.set(2, new Point(100, 50, Point.LINE_TO));
+        assertEquals(150.0, c.getLength());
+        assertEquals(new Point(100, 0), points.remove(1));
+        assertEquals(2, c.getPointCount());
+        assertPointEquals(100, 50, c.getPoints().get(1));
+        assertEquals(new Point(100, 50), points.get(1));
+    }
+
+    @Test
+    public void testCopyFromPoints() {
+        Contour c1 = new Contour();
+        c1.addPoint(new Point(0, 0, Point.LINE_TO));
+        c1.addPoint(new Point(10, 0, Point.CURVE_DATA));
+        c1.addPoint(new Point(20, 0, Point.CURVE_DATA));
+        c1.addPoint(new Point(30, 0, Point.CURVE_TO));
+        Contour c2 = new Contour(c1.getPoints(), true);
+        c1.addPoint(50, 50);
+        assertEquals(4, c2.getPointCount());
+        assertEquals(c1.getPoints().subList(0, 4), c2.getPoints());
+        assertTrue(c2.isClosed());
+    }
+
+    @Test
+    public void testTransform() {
+        Contour c = new Contour();
+        c.addPoint(new Point(10, 20, Point.LINE_TO));
+        c.addPoint(new Point(30, 40, Point.LINE_TO));
+        double length = c.getLength();
+        Transform t = new Transform();
+        t.translate(5, -5);
+        t.scale(2);
+        c.transform(t);
+        assertEquals(new Point(25, 35, Point.LINE_TO), c.getPoints().get(0));
+        assertEquals(new Point(65, 75, Point.LINE_TO), c.getPoints().get(1));
+        assertEquals(length * 2, c.getLength(), 0.0001);
+    }
+
+    @Test
+    public void testConcurrentReaders() throws Exception {
+        // Shared results are read from several threads, which compute the lazy caches at the same time.
+        final Geometry g = new Geometry();
+        for (int i = 0; i < 20; i++) {
+            Path p = new Path();
+            p.ellipse(i * 10, 0, 10, 10);
+            g.add(p);
+        }
+        final double expected = g.getLength();
+        final Point expectedPoint = g.pointAt(0.5);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int round = 0; round < 200; round++) {
+                g.invalidate();
+                List<Future<Point>> futures = new ArrayList<Future<Point>>();
+                for (int i = 0; i < 4; i++) {
+                    futures.add(executor.submit(new Callable<Point>() {
+                        public Point call() {
+                            assertEquals(expected, g.getLength(), 0.0001);
+                            return g.pointAt(0.5);
+                        }
+                    }));
+                }
+                for (Future<Point> f : futures) {
+                    assertPointEquals(expectedPoint.x, expectedPoint.y, f.get());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     private void assertRectPoints(IGeometry g, double x, double y, double width, double height) {
         assertEquals(4, g.getPointCount());
         List<Point> points = g.getPoints();
@@ -49,6 +49,40 @@ public class GeometryTest {
         assertEquals(r, g2.getBounds());
     }
 
+    @Test
+    public void testCachedBounds() {
+        Geometry g = new Geometry();
+        Path empty = new Path();
+        g.add(empty);
+        assertEquals(new Rect(), g.getBounds());
+        Path p1 = new Path();
+        p1.rect(10, 20, 30, 40);
+        g.add(p1);
+        Rect r1 = Rect.centeredRect(10, 20, 30, 40);
+        assertEquals(r1, g.getBounds());
+        assertSame(g.getBounds(), g.getBounds());
+        // Adding a path extends the cached bounds.
+        Path p2 = new Path();
+        p2.rect(100, 200, 10, 10);
+        g.add(p2);
+        Rect r2 = r1.united(Rect.centeredRect(100, 200, 10, 10));
+        assertEquals(r2, g.getBounds());
+        g.add(new Path());
+        assertEquals(r2, g.getBounds());
+        Geometry g2 = new Geometry();
+        g2.extend(g);
+        assertEquals(r2, g2.getBounds());
+        assertEquals(r2, g.clone().getBounds());
+        // Changing a path directly requires invalidating the geometry.
+        Transform t = new Transform();
+        t.translate(1000, 0);
+        p2.transform(t);
+        g.invalidate();
+        assertEquals(r1.united(Rect.centeredRect(1100, 200, 10, 10)), g.getBounds());
+        g.clear();
+        assertEquals(new Rect(), g.getBounds());
+    }
+
     /**
      * Check if a contour is empty.
      */
@@ -169,11 +203,10 @@ public class GeometryTest {
         assertEquals(50.0, g.getLength());
         // Change the Path after it was added to the Geometry.
         p1.line(50, 0, 75, 0);
-        // This change is not detected by the Geometry, and thus the length is not updated.
-        assertEquals(50.0, g.getLength());
-        // Manually invalidate the group.
+        // The Geometry sees that the path changed, and updates the length.
+        assertEquals(75.0, g.getLength());
+        // Manually invalidating the group gives the same length.
         g.invalidate();
-        // This time, the length is correct.
         assertEquals(75.0, g.getLength());
     }
 
@@ -189,4 +222,101 @@ public class GeometryTest {
         assertEquals(200.0, g.getLength());
     }
 
+    /**
+     * Large groups use a spatial index for hit testing. Check that it gives the same answers.
+     */
+    @Test
+    public void testContainsWithIndex() {
+        Geometry g = gridOfRects(10, 10);
+        assertTrue(g.getPaths().size() >= Geometry.SPATIAL_INDEX_THRESHOLD);
+        assertTrue(g.contains(5, 5));
+        assertTrue(g.contains(new Point(85, 45)));
+        assertFalse(g.contains(15, 5));
+        assertFalse(g.contains(-5, -5));
+        assertFalse(g.contains(500, 500));
+        assertTrue(g.contains(new Rect(41, 41, 8, 8)));
+        assertFalse(g.contains(new Rect(5, 5, 20, 20)));
+    }
+
+    @Test
+    public void testIntersectsWithIndex() {
+        Geometry g = gridOfRects(10, 10);
+        Path inside = new Path();
+        inside.rect(45, 45, 4, 4);
+        assertTrue(g.intersects(inside));
+        Path between = new Path();
+        between.rect(15, 15, 4, 4);
+        assertFalse(g.intersects(between));
+        Geometry other = new Geometry();
+        other.add(between);
+        assertFalse(g.intersects(other));
+        other.add(inside);
+        assertTrue(g.intersects(other));
+        assertTrue(other.intersects(g));
+    }
+
+    /**
+     * Changing the paths in place and invalidating the geometry should rebuild the index.
+     */
+    @Test
+    public void testIndexInvalidation() {
+        Geometry g = gridOfRects(10, 10);
+        assertFalse(g.contains(1005, 1005));
+        Transform t = new Transform();
+        t.translate(1000, 1000);
+        g.getPaths().get(0).transform(t);
+        g.invalidate();
+        assertTrue(g.contains(1005, 1005));
+        assertFalse(g.contains(5, 5));
+        Path p = new Path();
+        p.rect(-500, -500, 10, 10);
+        g.add(p);
+        assertTrue(g.contains(-500, -500));
+    }
+
+    /**
+     * Create a grid of squares of 10 by 10, placed 20 units apart.
+     */
+    private static Geometry gridOfRects(int columns, int rows) {
+        Geometry g = new Geometry();
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < columns; x++) {
+                Path p = new Path();
+                p.rect(x * 20 + 5, y * 20 + 5, 10, 10);
+                g.add(p);
+            }
+        }
+        return g;
+    }
+
+    @Test
+    public void testChangingAddedPath() {
+        Geometry g = new Geometry();
+        Path p = new Path();
+        p.rect(0, 0, 10, 10);
+        g.add(p);
+        assertEquals(new Rect(-5, -5, 10, 10), g.getBounds());
+        double length = g.getLength();
+        p.transform(Transform.translated(100, 0));
+        assertEquals(new Rect(95, -5, 10, 10), g.getBounds());
+        p.rect(0, 0, 10, 10);
+        assertEquals(new Rect(-5, -5, 110, 10), g.getBounds());
+        assertEquals(length * 2, g.getLength(), 0.001);
+    }
+
+    @Test
+    public void testChangingIndexedPath() {
+        Geometry g = new Geometry();
+        Path last = null;
+        for (int i = 0; i < Geometry.SPATIAL_INDEX_THRESHOLD * 2; i++) {
+            last = new Path();
+            last.rect(i * 20, 0, 10, 10);
+            g.add(last);
+        }
+        assertTrue(g.contains(last.getBounds().getCentroid()));
+        assertFalse(g.contains(1000, 1000));
+        last.transform(Transform.translated(1000 - last.getBounds().getCentroid().x, 1000));
+        assertTrue(g.contains(1000, 1000));
+    }
+
 }
@@ -0,0 +1,119 @@
+package nodebox.graphics;
+
+import nodebox.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class ImageCacheTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = FileUtils.createTemporaryDirectory("imagecache");
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Test
+    public void testCachesDecodedImage() throws IOException {
+        ImageCache cache = new ImageCache(1000000);
+        File file = writeImage("a.png", 20, 10);
+        BufferedImage first = cache.read(file);
+        assertEquals(20, first.getWidth());
+        assertSame(first, cache.read(file));
+        assertSame(first, cache.read(new File(directory, "../" + directory.getName() + "/a.png")));
+        assertEquals(1, cache.stats().missCount());
+        assertEquals(2, cache.stats().hitCount());
+    }
+
+    @Test
+    public void testChangedFileIsReadAgain() throws IOException {
+        ImageCache cache = new ImageCache(1000000);
+        File file = writeImage("a.png", 20, 10);
+        BufferedImage first = cache.read(file);
+        writeImage("a.png", 30, 10);
+        file.setLastModified(file.lastModified() + 5000);
+        BufferedImage second = cache.read(file);
+        assertNotSame(first, second);
+        assertEquals(30, second.getWidth());
+        // The old version is no longer kept.
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testEviction() throws IOException {
+        // Every 100x100 ARGB image takes 40000 bytes.
+        ImageCache cache = new ImageCache(100000);
+        File a = writeImage("a.png", 100, 100);
+        File b = writeImage("b.png", 100, 100);
+        File c = writeImage("c.png", 100, 100);
+        cache.read(a);
+        cache.read(b);
+        cache.read(a);
+        cache.read(c);
+        assertEquals(2, cache.size());
+        long misses = cache.stats().missCount();
+        // b was used the longest time ago.
+        cache.read(a);
+        cache.read(c);
+        assertEquals(misses, cache.stats().missCount());
+        cache.read(b);
+        assertEquals(misses + 1, cache.stats().missCount());
+    }
+
+    @Test
+    public void testScaledDown() throws IOException {
+        ImageCache cache = new ImageCache(1000000);
+        File file = writeImage("a.png", 400, 100);
+        BufferedImage small = cache.read(file, 50);
+        assertEquals(50, small.getWidth());
+        assertEquals(13, small.getHeight());
+        assertSame(small, cache.read(file, 50));
+        assertEquals(400, cache.read(file).getWidth());
+        // Small images are not scaled up.
+        assertEquals(400, cache.read(file, 1000).getWidth());
+    }
+
+    @Test
+    public void testUnreadableFiles() throws IOException {
+        ImageCache cache = new ImageCache(1000000);
+        File text = new File(directory, "a.txt");
+        FileUtils.writeFile(text, "not an image");
+        assertNull(cache.read(text));
+        try {
+            cache.read(new File(directory, "missing.png"));
+            fail("Missing files should throw an error.");
+        } catch (IOException ignored) {
+        }
+    }
+
+    @Test
+    public void testImagesShareCachedPixels() throws IOException {
+        File file = writeImage("shared.png", 20, 10);
+        Image a = new Image(file);
+        Image b = new Image(file);
+        assertSame(a.getAwtImage(), b.getAwtImage());
+        assertEquals(20.0, a.getWidth(), 0);
+    }
+
+    private File writeImage(String name, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, 0xffff0000);
+        File file = new File(directory, name);
+        ImageIO.write(image, "png", file);
+        return file;
+    }
+
+}
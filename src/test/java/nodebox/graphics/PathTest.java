@@ -28,6 +28,22 @@ public class PathTest {
         assertEquals(Rect.centeredRect(10, 20, 30, 40), p.getBounds());
     }
 
+    @Test
+    public void testPointsViewIsReadOnly() {
+        Path p = new Path();
+        p.rect(10, 20, 30, 40);
+        Rect bounds = p.getBounds();
+        double length = p.getLength();
+        try {
+            p.getPoints().set(0, new Point(100, 100));
+            fail("The points view should not be modifiable.");
+        } catch (UnsupportedOperationException ignored) {
+        }
+        assertEquals(bounds, p.getBounds());
+        assertEquals(length, p.getLength());
+        assertPointEquals(-5, 0, p.getPoints().get(0));
+    }
+
 //    public void testTranslatePoints() {
 //        Path p = new Path();
 //        p.rect(10, 20, 30, 40);
@@ -146,6 +162,72 @@ public class PathTest {
         assertPointEquals(100, 0, p.pointAt(1.0));
     }
 
+    @Test
+    public void testPointsAtMultipleContours() {
+        Path p = new Path();
+        p.line(0, 0, 100, 0);
+        p.line(0, 100, 300, 100);
+        double[] ts = {-0.1, 0, 0.125, 0.25, 0.5, 1, 1.25};
+        Point[] points = p.pointsAt(ts);
+        assertPointEquals(-40, 0, points[0]);
+        assertPointEquals(0, 0, points[1]);
+        assertPointEquals(50, 0, points[2]);
+        assertPointEquals(100, 0, points[3]);
+        assertPointEquals(100, 100, points[4]);
+        assertPointEquals(300, 100, points[5]);
+        assertPointEquals(400, 100, points[6]);
+        assertSame(p.getContours().get(1), p.contourAt(0.5));
+        assertNull(p.contourAt(1.1));
+    }
+
+    /**
+     * Compare the adaptive curve length with a brute-force reference and with the fixed 20-step approximation.
+     */
+    @Test
+    public void testCurveLengthAccuracy() {
+        double[][] curves = {
+                {0, 0, 0, 0, 1, 1, 1, 1},
+                {0, 0, 0, 55.2, 44.8, 100, 100, 100},
+                {0, 0, 2000, 0, -1000, 1500, 1000, 1000},
+                {0, 0, 100, 100, 0, 100, 100, 0},
+                {0, 0, 300, 0, 0, 0, 300, 0},
+                {10, 10, 10, 10, 10, 10, 10, 10}};
+        for (double[] c : curves) {
+            double reference = Path.curveLength(c[0], c[1], c[2], c[3], c[4], c[5], c[6], c[7], 100000);
+            double fixed = Path.curveLength(c[0], c[1], c[2], c[3], c[4], c[5], c[6], c[7], 20);
+            double adaptive = Path.curveLength(c[0], c[1], c[2], c[3], c[4], c[5], c[6], c[7]);
+            assertEquals(reference, adaptive, 0.01);
+            assertTrue(Math.abs(adaptive - reference) <= Math.abs(fixed - reference) + 0.0001);
+            double coarse = Path.adaptiveCurveLength(c[0], c[1], c[2], c[3], c[4], c[5], c[6], c[7], 1);
+            assertEquals(reference, coarse, 1.0);
+        }
+    }
+
+    @Test
+    public void testFlattened() {
+        Path p = new Path();
+        p.ellipse(0, 0, 100, 100);
+        p.rect(200, 0, 50, 50);
+        Path flat = p.flattened();
+        assertEquals(p.getContours().size(), flat.getContours().size());
+        for (Point pt : flat.getPoints()) {
+            assertTrue(pt.isLineTo());
+        }
+        assertEquals(p.getLength(), flat.getLength(), 0.5);
+        Rect bounds = p.getBounds();
+        Rect flatBounds = flat.getBounds();
+        assertEquals(bounds.x, flatBounds.x, Path.DEFAULT_FLATNESS);
+        assertEquals(bounds.width, flatBounds.width, Path.DEFAULT_FLATNESS * 2);
+        // The rectangle has no curves, so it is unchanged.
+        assertEquals(p.getContours().get(1).getPoints(), flat.getContours().get(1).getPoints());
+        // A coarser flatness gives fewer points.
+        assertTrue(p.flattened(5).getPointCount() < flat.getPointCount());
+        // The original path is unchanged.
+        assertTrue(p.getPoints().get(1).isCurveData());
+        p.flatten();
+        assertEquals(flat.getPoints(), p.getPoints());
+    }
+
     public void testContour() {
         final double SIDE = 50;
         Point[] points;
@@ -0,0 +1,98 @@
+package nodebox.graphics;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PointCursorTest {
+
+    @Test
+    public void testEmpty() {
+        assertFalse(new Contour().pointCursor().next());
+        assertFalse(new Path().pointCursor().next());
+        assertFalse(new Geometry().pointCursor().next());
+        Geometry g = new Geometry();
+        g.add(new Path());
+        assertFalse(g.pointCursor().next());
+        assertEquals(0, g.getPoints().size());
+    }
+
+    @Test
+    public void testCursor() {
+        Geometry g = makeGeometry();
+        List<Point> points = new ArrayList<Point>();
+        PointCursor cursor = g.pointCursor();
+        while (cursor.next()) {
+            assertEquals(points.size(), cursor.getIndex());
+            points.add(cursor.getPoint());
+        }
+        assertEquals(g.getPointCount(), points.size());
+        assertEquals(new Point(1, 2), points.get(0));
+        assertEquals(new Point(5, 6), points.get(2));
+        assertEquals(new Point(7, 8, Point.CURVE_DATA), points.get(3));
+        assertEquals(new Point(20, 30), points.get(6));
+    }
+
+    @Test
+    public void testContourPointIndex() {
+        PointCursor cursor = makeGeometry().pointCursor();
+        int[] expected = {0, 1, 2, 0, 1, 2, 0};
+        for (int i : expected) {
+            assertTrue(cursor.next());
+            assertEquals(i, cursor.getContourPointIndex());
+        }
+        assertEquals(Point.LINE_TO, cursor.getType());
+        assertTrue(cursor.isOnCurve());
+        assertEquals(20, cursor.getX(), 0);
+        assertEquals(30, cursor.getY(), 0);
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    public void testPointView() {
+        Geometry g = makeGeometry();
+        List<Point> points = g.getPoints();
+        assertEquals(7, points.size());
+        // Random access goes back and forth between contours.
+        assertEquals(new Point(20, 30), points.get(6));
+        assertEquals(new Point(1, 2), points.get(0));
+        assertEquals(new Point(9, 10, Point.CURVE_DATA), points.get(4));
+        List<Point> copy = new ArrayList<Point>(points);
+        assertEquals(copy, g.getPoints());
+        assertEquals(copy.subList(0, 6), g.getPaths().get(1).getPoints());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testPointViewIsReadOnly() {
+        makeGeometry().getPoints().set(5, new Point(100, 200, Point.CURVE_TO));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testOutOfBounds() {
+        makeGeometry().getPoints().get(7);
+    }
+
+    private static Geometry makeGeometry() {
+        Path p1 = new Path();
+        p1.addPoint(1, 2);
+        p1.addPoint(3, 4);
+        p1.addPoint(5, 6);
+        p1.add(new Contour());
+        Contour c = new Contour();
+        c.addPoint(new Point(7, 8, Point.CURVE_DATA));
+        c.addPoint(new Point(9, 10, Point.CURVE_DATA));
+        c.addPoint(new Point(11, 12, Point.CURVE_TO));
+        p1.add(c);
+        Path p2 = new Path();
+        p2.addPoint(20, 30);
+        Geometry g = new Geometry();
+        g.add(new Path());
+        g.add(p1);
+        g.add(p2);
+        return g;
+    }
+
+}
@@ -0,0 +1,160 @@
+package nodebox.graphics;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.awt.geom.Area;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PolygonClipperTest {
+
+    @Test
+    public void testUnion() {
+        Path united = cornerRect(0, 0, 100, 100).united(cornerRect(50, 50, 100, 100));
+        assertEquals(new Rect(0, 0, 150, 150), united.getBounds());
+        assertEquals(1, united.getContours().size());
+        assertEquals(8, united.getPointCount());
+        assertTrue(united.contains(120, 120));
+        assertFalse(united.contains(120, 20));
+    }
+
+    @Test
+    public void testTouchingEdges() {
+        Path united = cornerRect(0, 0, 100, 100).united(cornerRect(100, 0, 100, 100));
+        assertEquals(1, united.getContours().size());
+        assertEquals(4, united.getPointCount());
+        assertEquals(new Rect(0, 0, 200, 100), united.getBounds());
+        assertTrue(cornerRect(0, 0, 100, 100).intersected(cornerRect(100, 0, 100, 100)).isEmpty());
+        assertFalse(cornerRect(0, 0, 100, 100).intersects(cornerRect(100, 0, 100, 100)));
+        assertTrue(cornerRect(0, 0, 100, 100).intersects(cornerRect(99, 0, 100, 100)));
+    }
+
+    @Test
+    public void testHoles() {
+        Path subtracted = cornerRect(0, 0, 100, 100).subtracted(cornerRect(25, 25, 50, 50));
+        assertEquals(2, subtracted.getContours().size());
+        assertFalse(subtracted.contains(50, 50));
+        assertTrue(subtracted.contains(10, 50));
+        // Filling the hole gives back the original rectangle.
+        Path filled = subtracted.united(cornerRect(25, 25, 50, 50));
+        assertEquals(1, filled.getContours().size());
+        assertEquals(4, filled.getPointCount());
+    }
+
+    /**
+     * The operations use the non-zero winding rule, so the center of a self-intersecting star is filled.
+     */
+    @Test
+    public void testSelfIntersecting() {
+        Path star = new Path();
+        for (int i = 0; i < 5; i++) {
+            double angle = i * Math.PI * 4 / 5;
+            star.addPoint(Math.sin(angle) * 100, -Math.cos(angle) * 100);
+        }
+        star.close();
+        Path normalized = star.united(new Path());
+        assertTrue(normalized.contains(0, 0));
+        assertEquals(1, normalized.getContours().size());
+        assertEquals(10, normalized.getPointCount());
+        assertSameArea(new Area(star.getGeneralPath()), normalized);
+    }
+
+    @Test
+    public void testRandomPolygons() {
+        Random random = new Random(42);
+        for (int i = 0; i < 20; i++) {
+            Path p1 = randomPolygon(random);
+            Path p2 = randomPolygon(random);
+            Area a1 = new Area(p1.getGeneralPath());
+            Area a2 = new Area(p2.getGeneralPath());
+            Area united = new Area(a1);
+            united.add(a2);
+            assertSameArea(united, p1.united(p2));
+            Area subtracted = new Area(a1);
+            subtracted.subtract(a2);
+            assertSameArea(subtracted, p1.subtracted(p2));
+            Area intersected = new Area(a1);
+            intersected.intersect(a2);
+            assertSameArea(intersected, p1.intersected(p2));
+            assertEquals(!intersected.isEmpty(), p1.intersects(p2));
+        }
+    }
+
+    @Test
+    public void testCurves() {
+        Path circle = new Path();
+        circle.ellipse(50, 50, 100, 100);
+        Path square = cornerRect(0, 0, 100, 100);
+        // The circle touches the sides of the square, so four separate corners remain.
+        Path corners = square.subtracted(circle);
+        assertEquals(4, corners.getContours().size());
+        assertTrue(corners.contains(1, 1));
+        assertFalse(corners.contains(50, 50));
+        Rect bounds = square.intersected(circle).getBounds();
+        assertEquals(0, bounds.x, 0.001);
+        assertEquals(100, bounds.width, 0.001);
+    }
+
+    @Test
+    public void testUnionOfMany() {
+        List<Path> paths = new ArrayList<Path>();
+        Random random = new Random(7);
+        for (int i = 0; i < 50; i++) {
+            paths.add(randomPolygon(random));
+        }
+        Area expected = new Area();
+        Path pairwise = new Path();
+        for (Path p : paths) {
+            expected.add(new Area(p.getGeneralPath()));
+            pairwise = pairwise.united(p);
+        }
+        Path united = Path.union(paths);
+        assertSameArea(expected, united);
+        assertSameArea(expected, pairwise);
+        assertTrue(Path.union(ImmutableList.<Path>of()).isEmpty());
+    }
+
+    @Test
+    public void testSimplify() {
+        double[] xs = {0, 5, 10, 10, 10, 0};
+        double[] ys = {0, 0, 0, 5, 10, 10};
+        assertEquals(4, PolygonClipper.simplify(xs, ys, 6, 1e-9));
+        assertArrayEquals(new double[]{0, 10, 10, 0}, new double[]{xs[0], xs[1], xs[2], xs[3]}, 0);
+        // Points going back and forth along a line have no area.
+        assertEquals(2, PolygonClipper.simplify(new double[]{0, 5, 10}, new double[]{0, 0, 0}, 3, 1e-9));
+    }
+
+    private static Path cornerRect(double x, double y, double width, double height) {
+        Path p = new Path();
+        p.rect(x + width / 2, y + height / 2, width, height);
+        return p;
+    }
+
+    private static Path randomPolygon(Random random) {
+        Path p = new Path();
+        int points = 3 + random.nextInt(8);
+        for (int i = 0; i < points; i++) {
+            p.addPoint(random.nextInt(100), random.nextInt(100));
+        }
+        p.close();
+        return p;
+    }
+
+    /**
+     * Compare the result to the area calculated by java.awt.geom.Area on a grid of sample points.
+     */
+    private static void assertSameArea(Area expected, Path actual) {
+        for (int y = 0; y < 100; y++) {
+            for (int x = 0; x < 100; x++) {
+                double px = x + 0.3719;
+                double py = y + 0.6173;
+                assertEquals("Point " + px + "," + py, expected.contains(px, py), actual.contains(px, py));
+            }
+        }
+    }
+
+}
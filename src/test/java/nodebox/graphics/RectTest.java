@@ -41,6 +41,9 @@ public class RectTest {
     public void testIntersects() {
         assertFalse(new Rect(0, 0, 20, 20).intersects(new Rect(100, 100, 20, 20)));
         assertTrue(new Rect(0, 0, 20, 20).intersects(new Rect(0, 0, 20, 20)));
+        assertTrue(new Rect(100, 100, 20, 20).intersects(new Rect(110, 90, 20, 20)));
+        assertFalse(new Rect(100, 0, 20, 20).intersects(new Rect(0, 0, 20, 20)));
+        assertFalse(new Rect(0, 0, 20, 20).intersects(new Rect(5, 50, 10, 10)));
     }
 
     @Test
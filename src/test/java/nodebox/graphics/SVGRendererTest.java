@@ -2,9 +2,12 @@ package nodebox.graphics;
 
 
 import com.google.common.collect.ImmutableList;
+import nodebox.util.FileUtils;
 import org.junit.Test;
 
 import java.awt.geom.Rectangle2D;
+import java.io.File;
+import java.io.StringWriter;
 
 import static nodebox.graphics.SVGRenderer.*;
 import static org.junit.Assert.assertEquals;
@@ -44,6 +47,45 @@ public class SVGRendererTest {
                 "</svg>", svg);
     }
 
+    @Test
+    public void testStreamMatchesElements() throws Exception {
+        Path p1 = new Path();
+        p1.rect(10, 20, 30, 40);
+        p1.setFill(null);
+        p1.setStroke(new Color("#ff0000"));
+        p1.setStrokeWidth(2.5);
+        Path p2 = new Path();
+        p2.ellipse(0, 0, 10, 10);
+        p2.setFill(new Color("#334455"));
+        Geometry g = new Geometry();
+        g.add(p1);
+        g.add(p2);
+        Path p3 = new Path();
+        p3.line(1, 2, 3, 4);
+        ImmutableList<?> objects = ImmutableList.of(g, p3, new Geometry());
+        Rectangle2D bounds = new Rectangle2D.Double(-10, 5, 100.5, 200);
+
+        StringWriter writer = new StringWriter();
+        renderSVG(objects, bounds, writer);
+        assertEquals(XML_DECLARATION + renderSVG(objects, bounds).toString(4, 0), writer.toString());
+        assertEquals(writer.toString(), renderToString(objects, bounds));
+    }
+
+    @Test
+    public void testRenderToFile() throws Exception {
+        Path p = new Path();
+        p.line(10, 20, 30, 40);
+        ImmutableList<Path> objects = ImmutableList.of(p);
+        Rectangle2D bounds = new Rectangle2D.Float(0, 0, 800, 600);
+        File file = File.createTempFile("svg", ".svg");
+        try {
+            renderToFile(objects, bounds, file);
+            assertEquals(renderToString(objects, bounds) + "\n", FileUtils.readFile(file));
+        } finally {
+            file.delete();
+        }
+    }
+
     private void assertElementEquals(String expected, SVGRenderer.Element el) {
         assertEquals(expected, el.toString());
     }
@@ -0,0 +1,88 @@
+package nodebox.graphics;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class SpatialIndexTest {
+
+    @Test
+    public void testItemsAt() {
+        SpatialIndex index = new SpatialIndex(ImmutableList.of(
+                new Rect(0, 0, 10, 10),
+                new Rect(5, 5, 10, 10),
+                new Rect(100, 100, 10, 10)));
+        assertArrayEquals(new int[]{0}, index.itemsAt(1, 1));
+        assertArrayEquals(new int[]{0, 1}, index.itemsAt(7, 7));
+        assertArrayEquals(new int[]{2}, index.itemsAt(110, 110));
+        assertArrayEquals(new int[0], index.itemsAt(50, 50));
+        assertArrayEquals(new int[0], index.itemsAt(-1, 0));
+    }
+
+    @Test
+    public void testItemsIntersecting() {
+        List<Rect> bounds = new ArrayList<Rect>();
+        for (int i = 0; i < 100; i++) {
+            bounds.add(new Rect(i * 10, 0, 5, 5));
+        }
+        SpatialIndex index = new SpatialIndex(bounds);
+        assertEquals(100, index.size());
+        assertArrayEquals(new int[]{2, 3, 4}, index.itemsIntersecting(new Rect(22, 2, 20, 1)));
+        // Negative sizes are normalized.
+        assertArrayEquals(new int[]{2, 3, 4}, index.itemsIntersecting(new Rect(42, 3, -20, -1)));
+        assertArrayEquals(new int[0], index.itemsIntersecting(new Rect(6, 0, 3, 5)));
+        assertEquals(100, index.itemsIntersecting(new Rect(-1000, -1000, 3000, 3000)).length);
+    }
+
+    /**
+     * Boxes with NaN coordinates can't be placed, so they are returned by every query.
+     */
+    @Test
+    public void testDegenerateBounds() {
+        SpatialIndex empty = new SpatialIndex(ImmutableList.<Rect>of());
+        assertArrayEquals(new int[0], empty.itemsAt(0, 0));
+        SpatialIndex index = new SpatialIndex(ImmutableList.of(
+                new Rect(Double.NaN, 0, 10, 10),
+                new Rect(3, 3, 0, 0)));
+        assertArrayEquals(new int[]{0, 1}, index.itemsAt(3, 3));
+        assertArrayEquals(new int[]{0}, index.itemsAt(50, 50));
+        assertArrayEquals(new int[]{0, 1}, index.itemsIntersecting(new Rect(0, 0, 10, 10)));
+    }
+
+    @Test
+    public void testInfiniteBounds() {
+        List<Rect> bounds = new ArrayList<Rect>();
+        for (int i = 0; i < 10; i++) {
+            bounds.add(new Rect(i * 10, 0, 5, 5));
+        }
+        bounds.add(new Rect(0, 0, Double.POSITIVE_INFINITY, 5));
+        SpatialIndex index = new SpatialIndex(bounds);
+        assertArrayEquals(new int[]{10}, index.itemsAt(1e9, 1));
+        assertArrayEquals(new int[]{2, 10}, index.itemsAt(21, 1));
+        assertArrayEquals(new int[0], index.itemsAt(1e9, 10));
+    }
+
+    /**
+     * Large boxes that cover many cells are kept out of the grid, but are still found.
+     */
+    @Test
+    public void testLargeOverlappingBounds() {
+        List<Rect> bounds = new ArrayList<Rect>();
+        for (int i = 0; i < 400; i++) {
+            bounds.add(new Rect(i, i, 1, 1));
+        }
+        for (int i = 0; i < 10; i++) {
+            bounds.add(new Rect(-i, -i, 400 + 2 * i, 400 + 2 * i));
+        }
+        SpatialIndex index = new SpatialIndex(bounds);
+        assertArrayEquals(new int[]{100, 400, 401, 402, 403, 404, 405, 406, 407, 408, 409}, index.itemsAt(100.5, 100.5));
+        assertArrayEquals(new int[]{400, 401, 402, 403, 404, 405, 406, 407, 408, 409}, index.itemsAt(100.5, 300.5));
+        assertEquals(12, index.itemsIntersecting(new Rect(50.5, 50.5, 1, 1)).length);
+    }
+
+}
@@ -0,0 +1,82 @@
+package nodebox.graphics;
+
+import org.junit.Test;
+
+import java.awt.font.LineBreakMeasurer;
+import java.awt.font.TextAttribute;
+import java.awt.font.TextLayout;
+import java.awt.geom.AffineTransform;
+import java.text.AttributedString;
+
+import static org.junit.Assert.*;
+
+public class TextTest {
+
+    private static final String[] TEXTS = {"Hello World", "AVAWAY To. fi fl ffi", "Typography 123 !?", "  spaced  out "};
+
+    @Test
+    public void testPathMatchesLayout() {
+        for (String s : TEXTS) {
+            for (double size : new double[]{12, 24, 33.3}) {
+                Text t = new Text(s, 10.5, 20.25);
+                t.setAlign(Text.Align.LEFT);
+                t.setFontSize(size);
+                Path expected = layoutPath(t);
+                Path actual = t.getPath();
+                assertEquals(expected.getContours().size(), actual.getContours().size());
+                assertEquals(expected.getPointCount(), actual.getPointCount());
+                assertRectEquals(expected.getBounds(), actual.getBounds());
+            }
+        }
+    }
+
+    @Test
+    public void testBoundsMatchPath() {
+        for (Text.Align align : Text.Align.values()) {
+            Text t = new Text("The quick brown fox jumps over\nthe lazy dog", 5, 10, 120, 0);
+            t.setAlign(align);
+            assertRectEquals(t.getPath().getBounds(), t.getBounds());
+            t.translate(30, -20);
+            t.scale(1.5);
+            assertRectEquals(t.getPath().getBounds(), t.getBounds());
+            t.rotate(30);
+            assertRectEquals(t.getPath().getBounds(), t.getBounds());
+        }
+    }
+
+    @Test
+    public void testEmptyText() {
+        assertEquals(new Rect(), new Text("", 0, 0).getBounds());
+        assertEquals(new Rect(), new Text("   ", 0, 0).getBounds());
+        assertEquals(0, new Text("   ", 0, 0).getPath().getPointCount());
+    }
+
+    @Test
+    public void testGlyphsAreCached() {
+        Text t = new Text("cached glyphs", 0, 0);
+        t.setAlign(Text.Align.LEFT);
+        t.setFontSize(17.5);
+        t.getPath();
+        long hits = GlyphCache.stats().hitCount();
+        Path p = t.getPath();
+        assertTrue(GlyphCache.stats().hitCount() > hits);
+        // Changing the path doesn't change the cached glyphs.
+        p.transform(Transform.translated(100, 100));
+        assertRectEquals(layoutPath(t).getBounds(), t.getPath().getBounds());
+    }
+
+    private static Path layoutPath(Text t) {
+        AttributedString s = new AttributedString(t.getText());
+        s.addAttribute(TextAttribute.FONT, t.getFont());
+        TextLayout layout = new LineBreakMeasurer(s.getIterator(), GlyphCache.FONT_RENDER_CONTEXT).nextLayout(Float.MAX_VALUE);
+        return new Path(layout.getOutline(AffineTransform.getTranslateInstance(t.getBaseLineX(), t.getBaseLineY())));
+    }
+
+    private static void assertRectEquals(Rect expected, Rect actual) {
+        assertEquals(expected.getX(), actual.getX(), 1e-6);
+        assertEquals(expected.getY(), actual.getY(), 1e-6);
+        assertEquals(expected.getWidth(), actual.getWidth(), 1e-6);
+        assertEquals(expected.getHeight(), actual.getHeight(), 1e-6);
+    }
+
+}
@@ -0,0 +1,59 @@
+package nodebox.movie;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Stands in for ffmpeg when testing movie export.
+ * <p/>
+ * The encoder copies the raw frames it reads from standard input to the output file, and reports progress
+ * the way ffmpeg does. With the "--fail" argument, it reads its input and then fails the way ffmpeg does.
+ */
+public class FakeEncoder {
+
+    public static void main(String[] args) throws IOException {
+        int frameSize = 0;
+        String input = null;
+        boolean fail = false;
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals("--fail")) {
+                fail = true;
+            } else if (args[i].equals("-s")) {
+                String[] size = args[i + 1].split("x");
+                frameSize = Integer.parseInt(size[0]) * Integer.parseInt(size[1]) * 4;
+            } else if (args[i].equals("-i")) {
+                input = args[i + 1];
+            }
+        }
+        if (fail) {
+            while (System.in.read() != -1) {
+                // Read all frames, so the movie doesn't fail on a closed pipe.
+            }
+            System.err.println("Error while opening encoder for output stream #0:0");
+            System.err.println("Conversion failed!");
+            System.exit(1);
+        }
+        if (!"-".equals(input) || frameSize == 0) {
+            System.err.println("Expected raw frames on standard input.");
+            System.exit(1);
+        }
+        String outputFile = args[args.length - 1];
+        InputStream in = System.in;
+        OutputStream out = new FileOutputStream(outputFile);
+        byte[] buffer = new byte[8192];
+        long total = 0;
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+            long frames = total / frameSize;
+            total += n;
+            if (total / frameSize > frames) {
+                System.err.println("frame=" + total / frameSize + " fps=0");
+            }
+        }
+        out.close();
+    }
+
+}
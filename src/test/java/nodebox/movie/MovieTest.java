@@ -0,0 +1,154 @@
+package nodebox.movie;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class MovieTest {
+
+    private File movieFile;
+
+    @Before
+    public void setUp() throws IOException {
+        movieFile = File.createTempFile("movie", ".mp4");
+    }
+
+    @After
+    public void tearDown() {
+        movieFile.delete();
+    }
+
+    @Test
+    public void testStreaming() throws IOException {
+        Movie movie = new Movie(movieFile.getPath(), MP4VideoFormat.HighFormat, 3, 2);
+        movie.setEncoderCommand(fakeEncoderCommand());
+        assertTrue(movie.isStreaming());
+        for (int frame = 0; frame < 5; frame++) {
+            movie.addFrame(frameImage(3, 2, frame));
+        }
+        assertTrue(movie.isStreaming());
+        assertFalse(movie.temporaryFileForFrame(0).exists());
+        StringWriter output = new StringWriter();
+        movie.save(output);
+        assertTrue(output.toString().contains("frame=5"));
+        byte[] bytes = Files.toByteArray(movieFile);
+        assertEquals(5 * 3 * 2 * 4, bytes.length);
+        // The first pixel of the third frame, in RGBA order.
+        int offset = 2 * 3 * 2 * 4;
+        assertArrayEquals(new byte[]{(byte) 0x12, (byte) 0x34, (byte) 2, (byte) 0x80},
+                new byte[]{bytes[offset], bytes[offset + 1], bytes[offset + 2], bytes[offset + 3]});
+    }
+
+    @Test
+    public void testOpaqueImages() throws IOException {
+        Movie movie = new Movie(movieFile.getPath(), WebmVideoFormat.WebmFormat, 2, 2);
+        movie.setEncoderCommand(fakeEncoderCommand());
+        BufferedImage img = new BufferedImage(2, 2, BufferedImage.TYPE_3BYTE_BGR);
+        img.setRGB(1, 1, 0x112233);
+        movie.addFrame(img);
+        movie.save();
+        byte[] bytes = Files.toByteArray(movieFile);
+        assertEquals(16, bytes.length);
+        assertArrayEquals(new byte[]{0x11, 0x22, 0x33, (byte) 0xff},
+                new byte[]{bytes[12], bytes[13], bytes[14], bytes[15]});
+    }
+
+    @Test
+    public void testStreamingEncoderFails() {
+        Movie movie = new Movie(movieFile.getPath(), MP4VideoFormat.HighFormat, 3, 2);
+        movie.setEncoderCommand(failingEncoderCommand());
+        movie.addFrame(frameImage(3, 2, 0));
+        assertTrue(movie.isStreaming());
+        try {
+            movie.save();
+            fail("The encoder failed, so saving the movie should fail.");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().contains("exit code 1"));
+            assertTrue(e.getMessage().endsWith("Conversion failed!"));
+        }
+    }
+
+    @Test
+    public void testEncoderFails() {
+        Movie movie = new Movie(movieFile.getPath(), MP4VideoFormat.HighFormat, 3, 2);
+        movie.setEncoderCommand(failingEncoderCommand());
+        movie.setStreaming(false);
+        movie.addFrame(frameImage(3, 2, 0));
+        try {
+            movie.save();
+            fail("The encoder failed, so saving the movie should fail.");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().endsWith("Conversion failed!"));
+        }
+        assertFalse(movie.temporaryFileForFrame(0).exists());
+    }
+
+    /**
+     * If the encoder can't be started, the frames are stored as temporary images.
+     */
+    @Test
+    public void testFallbackToTemporaryFiles() {
+        Movie movie = new Movie(movieFile.getPath(), MP4VideoFormat.HighFormat, 3, 2);
+        movie.setEncoderCommand(ImmutableList.of(new File(movieFile.getParentFile(), "no-such-encoder").getPath()));
+        movie.addFrame(frameImage(3, 2, 0));
+        assertFalse(movie.isStreaming());
+        assertTrue(movie.temporaryFileForFrame(0).exists());
+        movie.cleanup();
+        assertFalse(movie.temporaryFileForFrame(0).exists());
+    }
+
+    @Test
+    public void testTemporaryFiles() {
+        Movie movie = new Movie(movieFile.getPath(), MP4VideoFormat.HighFormat, 3, 2);
+        movie.setStreaming(false);
+        movie.addFrame(frameImage(3, 2, 0));
+        movie.addFrame(frameImage(3, 2, 1));
+        assertTrue(movie.temporaryFileForFrame(1).exists());
+        movie.cleanup();
+        assertFalse(movie.temporaryFileForFrame(1).exists());
+        try {
+            movie.setStreaming(true);
+            fail("Streaming can only be changed before adding frames.");
+        } catch (IllegalStateException ignored) {
+        }
+    }
+
+    @Test
+    public void testRawInputArguments() {
+        Movie movie = new Movie(movieFile.getPath(), MP4VideoFormat.HighFormat, 640, 480);
+        assertEquals(ImmutableList.of("-f", "rawvideo", "-pix_fmt", "rgba", "-s", "640x480", "-i", "-"),
+                MP4VideoFormat.HighFormat.getRawInputArgumentList(movie));
+    }
+
+    private static BufferedImage frameImage(int width, int height, int frame) {
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                img.setRGB(x, y, 0x80123400 | frame);
+            }
+        }
+        return img;
+    }
+
+    /**
+     * Run the fake encoder in a new JVM with the same class path as the tests.
+     */
+    private static ImmutableList<String> fakeEncoderCommand() {
+        String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+        return ImmutableList.of(java, "-cp", System.getProperty("java.class.path"), FakeEncoder.class.getName());
+    }
+
+    private static ImmutableList<String> failingEncoderCommand() {
+        return ImmutableList.<String>builder().addAll(fakeEncoderCommand()).add("--fail").build();
+    }
+
+}
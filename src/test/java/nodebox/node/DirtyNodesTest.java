@@ -0,0 +1,126 @@
+package nodebox.node;
+
+import com.google.common.collect.ImmutableSet;
+import nodebox.function.Function;
+import nodebox.function.FunctionLibrary;
+import nodebox.function.FunctionRepository;
+import nodebox.function.MathFunctions;
+import org.junit.Test;
+
+import java.util.Set;
+
+import static nodebox.node.NodeContextTest.addNode;
+import static nodebox.node.NodeContextTest.functions;
+import static nodebox.node.NodeContextTest.invertNode;
+import static nodebox.node.NodeContextTest.numberNode;
+import static org.junit.Assert.*;
+
+public class DirtyNodesTest {
+
+    private final Node number1 = numberNode.withName("number1").withInputValue("number", 1.0);
+    private final Node number2 = numberNode.withName("number2").withInputValue("number", 2.0);
+    private final Node network = Node.NETWORK
+            .withChildAdded(number1)
+            .withChildAdded(number2)
+            .withChildAdded(addNode)
+            .withChildAdded(invertNode)
+            .connect("number1", "add", "v1")
+            .connect("number2", "add", "v2")
+            .connect("add", "negate", "value")
+            .withRenderedChildName("negate");
+
+    @Test
+    public void testUnchanged() {
+        assertEquals(ImmutableSet.<String>of(), DirtyNodes.find(network, network, functions));
+    }
+
+    @Test
+    public void testNoPreviousVersion() {
+        assertEquals(ImmutableSet.of("/", "/number1", "/number2", "/add", "/negate"), DirtyNodes.find(null, network, functions));
+    }
+
+    @Test
+    public void testChangedNode() {
+        Node newNetwork = network.withChildReplaced("number1", number1.withInputValue("number", 5.0));
+        Set<String> dirty = DirtyNodes.find(network, newNetwork, functions);
+        assertEquals(ImmutableSet.of("/", "/number1", "/add", "/negate"), dirty);
+    }
+
+    @Test
+    public void testChangedConnection() {
+        Node newNetwork = network.connect("number1", "add", "v2");
+        Set<String> dirty = DirtyNodes.find(network, newNetwork, functions);
+        assertEquals(ImmutableSet.of("/", "/add", "/negate"), dirty);
+    }
+
+    @Test
+    public void testSubnetwork() {
+        Node subnet = Node.NETWORK.withName("subnet")
+                .withChildAdded(number1)
+                .withChildAdded(number2)
+                .withRenderedChildName("number1");
+        Node root = Node.NETWORK
+                .withChildAdded(subnet)
+                .withChildAdded(invertNode)
+                .connect("subnet", "negate", "value");
+        Node newSubnet = subnet.withChildReplaced("number2", number2.withInputValue("number", 3.0));
+        Node newRoot = root.withChildReplaced("subnet", newSubnet);
+        Set<String> dirty = DirtyNodes.find(root, newRoot, functions);
+        assertEquals(ImmutableSet.of("/", "/subnet", "/subnet/number2", "/negate"), dirty);
+    }
+
+    @Test
+    public void testVolatileNodes() {
+        Node frame = Node.ROOT
+                .withName("frame")
+                .withFunction("core/frame")
+                .withInputAdded(Port.customPort("context", "context"));
+        Node root = Node.NETWORK
+                .withChildAdded(frame)
+                .withChildAdded(invertNode)
+                .withChildAdded(number1)
+                .connect("frame", "negate", "value");
+        assertEquals(ImmutableSet.of("/frame", "/negate"), DirtyNodes.find(root, root, functions));
+        assertTrue(DirtyNodes.isVolatile(root, functions));
+        assertFalse(DirtyNodes.isVolatile(network, functions));
+    }
+
+    @Test
+    public void testScriptNodesAreVolatile() {
+        FunctionLibrary python = new FunctionLibrary() {
+            public String getSimpleIdentifier() {
+                return "script";
+            }
+
+            public String getNamespace() {
+                return "script";
+            }
+
+            public String getLanguage() {
+                return "python";
+            }
+
+            public String getLink(java.io.File baseFile) {
+                return "python:script.py";
+            }
+
+            public Function getFunction(String name) {
+                return null;
+            }
+
+            public boolean hasFunction(String name) {
+                return true;
+            }
+        };
+        FunctionRepository repository = FunctionRepository.of(MathFunctions.LIBRARY, python);
+        Node script = numberNode.withName("script").withFunction("script/number");
+        Node root = Node.NETWORK
+                .withChildAdded(script)
+                .withChildAdded(invertNode)
+                .connect("script", "negate", "value");
+        assertTrue(DirtyNodes.isVolatile(script, repository));
+        assertFalse(DirtyNodes.isVolatile(numberNode, repository));
+        assertEquals(ImmutableSet.of("/script", "/negate"), DirtyNodes.find(root, root, repository));
+    }
+
+}
@@ -0,0 +1,110 @@
+package nodebox.node;
+
+import com.google.common.collect.ImmutableMap;
+import nodebox.function.FunctionRepository;
+import nodebox.function.MathFunctions;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static junit.framework.TestCase.*;
+
+public class FrameRendererTest {
+
+    private static final FunctionRepository functions = FunctionRepository.of(MathFunctions.LIBRARY);
+
+    private static final Node frameNode = Node.ROOT
+            .withName("frame")
+            .withFunction("core/frame")
+            .withInputAdded(Port.customPort("context", "context"));
+
+    private static final Node negateNode = Node.ROOT
+            .withName("negate")
+            .withFunction("math/negate")
+            .withInputAdded(Port.floatPort("value", 0.0));
+
+    private static final Node frameNetwork = Node.NETWORK
+            .withChildAdded(frameNode)
+            .withChildAdded(negateNode)
+            .connect("frame", "negate", "value")
+            .withRenderedChildName("negate");
+
+    @Test
+    public void testParallelFramesInOrder() {
+        NodeLibrary library = NodeLibrary.create("test", frameNetwork, functions);
+        FrameRenderer renderer = new FrameRenderer(library, functions, ImmutableMap.<String, Object>of(), 4);
+        assertTrue(renderer.isParallel());
+        List<Integer> frames = new ArrayList<Integer>();
+        List<Object> values = new ArrayList<Object>();
+        renderFrames(renderer, 1, 50, frames, values);
+        assertEquals(50, frames.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i + 1, (int) frames.get(i));
+            assertEquals(-(i + 1.0), values.get(i));
+        }
+    }
+
+    @Test
+    public void testRenderCache() {
+        NodeLibrary library = NodeLibrary.create("test", frameNetwork, functions);
+        List<Integer> frames = new ArrayList<Integer>();
+        List<Object> values = new ArrayList<Object>();
+        renderFrames(new FrameRenderer(library, functions, ImmutableMap.<String, Object>of(), 4), 1, 10, frames, values);
+        RenderCache renderCache = new RenderCache();
+        FrameRenderer renderer = new FrameRenderer(library, functions, ImmutableMap.<String, Object>of(), ImmutableMap.<String, Object>of(), renderCache, 4);
+        List<Object> cachedValues = new ArrayList<Object>();
+        renderFrames(renderer, 1, 10, new ArrayList<Integer>(), cachedValues);
+        assertEquals(values, cachedValues);
+        assertTrue(renderCache.size() > 0);
+    }
+
+    @Test
+    public void testStateIsSerial() {
+        Node stateNode = negateNode.extend()
+                .withName("stateful")
+                .withInputAdded(Port.customPort("state", Port.TYPE_STATE));
+        NodeLibrary library = NodeLibrary.create("test", frameNetwork.withChildAdded(stateNode), functions);
+        assertFalse(new FrameRenderer(library, functions, ImmutableMap.<String, Object>of(), 4).isParallel());
+    }
+
+    @Test
+    public void testSingleThreadIsSerial() {
+        NodeLibrary library = NodeLibrary.create("test", frameNetwork, functions);
+        FrameRenderer renderer = new FrameRenderer(library, functions, ImmutableMap.<String, Object>of(), 1);
+        assertFalse(renderer.isParallel());
+        List<Integer> frames = new ArrayList<Integer>();
+        List<Object> values = new ArrayList<Object>();
+        renderFrames(renderer, 5, 7, frames, values);
+        assertEquals(3, frames.size());
+        assertEquals(-7.0, values.get(2));
+    }
+
+    @Test
+    public void testInterrupted() {
+        NodeLibrary library = NodeLibrary.create("test", frameNetwork, functions);
+        FrameRenderer renderer = new FrameRenderer(library, functions, ImmutableMap.<String, Object>of(), 4);
+        final List<Integer> frames = new ArrayList<Integer>();
+        renderer.render(1, 100, new FrameRenderer.FrameListener() {
+            public void frameDone(int frame, List<?> results) {
+                frames.add(frame);
+                if (frame == 10) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        // Clear the interrupted flag so it doesn't leak into other tests.
+        assertTrue(Thread.interrupted());
+        assertEquals(10, frames.size());
+    }
+
+    private static void renderFrames(FrameRenderer renderer, int fromFrame, int toFrame, final List<Integer> frames, final List<Object> values) {
+        renderer.render(fromFrame, toFrame, new FrameRenderer.FrameListener() {
+            public void frameDone(int frame, List<?> results) {
+                frames.add(frame);
+                values.add(results.get(0));
+            }
+        });
+    }
+
+}
@@ -4,12 +4,14 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import nodebox.function.*;
 import nodebox.graphics.Color;
+import nodebox.graphics.Path;
 import nodebox.graphics.Point;
 import nodebox.util.SideEffects;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import static junit.framework.TestCase.*;
 import static nodebox.util.Assertions.assertNoResults;
@@ -711,4 +713,255 @@ public class NodeContextTest {
         assertResultsEqual(values, 15.0);
     }
 
+    @Test
+    public void testRenderCache() {
+        Node increase = Node.ROOT
+                .withName("increase")
+                .withFunction("side-effects/increaseAndCount")
+                .withInputAdded(Port.floatPort("counter", 42.0));
+        Node network = Node.NETWORK
+                .withChildAdded(increase)
+                .withChildAdded(invertNode)
+                .connect("increase", "negate", "value")
+                .withRenderedChildName("negate");
+        NodeLibrary library = testLibrary.withRoot(network);
+        RenderCache renderCache = new RenderCache();
+
+        SideEffects.reset();
+        assertResultsEqual(renderWithCache(library, renderCache), -43.0);
+        assertResultsEqual(renderWithCache(library, renderCache), -43.0);
+        assertEquals(1L, SideEffects.theCounter);
+
+        // Changing the input value creates a new node, which is not in the cache.
+        library = library.withRoot(network.withChildReplaced("increase", increase.withInputValue("counter", 10.0)));
+        assertResultsEqual(renderWithCache(library, renderCache), -11.0);
+        assertEquals(2L, SideEffects.theCounter);
+    }
+
+    @Test
+    public void testRenderCacheSkipsContextNodes() {
+        Node frame = Node.ROOT
+                .withName("frame")
+                .withFunction("core/frame")
+                .withInputAdded(Port.customPort("context", "context"));
+        assertFalse(RenderCache.isCacheable(frame));
+        assertFalse(RenderCache.isCacheable(numberNode.withAlwaysRenderedSet(true)));
+        assertFalse(RenderCache.isCacheable(Node.ROOT.withName("noInputs").withFunction("side-effects/getNumber")));
+        assertTrue(RenderCache.isCacheable(numberNode));
+    }
+
+    @Test
+    public void testRenderCacheKeepsGeometryChains() {
+        Node ellipse = Node.ROOT
+                .withName("ellipse")
+                .withFunction("corevector/ellipse")
+                .withOutputType("geometry")
+                .withInputAdded(Port.pointPort("position", Point.ZERO))
+                .withInputAdded(Port.floatPort("width", 100.0))
+                .withInputAdded(Port.floatPort("height", 50.0));
+        Node colorize = Node.ROOT
+                .withName("colorize")
+                .withFunction("corevector/colorize")
+                .withOutputType("geometry")
+                .withInputAdded(Port.customPort("shape", "geometry"))
+                .withInputAdded(Port.colorPort("fill", Color.BLACK))
+                .withInputAdded(Port.colorPort("stroke", Color.BLACK))
+                .withInputAdded(Port.floatPort("strokeWidth", 1.0));
+        Node centroid = Node.ROOT
+                .withName("centroid")
+                .withFunction("corevector/centroid")
+                .withOutputType("point")
+                .withInputAdded(Port.customPort("shape", "geometry"));
+        Node network = Node.NETWORK
+                .withChildAdded(ellipse)
+                .withChildAdded(colorize)
+                .withChildAdded(centroid)
+                .connect("ellipse", "colorize", "shape")
+                .connect("colorize", "centroid", "shape")
+                .withRenderedChildName("centroid");
+        NodeLibrary library = testLibrary.withRoot(network);
+        RenderCache renderCache = new RenderCache();
+        renderWithCache(library, renderCache);
+        assertEquals(0, renderCache.stats().hitCount());
+        assertEquals(3, renderCache.size());
+
+        // Every node downstream of a hit gets the cached geometry, so it hits the cache as well.
+        List<?> results = renderWithCache(library, renderCache);
+        assertResultsEqual(results, Point.ZERO);
+        assertEquals(3, renderCache.stats().hitCount());
+        assertEquals(3, renderCache.size());
+    }
+
+    @Test
+    public void testRenderCacheResults() {
+        RenderCache renderCache = new RenderCache();
+        Function function = functions.getFunction("math/number");
+        Path path = new Path();
+        path.line(0, 0, 10, 10);
+        // Geometry arguments are compared by identity, values by equality.
+        Object[] arguments = {path, 1.0};
+        List<Path> result = ImmutableList.of(path);
+        renderCache.putResult(numberNode, function, arguments, result);
+        assertSame(result, renderCache.getResult(numberNode, function, new Object[]{path, 1.0}));
+        assertNull(renderCache.getResult(numberNode, function, new Object[]{path.clone(), 1.0}));
+        assertNull(renderCache.getResult(numberNode, function, new Object[]{path, 2.0}));
+
+        // Results of unknown types are not cached.
+        renderCache.putResult(invertNode, function, arguments, new StringBuilder("mutable"));
+        assertNull(renderCache.getResult(invertNode, function, arguments));
+
+        // Scripts get copies of geometry arguments.
+        Object[] copies = RenderCache.copyArguments(new Object[]{result, 1.0});
+        assertNotSame(path, ((List<?>) copies[0]).get(0));
+        assertEquals(2, ((Path) ((List<?>) copies[0]).get(0)).getPointCount());
+        assertEquals(1.0, copies[1]);
+    }
+
+    @Test
+    public void testRenderCacheSkipsScriptLibraries() {
+        assertTrue(RenderCache.isCacheable(MathFunctions.LIBRARY));
+        FunctionLibrary python = new FunctionLibrary() {
+            public String getSimpleIdentifier() {
+                return "script";
+            }
+
+            public String getNamespace() {
+                return "script";
+            }
+
+            public String getLanguage() {
+                return "python";
+            }
+
+            public String getLink(java.io.File baseFile) {
+                return "python:script.py";
+            }
+
+            public Function getFunction(String name) {
+                return null;
+            }
+
+            public boolean hasFunction(String name) {
+                return false;
+            }
+        };
+        assertFalse(RenderCache.isCacheable(python));
+    }
+
+    private List<?> renderWithCache(NodeLibrary library, RenderCache renderCache) {
+        NodeContext context = new NodeContext(library, null, ImmutableMap.of("frame", 1.0), ImmutableMap.<String, List<?>>of(), ImmutableMap.<String, Object>of(), renderCache);
+        return context.renderNode("/");
+    }
+
+    @Test
+    public void testReuseResults() {
+        Node increase = Node.ROOT
+                .withName("increase")
+                .withFunction("side-effects/increaseAndCount")
+                .withInputAdded(Port.floatPort("counter", 42.0));
+        Node number = numberNode.withInputValue("number", 10.0);
+        Node network = Node.NETWORK
+                .withChildAdded(increase)
+                .withChildAdded(number)
+                .withChildAdded(addNode)
+                .connect("increase", "add", "v1")
+                .connect("number", "add", "v2")
+                .withRenderedChildName("add");
+        NodeContext context = new NodeContext(testLibrary.withRoot(network));
+        assertResultsEqual(context.renderNode("/"), 53.0);
+        assertEquals(1L, SideEffects.theCounter);
+
+        // Changing a node that is not upstream of the increase node doesn't evaluate it again.
+        Node changedNetwork = network.withChildReplaced("number", number.withInputValue("number", 20.0));
+        NodeContext nextContext = new NodeContext(testLibrary.withRoot(changedNetwork));
+        nextContext.reuseResults(context);
+        assertResultsEqual(nextContext.renderNode("/"), 63.0);
+        assertEquals(1L, SideEffects.theCounter);
+
+        changedNetwork = network.withChildReplaced("increase", increase.withInputValue("counter", 0.0));
+        NodeContext lastContext = new NodeContext(testLibrary.withRoot(changedNetwork));
+        lastContext.reuseResults(nextContext);
+        assertResultsEqual(lastContext.renderNode("/"), 11.0);
+        assertEquals(2L, SideEffects.theCounter);
+    }
+
+    @Test
+    public void testReusedResultsAreCopies() {
+        Node ellipse = Node.ROOT
+                .withName("ellipse")
+                .withFunction("corevector/ellipse")
+                .withOutputType("geometry")
+                .withInputAdded(Port.pointPort("position", Point.ZERO))
+                .withInputAdded(Port.floatPort("width", 100.0))
+                .withInputAdded(Port.floatPort("height", 50.0));
+        Node network = Node.NETWORK
+                .withChildAdded(ellipse)
+                .withChildAdded(numberNode)
+                .withRenderedChildName("ellipse");
+        NodeContext context = new NodeContext(testLibrary.withRoot(network));
+        context.renderNode("/");
+        Path path = (Path) context.getRenderResults().get("/ellipse").get(0);
+
+        NodeContext nextContext = new NodeContext(testLibrary.withRoot(network.withChildReplaced("number", numberNode.withInputValue("number", 2.0))));
+        nextContext.reuseResults(context);
+        Path reused = (Path) nextContext.getRenderResults().get("/ellipse").get(0);
+        assertNotSame(path, reused);
+        assertEquals(path.getPointCount(), reused.getPointCount());
+    }
+
+    @Test
+    public void testParallelEvaluation() {
+        Node increase = Node.ROOT
+                .withName("increase")
+                .withFunction("side-effects/increaseAndCount")
+                .withInputAdded(Port.floatPort("counter", 42.0));
+        Node invert1 = invertNode.withName("invert1");
+        Node invert2 = invertNode.withName("invert2");
+        Node network = Node.NETWORK
+                .withChildAdded(increase)
+                .withChildAdded(invert1)
+                .withChildAdded(invert2)
+                .withChildAdded(addNode)
+                .connect("increase", "invert1", "value")
+                .connect("increase", "invert2", "value")
+                .connect("invert1", "add", "v1")
+                .connect("invert2", "add", "v2")
+                .withRenderedChildName("add");
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            NodeContext context = new NodeContext(testLibrary.withRoot(network));
+            context.setEvaluationPool(pool);
+            assertResultsEqual(context.renderNode("/"), -86.0);
+            // The increase node is shared by both branches, but only evaluated once.
+            assertEquals(1L, SideEffects.theCounter);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelListMatching() {
+        StringBuilder numbers = new StringBuilder();
+        ImmutableList.Builder<Double> expected = ImmutableList.builder();
+        for (int i = 1; i <= 1000; i++) {
+            numbers.append(i).append(" ");
+            expected.add((double) -i);
+        }
+        Node makeNumbers = makeNumbersNode.withInputValue("string", numbers.toString().trim());
+        Node network = Node.NETWORK
+                .withChildAdded(makeNumbers)
+                .withChildAdded(invertNode)
+                .connect("makeNumbers", "negate", "value")
+                .withRenderedChildName("negate");
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            NodeContext context = new NodeContext(testLibrary.withRoot(network));
+            context.setEvaluationPool(pool);
+            assertEquals(expected.build(), context.renderNode("/"));
+            assertResultsEqual(context.getRenderResults().get("/negate"), -1000.0);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
 }
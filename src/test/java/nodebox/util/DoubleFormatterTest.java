@@ -0,0 +1,185 @@
+package nodebox.util;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import nodebox.graphics.*;
+import nodebox.node.Node;
+import nodebox.node.NodeLibrary;
+import nodebox.node.Port;
+import org.junit.Test;
+
+import java.awt.geom.Rectangle2D;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class DoubleFormatterTest {
+
+    static final double[] SPECIAL_VALUES = {
+            0, -0.0, 1, -1, 0.5, 0.125, -0.125, 0.375, 1.005, 2.675, 1.115, 0.045, -0.005, -0.001, 0.001, 0.1, 0.2, 0.3,
+            1e-7, 4.35, 10.255, 99.995, 999.9949999, 12345.6789, -98765.4321, 1e15 + 0.5, 1e16, 4.5e15, 1e17, 1e22,
+            1e300, -1e-300, Double.MIN_VALUE, Double.MAX_VALUE, Long.MAX_VALUE, Long.MIN_VALUE,
+            Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY
+    };
+
+    @Test
+    public void testFixedMatchesFormat() {
+        for (int decimals = 0; decimals <= 6; decimals++) {
+            for (double v : SPECIAL_VALUES) {
+                assertFixed(v, decimals);
+            }
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 200000; i++) {
+            double v;
+            switch (i % 4) {
+                case 0:
+                    v = (random.nextDouble() - 0.5) * 2000;
+                    break;
+                case 1:
+                    // Values on a fine grid often sit exactly on a rounding tie.
+                    v = (random.nextInt(200000) - 100000) / 1000.0;
+                    break;
+                case 2:
+                    v = (random.nextInt(2000) - 1000) / 8.0;
+                    break;
+                default:
+                    v = Double.longBitsToDouble(random.nextLong());
+            }
+            assertFixed(v, i % 5);
+        }
+    }
+
+    @Test
+    public void testShortestMatchesToString() {
+        for (double v : SPECIAL_VALUES) {
+            assertShortest(v);
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            assertShortest(Double.longBitsToDouble(random.nextLong()));
+            assertShortest((random.nextDouble() - 0.5) * 2000);
+        }
+    }
+
+    @Test
+    public void testSmart() {
+        assertEquals("0", DoubleFormatter.formatSmart(0, 2));
+        assertEquals("0", DoubleFormatter.formatSmart(-0.0, 2));
+        assertEquals("-12", DoubleFormatter.formatSmart(-12, 2));
+        assertEquals("12.50", DoubleFormatter.formatSmart(12.5, 2));
+        assertEquals("0.13", DoubleFormatter.formatSmart(0.125, 2));
+        assertEquals("1.01", DoubleFormatter.formatSmart(1.005, 2));
+        assertEquals("-0.00", DoubleFormatter.formatSmart(-0.001, 2));
+        assertEquals("1.2", DoubleFormatter.formatSmart(1.234, 1));
+    }
+
+    @Test
+    public void testGoldenSVG() {
+        assertGolden("golden.svg", SVGRenderer.renderToString(goldenObjects(), goldenBounds()));
+    }
+
+    @Test
+    public void testGoldenCSV() {
+        assertGolden("golden-paths.csv", CSVRenderer.renderToString(goldenPaths(), ';', true));
+        assertGolden("golden-points.csv", CSVRenderer.renderToString(goldenPoints(), ',', false));
+        assertGolden("golden-rows.csv", CSVRenderer.renderToString(goldenRows(), ';', true));
+    }
+
+    @Test
+    public void testGoldenNDBX() {
+        String xml = goldenLibrary().toXml().replaceAll("uuid=\"[^\"]*\"", "uuid=\"\"");
+        assertGolden("golden.ndbx", xml);
+    }
+
+    private static void assertFixed(double v, int decimals) {
+        String expected = String.format(Locale.US, "%." + decimals + "f", v);
+        StringBuilder sb = new StringBuilder("x");
+        DoubleFormatter.appendFixed(sb, v, decimals);
+        assertEquals("Formatting " + v + " with " + decimals + " decimals", "x" + expected, sb.toString());
+    }
+
+    private static void assertShortest(double v) {
+        StringBuilder sb = new StringBuilder();
+        DoubleFormatter.appendShortest(sb, v);
+        assertEquals(Double.toString(v), sb.toString());
+    }
+
+    private static void assertGolden(String fileName, String actual) {
+        String expected = FileUtils.readFile(new File("src/test/files/golden", fileName));
+        // readFile ends every line with a newline.
+        if (!actual.endsWith("\n")) {
+            actual = actual + "\n";
+        }
+        assertEquals(expected, actual);
+    }
+
+    static Rectangle2D goldenBounds() {
+        return new Rectangle2D.Double(-10.125, 0.005, 500.5, 333.335);
+    }
+
+    static List<Path> goldenPaths() {
+        List<Path> paths = new ArrayList<Path>();
+        for (int i = 0; i < SPECIAL_VALUES.length - 3; i++) {
+            double v = SPECIAL_VALUES[i];
+            Path p = new Path();
+            p.moveto(v, i * 0.125);
+            p.lineto(i * 1.005, v / 3);
+            p.curveto(v * 0.1, 2.675, -i / 7.0, 4.35, 10.255, v);
+            if (i % 2 == 0) p.close();
+            p.setFill(i % 3 == 0 ? null : new Color(i / 40.0, 0.5, 0.125));
+            if (i % 4 == 0) {
+                p.setStroke(new Color(0.2, 0.4, 0.6));
+                p.setStrokeWidth(i * 0.335);
+            }
+            paths.add(p);
+        }
+        return paths;
+    }
+
+    static List<Object> goldenObjects() {
+        List<Path> paths = goldenPaths();
+        nodebox.graphics.Geometry g = new nodebox.graphics.Geometry();
+        for (Path p : paths.subList(0, 10)) {
+            g.add(p);
+        }
+        return ImmutableList.<Object>builder().add(g).addAll(paths.subList(10, paths.size())).build();
+    }
+
+    static List<Point> goldenPoints() {
+        List<Point> points = new ArrayList<Point>();
+        for (int i = 0; i < SPECIAL_VALUES.length; i++) {
+            points.add(new Point(SPECIAL_VALUES[i], i / 3.0));
+        }
+        return points;
+    }
+
+    static List<Object> goldenRows() {
+        List<Object> rows = new ArrayList<Object>();
+        for (int i = 0; i < SPECIAL_VALUES.length; i++) {
+            rows.add(ImmutableMap.of("name", "row " + i, "value", SPECIAL_VALUES[i], "count", i, "ratio", i / 7.0));
+        }
+        return rows;
+    }
+
+    static NodeLibrary goldenLibrary() {
+        Node net = Node.NETWORK.withName("root");
+        for (int i = 0; i < 12; i++) {
+            double v = SPECIAL_VALUES[i * 2];
+            Node node = Node.ROOT
+                    .withName("node" + i)
+                    .withPosition(new Point(i * 1.005, -v))
+                    .withInputAdded(Port.floatPort("value", v))
+                    .withInputAdded(Port.floatPort("ranged", i / 3.0, -v, i * 0.125))
+                    .withInputAdded(Port.pointPort("point", new Point(v, i * 2.675)))
+                    .withInputAdded(Port.intPort("count", i));
+            net = net.withChildAdded(node);
+        }
+        return NodeLibrary.create("golden", net);
+    }
+
+}